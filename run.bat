@@ -7,5 +7,5 @@ set "MODULE_PATH=target\dependency"
 set "MAIN_CLASS=com.tradingbot.tinkoff.TinkoffTradingBotApplication"
 
 java --module-path %MODULE_PATH% ^
-     --add-modules javafx.controls,javafx.fxml ^
+     --add-modules javafx.controls,javafx.fxml,jdk.incubator.vector ^
      -jar target\%APP_NAME%
@@ -0,0 +1,73 @@
+package com.tradingbot.tinkoff.bench;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+
+/**
+ * Эталон метрик бенчмарка в properties-файле и проверка прогона на регрессии.
+ *
+ * Эталон зависит от машины: его обновляют ({@code -Dtradingbot.bench.updateBaseline=true})
+ * на той же машине, где бенчмарк используется как проверка.
+ */
+final class BenchBaseline {
+
+    /**
+     * Метрика прогона.
+     *
+     * @param higherIsBetter направление: пропускная способность и емкость растут, задержки и аллокации падают
+     */
+    record Metric(String key, double value, boolean higherIsBetter) {
+    }
+
+    private BenchBaseline() {
+    }
+
+    /**
+     * Метрики, ухудшившиеся больше чем на tolerance; метрики без эталона пропускаются.
+     *
+     * @return описания регрессий
+     */
+    static List<String> compare(Path file, List<Metric> metrics, double tolerance) throws IOException {
+        Properties baseline = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            baseline.load(reader);
+        }
+        List<String> regressions = new ArrayList<>();
+        for (Metric metric : metrics) {
+            String stored = baseline.getProperty(metric.key());
+            if (stored == null) {
+                continue;
+            }
+            double reference = Double.parseDouble(stored);
+            boolean regressed = metric.higherIsBetter()
+                    ? metric.value() < reference * (1 - tolerance)
+                    // Абсолютный допуск 1 на случай нулевого эталона (аллокации на событие)
+                    : metric.value() > reference * (1 + tolerance) + 1;
+            if (regressed) {
+                regressions.add(String.format(Locale.ROOT, "%s: %.2f (эталон %.2f, допуск %.0f%%)",
+                        metric.key(), metric.value(), reference, tolerance * 100));
+            }
+        }
+        return regressions;
+    }
+
+    static void store(Path file, List<Metric> metrics, String comment) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("# " + comment + System.lineSeparator());
+            for (Metric metric : metrics) {
+                writer.write(String.format(Locale.ROOT, "%s=%.2f%n", metric.key(), metric.value()));
+            }
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.tradingbot.tinkoff.bench;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.nio.file.Path;
+
+/**
+ * Параметры сквозного бенчмарка. Задаются системными свойствами {@code tradingbot.bench.*}
+ * (профиль {@code bench} в pom.xml передает их из свойств Maven).
+ */
+@Getter
+@Builder(toBuilder = true)
+class BenchConfig {
+    private static final String PREFIX = "tradingbot.bench.";
+
+    // Записи MarketDataRecorder (файл или каталог); не задано — синтетический день
+    private final Path data;
+    @Builder.Default
+    private final Path workDir = Path.of("target", "bench");
+    // Инструментов в прогоне (для записей — первые по имени файла)
+    @Builder.Default
+    private final int instruments = 16;
+
+    // Синтетический день: длительность сессии и интенсивность потоков на инструмент
+    @Builder.Default
+    private final int sessionMinutes = 520;
+    @Builder.Default
+    private final double booksPerSecond = 1.0;
+    @Builder.Default
+    private final double tradesPerSecond = 0.5;
+    @Builder.Default
+    private final long seed = 42;
+
+    // Прогревочные прогоны того же дня до замера
+    @Builder.Default
+    private final int warmupRuns = 1;
+    // Целевой p99 задержки события для отчета о емкости, мкс
+    @Builder.Default
+    private final double targetP99Micros = 1000;
+
+    // Сохраненный эталон; не задан — сравнение пропускается
+    private final Path baseline;
+    // Допустимое ухудшение метрики относительно эталона (0.2 = 20%)
+    @Builder.Default
+    private final double tolerance = 0.2;
+    @Builder.Default
+    private final boolean updateBaseline = false;
+    @Builder.Default
+    private final boolean failOnRegression = true;
+
+    static BenchConfig fromSystemProperties() {
+        BenchConfig defaults = builder().build();
+        return builder()
+                .data(path("data", null))
+                .workDir(path("workDir", defaults.workDir))
+                .instruments(Integer.parseInt(property("instruments", defaults.instruments)))
+                .sessionMinutes(Integer.parseInt(property("sessionMinutes", defaults.sessionMinutes)))
+                .booksPerSecond(Double.parseDouble(property("booksPerSecond", defaults.booksPerSecond)))
+                .tradesPerSecond(Double.parseDouble(property("tradesPerSecond", defaults.tradesPerSecond)))
+                .seed(Long.parseLong(property("seed", defaults.seed)))
+                .warmupRuns(Integer.parseInt(property("warmupRuns", defaults.warmupRuns)))
+                .targetP99Micros(Double.parseDouble(property("targetP99Micros", defaults.targetP99Micros)))
+                .baseline(path("baseline", null))
+                .tolerance(Double.parseDouble(property("tolerance", defaults.tolerance)))
+                .updateBaseline(Boolean.parseBoolean(property("updateBaseline", defaults.updateBaseline)))
+                .failOnRegression(Boolean.parseBoolean(property("failOnRegression", defaults.failOnRegression)))
+                .build();
+    }
+
+    private static String property(String name, Object defaultValue) {
+        String value = System.getProperty(PREFIX + name, "").trim();
+        return value.isEmpty() ? String.valueOf(defaultValue) : value;
+    }
+
+    // Пустое свойство (незаданное свойство Maven) равносильно отсутствующему
+    private static Path path(String name, Path defaultValue) {
+        String value = System.getProperty(PREFIX + name, "").trim();
+        return value.isEmpty() ? defaultValue : Path.of(value);
+    }
+}
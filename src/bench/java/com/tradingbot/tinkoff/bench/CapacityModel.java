@@ -0,0 +1,95 @@
+package com.tradingbot.tinkoff.bench;
+
+/**
+ * Оценка емкости одного ядра: сколько инструментов оно обслуживает при целевом p99 задержки.
+ *
+ * Модель — одна очередь FIFO на ядро (как поток стратегий). Поток событий N инструментов
+ * получается из замеренного прогона M инструментов сжатием времени в N/M раз: сохраняются
+ * всплески записи и замеренные времена обработки событий. Задержка события — ожидание
+ * в очереди плюс обработка (рекурсия Линдли). Кэши процессора при N > M не моделируются,
+ * поэтому оценка — верхняя граница.
+ */
+final class CapacityModel {
+    private static final int MAX_INSTRUMENTS = 1 << 20;
+
+    private final long[] arrivalMillis;
+    private final long[] serviceNanos;
+    private final int count;
+    private final int measuredInstruments;
+    private final LatencyHistogram response = new LatencyHistogram();
+
+    /**
+     * @param arrivalMillis время событий в записи (по неубыванию)
+     * @param serviceNanos  замеренное время обработки событий
+     */
+    CapacityModel(long[] arrivalMillis, long[] serviceNanos, int count, int measuredInstruments) {
+        this.arrivalMillis = arrivalMillis;
+        this.serviceNanos = serviceNanos;
+        this.count = count;
+        this.measuredInstruments = measuredInstruments;
+    }
+
+    /**
+     * p99 задержки события при instruments инструментах на ядро, нс.
+     */
+    long p99(int instruments) {
+        simulate(instruments);
+        return response.percentile(0.99);
+    }
+
+    /**
+     * Загрузка ядра при instruments инструментах (доля времени обработки).
+     */
+    double utilization(int instruments) {
+        if (count < 2) {
+            return 0;
+        }
+        double busy = 0;
+        for (int i = 0; i < count; i++) {
+            busy += serviceNanos[i];
+        }
+        double span = (arrivalMillis[count - 1] - arrivalMillis[0]) * 1e6 * measuredInstruments / instruments;
+        return span > 0 ? busy / span : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Наибольшее число инструментов, при котором p99 не превышает targetNanos; 0, если недостижимо.
+     */
+    int maxInstruments(long targetNanos) {
+        if (count == 0 || p99(1) > targetNanos) {
+            return 0;
+        }
+        int low = 1;
+        int high = 2;
+        while (high < MAX_INSTRUMENTS && p99(high) <= targetNanos) {
+            low = high;
+            high *= 2;
+        }
+        if (high >= MAX_INSTRUMENTS) {
+            return low;
+        }
+        // p99(low) <= target < p99(high)
+        while (high - low > 1) {
+            int middle = (low + high) >>> 1;
+            if (p99(middle) <= targetNanos) {
+                low = middle;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private void simulate(int instruments) {
+        response.reset();
+        double scale = 1e6 * measuredInstruments / instruments; // мс записи -> нс модели
+        double wait = 0;
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                double gap = (arrivalMillis[i] - arrivalMillis[i - 1]) * scale;
+                wait = Math.max(0, wait + serviceNanos[i - 1] - gap);
+            }
+            response.record((long) (wait + serviceNanos[i]));
+        }
+    }
+}
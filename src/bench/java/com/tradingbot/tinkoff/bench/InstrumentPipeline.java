@@ -0,0 +1,165 @@
+package com.tradingbot.tinkoff.bench;
+
+import com.tradingbot.tinkoff.backtest.BacktestClock;
+import com.tradingbot.tinkoff.backtest.MarketEvent;
+import com.tradingbot.tinkoff.backtest.SimulatedBroker;
+import com.tradingbot.tinkoff.model.TradableInstrument;
+import com.tradingbot.tinkoff.model.TradingSignal;
+import com.tradingbot.tinkoff.processor.SignalExecutor;
+import com.tradingbot.tinkoff.risk.RiskManager;
+import com.tradingbot.tinkoff.strategy.MultiStrategyManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Живой конвейер одного инструмента, как в {@code InstrumentProcessor}, но с подачей событий
+ * из записи в текущем потоке: сделки строят минутные бары и поток ордеров, стаканы дают
+ * интрабар-тики по середине спреда. Анализ — на закрытии бара и по таймеру планировщика,
+ * риск и исполнение — через {@link SignalExecutor} с общим {@link SimulatedBroker}.
+ */
+final class InstrumentPipeline {
+    private static final Logger logger = LoggerFactory.getLogger(InstrumentPipeline.class);
+    // Период планировщика анализа в InstrumentProcessor
+    private static final long ANALYSIS_PERIOD_MILLIS = 10_000;
+
+    private final TradableInstrument instrument;
+    private final MultiStrategyManager strategyManager;
+    private final SignalExecutor signalExecutor;
+    private final SimulatedBroker broker;
+    private final BacktestClock clock;
+    private final StageRecorder recorder;
+    private final long barMillis;
+
+    // Открытый бар из сделок
+    private long barStart = Long.MIN_VALUE;
+    private double open;
+    private double high;
+    private double low;
+    private double close;
+    private double volume;
+    private long nextAnalysisMillis = Long.MIN_VALUE;
+
+    private int barCount;
+    private int signalCount;
+    private int errorCount;
+
+    InstrumentPipeline(TradableInstrument instrument, List<String> strategies, Duration barDuration,
+                       SimulatedBroker broker, BacktestClock clock, StageRecorder recorder) {
+        this.instrument = instrument;
+        this.broker = broker;
+        this.clock = clock;
+        this.recorder = recorder;
+        this.barMillis = barDuration.toMillis();
+
+        this.strategyManager = new MultiStrategyManager(instrument, strategies);
+        strategyManager.setClock(clock);
+        strategyManager.setBarDuration(barDuration);
+        StagedOrderGateway gateway = new StagedOrderGateway(broker, recorder);
+        this.signalExecutor = new SignalExecutor(
+                instrument,
+                strategyManager,
+                RiskManager.withDefaults(gateway),
+                gateway,
+                clock,
+                Runnable::run, // Приказы исполняются сразу, в потоке прогона
+                logger::debug,
+                signal -> signalCount++,
+                this::onError
+        );
+    }
+
+    /**
+     * Обработка события; стадии отмечаются в {@link StageRecorder}.
+     */
+    void onEvent(MarketEvent event) {
+        long time = event.getTimeMillis();
+        if (barStart != Long.MIN_VALUE && time >= barStart + barMillis) {
+            closeBar();
+        }
+        clock.setMillis(time);
+
+        recorder.mark(StageRecorder.Stage.BARS);
+        TradingSignal signal;
+        if (event.getType() == MarketEvent.Type.TRADE) {
+            onTrade(time, event.getPrice(), event.getQuantity());
+            signal = strategyManager.onTrade(instrument, time, event.getPrice(), event.getQuantity(), event.getSide());
+        } else if (event.getBidCount() > 0 && event.getAskCount() > 0) {
+            double mid = (event.bidPrice(0) + event.askPrice(0)) / 2;
+            signal = strategyManager.onIntrabarTick(instrument, time, mid, 0);
+        } else {
+            signal = null;
+        }
+
+        if (signal != null) {
+            recorder.mark(StageRecorder.Stage.STRATEGIES);
+            signalExecutor.handleIntrabarSignal(signal);
+        }
+        if (nextAnalysisMillis == Long.MIN_VALUE) {
+            nextAnalysisMillis = time + ANALYSIS_PERIOD_MILLIS;
+        } else if (time >= nextAnalysisMillis) {
+            nextAnalysisMillis = time + ANALYSIS_PERIOD_MILLIS;
+            recorder.mark(StageRecorder.Stage.STRATEGIES);
+            signalExecutor.runAnalysis();
+        }
+    }
+
+    /**
+     * Конец данных: закрывает последний бар и позицию.
+     */
+    void finish() {
+        if (barStart != Long.MIN_VALUE) {
+            closeBar();
+        }
+        broker.liquidate(instrument);
+        strategyManager.release();
+    }
+
+    private void onTrade(long time, double price, double quantity) {
+        long start = time - Math.floorMod(time, barMillis);
+        if (start != barStart) {
+            barStart = start;
+            open = high = low = close = price;
+            volume = quantity;
+            return;
+        }
+        high = Math.max(high, price);
+        low = Math.min(low, price);
+        close = price;
+        volume += quantity;
+    }
+
+    /**
+     * Закрытие бара: стопы симулятора по диапазону, свеча в менеджер стратегий, анализ на закрытии.
+     */
+    private void closeBar() {
+        recorder.mark(StageRecorder.Stage.BARS);
+        clock.setMillis(barStart + barMillis);
+        broker.onBar(instrument, open, high, low, close);
+        strategyManager.onCandle(barStart, open, high, low, close, volume);
+        barStart = Long.MIN_VALUE;
+        barCount++;
+
+        recorder.mark(StageRecorder.Stage.STRATEGIES);
+        signalExecutor.runAnalysis();
+    }
+
+    private void onError(String message, Throwable e) {
+        errorCount++;
+        logger.error("💥 [{}] Бенчмарк: {}", instrument.name(), message, e);
+    }
+
+    int getBarCount() {
+        return barCount;
+    }
+
+    int getSignalCount() {
+        return signalCount;
+    }
+
+    int getErrorCount() {
+        return errorCount;
+    }
+}
@@ -0,0 +1,90 @@
+package com.tradingbot.tinkoff.bench;
+
+/**
+ * Время обработки события по стадиям конвейера. Стадии переключаются метками {@link #mark}:
+ * время с предыдущей метки относится к текущей стадии, поэтому вложенные вызовы
+ * (риск и исполнение внутри анализа) не считаются дважды.
+ */
+final class StageRecorder {
+
+    enum Stage {
+        // Декодирование события из записи
+        INGEST,
+        // Построение баров и инкрементальные индикаторы (включая интрабар-проверку SCALPING)
+        BARS,
+        // Анализ стратегий в SignalExecutor
+        STRATEGIES,
+        // Снимок счета и проверка риск-менеджером
+        RISK,
+        // Приказы и стоп-лоссы в симуляторе
+        EXECUTION
+    }
+
+    private static final Stage[] STAGES = Stage.values();
+
+    private final LatencyHistogram[] stages = new LatencyHistogram[STAGES.length];
+    private final LatencyHistogram total = new LatencyHistogram();
+    private final long[] eventNanos = new long[STAGES.length];
+    private final boolean[] touched = new boolean[STAGES.length];
+
+    private Stage current;
+    private long since;
+
+    StageRecorder() {
+        for (int i = 0; i < stages.length; i++) {
+            stages[i] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * Переключает текущую стадию события.
+     */
+    void mark(Stage stage) {
+        long now = System.nanoTime();
+        if (current != null) {
+            eventNanos[current.ordinal()] += now - since;
+        }
+        current = stage;
+        touched[stage.ordinal()] = true;
+        since = now;
+    }
+
+    /**
+     * Закрывает событие и записывает время задействованных стадий.
+     *
+     * @return суммарное время события, нс
+     */
+    long finishEvent() {
+        long now = System.nanoTime();
+        if (current != null) {
+            eventNanos[current.ordinal()] += now - since;
+            current = null;
+        }
+        long sum = 0;
+        for (int i = 0; i < eventNanos.length; i++) {
+            if (touched[i]) {
+                stages[i].record(eventNanos[i]);
+                sum += eventNanos[i];
+                touched[i] = false;
+            }
+            eventNanos[i] = 0;
+        }
+        total.record(sum);
+        return sum;
+    }
+
+    LatencyHistogram stage(Stage stage) {
+        return stages[stage.ordinal()];
+    }
+
+    LatencyHistogram total() {
+        return total;
+    }
+
+    void reset() {
+        for (LatencyHistogram histogram : stages) {
+            histogram.reset();
+        }
+        total.reset();
+    }
+}
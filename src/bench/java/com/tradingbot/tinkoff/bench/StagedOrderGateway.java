@@ -0,0 +1,59 @@
+package com.tradingbot.tinkoff.bench;
+
+import com.tradingbot.tinkoff.execution.AccountSnapshot;
+import com.tradingbot.tinkoff.execution.OrderGateway;
+import com.tradingbot.tinkoff.execution.OrderResult;
+import com.tradingbot.tinkoff.model.TradableInstrument;
+import com.tradingbot.tinkoff.model.TradingSignal;
+
+import java.math.BigDecimal;
+
+/**
+ * Брокер-обертка, отмечающая стадии конвейера: {@code SignalExecutor} запрашивает снимок счета
+ * перед проверкой рисков и вызывает приказы при исполнении, так что границы стадий
+ * видны без изменений в самом конвейере.
+ */
+final class StagedOrderGateway implements OrderGateway {
+    private final OrderGateway delegate;
+    private final StageRecorder recorder;
+
+    StagedOrderGateway(OrderGateway delegate, StageRecorder recorder) {
+        this.delegate = delegate;
+        this.recorder = recorder;
+    }
+
+    @Override
+    public AccountSnapshot getAccount(TradableInstrument instrument) {
+        recorder.mark(StageRecorder.Stage.RISK);
+        return delegate.getAccount(instrument);
+    }
+
+    @Override
+    public OrderResult postMarketOrder(TradableInstrument instrument, long lots, TradingSignal.SignalType side) {
+        recorder.mark(StageRecorder.Stage.EXECUTION);
+        return delegate.postMarketOrder(instrument, lots, side);
+    }
+
+    @Override
+    public OrderResult postLimitOrder(TradableInstrument instrument, long lots, BigDecimal price, TradingSignal.SignalType side) {
+        recorder.mark(StageRecorder.Stage.EXECUTION);
+        return delegate.postLimitOrder(instrument, lots, price, side);
+    }
+
+    @Override
+    public OrderResult closePosition(TradableInstrument instrument, long lots, TradingSignal.SignalType side) {
+        recorder.mark(StageRecorder.Stage.EXECUTION);
+        return delegate.closePosition(instrument, lots, side);
+    }
+
+    @Override
+    public String postStopLoss(TradableInstrument instrument, long lots, BigDecimal stopPrice, TradingSignal.SignalType side) {
+        recorder.mark(StageRecorder.Stage.EXECUTION);
+        return delegate.postStopLoss(instrument, lots, stopPrice, side);
+    }
+
+    @Override
+    public BigDecimal getInitialMargin(TradableInstrument instrument, TradingSignal.SignalType side) {
+        return delegate.getInitialMargin(instrument, side);
+    }
+}
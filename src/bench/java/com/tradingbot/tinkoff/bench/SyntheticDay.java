@@ -0,0 +1,160 @@
+package com.tradingbot.tinkoff.bench;
+
+import com.google.protobuf.Timestamp;
+import com.tradingbot.tinkoff.api.TinkoffApiConnector;
+import com.tradingbot.tinkoff.backtest.MarketDataRecorder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ru.tinkoff.piapi.contract.v1.Order;
+import ru.tinkoff.piapi.contract.v1.OrderBook;
+import ru.tinkoff.piapi.contract.v1.Trade;
+import ru.tinkoff.piapi.contract.v1.TradeDirection;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Синтетический торговый день в формате {@link MarketDataRecorder}: по файлу на инструмент.
+ *
+ * Цена — случайное блуждание с чередованием трендовых режимов (чтобы стратегии давали сигналы),
+ * стаканы и сделки приходят пуассоновскими потоками, поэтому в ленте есть всплески.
+ * Данные детерминированы зерном: одинаковые параметры дают одинаковый день.
+ */
+final class SyntheticDay {
+    private static final Logger logger = LoggerFactory.getLogger(SyntheticDay.class);
+    // Основная сессия Мосбиржи: 10:00 МСК
+    private static final Instant SESSION_START = Instant.parse("2024-03-01T07:00:00Z");
+    private static final int DEPTH = 5;
+    private static final double TICK = 0.01;
+    // Волатильность за секунду (~1.7% за сессию) и длительность трендового режима
+    private static final double VOLATILITY = 0.0004;
+    private static final double TREND = 0.00004;
+    private static final long REGIME_MILLIS = 30 * 60_000L;
+
+    private SyntheticDay() {
+    }
+
+    /**
+     * Записывает день в dir.
+     *
+     * @return файлы инструментов и общее число событий
+     */
+    static Result write(Path dir, BenchConfig config) throws IOException {
+        Files.createDirectories(dir);
+        List<Path> files = new ArrayList<>();
+        long events = 0;
+        SplittableRandom seeds = new SplittableRandom(config.getSeed());
+        for (int i = 0; i < config.getInstruments(); i++) {
+            Path file = dir.resolve(String.format("BENCH%04d.tbmd", i));
+            events += writeInstrument(file, String.format("BENCH%08d", i), config, seeds.split());
+            files.add(file);
+        }
+        logger.info("🧪 Синтетический день: {} инструментов, {} событий, {}", files.size(), events, dir);
+        return new Result(files, events);
+    }
+
+    private static long writeInstrument(Path file, String figi, BenchConfig config, SplittableRandom random) throws IOException {
+        long start = SESSION_START.toEpochMilli();
+        long end = start + config.getSessionMinutes() * 60_000L;
+        double price = 50 + random.nextDouble() * 250;
+        double drift = 0;
+        long nextRegime = start;
+        long nextBook = start + exponential(random, config.getBooksPerSecond());
+        long nextTrade = start + exponential(random, config.getTradesPerSecond());
+        long time = start;
+        long events = 0;
+
+        try (MarketDataRecorder recorder = new MarketDataRecorder(file, figi)) {
+            while (true) {
+                long next = Math.min(nextBook, nextTrade);
+                if (next >= end) {
+                    break;
+                }
+                double seconds = (next - time) / 1000.0;
+                time = next;
+                if (time >= nextRegime) {
+                    drift = (random.nextInt(3) - 1) * TREND;
+                    nextRegime = time + REGIME_MILLIS;
+                }
+                price *= Math.exp(drift * seconds + VOLATILITY * Math.sqrt(seconds) * gaussian(random));
+                price = Math.max(price, TICK * 10);
+
+                if (time == nextBook) {
+                    recorder.onOrderBook(orderBook(figi, time, price, random));
+                    nextBook = time + exponential(random, config.getBooksPerSecond());
+                } else {
+                    // Покупка исполняется по лучшему аску, продажа — по лучшему биду
+                    int side = random.nextBoolean() ? 1 : -1;
+                    double bid = round(price - TICK / 2);
+                    recorder.onTrade(trade(figi, time, side > 0 ? bid + TICK : bid, 1 + random.nextInt(50), side));
+                    nextTrade = time + exponential(random, config.getTradesPerSecond());
+                }
+                events++;
+            }
+        }
+        return events;
+    }
+
+    private static OrderBook orderBook(String figi, long time, double price, SplittableRandom random) {
+        double bid = round(price - TICK / 2);
+        OrderBook.Builder builder = OrderBook.newBuilder()
+                .setFigi(figi)
+                .setDepth(DEPTH)
+                .setIsConsistent(true)
+                .setTime(timestamp(time));
+        for (int level = 0; level < DEPTH; level++) {
+            builder.addBids(level(bid - level * TICK, random));
+            builder.addAsks(level(bid + (level + 1) * TICK, random));
+        }
+        return builder.build();
+    }
+
+    private static Trade trade(String figi, long time, double price, long quantity, int side) {
+        return Trade.newBuilder()
+                .setFigi(figi)
+                .setDirection(side > 0 ? TradeDirection.TRADE_DIRECTION_BUY : TradeDirection.TRADE_DIRECTION_SELL)
+                .setPrice(TinkoffApiConnector.bigDecimalToQuotation(BigDecimal.valueOf(round(price))))
+                .setQuantity(quantity)
+                .setTime(timestamp(time))
+                .build();
+    }
+
+    private static Order level(double price, SplittableRandom random) {
+        return Order.newBuilder()
+                .setPrice(TinkoffApiConnector.bigDecimalToQuotation(BigDecimal.valueOf(round(price))))
+                .setQuantity(10 + random.nextInt(500))
+                .build();
+    }
+
+    private static Timestamp timestamp(long millis) {
+        return Timestamp.newBuilder()
+                .setSeconds(Math.floorDiv(millis, 1000L))
+                .setNanos((int) Math.floorMod(millis, 1000L) * 1_000_000)
+                .build();
+    }
+
+    /**
+     * Интервал пуассоновского потока с интенсивностью rate событий в секунду, мс (не меньше 1).
+     */
+    private static long exponential(SplittableRandom random, double rate) {
+        return Math.max(1, Math.round(-Math.log(1 - random.nextDouble()) / rate * 1000));
+    }
+
+    private static double gaussian(SplittableRandom random) {
+        // Бокс — Мюллер
+        return Math.sqrt(-2 * Math.log(1 - random.nextDouble())) * Math.cos(2 * Math.PI * random.nextDouble());
+    }
+
+    private static double round(double price) {
+        return Math.round(price / TICK) * TICK;
+    }
+
+    record Result(List<Path> files, long events) {
+    }
+}
@@ -0,0 +1,306 @@
+package com.tradingbot.tinkoff.bench;
+
+import com.tradingbot.tinkoff.backtest.BacktestClock;
+import com.tradingbot.tinkoff.backtest.MarketDataReader;
+import com.tradingbot.tinkoff.backtest.MarketEvent;
+import com.tradingbot.tinkoff.backtest.SimulatedBroker;
+import com.tradingbot.tinkoff.model.TradableInstrument;
+import com.tradingbot.tinkoff.monitoring.AllocationProbe;
+import com.tradingbot.tinkoff.strategy.MultiStrategyManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+import java.util.stream.Stream;
+
+/**
+ * Сквозной бенчмарк пропускной способности: торговый день (запись {@code MarketDataRecorder}
+ * или синтетика) проходит через декодирование, построение баров, стратегии, риски и исполнение
+ * в симуляторе в одном потоке, события инструментов — в порядке времени, как из общего стрима.
+ *
+ * Отчет: события в секунду, p50/p99/p999 по стадиям, темп аллокаций и емкость ядра
+ * ({@link CapacityModel}) при целевом p99. При заданном эталоне ухудшение метрик сверх допуска
+ * завершает процесс с кодом 1, что проваливает {@code mvn -Pbench verify}.
+ */
+public final class ThroughputBenchmark {
+    private static final Logger logger = LoggerFactory.getLogger(ThroughputBenchmark.class);
+    private static final Duration BAR_DURATION = Duration.ofMinutes(1);
+    private static final double INITIAL_CAPITAL = 1_000_000;
+    private static final double COMMISSION_RATE = 0.0005;
+    // p99 стадии проверяется по эталону, только если в ней достаточно событий для устойчивой оценки
+    private static final long MIN_GATED_SAMPLES = 10_000;
+
+    private final BenchConfig config;
+    private final StageRecorder recorder = new StageRecorder();
+
+    private ThroughputBenchmark(BenchConfig config) {
+        this.config = config;
+    }
+
+    public static void main(String[] args) throws IOException {
+        System.exit(new ThroughputBenchmark(BenchConfig.fromSystemProperties()).run());
+    }
+
+    /**
+     * @return код завершения: 0 — успех, 1 — регрессия относительно эталона
+     */
+    private int run() throws IOException {
+        List<Path> files = resolveData();
+        long total = countEvents(files);
+        if (total == 0 || total > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("Неподходящий объем данных: " + total + " событий");
+        }
+        long[] arrivalMillis = new long[(int) total];
+        long[] serviceNanos = new long[(int) total];
+
+        for (int i = 0; i < config.getWarmupRuns(); i++) {
+            RunStatistics warmup = runDay(files, arrivalMillis, serviceNanos);
+            logger.info("🔥 Прогрев {}/{}: {} событий/с", i + 1, config.getWarmupRuns(), Math.round(warmup.eventsPerSecond()));
+            recorder.reset();
+        }
+        RunStatistics run = runDay(files, arrivalMillis, serviceNanos);
+        if (run.errors() > 0) {
+            logger.warn("⚠️ Ошибок конвейера во время прогона: {}", run.errors());
+        }
+
+        CapacityModel capacity = new CapacityModel(arrivalMillis, serviceNanos, run.events(), files.size());
+        long targetNanos = Math.round(config.getTargetP99Micros() * 1000);
+        int maxInstruments = capacity.maxInstruments(targetNanos);
+
+        String report = report(files, run, capacity, maxInstruments);
+        Path reportFile = config.getWorkDir().resolve("throughput-report.txt");
+        Files.createDirectories(config.getWorkDir());
+        Files.writeString(reportFile, report, StandardCharsets.UTF_8);
+        logger.info("📊 Отчет бенчмарка ({}):{}{}", reportFile, System.lineSeparator(), report);
+
+        return checkBaseline(metrics(run, maxInstruments));
+    }
+
+    private List<Path> resolveData() throws IOException {
+        if (config.getData() == null) {
+            return SyntheticDay.write(config.getWorkDir().resolve("data"), config).files();
+        }
+        if (!Files.isDirectory(config.getData())) {
+            return List.of(config.getData());
+        }
+        try (Stream<Path> listing = Files.list(config.getData())) {
+            return listing.filter(Files::isRegularFile)
+                    .sorted()
+                    .limit(config.getInstruments())
+                    .toList();
+        }
+    }
+
+    private static long countEvents(List<Path> files) throws IOException {
+        long events = 0;
+        MarketEvent event = new MarketEvent();
+        for (Path file : files) {
+            try (MarketDataReader reader = new MarketDataReader(file)) {
+                while (reader.next(event)) {
+                    events++;
+                }
+            }
+        }
+        return events;
+    }
+
+    /**
+     * Один прогон дня со свежими конвейерами и счетом.
+     */
+    private RunStatistics runDay(List<Path> files, long[] arrivalMillis, long[] serviceNanos) throws IOException {
+        BacktestClock clock = new BacktestClock();
+        SimulatedBroker broker = new SimulatedBroker(clock, INITIAL_CAPITAL, COMMISSION_RATE, 0);
+        List<String> strategies = MultiStrategyManager.getAvailableStrategyNames();
+        PriorityQueue<Source> queue = new PriorityQueue<>(files.size(), Comparator.comparingLong(source -> source.event.getTimeMillis()));
+        List<Source> sources = new ArrayList<>();
+        try {
+            for (Path file : files) {
+                MarketDataReader reader = new MarketDataReader(file);
+                TradableInstrument instrument = new TradableInstrument(reader.getFigi(), reader.getFigi(),
+                        TradableInstrument.InstrumentType.STOCK, "rub");
+                Source source = new Source(reader, new InstrumentPipeline(instrument, strategies, BAR_DURATION, broker, clock, recorder));
+                sources.add(source);
+                if (reader.next(source.event)) {
+                    queue.add(source);
+                }
+            }
+
+            long gcCountBefore = gcCount();
+            long gcMillisBefore = gcMillis();
+            long allocatedBefore = AllocationProbe.currentThreadAllocatedBytes();
+            long started = System.nanoTime();
+            int events = 0;
+            Source source;
+            while ((source = queue.poll()) != null) {
+                arrivalMillis[events] = source.event.getTimeMillis();
+                source.pipeline.onEvent(source.event);
+                // Декодирование следующего события источника относится к текущему: по одному на событие
+                recorder.mark(StageRecorder.Stage.INGEST);
+                boolean more = source.reader.next(source.event);
+                serviceNanos[events++] = recorder.finishEvent();
+                if (more) {
+                    queue.add(source);
+                }
+            }
+            long elapsed = System.nanoTime() - started;
+            long allocated = AllocationProbe.isSupported() ? AllocationProbe.currentThreadAllocatedBytes() - allocatedBefore : -1;
+
+            int bars = 0;
+            int signals = 0;
+            int errors = 0;
+            for (Source finished : sources) {
+                finished.pipeline.finish();
+                bars += finished.pipeline.getBarCount();
+                signals += finished.pipeline.getSignalCount();
+                errors += finished.pipeline.getErrorCount();
+            }
+            return new RunStatistics(events, elapsed, allocated, gcCount() - gcCountBefore, gcMillis() - gcMillisBefore,
+                    bars, signals, broker.getTrades().size(), errors);
+        } finally {
+            for (Source opened : sources) {
+                opened.reader.close();
+            }
+        }
+    }
+
+    private String report(List<Path> files, RunStatistics run, CapacityModel capacity, int maxInstruments) {
+        StringBuilder report = new StringBuilder();
+        line(report, "Данные: %s, инструментов %d, событий %d, баров %d, сигналов %d, сделок %d",
+                config.getData() == null ? "синтетический день" : config.getData(), files.size(),
+                run.events(), run.bars(), run.signals(), run.trades());
+        line(report, "Пропускная способность: %.0f событий/с на ядро (%.2f с)", run.eventsPerSecond(), run.elapsedNanos() / 1e9);
+        line(report, "");
+        line(report, "%-12s %10s %10s %10s %10s %10s %10s", "Стадия, мкс", "событий", "p50", "p99", "p999", "max", "среднее");
+        for (StageRecorder.Stage stage : StageRecorder.Stage.values()) {
+            stageLine(report, stage.name(), recorder.stage(stage));
+        }
+        stageLine(report, "TOTAL", recorder.total());
+        line(report, "");
+        if (run.allocatedBytes() >= 0) {
+            line(report, "Аллокации: %.1f МБ/с, %.1f байт на событие; GC: %d сборок, %d мс",
+                    run.allocatedBytes() / 1e6 / (run.elapsedNanos() / 1e9), run.bytesPerEvent(), run.gcCount(), run.gcMillis());
+        } else {
+            line(report, "Аллокации: счетчик потока недоступен; GC: %d сборок, %d мс", run.gcCount(), run.gcMillis());
+        }
+        line(report, "");
+        line(report, "Емкость ядра при p99 <= %.0f мкс: %d инструментов (загрузка %.1f%%)",
+                config.getTargetP99Micros(), maxInstruments, capacity.utilization(Math.max(maxInstruments, 1)) * 100);
+        line(report, "%12s %12s %10s", "инструментов", "p99, мкс", "загрузка");
+        int measured = files.size();
+        for (int instruments = measured; instruments <= Math.max(maxInstruments, measured) * 2; instruments *= 2) {
+            line(report, "%12d %12.1f %9.1f%%", instruments, capacity.p99(instruments) / 1000.0, capacity.utilization(instruments) * 100);
+        }
+        return report.toString();
+    }
+
+    private static void stageLine(StringBuilder report, String name, LatencyHistogram histogram) {
+        line(report, "%-12s %10d %10.1f %10.1f %10.1f %10.1f %10.1f", name, histogram.getCount(),
+                histogram.percentile(0.5) / 1000.0, histogram.percentile(0.99) / 1000.0,
+                histogram.percentile(0.999) / 1000.0, histogram.getMax() / 1000.0, histogram.getMean() / 1000.0);
+    }
+
+    private static void line(StringBuilder report, String format, Object... args) {
+        report.append(String.format(Locale.ROOT, format, args)).append(System.lineSeparator());
+    }
+
+    /**
+     * Метрики для эталона: p999, максимум и p99 редких стадий только в отчете, для проверки они слишком шумные.
+     */
+    private List<BenchBaseline.Metric> metrics(RunStatistics run, int maxInstruments) {
+        List<BenchBaseline.Metric> metrics = new ArrayList<>();
+        metrics.add(new BenchBaseline.Metric("events.per.second", run.eventsPerSecond(), true));
+        metrics.add(new BenchBaseline.Metric("latency.total.p50.us", recorder.total().percentile(0.5) / 1000.0, false));
+        metrics.add(new BenchBaseline.Metric("latency.total.p99.us", recorder.total().percentile(0.99) / 1000.0, false));
+        for (StageRecorder.Stage stage : StageRecorder.Stage.values()) {
+            LatencyHistogram histogram = recorder.stage(stage);
+            if (histogram.getCount() >= MIN_GATED_SAMPLES) {
+                String key = "latency." + stage.name().toLowerCase(Locale.ROOT) + ".p99.us";
+                metrics.add(new BenchBaseline.Metric(key, histogram.percentile(0.99) / 1000.0, false));
+            }
+        }
+        if (run.allocatedBytes() >= 0) {
+            metrics.add(new BenchBaseline.Metric("allocation.bytes.per.event", run.bytesPerEvent(), false));
+        }
+        metrics.add(new BenchBaseline.Metric("capacity.instruments.per.core", maxInstruments, true));
+        return metrics;
+    }
+
+    private int checkBaseline(List<BenchBaseline.Metric> metrics) throws IOException {
+        Path baseline = config.getBaseline();
+        if (baseline == null) {
+            logger.info("ℹ️ Эталон не задан (-Dtradingbot.bench.baseline), проверка регрессий пропущена");
+            return 0;
+        }
+        if (config.isUpdateBaseline()) {
+            BenchBaseline.store(baseline, metrics, String.format("Эталон ThroughputBenchmark: %d инструментов, %s, процессоров %d, %s",
+                    config.getInstruments(), config.getData() == null ? "синтетический день" : config.getData().getFileName(),
+                    Runtime.getRuntime().availableProcessors(), System.getProperty("java.vm.name") + " " + System.getProperty("java.version")));
+            logger.info("💾 Эталон бенчмарка обновлен: {}", baseline);
+            return 0;
+        }
+        if (!Files.exists(baseline)) {
+            logger.warn("⚠️ Эталон {} не найден, проверка регрессий пропущена", baseline);
+            return 0;
+        }
+        List<String> regressions = BenchBaseline.compare(baseline, metrics, config.getTolerance());
+        if (regressions.isEmpty()) {
+            logger.info("✅ Регрессий относительно эталона {} нет", baseline);
+            return 0;
+        }
+        regressions.forEach(regression -> logger.error("❌ Регрессия: {}", regression));
+        return config.isFailOnRegression() ? 1 : 0;
+    }
+
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(gc.getCollectionCount(), 0);
+        }
+        return count;
+    }
+
+    private static long gcMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            millis += Math.max(gc.getCollectionTime(), 0);
+        }
+        return millis;
+    }
+
+    /**
+     * Файл записи с переиспользуемым событием и конвейером его инструмента.
+     */
+    private static final class Source {
+        final MarketDataReader reader;
+        final MarketEvent event = new MarketEvent();
+        final InstrumentPipeline pipeline;
+
+        Source(MarketDataReader reader, InstrumentPipeline pipeline) {
+            this.reader = reader;
+            this.pipeline = pipeline;
+        }
+    }
+
+    private record RunStatistics(int events, long elapsedNanos, long allocatedBytes, long gcCount, long gcMillis,
+                                 int bars, int signals, int trades, int errors) {
+
+        double eventsPerSecond() {
+            return events / (elapsedNanos / 1e9);
+        }
+
+        double bytesPerEvent() {
+            return events == 0 ? 0 : (double) allocatedBytes / events;
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.tradingbot.tinkoff.api.fake;
+
+import ru.tinkoff.piapi.contract.v1.Account;
+import ru.tinkoff.piapi.contract.v1.AccessLevel;
+import ru.tinkoff.piapi.contract.v1.AccountStatus;
+import ru.tinkoff.piapi.contract.v1.AccountType;
+import ru.tinkoff.piapi.contract.v1.Operation;
+import ru.tinkoff.piapi.contract.v1.OperationState;
+import ru.tinkoff.piapi.contract.v1.OperationType;
+import ru.tinkoff.piapi.contract.v1.PortfolioPosition;
+import ru.tinkoff.piapi.contract.v1.PortfolioResponse;
+import ru.tinkoff.piapi.contract.v1.PositionsResponse;
+import ru.tinkoff.piapi.contract.v1.PositionsSecurities;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Счет фейковой биржи: деньги, позиции по средней цене, операции и приказы.
+ * Исполнения приходят под монитором инструмента, поэтому счет не вызывает инструменты под своим монитором.
+ */
+final class FakeAccount {
+    private final String id;
+    private final long openedMillis;
+    private double cash;
+    private final Map<FakeInstrument, Position> positions = new LinkedHashMap<>();
+    private final List<Operation> operations = new ArrayList<>();
+    private final Map<String, FakeOrder> orders = new LinkedHashMap<>();
+    private final Map<String, FakeOrder> clientOrders = new LinkedHashMap<>();
+    private long operationSequence;
+
+    FakeAccount(String id, double cash, long openedMillis) {
+        this.id = id;
+        this.cash = cash;
+        this.openedMillis = openedMillis;
+    }
+
+    String getId() {
+        return id;
+    }
+
+    synchronized double getCash() {
+        return cash;
+    }
+
+    synchronized void payIn(double amount) {
+        cash += amount;
+    }
+
+    synchronized void addOrder(FakeOrder order) {
+        orders.put(order.getId(), order);
+        if (!order.getClientOrderId().isEmpty()) {
+            clientOrders.put(order.getClientOrderId(), order);
+        }
+    }
+
+    synchronized FakeOrder getOrder(String orderId) {
+        return orders.get(orderId);
+    }
+
+    /**
+     * Приказ с тем же ключом идемпотентности, если он уже был.
+     */
+    synchronized FakeOrder getByClientOrderId(String clientOrderId) {
+        return clientOrderId.isEmpty() ? null : clientOrders.get(clientOrderId);
+    }
+
+    synchronized List<FakeOrder> getOrders() {
+        return new ArrayList<>(orders.values());
+    }
+
+    synchronized void applyFill(FakeInstrument instrument, String orderId, long signedLots, double price, double commission,
+                                long timeMillis) {
+        long quantity = signedLots * instrument.getLot();
+        cash -= quantity * price + commission;
+
+        Position position = positions.computeIfAbsent(instrument, i -> new Position());
+        long held = position.quantity;
+        if (held == 0 || Long.signum(held) == Long.signum(quantity)) {
+            position.averagePrice = (Math.abs(held) * position.averagePrice + Math.abs(quantity) * price) / Math.abs(held + quantity);
+        } else if (Math.abs(quantity) > Math.abs(held)) {
+            position.averagePrice = price; // Переворот: остаток открыт по цене сделки
+        }
+        position.quantity = held + quantity;
+        if (position.quantity == 0) {
+            positions.remove(instrument);
+        }
+
+        operations.add(Operation.newBuilder()
+                .setId(orderId + "-" + (++operationSequence))
+                .setFigi(instrument.getFigi())
+                .setCurrency(ProtoValues.CURRENCY)
+                .setPayment(ProtoValues.money(-quantity * price))
+                .setPrice(ProtoValues.money(price))
+                .setOperationType(signedLots > 0 ? OperationType.OPERATION_TYPE_BUY : OperationType.OPERATION_TYPE_SELL)
+                .setInstrumentType("share")
+                .setQuantity(Math.abs(quantity))
+                .setDate(ProtoValues.timestamp(timeMillis))
+                .setState(OperationState.OPERATION_STATE_EXECUTED)
+                .build());
+    }
+
+    synchronized List<Operation> getOperations(long fromMillis, long toMillis, String figi) {
+        List<Operation> result = new ArrayList<>();
+        for (Operation operation : operations) {
+            long time = operation.getDate().getSeconds() * 1000L;
+            if (time >= fromMillis && time <= toMillis && (figi.isEmpty() || figi.equals(operation.getFigi()))) {
+                result.add(operation);
+            }
+        }
+        return result;
+    }
+
+    Account toAccount() {
+        return Account.newBuilder()
+                .setId(id)
+                .setName("Фейковый счет " + id)
+                .setType(AccountType.ACCOUNT_TYPE_TINKOFF)
+                .setStatus(AccountStatus.ACCOUNT_STATUS_OPEN)
+                .setAccessLevel(AccessLevel.ACCOUNT_ACCESS_LEVEL_FULL_ACCESS)
+                .setOpenedDate(ProtoValues.timestamp(openedMillis))
+                .build();
+    }
+
+    /**
+     * Портфель по последним ценам сделок.
+     */
+    synchronized PortfolioResponse toPortfolio() {
+        PortfolioResponse.Builder builder = PortfolioResponse.newBuilder().setAccountId(id);
+        double shares = 0;
+        double expectedYield = 0;
+        for (Map.Entry<FakeInstrument, Position> entry : positions.entrySet()) {
+            FakeInstrument instrument = entry.getKey();
+            Position position = entry.getValue();
+            double price = instrument.getLastPrice();
+            double yield = position.quantity * (price - position.averagePrice);
+            shares += position.quantity * price;
+            expectedYield += yield;
+            builder.addPositions(PortfolioPosition.newBuilder()
+                    .setFigi(instrument.getFigi())
+                    .setInstrumentType("share")
+                    .setQuantity(ProtoValues.quotation(position.quantity))
+                    .setQuantityLots(ProtoValues.quotation((double) position.quantity / instrument.getLot()))
+                    .setAveragePositionPrice(ProtoValues.money(position.averagePrice))
+                    .setCurrentPrice(ProtoValues.money(price))
+                    .setExpectedYield(ProtoValues.quotation(yield))
+                    .build());
+        }
+        return builder
+                .setTotalAmountShares(ProtoValues.money(shares))
+                .setTotalAmountBonds(ProtoValues.money(0))
+                .setTotalAmountEtf(ProtoValues.money(0))
+                .setTotalAmountFutures(ProtoValues.money(0))
+                .setTotalAmountCurrencies(ProtoValues.money(cash))
+                .setTotalAmountPortfolio(ProtoValues.money(cash + shares))
+                .setExpectedYield(ProtoValues.quotation(expectedYield))
+                .build();
+    }
+
+    synchronized PositionsResponse toPositions() {
+        PositionsResponse.Builder builder = PositionsResponse.newBuilder()
+                .addMoney(ProtoValues.money(cash));
+        for (Map.Entry<FakeInstrument, Position> entry : positions.entrySet()) {
+            builder.addSecurities(PositionsSecurities.newBuilder()
+                    .setFigi(entry.getKey().getFigi())
+                    .setBalance(entry.getValue().quantity)
+                    .setBlocked(0)
+                    .setInstrumentType("share")
+                    .build());
+        }
+        return builder.build();
+    }
+
+    private static final class Position {
+        // В штуках (лоты * размер лота), со знаком
+        private long quantity;
+        private double averagePrice;
+    }
+}
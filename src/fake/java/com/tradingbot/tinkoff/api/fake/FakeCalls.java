@@ -0,0 +1,42 @@
+package com.tradingbot.tinkoff.api.fake;
+
+import com.google.protobuf.Timestamp;
+import com.tradingbot.tinkoff.api.TinkoffApiConnector;
+import io.grpc.StatusRuntimeException;
+import io.grpc.stub.StreamObserver;
+
+import java.util.function.Supplier;
+
+/**
+ * Общее для сервисов фейкового API: ответ на унарный вызов и разбор времени запроса.
+ */
+final class FakeCalls {
+
+    private FakeCalls() {
+    }
+
+    /**
+     * Отвечает результатом call или статусом ошибки, как настоящий сервер.
+     */
+    static <T> void respond(StreamObserver<T> observer, Supplier<T> call) {
+        T response;
+        try {
+            response = call.get();
+        } catch (StatusRuntimeException e) {
+            observer.onError(e);
+            return;
+        }
+        observer.onNext(response);
+        observer.onCompleted();
+    }
+
+    /**
+     * Время из запроса в мс эпохи; незаданное поле — fallback.
+     */
+    static long millis(Timestamp timestamp, long fallback) {
+        if (timestamp == null || (timestamp.getSeconds() == 0 && timestamp.getNanos() == 0)) {
+            return fallback;
+        }
+        return TinkoffApiConnector.timestampToMillis(timestamp);
+    }
+}
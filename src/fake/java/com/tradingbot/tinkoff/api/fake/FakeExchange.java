@@ -0,0 +1,364 @@
+package com.tradingbot.tinkoff.api.fake;
+
+import com.tradingbot.tinkoff.backtest.MarketEvent;
+import com.tradingbot.tinkoff.backtest.OrderBookSimulator;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ru.tinkoff.piapi.contract.v1.LastPrice;
+import ru.tinkoff.piapi.contract.v1.MarketDataResponse;
+import ru.tinkoff.piapi.contract.v1.OrderDirection;
+import ru.tinkoff.piapi.contract.v1.OrderState;
+import ru.tinkoff.piapi.contract.v1.OrderType;
+import ru.tinkoff.piapi.contract.v1.PostOrderRequest;
+import ru.tinkoff.piapi.contract.v1.PostOrderResponse;
+import ru.tinkoff.piapi.contract.v1.PostStopOrderRequest;
+import ru.tinkoff.piapi.contract.v1.StopOrderDirection;
+import ru.tinkoff.piapi.contract.v1.StopOrderType;
+import ru.tinkoff.piapi.contract.v1.SubscriptionInterval;
+import ru.tinkoff.piapi.contract.v1.Trade;
+import ru.tinkoff.piapi.contract.v1.TradeDirection;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Состояние фейковой биржи: инструменты, счета и детерминированное исполнение приказов.
+ *
+ * Приказы исполняются {@link OrderBookSimulator} инструмента по текущему стакану ленты без задержки:
+ * рыночный проходит уровни (остаток за глубиной снимается), лимитный встает в очередь своего уровня,
+ * стоп срабатывает по цене сделки. При одинаковой ленте и одинаковой последовательности приказов
+ * исполнения повторяются.
+ */
+public class FakeExchange {
+    private static final Logger logger = LoggerFactory.getLogger(FakeExchange.class);
+
+    private final FakeServerConfig config;
+    private final MarketDataHub hub;
+    // Заполняется до запуска лент и сервера, дальше только читается
+    private final Map<String, FakeInstrument> instruments = new LinkedHashMap<>();
+    private final Map<String, FakeInstrument> byTicker = new LinkedHashMap<>();
+    private final ConcurrentMap<String, FakeAccount> accounts = new ConcurrentHashMap<>();
+    private final AtomicLong accountSequence = new AtomicLong();
+    private final AtomicLong orderSequence = new AtomicLong();
+    private final LongAdder ordersPosted = new LongAdder();
+    private final LongAdder fills = new LongAdder();
+    private final LongAdder marketEvents = new LongAdder();
+
+    public FakeExchange(FakeServerConfig config, MarketDataHub hub) {
+        this.config = config;
+        this.hub = hub;
+    }
+
+    public long getOrdersPosted() {
+        return ordersPosted.sum();
+    }
+
+    public long getFillCount() {
+        return fills.sum();
+    }
+
+    public long getMarketEventCount() {
+        return marketEvents.sum();
+    }
+
+    public int getInstrumentCount() {
+        return instruments.size();
+    }
+
+    FakeServerConfig getConfig() {
+        return config;
+    }
+
+    FakeInstrument addInstrument(String figi, String ticker, String name, double initialPrice) {
+        if (instruments.containsKey(figi)) {
+            throw new IllegalArgumentException("Инструмент " + figi + " уже добавлен");
+        }
+        FakeInstrument instrument = new FakeInstrument(figi, ticker, name, instruments.size(), 1, config.getTickSize(),
+                initialPrice, this, config.getSeed() + instruments.size());
+        instruments.put(figi, instrument);
+        byTicker.put(ticker, instrument);
+        return instrument;
+    }
+
+    Collection<FakeInstrument> getInstruments() {
+        return Collections.unmodifiableCollection(instruments.values());
+    }
+
+    /**
+     * Инструмент по идентификатору запроса: instrument_id (FIGI, uid или тикер) или устаревшее поле figi.
+     */
+    FakeInstrument instrument(String instrumentId, String figi) {
+        String id = instrumentId.isEmpty() ? figi : instrumentId;
+        FakeInstrument instrument = instruments.get(id);
+        if (instrument == null) {
+            instrument = byTicker.get(id);
+        }
+        if (instrument == null) {
+            throw Status.NOT_FOUND.withDescription("Инструмент не найден: " + id).asRuntimeException();
+        }
+        return instrument;
+    }
+
+    FakeAccount openAccount() {
+        String id = "fake-" + accountSequence.incrementAndGet();
+        FakeAccount account = new FakeAccount(id, config.getInitialCash(), System.currentTimeMillis());
+        accounts.put(id, account);
+        logger.info("🧪 Открыт счет {} с {} ₽", id, config.getInitialCash());
+        return account;
+    }
+
+    boolean closeAccount(String accountId) {
+        return accounts.remove(accountId) != null;
+    }
+
+    List<FakeAccount> getAccounts() {
+        List<FakeAccount> list = new ArrayList<>(accounts.values());
+        list.sort((a, b) -> a.getId().compareTo(b.getId()));
+        return list;
+    }
+
+    FakeAccount account(String accountId) {
+        FakeAccount account = accounts.get(accountId);
+        if (account == null) {
+            throw Status.NOT_FOUND.withDescription("Счет не найден: " + accountId).asRuntimeException();
+        }
+        return account;
+    }
+
+    /**
+     * Событие ленты инструмента: исполняет стоящие приказы и рассылает подписчикам стакан, сделку, цену и свечи.
+     * Вызывается одним потоком ленты на инструмент.
+     */
+    void onMarketEvent(FakeInstrument instrument, MarketEvent event) {
+        String figi = instrument.getFigi();
+        MarketDataResponse orderBook = null;
+        MarketDataResponse trade = null;
+        MarketDataResponse lastPrice = null;
+        MarketDataResponse minuteCandle = null;
+        MarketDataResponse fiveMinuteCandle = null;
+        String minuteKey = instrument.getCandleKey(SubscriptionInterval.SUBSCRIPTION_INTERVAL_ONE_MINUTE);
+        String fiveMinuteKey = instrument.getCandleKey(SubscriptionInterval.SUBSCRIPTION_INTERVAL_FIVE_MINUTES);
+        marketEvents.increment();
+        synchronized (instrument) {
+            instrument.apply(event);
+            if (event.getType() == MarketEvent.Type.ORDER_BOOK) {
+                if (hub.hasSubscribers(MarketDataHub.Channel.ORDER_BOOK, figi)) {
+                    orderBook = MarketDataResponse.newBuilder().setOrderbook(instrument.toOrderBook(config.getOrderBookDepth())).build();
+                }
+            } else {
+                if (hub.hasSubscribers(MarketDataHub.Channel.TRADES, figi)) {
+                    trade = MarketDataResponse.newBuilder().setTrade(Trade.newBuilder()
+                            .setFigi(figi)
+                            .setInstrumentUid(figi)
+                            .setDirection(event.getSide() > 0 ? TradeDirection.TRADE_DIRECTION_BUY
+                                    : event.getSide() < 0 ? TradeDirection.TRADE_DIRECTION_SELL : TradeDirection.TRADE_DIRECTION_UNSPECIFIED)
+                            .setPrice(ProtoValues.quotation(event.getPrice()))
+                            .setQuantity(event.getQuantity())
+                            .setTime(ProtoValues.timestamp(event.getTimeMillis()))
+                            .build()).build();
+                }
+                if (hub.hasSubscribers(MarketDataHub.Channel.LAST_PRICE, figi)) {
+                    lastPrice = MarketDataResponse.newBuilder().setLastPrice(toLastPrice(instrument)).build();
+                }
+                if (hub.hasSubscribers(MarketDataHub.Channel.CANDLES, minuteKey)) {
+                    minuteCandle = MarketDataResponse.newBuilder()
+                            .setCandle(instrument.toCandle(SubscriptionInterval.SUBSCRIPTION_INTERVAL_ONE_MINUTE)).build();
+                }
+                if (hub.hasSubscribers(MarketDataHub.Channel.CANDLES, fiveMinuteKey)) {
+                    fiveMinuteCandle = MarketDataResponse.newBuilder()
+                            .setCandle(instrument.toCandle(SubscriptionInterval.SUBSCRIPTION_INTERVAL_FIVE_MINUTES)).build();
+                }
+            }
+        }
+        // Рассылка вне монитора: медленный стрим не задерживает приказы по инструменту
+        if (orderBook != null) {
+            hub.publish(MarketDataHub.Channel.ORDER_BOOK, figi, orderBook);
+        }
+        if (trade != null) {
+            hub.publish(MarketDataHub.Channel.TRADES, figi, trade);
+        }
+        if (lastPrice != null) {
+            hub.publish(MarketDataHub.Channel.LAST_PRICE, figi, lastPrice);
+        }
+        if (minuteCandle != null) {
+            hub.publish(MarketDataHub.Channel.CANDLES, minuteKey, minuteCandle);
+        }
+        if (fiveMinuteCandle != null) {
+            hub.publish(MarketDataHub.Channel.CANDLES, fiveMinuteKey, fiveMinuteCandle);
+        }
+    }
+
+    LastPrice toLastPrice(FakeInstrument instrument) {
+        return LastPrice.newBuilder()
+                .setFigi(instrument.getFigi())
+                .setInstrumentUid(instrument.getFigi())
+                .setPrice(ProtoValues.quotation(instrument.getLastPrice()))
+                .setTime(ProtoValues.timestamp(instrument.getLastTimeMillis()))
+                .build();
+    }
+
+    PostOrderResponse postOrder(PostOrderRequest request) {
+        FakeAccount account = account(request.getAccountId());
+        FakeInstrument instrument = instrument(request.getInstrumentId(), request.getFigi());
+        if (request.getQuantity() <= 0) {
+            throw invalid("Количество лотов должно быть положительным: " + request.getQuantity());
+        }
+        int side = side(request.getDirection());
+        OrderBookSimulator.OrderType type;
+        double limitPrice = Double.NaN;
+        switch (request.getOrderType()) {
+            case ORDER_TYPE_MARKET, ORDER_TYPE_BESTPRICE -> type = OrderBookSimulator.OrderType.MARKET;
+            case ORDER_TYPE_LIMIT -> {
+                type = OrderBookSimulator.OrderType.LIMIT;
+                limitPrice = request.getPrice().getUnits() + request.getPrice().getNano() / 1_000_000_000.0;
+                if (limitPrice <= 0) {
+                    throw invalid("Не указана цена лимитного приказа");
+                }
+            }
+            default -> throw invalid("Неподдерживаемый тип приказа: " + request.getOrderType());
+        }
+
+        synchronized (instrument) {
+            FakeOrder existing = account.getByClientOrderId(request.getOrderId());
+            if (existing != null) {
+                return existing.toPostOrderResponse();
+            }
+            FakeOrder order = submit(account, instrument, request.getOrderId(), request.getDirection(), request.getOrderType(),
+                    type, side, request.getQuantity(), limitPrice, Double.NaN);
+            return order.toPostOrderResponse();
+        }
+    }
+
+    String postStopOrder(PostStopOrderRequest request) {
+        FakeAccount account = account(request.getAccountId());
+        FakeInstrument instrument = instrument(request.getInstrumentId(), request.getFigi());
+        if (request.getStopOrderType() != StopOrderType.STOP_ORDER_TYPE_STOP_LOSS) {
+            throw Status.UNIMPLEMENTED.withDescription("Поддерживается только стоп-лосс: " + request.getStopOrderType()).asRuntimeException();
+        }
+        if (request.getQuantity() <= 0) {
+            throw invalid("Количество лотов должно быть положительным: " + request.getQuantity());
+        }
+        int side;
+        if (request.getDirection() == StopOrderDirection.STOP_ORDER_DIRECTION_BUY) {
+            side = 1;
+        } else if (request.getDirection() == StopOrderDirection.STOP_ORDER_DIRECTION_SELL) {
+            side = -1;
+        } else {
+            throw invalid("Не указано направление стоп-приказа");
+        }
+        double stopPrice = request.getStopPrice().getUnits() + request.getStopPrice().getNano() / 1_000_000_000.0;
+        synchronized (instrument) {
+            return submit(account, instrument, "", side > 0 ? OrderDirection.ORDER_DIRECTION_BUY : OrderDirection.ORDER_DIRECTION_SELL,
+                    null, OrderBookSimulator.OrderType.STOP, side, request.getQuantity(), Double.NaN, stopPrice).getId();
+        }
+    }
+
+    /**
+     * Снимает приказ или стоп-приказ счета.
+     */
+    void cancel(String accountId, String orderId) {
+        FakeOrder order = order(accountId, orderId);
+        FakeInstrument instrument = order.getInstrument();
+        synchronized (instrument) {
+            if (!instrument.getSimulator().cancel(order.getSimulated().getId())) {
+                throw Status.FAILED_PRECONDITION.withDescription("Приказ уже исполнен или снят: " + orderId).asRuntimeException();
+            }
+            instrument.getActiveOrders().remove(order.getSimulated().getId());
+        }
+    }
+
+    OrderState getOrderState(String accountId, String orderId) {
+        FakeOrder order = order(accountId, orderId);
+        synchronized (order.getInstrument()) {
+            return order.toOrderState();
+        }
+    }
+
+    /**
+     * Активные (неисполненные) приказы счета, без стоп-приказов.
+     */
+    List<OrderState> getActiveOrders(String accountId) {
+        List<OrderState> result = new ArrayList<>();
+        for (FakeOrder order : account(accountId).getOrders()) {
+            if (order.isStop()) {
+                continue;
+            }
+            synchronized (order.getInstrument()) {
+                if (!order.getSimulated().isDone()) {
+                    result.add(order.toOrderState());
+                }
+            }
+        }
+        return result;
+    }
+
+    private FakeOrder order(String accountId, String orderId) {
+        FakeOrder order = account(accountId).getOrder(orderId);
+        if (order == null) {
+            throw Status.NOT_FOUND.withDescription("Приказ не найден: " + orderId).asRuntimeException();
+        }
+        return order;
+    }
+
+    /**
+     * Отправляет приказ в симулятор инструмента. Вызывается под монитором инструмента.
+     */
+    private FakeOrder submit(FakeAccount account, FakeInstrument instrument, String clientOrderId, OrderDirection direction,
+                             OrderType orderType, OrderBookSimulator.OrderType type, int side, long lots,
+                             double limitPrice, double stopPrice) {
+        long now = Math.max(System.currentTimeMillis(), instrument.getLastTimeMillis());
+        OrderBookSimulator simulator = instrument.getSimulator();
+        OrderBookSimulator.SimulatedOrder simulated = simulator.submit(type, side, lots, limitPrice, stopPrice, now);
+        FakeOrder order = new FakeOrder("fake-order-" + orderSequence.incrementAndGet(), clientOrderId, account, instrument,
+                direction, orderType, Double.isNaN(limitPrice) ? 0 : limitPrice, now, simulated);
+        instrument.getActiveOrders().put(simulated.getId(), order);
+        account.addOrder(order);
+        ordersPosted.increment();
+        simulator.processArrivals(now);
+        if (simulated.isDone()) {
+            instrument.getActiveOrders().remove(simulated.getId());
+        }
+        return order;
+    }
+
+    /**
+     * Исполнение из симулятора (под монитором инструмента).
+     */
+    void onFill(FakeInstrument instrument, OrderBookSimulator.SimulatedOrder simulated, long lots, double price, long timeMillis) {
+        FakeOrder order = instrument.getActiveOrders().get(simulated.getId());
+        if (order == null) {
+            return;
+        }
+        double commission = lots * instrument.getLot() * price * config.getCommissionRate();
+        order.addCommission(commission);
+        order.getAccount().applyFill(instrument, order.getId(), simulated.getSide() * lots, price, commission, timeMillis);
+        fills.increment();
+        if (simulated.getRemainingLots() == 0) {
+            instrument.getActiveOrders().remove(simulated.getId());
+        }
+    }
+
+    private static int side(OrderDirection direction) {
+        if (direction == OrderDirection.ORDER_DIRECTION_BUY) {
+            return 1;
+        }
+        if (direction == OrderDirection.ORDER_DIRECTION_SELL) {
+            return -1;
+        }
+        throw invalid("Не указано направление приказа");
+    }
+
+    private static StatusRuntimeException invalid(String message) {
+        return Status.INVALID_ARGUMENT.withDescription(message).asRuntimeException();
+    }
+}
@@ -0,0 +1,242 @@
+package com.tradingbot.tinkoff.api.fake;
+
+import com.tradingbot.tinkoff.backtest.MarketEvent;
+import com.tradingbot.tinkoff.backtest.OrderBookSimulator;
+import ru.tinkoff.piapi.contract.v1.Candle;
+import ru.tinkoff.piapi.contract.v1.Instrument;
+import ru.tinkoff.piapi.contract.v1.Order;
+import ru.tinkoff.piapi.contract.v1.OrderBook;
+import ru.tinkoff.piapi.contract.v1.SecurityTradingStatus;
+import ru.tinkoff.piapi.contract.v1.Share;
+import ru.tinkoff.piapi.contract.v1.SubscriptionInterval;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Инструмент фейковой биржи: исполнение приказов всех счетов ({@link OrderBookSimulator} без задержки),
+ * последний снимок стакана и текущие свечи. Изменяемое состояние защищено монитором инструмента.
+ */
+final class FakeInstrument {
+    private final String figi;
+    private final String ticker;
+    private final String name;
+    private final int index;
+    private final int lot;
+    private final double tickSize;
+    private final double initialPrice;
+
+    private final OrderBookSimulator simulator;
+    // Неисполненные приказы по идентификатору симулятора
+    private final Map<String, FakeOrder> activeOrders = new HashMap<>();
+    private final MarketEvent book = new MarketEvent();
+    private final CandleState[] candles = {
+            new CandleState(SubscriptionInterval.SUBSCRIPTION_INTERVAL_ONE_MINUTE, 60_000L),
+            new CandleState(SubscriptionInterval.SUBSCRIPTION_INTERVAL_FIVE_MINUTES, 300_000L)
+    };
+    private final String minuteCandleKey;
+    private final String fiveMinuteCandleKey;
+    private volatile double lastPrice;
+    private volatile long lastTimeMillis;
+
+    FakeInstrument(String figi, String ticker, String name, int index, int lot, double tickSize, double initialPrice,
+                   FakeExchange exchange, long seed) {
+        this.figi = figi;
+        this.ticker = ticker;
+        this.name = name;
+        this.index = index;
+        this.lot = lot;
+        this.tickSize = tickSize;
+        this.initialPrice = initialPrice;
+        this.lastPrice = initialPrice;
+        this.minuteCandleKey = MarketDataHub.candleKey(figi, SubscriptionInterval.SUBSCRIPTION_INTERVAL_ONE_MINUTE);
+        this.fiveMinuteCandleKey = MarketDataHub.candleKey(figi, SubscriptionInterval.SUBSCRIPTION_INTERVAL_FIVE_MINUTES);
+        this.simulator = new OrderBookSimulator((order, lots, price, time) -> exchange.onFill(this, order, lots, price, time), 0, 0, seed);
+    }
+
+    String getFigi() {
+        return figi;
+    }
+
+    String getTicker() {
+        return ticker;
+    }
+
+    int getIndex() {
+        return index;
+    }
+
+    int getLot() {
+        return lot;
+    }
+
+    double getTickSize() {
+        return tickSize;
+    }
+
+    double getInitialPrice() {
+        return initialPrice;
+    }
+
+    double getLastPrice() {
+        return lastPrice;
+    }
+
+    long getLastTimeMillis() {
+        return lastTimeMillis;
+    }
+
+    /**
+     * Ключ подписки на свечи (без создания строки на каждую сделку).
+     */
+    String getCandleKey(SubscriptionInterval interval) {
+        return interval == SubscriptionInterval.SUBSCRIPTION_INTERVAL_ONE_MINUTE ? minuteCandleKey
+                : interval == SubscriptionInterval.SUBSCRIPTION_INTERVAL_FIVE_MINUTES ? fiveMinuteCandleKey
+                : MarketDataHub.candleKey(figi, interval);
+    }
+
+    OrderBookSimulator getSimulator() {
+        return simulator;
+    }
+
+    Map<String, FakeOrder> getActiveOrders() {
+        return activeOrders;
+    }
+
+    /**
+     * Применяет событие ленты: стакан и сделки исполняют стоящие приказы, сработавшие стопы исполняются сразу.
+     */
+    void apply(MarketEvent event) {
+        simulator.onEvent(event);
+        simulator.processArrivals(event.getTimeMillis());
+        lastTimeMillis = event.getTimeMillis();
+        if (event.getType() == MarketEvent.Type.ORDER_BOOK) {
+            book.copyFrom(event);
+        } else {
+            lastPrice = event.getPrice();
+            for (CandleState candle : candles) {
+                candle.add(event.getTimeMillis(), event.getPrice(), event.getQuantity());
+            }
+        }
+    }
+
+    OrderBook toOrderBook(int depth) {
+        OrderBook.Builder builder = OrderBook.newBuilder()
+                .setFigi(figi)
+                .setInstrumentUid(figi)
+                .setDepth(depth)
+                .setIsConsistent(true)
+                .setTime(ProtoValues.timestamp(book.getTimeMillis()));
+        for (int level = 0; level < Math.min(depth, book.getBidCount()); level++) {
+            builder.addBids(order(book.bidPrice(level), book.bidQuantity(level)));
+        }
+        for (int level = 0; level < Math.min(depth, book.getAskCount()); level++) {
+            builder.addAsks(order(book.askPrice(level), book.askQuantity(level)));
+        }
+        return builder.build();
+    }
+
+    /**
+     * Текущая свеча интервала; null, если интервал не поддерживается или сделок еще не было.
+     */
+    Candle toCandle(SubscriptionInterval interval) {
+        for (CandleState candle : candles) {
+            if (candle.interval == interval) {
+                return candle.volume > 0 ? candle.toCandle() : null;
+            }
+        }
+        return null;
+    }
+
+    static boolean supportsCandles(SubscriptionInterval interval) {
+        return interval == SubscriptionInterval.SUBSCRIPTION_INTERVAL_ONE_MINUTE
+                || interval == SubscriptionInterval.SUBSCRIPTION_INTERVAL_FIVE_MINUTES;
+    }
+
+    Share toShare() {
+        return Share.newBuilder()
+                .setFigi(figi)
+                .setUid(figi)
+                .setTicker(ticker)
+                .setClassCode("TQBR")
+                .setName(name)
+                .setCurrency(ProtoValues.CURRENCY)
+                .setLot(lot)
+                .setMinPriceIncrement(ProtoValues.quotation(tickSize))
+                .setTradingStatus(SecurityTradingStatus.SECURITY_TRADING_STATUS_NORMAL_TRADING)
+                .setApiTradeAvailableFlag(true)
+                .setBuyAvailableFlag(true)
+                .setSellAvailableFlag(true)
+                .setShortEnabledFlag(true)
+                .build();
+    }
+
+    Instrument toInstrument() {
+        return Instrument.newBuilder()
+                .setFigi(figi)
+                .setUid(figi)
+                .setTicker(ticker)
+                .setClassCode("TQBR")
+                .setName(name)
+                .setCurrency(ProtoValues.CURRENCY)
+                .setLot(lot)
+                .setMinPriceIncrement(ProtoValues.quotation(tickSize))
+                .setInstrumentType("share")
+                .setTradingStatus(SecurityTradingStatus.SECURITY_TRADING_STATUS_NORMAL_TRADING)
+                .setApiTradeAvailableFlag(true)
+                .build();
+    }
+
+    private static Order order(double price, long quantity) {
+        return Order.newBuilder().setPrice(ProtoValues.quotation(price)).setQuantity(quantity).build();
+    }
+
+    /**
+     * Свеча, собираемая из ленты сделок.
+     */
+    private final class CandleState {
+        private final SubscriptionInterval interval;
+        private final long intervalMillis;
+        private long start = Long.MIN_VALUE;
+        private long lastTrade;
+        private double open;
+        private double high;
+        private double low;
+        private double close;
+        private long volume;
+
+        private CandleState(SubscriptionInterval interval, long intervalMillis) {
+            this.interval = interval;
+            this.intervalMillis = intervalMillis;
+        }
+
+        private void add(long timeMillis, double price, long quantity) {
+            long bucket = timeMillis - Math.floorMod(timeMillis, intervalMillis);
+            if (bucket != start) {
+                start = bucket;
+                open = high = low = price;
+                volume = 0;
+            }
+            high = Math.max(high, price);
+            low = Math.min(low, price);
+            close = price;
+            volume += quantity;
+            lastTrade = timeMillis;
+        }
+
+        private Candle toCandle() {
+            return Candle.newBuilder()
+                    .setFigi(figi)
+                    .setInstrumentUid(figi)
+                    .setInterval(interval)
+                    .setOpen(ProtoValues.quotation(open))
+                    .setHigh(ProtoValues.quotation(high))
+                    .setLow(ProtoValues.quotation(low))
+                    .setClose(ProtoValues.quotation(close))
+                    .setVolume(volume)
+                    .setTime(ProtoValues.timestamp(start))
+                    .setLastTradeTs(ProtoValues.timestamp(lastTrade))
+                    .build();
+        }
+    }
+}
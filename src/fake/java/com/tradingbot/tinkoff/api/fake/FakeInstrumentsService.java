@@ -0,0 +1,53 @@
+package com.tradingbot.tinkoff.api.fake;
+
+import io.grpc.Status;
+import io.grpc.stub.StreamObserver;
+import ru.tinkoff.piapi.contract.v1.FuturesResponse;
+import ru.tinkoff.piapi.contract.v1.GetFuturesMarginRequest;
+import ru.tinkoff.piapi.contract.v1.GetFuturesMarginResponse;
+import ru.tinkoff.piapi.contract.v1.InstrumentRequest;
+import ru.tinkoff.piapi.contract.v1.InstrumentResponse;
+import ru.tinkoff.piapi.contract.v1.InstrumentsRequest;
+import ru.tinkoff.piapi.contract.v1.InstrumentsServiceGrpc;
+import ru.tinkoff.piapi.contract.v1.SharesResponse;
+
+/**
+ * Справочник инструментов: все инструменты фейковой биржи — рублевые акции с лотом 1, фьючерсов нет.
+ */
+final class FakeInstrumentsService extends InstrumentsServiceGrpc.InstrumentsServiceImplBase {
+    private final FakeExchange exchange;
+
+    FakeInstrumentsService(FakeExchange exchange) {
+        this.exchange = exchange;
+    }
+
+    @Override
+    public void shares(InstrumentsRequest request, StreamObserver<SharesResponse> responseObserver) {
+        FakeCalls.respond(responseObserver, () -> {
+            SharesResponse.Builder builder = SharesResponse.newBuilder();
+            for (FakeInstrument instrument : exchange.getInstruments()) {
+                builder.addInstruments(instrument.toShare());
+            }
+            return builder.build();
+        });
+    }
+
+    @Override
+    public void futures(InstrumentsRequest request, StreamObserver<FuturesResponse> responseObserver) {
+        FakeCalls.respond(responseObserver, () -> FuturesResponse.newBuilder().build());
+    }
+
+    @Override
+    public void getInstrumentBy(InstrumentRequest request, StreamObserver<InstrumentResponse> responseObserver) {
+        FakeCalls.respond(responseObserver, () -> InstrumentResponse.newBuilder()
+                .setInstrument(exchange.instrument(request.getId(), "").toInstrument())
+                .build());
+    }
+
+    @Override
+    public void getFuturesMargin(GetFuturesMarginRequest request, StreamObserver<GetFuturesMarginResponse> responseObserver) {
+        FakeCalls.respond(responseObserver, () -> {
+            throw Status.NOT_FOUND.withDescription("Фьючерс не найден: " + request.getFigi()).asRuntimeException();
+        });
+    }
+}
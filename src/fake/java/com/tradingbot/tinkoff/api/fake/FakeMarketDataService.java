@@ -0,0 +1,129 @@
+package com.tradingbot.tinkoff.api.fake;
+
+import io.grpc.Status;
+import io.grpc.stub.StreamObserver;
+import ru.tinkoff.piapi.contract.v1.CandleInterval;
+import ru.tinkoff.piapi.contract.v1.GetCandlesRequest;
+import ru.tinkoff.piapi.contract.v1.GetCandlesResponse;
+import ru.tinkoff.piapi.contract.v1.GetLastPricesRequest;
+import ru.tinkoff.piapi.contract.v1.GetLastPricesResponse;
+import ru.tinkoff.piapi.contract.v1.GetOrderBookRequest;
+import ru.tinkoff.piapi.contract.v1.GetOrderBookResponse;
+import ru.tinkoff.piapi.contract.v1.HistoricCandle;
+import ru.tinkoff.piapi.contract.v1.MarketDataServiceGrpc;
+import ru.tinkoff.piapi.contract.v1.OrderBook;
+
+/**
+ * Исторические свечи, последние цены и стакан.
+ *
+ * История синтетическая и не зависит от окна запроса: цена бара — функция инструмента и времени
+ * (суточная волна плюс детерминированный шум), поэтому повторные и пересекающиеся запросы согласованы.
+ */
+final class FakeMarketDataService extends MarketDataServiceGrpc.MarketDataServiceImplBase {
+    private static final long DAY_MILLIS = 86_400_000L;
+    private static final int MAX_CANDLES = 10_000;
+
+    private final FakeExchange exchange;
+
+    FakeMarketDataService(FakeExchange exchange) {
+        this.exchange = exchange;
+    }
+
+    @Override
+    public void getCandles(GetCandlesRequest request, StreamObserver<GetCandlesResponse> responseObserver) {
+        FakeCalls.respond(responseObserver, () -> {
+            FakeInstrument instrument = exchange.instrument(request.getInstrumentId(), request.getFigi());
+            long step = intervalMillis(request.getInterval());
+            long now = System.currentTimeMillis();
+            long from = FakeCalls.millis(request.getFrom(), now);
+            long to = Math.min(FakeCalls.millis(request.getTo(), now), now);
+            long start = from - Math.floorMod(from, step);
+            if ((to - start) / step > MAX_CANDLES) {
+                throw Status.INVALID_ARGUMENT.withDescription("Слишком большой период для интервала " + request.getInterval()).asRuntimeException();
+            }
+
+            GetCandlesResponse.Builder builder = GetCandlesResponse.newBuilder();
+            double tick = instrument.getTickSize();
+            for (long time = start; time < to; time += step) {
+                double open = price(instrument, time);
+                double close = price(instrument, time + step);
+                double wick = Math.abs(noise(instrument, time + 1)) * 0.002 * open;
+                builder.addCandles(HistoricCandle.newBuilder()
+                        .setOpen(ProtoValues.quotation(round(open, tick)))
+                        .setHigh(ProtoValues.quotation(round(Math.max(open, close) + wick, tick)))
+                        .setLow(ProtoValues.quotation(round(Math.min(open, close) - wick, tick)))
+                        .setClose(ProtoValues.quotation(round(close, tick)))
+                        .setVolume(100 + (long) ((noise(instrument, time + 2) + 1) * 5_000))
+                        .setTime(ProtoValues.timestamp(time))
+                        .setIsComplete(time + step <= now)
+                        .build());
+            }
+            return builder.build();
+        });
+    }
+
+    @Override
+    public void getLastPrices(GetLastPricesRequest request, StreamObserver<GetLastPricesResponse> responseObserver) {
+        FakeCalls.respond(responseObserver, () -> {
+            GetLastPricesResponse.Builder builder = GetLastPricesResponse.newBuilder();
+            for (String figi : request.getFigiList()) {
+                builder.addLastPrices(exchange.toLastPrice(exchange.instrument("", figi)));
+            }
+            for (String id : request.getInstrumentIdList()) {
+                builder.addLastPrices(exchange.toLastPrice(exchange.instrument(id, "")));
+            }
+            return builder.build();
+        });
+    }
+
+    @Override
+    public void getOrderBook(GetOrderBookRequest request, StreamObserver<GetOrderBookResponse> responseObserver) {
+        FakeCalls.respond(responseObserver, () -> {
+            FakeInstrument instrument = exchange.instrument(request.getInstrumentId(), request.getFigi());
+            int depth = request.getDepth() > 0 ? request.getDepth() : exchange.getConfig().getOrderBookDepth();
+            OrderBook book;
+            synchronized (instrument) {
+                book = instrument.toOrderBook(depth);
+            }
+            return GetOrderBookResponse.newBuilder()
+                    .setFigi(instrument.getFigi())
+                    .setDepth(depth)
+                    .addAllBids(book.getBidsList())
+                    .addAllAsks(book.getAsksList())
+                    .setLastPrice(ProtoValues.quotation(instrument.getLastPrice()))
+                    .setOrderbookTs(book.getTime())
+                    .build();
+        });
+    }
+
+    private static long intervalMillis(CandleInterval interval) {
+        return switch (interval) {
+            case CANDLE_INTERVAL_1_MIN -> 60_000L;
+            case CANDLE_INTERVAL_5_MIN -> 300_000L;
+            case CANDLE_INTERVAL_15_MIN -> 900_000L;
+            case CANDLE_INTERVAL_HOUR -> 3_600_000L;
+            case CANDLE_INTERVAL_DAY -> DAY_MILLIS;
+            default -> throw Status.INVALID_ARGUMENT.withDescription("Неподдерживаемый интервал: " + interval).asRuntimeException();
+        };
+    }
+
+    private double price(FakeInstrument instrument, long timeMillis) {
+        double wave = Math.sin(2 * Math.PI * timeMillis / DAY_MILLIS + instrument.getIndex() * 0.7);
+        return instrument.getInitialPrice() * (1 + 0.03 * wave + 0.003 * noise(instrument, timeMillis));
+    }
+
+    /**
+     * Детерминированный шум в [-1, 1) от инструмента и момента времени (финализатор SplitMix64).
+     */
+    private double noise(FakeInstrument instrument, long key) {
+        long h = exchange.getConfig().getSeed() ^ (instrument.getIndex() * 0x9E3779B97F4A7C15L) ^ key;
+        h = (h ^ (h >>> 30)) * 0xBF58476D1CE4E5B9L;
+        h = (h ^ (h >>> 27)) * 0x94D049BB133111EBL;
+        h ^= h >>> 31;
+        return (h >>> 11) * 0x1.0p-53 * 2 - 1;
+    }
+
+    private static double round(double price, double tick) {
+        return Math.max(Math.round(price / tick), 1) * tick;
+    }
+}
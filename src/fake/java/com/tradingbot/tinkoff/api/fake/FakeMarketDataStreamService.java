@@ -0,0 +1,109 @@
+package com.tradingbot.tinkoff.api.fake;
+
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ru.tinkoff.piapi.contract.v1.CandleInstrument;
+import ru.tinkoff.piapi.contract.v1.LastPriceInstrument;
+import ru.tinkoff.piapi.contract.v1.MarketDataRequest;
+import ru.tinkoff.piapi.contract.v1.MarketDataResponse;
+import ru.tinkoff.piapi.contract.v1.MarketDataStreamServiceGrpc;
+import ru.tinkoff.piapi.contract.v1.OrderBookInstrument;
+import ru.tinkoff.piapi.contract.v1.SubscriptionAction;
+import ru.tinkoff.piapi.contract.v1.TradeInstrument;
+
+/**
+ * Двунаправленный стрим рыночных данных: запросы подписки и отписки на стаканы, сделки,
+ * последние цены и свечи (1 и 5 минут). Глубина стакана — из конфигурации сервера.
+ */
+final class FakeMarketDataStreamService extends MarketDataStreamServiceGrpc.MarketDataStreamServiceImplBase {
+    private static final Logger logger = LoggerFactory.getLogger(FakeMarketDataStreamService.class);
+
+    private final FakeExchange exchange;
+    private final MarketDataHub hub;
+
+    FakeMarketDataStreamService(FakeExchange exchange, MarketDataHub hub) {
+        this.exchange = exchange;
+        this.hub = hub;
+    }
+
+    @Override
+    public StreamObserver<MarketDataRequest> marketDataStream(StreamObserver<MarketDataResponse> responseObserver) {
+        MarketDataHub.Subscriber subscriber = hub.open((ServerCallStreamObserver<MarketDataResponse>) responseObserver);
+        return new StreamObserver<>() {
+            @Override
+            public void onNext(MarketDataRequest request) {
+                if (request.hasSubscribeOrderBookRequest()) {
+                    boolean subscribe = isSubscribe(request.getSubscribeOrderBookRequest().getSubscriptionAction());
+                    for (OrderBookInstrument instrument : request.getSubscribeOrderBookRequest().getInstrumentsList()) {
+                        update(MarketDataHub.Channel.ORDER_BOOK, instrument.getInstrumentId(), instrument.getFigi(), subscribe);
+                    }
+                }
+                if (request.hasSubscribeTradesRequest()) {
+                    boolean subscribe = isSubscribe(request.getSubscribeTradesRequest().getSubscriptionAction());
+                    for (TradeInstrument instrument : request.getSubscribeTradesRequest().getInstrumentsList()) {
+                        update(MarketDataHub.Channel.TRADES, instrument.getInstrumentId(), instrument.getFigi(), subscribe);
+                    }
+                }
+                if (request.hasSubscribeLastPriceRequest()) {
+                    boolean subscribe = isSubscribe(request.getSubscribeLastPriceRequest().getSubscriptionAction());
+                    for (LastPriceInstrument instrument : request.getSubscribeLastPriceRequest().getInstrumentsList()) {
+                        update(MarketDataHub.Channel.LAST_PRICE, instrument.getInstrumentId(), instrument.getFigi(), subscribe);
+                    }
+                }
+                if (request.hasSubscribeCandlesRequest()) {
+                    boolean subscribe = isSubscribe(request.getSubscribeCandlesRequest().getSubscriptionAction());
+                    for (CandleInstrument instrument : request.getSubscribeCandlesRequest().getInstrumentsList()) {
+                        if (!FakeInstrument.supportsCandles(instrument.getInterval())) {
+                            logger.debug("🧪 Интервал свечей {} не поддерживается", instrument.getInterval());
+                            continue;
+                        }
+                        FakeInstrument target = find(instrument.getInstrumentId(), instrument.getFigi());
+                        if (target != null) {
+                            subscribe(MarketDataHub.Channel.CANDLES, target.getCandleKey(instrument.getInterval()), subscribe);
+                        }
+                    }
+                }
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                hub.close(subscriber);
+            }
+
+            @Override
+            public void onCompleted() {
+                subscriber.complete();
+            }
+
+            private void update(MarketDataHub.Channel channel, String instrumentId, String figi, boolean subscribe) {
+                FakeInstrument target = find(instrumentId, figi);
+                if (target != null) {
+                    subscribe(channel, target.getFigi(), subscribe);
+                }
+            }
+
+            private void subscribe(MarketDataHub.Channel channel, String key, boolean subscribe) {
+                if (subscribe) {
+                    hub.subscribe(channel, key, subscriber);
+                } else {
+                    hub.unsubscribe(channel, key, subscriber);
+                }
+            }
+        };
+    }
+
+    private FakeInstrument find(String instrumentId, String figi) {
+        try {
+            return exchange.instrument(instrumentId, figi);
+        } catch (RuntimeException e) {
+            logger.debug("🧪 Подписка на неизвестный инструмент {}", instrumentId.isEmpty() ? figi : instrumentId);
+            return null;
+        }
+    }
+
+    private static boolean isSubscribe(SubscriptionAction action) {
+        return action != SubscriptionAction.SUBSCRIPTION_ACTION_UNSUBSCRIBE;
+    }
+}
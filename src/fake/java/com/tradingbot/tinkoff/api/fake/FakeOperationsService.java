@@ -0,0 +1,50 @@
+package com.tradingbot.tinkoff.api.fake;
+
+import io.grpc.stub.StreamObserver;
+import ru.tinkoff.piapi.contract.v1.OperationState;
+import ru.tinkoff.piapi.contract.v1.OperationsRequest;
+import ru.tinkoff.piapi.contract.v1.OperationsResponse;
+import ru.tinkoff.piapi.contract.v1.OperationsServiceGrpc;
+import ru.tinkoff.piapi.contract.v1.PortfolioRequest;
+import ru.tinkoff.piapi.contract.v1.PortfolioResponse;
+import ru.tinkoff.piapi.contract.v1.PositionsRequest;
+import ru.tinkoff.piapi.contract.v1.PositionsResponse;
+
+/**
+ * Операции, портфель и позиции счета.
+ */
+final class FakeOperationsService extends OperationsServiceGrpc.OperationsServiceImplBase {
+    private final FakeExchange exchange;
+
+    FakeOperationsService(FakeExchange exchange) {
+        this.exchange = exchange;
+    }
+
+    /**
+     * Исполненные сделки счета за период (других операций фейковая биржа не ведет).
+     */
+    static OperationsResponse operations(FakeExchange exchange, OperationsRequest request) {
+        FakeAccount account = exchange.account(request.getAccountId());
+        OperationsResponse.Builder builder = OperationsResponse.newBuilder();
+        if (request.getState() == OperationState.OPERATION_STATE_CANCELED) {
+            return builder.build();
+        }
+        return builder.addAllOperations(account.getOperations(FakeCalls.millis(request.getFrom(), Long.MIN_VALUE),
+                FakeCalls.millis(request.getTo(), Long.MAX_VALUE), request.getFigi())).build();
+    }
+
+    @Override
+    public void getOperations(OperationsRequest request, StreamObserver<OperationsResponse> responseObserver) {
+        FakeCalls.respond(responseObserver, () -> operations(exchange, request));
+    }
+
+    @Override
+    public void getPortfolio(PortfolioRequest request, StreamObserver<PortfolioResponse> responseObserver) {
+        FakeCalls.respond(responseObserver, () -> exchange.account(request.getAccountId()).toPortfolio());
+    }
+
+    @Override
+    public void getPositions(PositionsRequest request, StreamObserver<PositionsResponse> responseObserver) {
+        FakeCalls.respond(responseObserver, () -> exchange.account(request.getAccountId()).toPositions());
+    }
+}
@@ -0,0 +1,116 @@
+package com.tradingbot.tinkoff.api.fake;
+
+import com.tradingbot.tinkoff.backtest.OrderBookSimulator;
+import ru.tinkoff.piapi.contract.v1.OrderDirection;
+import ru.tinkoff.piapi.contract.v1.OrderExecutionReportStatus;
+import ru.tinkoff.piapi.contract.v1.OrderState;
+import ru.tinkoff.piapi.contract.v1.OrderType;
+import ru.tinkoff.piapi.contract.v1.PostOrderResponse;
+
+/**
+ * Приказ счета на фейковой бирже. Состояние исполнения — в {@link OrderBookSimulator.SimulatedOrder};
+ * читать его можно только под монитором инструмента.
+ */
+final class FakeOrder {
+    private final String id;
+    private final String clientOrderId;
+    private final FakeAccount account;
+    private final FakeInstrument instrument;
+    private final OrderDirection direction;
+    // null для стоп-приказа
+    private final OrderType orderType;
+    private final double requestedPrice;
+    private final long createdMillis;
+    private final OrderBookSimulator.SimulatedOrder simulated;
+    private double commission;
+
+    FakeOrder(String id, String clientOrderId, FakeAccount account, FakeInstrument instrument, OrderDirection direction,
+              OrderType orderType, double requestedPrice, long createdMillis, OrderBookSimulator.SimulatedOrder simulated) {
+        this.id = id;
+        this.clientOrderId = clientOrderId;
+        this.account = account;
+        this.instrument = instrument;
+        this.direction = direction;
+        this.orderType = orderType;
+        this.requestedPrice = requestedPrice;
+        this.createdMillis = createdMillis;
+        this.simulated = simulated;
+    }
+
+    String getId() {
+        return id;
+    }
+
+    String getClientOrderId() {
+        return clientOrderId;
+    }
+
+    FakeAccount getAccount() {
+        return account;
+    }
+
+    FakeInstrument getInstrument() {
+        return instrument;
+    }
+
+    OrderBookSimulator.SimulatedOrder getSimulated() {
+        return simulated;
+    }
+
+    boolean isStop() {
+        return orderType == null;
+    }
+
+    void addCommission(double value) {
+        commission += value;
+    }
+
+    OrderExecutionReportStatus status() {
+        return switch (simulated.getStatus()) {
+            case FILLED -> OrderExecutionReportStatus.EXECUTION_REPORT_STATUS_FILL;
+            case CANCELLED -> OrderExecutionReportStatus.EXECUTION_REPORT_STATUS_CANCELLED;
+            case PENDING, ACTIVE -> simulated.getFilledLots() > 0
+                    ? OrderExecutionReportStatus.EXECUTION_REPORT_STATUS_PARTIALLYFILL
+                    : OrderExecutionReportStatus.EXECUTION_REPORT_STATUS_NEW;
+        };
+    }
+
+    PostOrderResponse toPostOrderResponse() {
+        double lotValue = instrument.getLot() * averagePrice();
+        return PostOrderResponse.newBuilder()
+                .setOrderId(id)
+                .setExecutionReportStatus(status())
+                .setLotsRequested(simulated.getLots())
+                .setLotsExecuted(simulated.getFilledLots())
+                .setInitialOrderPrice(ProtoValues.money(instrument.getLot() * requestedPrice * simulated.getLots()))
+                .setExecutedOrderPrice(ProtoValues.money(averagePrice()))
+                .setTotalOrderAmount(ProtoValues.money(lotValue * simulated.getFilledLots()))
+                .setExecutedCommission(ProtoValues.money(commission))
+                .setFigi(instrument.getFigi())
+                .setDirection(direction)
+                .setOrderType(orderType)
+                .build();
+    }
+
+    OrderState toOrderState() {
+        return OrderState.newBuilder()
+                .setOrderId(id)
+                .setExecutionReportStatus(status())
+                .setLotsRequested(simulated.getLots())
+                .setLotsExecuted(simulated.getFilledLots())
+                .setInitialOrderPrice(ProtoValues.money(instrument.getLot() * requestedPrice * simulated.getLots()))
+                .setExecutedOrderPrice(ProtoValues.money(instrument.getLot() * averagePrice() * simulated.getFilledLots()))
+                .setAveragePositionPrice(ProtoValues.money(averagePrice()))
+                .setExecutedCommission(ProtoValues.money(commission))
+                .setFigi(instrument.getFigi())
+                .setDirection(direction)
+                .setOrderType(orderType)
+                .setCurrency(ProtoValues.CURRENCY)
+                .setOrderDate(ProtoValues.timestamp(createdMillis))
+                .build();
+    }
+
+    private double averagePrice() {
+        return simulated.getFilledLots() > 0 ? simulated.getAverageFillPrice() : 0;
+    }
+}
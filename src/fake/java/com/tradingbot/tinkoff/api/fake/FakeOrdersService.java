@@ -0,0 +1,48 @@
+package com.tradingbot.tinkoff.api.fake;
+
+import io.grpc.stub.StreamObserver;
+import ru.tinkoff.piapi.contract.v1.CancelOrderRequest;
+import ru.tinkoff.piapi.contract.v1.CancelOrderResponse;
+import ru.tinkoff.piapi.contract.v1.GetOrderStateRequest;
+import ru.tinkoff.piapi.contract.v1.GetOrdersRequest;
+import ru.tinkoff.piapi.contract.v1.GetOrdersResponse;
+import ru.tinkoff.piapi.contract.v1.OrderState;
+import ru.tinkoff.piapi.contract.v1.OrdersServiceGrpc;
+import ru.tinkoff.piapi.contract.v1.PostOrderRequest;
+import ru.tinkoff.piapi.contract.v1.PostOrderResponse;
+
+/**
+ * Торговые поручения боевого контура; исполнение — {@link FakeExchange}.
+ */
+final class FakeOrdersService extends OrdersServiceGrpc.OrdersServiceImplBase {
+    private final FakeExchange exchange;
+
+    FakeOrdersService(FakeExchange exchange) {
+        this.exchange = exchange;
+    }
+
+    @Override
+    public void postOrder(PostOrderRequest request, StreamObserver<PostOrderResponse> responseObserver) {
+        FakeCalls.respond(responseObserver, () -> exchange.postOrder(request));
+    }
+
+    @Override
+    public void cancelOrder(CancelOrderRequest request, StreamObserver<CancelOrderResponse> responseObserver) {
+        FakeCalls.respond(responseObserver, () -> {
+            exchange.cancel(request.getAccountId(), request.getOrderId());
+            return CancelOrderResponse.newBuilder().setTime(ProtoValues.timestamp(System.currentTimeMillis())).build();
+        });
+    }
+
+    @Override
+    public void getOrderState(GetOrderStateRequest request, StreamObserver<OrderState> responseObserver) {
+        FakeCalls.respond(responseObserver, () -> exchange.getOrderState(request.getAccountId(), request.getOrderId()));
+    }
+
+    @Override
+    public void getOrders(GetOrdersRequest request, StreamObserver<GetOrdersResponse> responseObserver) {
+        FakeCalls.respond(responseObserver, () -> GetOrdersResponse.newBuilder()
+                .addAllOrders(exchange.getActiveOrders(request.getAccountId()))
+                .build());
+    }
+}
@@ -0,0 +1,109 @@
+package com.tradingbot.tinkoff.api.fake;
+
+import io.grpc.Status;
+import io.grpc.stub.StreamObserver;
+import ru.tinkoff.piapi.contract.v1.CancelOrderRequest;
+import ru.tinkoff.piapi.contract.v1.CancelOrderResponse;
+import ru.tinkoff.piapi.contract.v1.CloseSandboxAccountRequest;
+import ru.tinkoff.piapi.contract.v1.CloseSandboxAccountResponse;
+import ru.tinkoff.piapi.contract.v1.GetAccountsRequest;
+import ru.tinkoff.piapi.contract.v1.GetAccountsResponse;
+import ru.tinkoff.piapi.contract.v1.GetOrderStateRequest;
+import ru.tinkoff.piapi.contract.v1.GetOrdersRequest;
+import ru.tinkoff.piapi.contract.v1.GetOrdersResponse;
+import ru.tinkoff.piapi.contract.v1.OpenSandboxAccountRequest;
+import ru.tinkoff.piapi.contract.v1.OpenSandboxAccountResponse;
+import ru.tinkoff.piapi.contract.v1.OperationsRequest;
+import ru.tinkoff.piapi.contract.v1.OperationsResponse;
+import ru.tinkoff.piapi.contract.v1.OrderState;
+import ru.tinkoff.piapi.contract.v1.PortfolioRequest;
+import ru.tinkoff.piapi.contract.v1.PortfolioResponse;
+import ru.tinkoff.piapi.contract.v1.PositionsRequest;
+import ru.tinkoff.piapi.contract.v1.PositionsResponse;
+import ru.tinkoff.piapi.contract.v1.PostOrderRequest;
+import ru.tinkoff.piapi.contract.v1.PostOrderResponse;
+import ru.tinkoff.piapi.contract.v1.SandboxPayInRequest;
+import ru.tinkoff.piapi.contract.v1.SandboxPayInResponse;
+import ru.tinkoff.piapi.contract.v1.SandboxServiceGrpc;
+
+/**
+ * Песочница: те же счета и исполнение, что у боевых сервисов фейковой биржи.
+ */
+final class FakeSandboxService extends SandboxServiceGrpc.SandboxServiceImplBase {
+    private final FakeExchange exchange;
+
+    FakeSandboxService(FakeExchange exchange) {
+        this.exchange = exchange;
+    }
+
+    @Override
+    public void openSandboxAccount(OpenSandboxAccountRequest request, StreamObserver<OpenSandboxAccountResponse> responseObserver) {
+        FakeCalls.respond(responseObserver, () -> OpenSandboxAccountResponse.newBuilder()
+                .setAccountId(exchange.openAccount().getId())
+                .build());
+    }
+
+    @Override
+    public void getSandboxAccounts(GetAccountsRequest request, StreamObserver<GetAccountsResponse> responseObserver) {
+        FakeCalls.respond(responseObserver, () -> FakeUsersService.accounts(exchange));
+    }
+
+    @Override
+    public void closeSandboxAccount(CloseSandboxAccountRequest request, StreamObserver<CloseSandboxAccountResponse> responseObserver) {
+        FakeCalls.respond(responseObserver, () -> {
+            if (!exchange.closeAccount(request.getAccountId())) {
+                throw Status.NOT_FOUND.withDescription("Счет не найден: " + request.getAccountId()).asRuntimeException();
+            }
+            return CloseSandboxAccountResponse.newBuilder().build();
+        });
+    }
+
+    @Override
+    public void postSandboxOrder(PostOrderRequest request, StreamObserver<PostOrderResponse> responseObserver) {
+        FakeCalls.respond(responseObserver, () -> exchange.postOrder(request));
+    }
+
+    @Override
+    public void getSandboxOrders(GetOrdersRequest request, StreamObserver<GetOrdersResponse> responseObserver) {
+        FakeCalls.respond(responseObserver, () -> GetOrdersResponse.newBuilder()
+                .addAllOrders(exchange.getActiveOrders(request.getAccountId()))
+                .build());
+    }
+
+    @Override
+    public void cancelSandboxOrder(CancelOrderRequest request, StreamObserver<CancelOrderResponse> responseObserver) {
+        FakeCalls.respond(responseObserver, () -> {
+            exchange.cancel(request.getAccountId(), request.getOrderId());
+            return CancelOrderResponse.newBuilder().setTime(ProtoValues.timestamp(System.currentTimeMillis())).build();
+        });
+    }
+
+    @Override
+    public void getSandboxOrderState(GetOrderStateRequest request, StreamObserver<OrderState> responseObserver) {
+        FakeCalls.respond(responseObserver, () -> exchange.getOrderState(request.getAccountId(), request.getOrderId()));
+    }
+
+    @Override
+    public void getSandboxPositions(PositionsRequest request, StreamObserver<PositionsResponse> responseObserver) {
+        FakeCalls.respond(responseObserver, () -> exchange.account(request.getAccountId()).toPositions());
+    }
+
+    @Override
+    public void getSandboxOperations(OperationsRequest request, StreamObserver<OperationsResponse> responseObserver) {
+        FakeCalls.respond(responseObserver, () -> FakeOperationsService.operations(exchange, request));
+    }
+
+    @Override
+    public void getSandboxPortfolio(PortfolioRequest request, StreamObserver<PortfolioResponse> responseObserver) {
+        FakeCalls.respond(responseObserver, () -> exchange.account(request.getAccountId()).toPortfolio());
+    }
+
+    @Override
+    public void sandboxPayIn(SandboxPayInRequest request, StreamObserver<SandboxPayInResponse> responseObserver) {
+        FakeCalls.respond(responseObserver, () -> {
+            FakeAccount account = exchange.account(request.getAccountId());
+            account.payIn(request.getAmount().getUnits() + request.getAmount().getNano() / 1_000_000_000.0);
+            return SandboxPayInResponse.newBuilder().setBalance(ProtoValues.money(account.getCash())).build();
+        });
+    }
+}
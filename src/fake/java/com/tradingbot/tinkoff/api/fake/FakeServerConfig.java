@@ -0,0 +1,61 @@
+package com.tradingbot.tinkoff.api.fake;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Параметры фейкового сервера Tinkoff Invest API для нагрузочных тестов.
+ */
+@Getter
+@Builder(toBuilder = true)
+public class FakeServerConfig {
+    // Имя in-process сервера: клиент подключается через FakeTinkoffServer.newChannel()
+    @Builder.Default
+    private final String serverName = "fake-tinkoff";
+    // TCP-порт для внешних клиентов (без TLS); 0 - только in-process
+    @Builder.Default
+    private final int port = 0;
+    @Builder.Default
+    private final int serverThreads = 4;
+
+    // Синтетический рынок: число инструментов и обновлений стакана в секунду на каждый
+    @Builder.Default
+    private final int instruments = 1000;
+    @Builder.Default
+    private final double updatesPerSecond = 50;
+    @Builder.Default
+    private final int feedThreads = 1;
+    @Builder.Default
+    private final int orderBookDepth = 10;
+    // Вероятность сделки после обновления стакана
+    @Builder.Default
+    private final double tradeProbability = 0.2;
+    // Стандартное отклонение шага цены (доля цены на обновление)
+    @Builder.Default
+    private final double volatility = 0.00005;
+    @Builder.Default
+    private final double initialPrice = 100;
+    @Builder.Default
+    private final double tickSize = 0.01;
+    @Builder.Default
+    private final long seed = 42;
+
+    // Записи MarketDataRecorder, воспроизводимые как дополнительные инструменты
+    @Builder.Default
+    private final List<Path> replayFiles = List.of();
+    // Ускорение воспроизведения; 0 - без пауз, с максимальной скоростью
+    @Builder.Default
+    private final double replaySpeed = 1.0;
+    // Начинать файл заново после конца
+    @Builder.Default
+    private final boolean replayLoop = true;
+
+    // Счета: стартовые деньги и комиссия как доля оборота
+    @Builder.Default
+    private final double initialCash = 1_000_000;
+    @Builder.Default
+    private final double commissionRate = 0.0005;
+}
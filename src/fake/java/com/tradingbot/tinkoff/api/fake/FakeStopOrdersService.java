@@ -0,0 +1,34 @@
+package com.tradingbot.tinkoff.api.fake;
+
+import io.grpc.stub.StreamObserver;
+import ru.tinkoff.piapi.contract.v1.CancelStopOrderRequest;
+import ru.tinkoff.piapi.contract.v1.CancelStopOrderResponse;
+import ru.tinkoff.piapi.contract.v1.PostStopOrderRequest;
+import ru.tinkoff.piapi.contract.v1.PostStopOrderResponse;
+import ru.tinkoff.piapi.contract.v1.StopOrdersServiceGrpc;
+
+/**
+ * Стоп-приказы (только стоп-лосс): срабатывают по цене сделки и исполняются как рыночные.
+ */
+final class FakeStopOrdersService extends StopOrdersServiceGrpc.StopOrdersServiceImplBase {
+    private final FakeExchange exchange;
+
+    FakeStopOrdersService(FakeExchange exchange) {
+        this.exchange = exchange;
+    }
+
+    @Override
+    public void postStopOrder(PostStopOrderRequest request, StreamObserver<PostStopOrderResponse> responseObserver) {
+        FakeCalls.respond(responseObserver, () -> PostStopOrderResponse.newBuilder()
+                .setStopOrderId(exchange.postStopOrder(request))
+                .build());
+    }
+
+    @Override
+    public void cancelStopOrder(CancelStopOrderRequest request, StreamObserver<CancelStopOrderResponse> responseObserver) {
+        FakeCalls.respond(responseObserver, () -> {
+            exchange.cancel(request.getAccountId(), request.getStopOrderId());
+            return CancelStopOrderResponse.newBuilder().setTime(ProtoValues.timestamp(System.currentTimeMillis())).build();
+        });
+    }
+}
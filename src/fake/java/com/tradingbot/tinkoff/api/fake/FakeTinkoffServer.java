@@ -0,0 +1,196 @@
+package com.tradingbot.tinkoff.api.fake;
+
+import com.tradingbot.tinkoff.api.TinkoffApiConnector;
+import io.grpc.BindableService;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.ServerBuilder;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Фейковый сервер Tinkoff Invest API для нагрузочных тестов без сети и брокера.
+ *
+ * Реализует сервисы, которыми пользуется {@link TinkoffApiConnector}: рыночные данные (в том числе стрим),
+ * приказы и стоп-приказы, операции и портфель, справочник инструментов, счета и песочницу. Лента —
+ * синтетическая (по умолчанию 1000 инструментов по 50 обновлений стакана в секунду) и/или воспроизведение
+ * записей {@link com.tradingbot.tinkoff.backtest.MarketDataRecorder}; исполнение — {@link FakeExchange}.
+ *
+ * В том же процессе коннектор создается поверх {@link #newChannel()}; внешний бот подключается, если
+ * системное свойство {@value TinkoffApiConnector#TARGET_PROPERTY} равно host:port (сервер запущен с портом, без TLS).
+ */
+public class FakeTinkoffServer implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(FakeTinkoffServer.class);
+
+    private final FakeServerConfig config;
+    private final MarketDataHub hub = new MarketDataHub();
+    private final FakeExchange exchange;
+    private final ExecutorService executor;
+    private final List<Server> servers = new ArrayList<>();
+    private final List<Thread> feeds = new ArrayList<>();
+
+    private FakeTinkoffServer(FakeServerConfig config) {
+        this.config = config;
+        this.exchange = new FakeExchange(config, hub);
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(config.getServerThreads(), r -> {
+            Thread t = new Thread(r);
+            t.setDaemon(true);
+            t.setName("FakeTinkoff-" + threads.incrementAndGet());
+            return t;
+        });
+    }
+
+    /**
+     * Создает инструменты и счет, запускает ленты и сервер.
+     */
+    public static FakeTinkoffServer start(FakeServerConfig config) throws IOException {
+        FakeTinkoffServer server = new FakeTinkoffServer(config);
+        try {
+            server.startInternal();
+        } catch (IOException | RuntimeException e) {
+            server.close();
+            throw e;
+        }
+        return server;
+    }
+
+    private void startInternal() throws IOException {
+        SplittableRandom random = new SplittableRandom(config.getSeed());
+        List<FakeInstrument> synthetic = new ArrayList<>();
+        for (int i = 0; i < config.getInstruments(); i++) {
+            // Цены инструментов разбросаны от 0.5 до 1.5 базовой
+            double price = config.getInitialPrice() * (0.5 + random.nextDouble());
+            synthetic.add(exchange.addInstrument(String.format("FAKE%08d", i), String.format("FK%04d", i), "Синтетика " + i, price));
+        }
+        List<ReplayFeed> replays = new ArrayList<>();
+        for (Path file : config.getReplayFiles()) {
+            replays.add(ReplayFeed.open(exchange, file));
+        }
+        exchange.openAccount();
+
+        List<BindableService> services = List.of(
+                new FakeMarketDataService(exchange),
+                new FakeMarketDataStreamService(exchange, hub),
+                new FakeOrdersService(exchange),
+                new FakeStopOrdersService(exchange),
+                new FakeOperationsService(exchange),
+                new FakeInstrumentsService(exchange),
+                new FakeUsersService(exchange),
+                new FakeSandboxService(exchange));
+        InProcessServerBuilder inProcess = InProcessServerBuilder.forName(config.getServerName()).executor(executor);
+        services.forEach(inProcess::addService);
+        servers.add(inProcess.build().start());
+        if (config.getPort() > 0) {
+            ServerBuilder<?> network = ServerBuilder.forPort(config.getPort()).executor(executor);
+            services.forEach(network::addService);
+            servers.add(network.build().start());
+        }
+
+        int threads = Math.max(1, Math.min(config.getFeedThreads(), synthetic.size()));
+        for (int t = 0; t < threads && !synthetic.isEmpty(); t++) {
+            List<FakeInstrument> part = new ArrayList<>();
+            for (int i = t; i < synthetic.size(); i += threads) {
+                part.add(synthetic.get(i));
+            }
+            startFeed(new SyntheticFeed(exchange, part), "FakeFeed-" + t);
+        }
+        for (int r = 0; r < replays.size(); r++) {
+            startFeed(replays.get(r), "FakeReplay-" + r);
+        }
+
+        logger.info("🧪 Фейковый Tinkoff API запущен: {}{}, инструментов {} ({} записей), {} обновлений/с на инструмент",
+                "in-process " + config.getServerName(), config.getPort() > 0 ? " и порт " + config.getPort() : "",
+                exchange.getInstrumentCount(), replays.size(), config.getUpdatesPerSecond());
+    }
+
+    private void startFeed(Runnable feed, String name) {
+        Thread thread = new Thread(feed, name);
+        thread.setDaemon(true);
+        thread.start();
+        feeds.add(thread);
+    }
+
+    /**
+     * Новый in-process канал к серверу для {@link TinkoffApiConnector#TinkoffApiConnector(ManagedChannel, boolean)};
+     * закрывает его вызывающий.
+     */
+    public ManagedChannel newChannel() {
+        return InProcessChannelBuilder.forName(config.getServerName()).build();
+    }
+
+    public FakeExchange getExchange() {
+        return exchange;
+    }
+
+    public MarketDataHub getHub() {
+        return hub;
+    }
+
+    /**
+     * Сводка для журнала нагрузочного теста.
+     */
+    public String getStatistics() {
+        return String.format("событий ленты %d, отправлено %d, отброшено %d, стримов %d, приказов %d, исполнений %d",
+                exchange.getMarketEventCount(), hub.getPublishedCount(), hub.getDroppedCount(), hub.getStreamCount(),
+                exchange.getOrdersPosted(), exchange.getFillCount());
+    }
+
+    @Override
+    public void close() {
+        feeds.forEach(Thread::interrupt);
+        for (Server server : servers) {
+            server.shutdownNow();
+        }
+        executor.shutdownNow();
+        try {
+            for (Thread feed : feeds) {
+                feed.join(1000);
+            }
+            executor.awaitTermination(3, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        logger.info("🧪 Фейковый Tinkoff API остановлен: {}", getStatistics());
+    }
+
+    /**
+     * Отдельный процесс для нагрузки по сети: {@code FakeTinkoffServer [порт] [инструментов] [обновлений/с] [записи...]}.
+     */
+    public static void main(String[] args) throws Exception {
+        FakeServerConfig.FakeServerConfigBuilder builder = FakeServerConfig.builder()
+                .port(args.length > 0 ? Integer.parseInt(args[0]) : 8443);
+        if (args.length > 1) {
+            builder.instruments(Integer.parseInt(args[1]));
+        }
+        if (args.length > 2) {
+            builder.updatesPerSecond(Double.parseDouble(args[2]));
+        }
+        if (args.length > 3) {
+            List<Path> files = new ArrayList<>();
+            for (int i = 3; i < args.length; i++) {
+                files.add(Path.of(args[i]));
+            }
+            builder.replayFiles(files);
+        }
+        FakeTinkoffServer server = start(builder.build());
+        Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+        while (!Thread.currentThread().isInterrupted()) {
+            Thread.sleep(10_000);
+            logger.info("🧪 {}", server.getStatistics());
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.tradingbot.tinkoff.api.fake;
+
+import io.grpc.stub.StreamObserver;
+import ru.tinkoff.piapi.contract.v1.GetAccountsRequest;
+import ru.tinkoff.piapi.contract.v1.GetAccountsResponse;
+import ru.tinkoff.piapi.contract.v1.UsersServiceGrpc;
+
+/**
+ * Счета пользователя: все открытые счета фейковой биржи (при запуске открывается один).
+ */
+final class FakeUsersService extends UsersServiceGrpc.UsersServiceImplBase {
+    private final FakeExchange exchange;
+
+    FakeUsersService(FakeExchange exchange) {
+        this.exchange = exchange;
+    }
+
+    /**
+     * Список счетов в формате ответа API.
+     */
+    static GetAccountsResponse accounts(FakeExchange exchange) {
+        GetAccountsResponse.Builder builder = GetAccountsResponse.newBuilder();
+        for (FakeAccount account : exchange.getAccounts()) {
+            builder.addAccounts(account.toAccount());
+        }
+        return builder.build();
+    }
+
+    @Override
+    public void getAccounts(GetAccountsRequest request, StreamObserver<GetAccountsResponse> responseObserver) {
+        FakeCalls.respond(responseObserver, () -> accounts(exchange));
+    }
+}
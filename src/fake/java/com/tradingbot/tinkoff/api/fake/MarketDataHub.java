@@ -0,0 +1,162 @@
+package com.tradingbot.tinkoff.api.fake;
+
+import io.grpc.stub.ServerCallStreamObserver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ru.tinkoff.piapi.contract.v1.MarketDataResponse;
+import ru.tinkoff.piapi.contract.v1.SubscriptionInterval;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Подписки стримов рыночных данных и раздача обновлений.
+ *
+ * Медленный клиент не тормозит ленту: если транспорт стрима не готов принять сообщение,
+ * обновление отбрасывается (как прореживание стакана у настоящего брокера) и учитывается в getDroppedCount.
+ */
+public class MarketDataHub {
+    private static final Logger logger = LoggerFactory.getLogger(MarketDataHub.class);
+
+    public enum Channel {
+        ORDER_BOOK, TRADES, LAST_PRICE, CANDLES
+    }
+
+    private final Map<String, CopyOnWriteArrayList<Subscriber>>[] subscriptions;
+    private final LongAdder published = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    @SuppressWarnings("unchecked")
+    public MarketDataHub() {
+        subscriptions = new Map[Channel.values().length];
+        for (int i = 0; i < subscriptions.length; i++) {
+            subscriptions[i] = new ConcurrentHashMap<>();
+        }
+    }
+
+    /**
+     * Ключ подписки на свечи: FIGI и интервал.
+     */
+    static String candleKey(String figi, SubscriptionInterval interval) {
+        return figi + '/' + interval.name();
+    }
+
+    public long getPublishedCount() {
+        return published.sum();
+    }
+
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    public int getStreamCount() {
+        Set<Subscriber> streams = ConcurrentHashMap.newKeySet();
+        for (Map<String, CopyOnWriteArrayList<Subscriber>> channel : subscriptions) {
+            channel.values().forEach(streams::addAll);
+        }
+        return streams.size();
+    }
+
+    Subscriber open(ServerCallStreamObserver<MarketDataResponse> observer) {
+        Subscriber subscriber = new Subscriber(observer);
+        observer.setOnCancelHandler(() -> close(subscriber));
+        return subscriber;
+    }
+
+    void subscribe(Channel channel, String key, Subscriber subscriber) {
+        CopyOnWriteArrayList<Subscriber> list = subscriptions[channel.ordinal()].computeIfAbsent(key, k -> new CopyOnWriteArrayList<>());
+        if (list.addIfAbsent(subscriber)) {
+            subscriber.keys[channel.ordinal()].add(key);
+        }
+    }
+
+    void unsubscribe(Channel channel, String key, Subscriber subscriber) {
+        List<Subscriber> list = subscriptions[channel.ordinal()].get(key);
+        if (list != null) {
+            list.remove(subscriber);
+        }
+        subscriber.keys[channel.ordinal()].remove(key);
+    }
+
+    /**
+     * Снимает все подписки стрима (клиент закрыл стрим или отключился).
+     */
+    void close(Subscriber subscriber) {
+        subscriber.closed = true;
+        for (Channel channel : Channel.values()) {
+            for (String key : subscriber.keys[channel.ordinal()]) {
+                List<Subscriber> list = subscriptions[channel.ordinal()].get(key);
+                if (list != null) {
+                    list.remove(subscriber);
+                }
+            }
+            subscriber.keys[channel.ordinal()].clear();
+        }
+    }
+
+    /**
+     * Есть ли подписчики: лента не строит сообщения, которые некому отправить.
+     */
+    boolean hasSubscribers(Channel channel, String key) {
+        List<Subscriber> list = subscriptions[channel.ordinal()].get(key);
+        return list != null && !list.isEmpty();
+    }
+
+    void publish(Channel channel, String key, MarketDataResponse response) {
+        List<Subscriber> list = subscriptions[channel.ordinal()].get(key);
+        if (list == null) {
+            return;
+        }
+        for (Subscriber subscriber : list) {
+            if (subscriber.send(response)) {
+                published.increment();
+            } else {
+                dropped.increment();
+            }
+        }
+    }
+
+    /**
+     * Стрим одного клиента. StreamObserver gRPC не потокобезопасен, а пишут в него потоки ленты и обработчик запросов.
+     */
+    final class Subscriber {
+        private final ServerCallStreamObserver<MarketDataResponse> observer;
+        @SuppressWarnings("unchecked")
+        private final Set<String>[] keys = new Set[Channel.values().length];
+        private volatile boolean closed;
+
+        private Subscriber(ServerCallStreamObserver<MarketDataResponse> observer) {
+            this.observer = observer;
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = ConcurrentHashMap.newKeySet();
+            }
+        }
+
+        synchronized boolean send(MarketDataResponse response) {
+            if (closed || !observer.isReady()) {
+                return false;
+            }
+            try {
+                observer.onNext(response);
+                return true;
+            } catch (RuntimeException e) {
+                logger.debug("🧪 Стрим рыночных данных оборвался: {}", e.getMessage());
+                close(this);
+                return false;
+            }
+        }
+
+        synchronized void complete() {
+            close(this);
+            try {
+                observer.onCompleted();
+            } catch (RuntimeException e) {
+                logger.debug("🧪 Стрим рыночных данных уже закрыт: {}", e.getMessage());
+            }
+        }
+    }
+}
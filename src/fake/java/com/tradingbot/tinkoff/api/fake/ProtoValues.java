@@ -0,0 +1,43 @@
+package com.tradingbot.tinkoff.api.fake;
+
+import com.google.protobuf.Timestamp;
+import ru.tinkoff.piapi.contract.v1.MoneyValue;
+import ru.tinkoff.piapi.contract.v1.Quotation;
+
+/**
+ * Построение числовых сообщений API из double без BigDecimal: сервер отдает десятки тысяч стаканов в секунду.
+ */
+final class ProtoValues {
+    static final String CURRENCY = "rub";
+
+    private static final long NANOS = 1_000_000_000L;
+
+    private ProtoValues() {
+    }
+
+    static Quotation quotation(double value) {
+        long units = (long) value;
+        long nano = Math.round((value - units) * NANOS);
+        if (Math.abs(nano) >= NANOS) {
+            units += nano / NANOS;
+            nano %= NANOS;
+        }
+        return Quotation.newBuilder().setUnits(units).setNano((int) nano).build();
+    }
+
+    static MoneyValue money(double value) {
+        Quotation quotation = quotation(value);
+        return MoneyValue.newBuilder()
+                .setCurrency(CURRENCY)
+                .setUnits(quotation.getUnits())
+                .setNano(quotation.getNano())
+                .build();
+    }
+
+    static Timestamp timestamp(long millis) {
+        return Timestamp.newBuilder()
+                .setSeconds(Math.floorDiv(millis, 1000L))
+                .setNanos((int) Math.floorMod(millis, 1000L) * 1_000_000)
+                .build();
+    }
+}
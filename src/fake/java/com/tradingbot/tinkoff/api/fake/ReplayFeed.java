@@ -0,0 +1,113 @@
+package com.tradingbot.tinkoff.api.fake;
+
+import com.tradingbot.tinkoff.backtest.MarketDataReader;
+import com.tradingbot.tinkoff.backtest.MarketEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Лента инструмента из записи {@link com.tradingbot.tinkoff.backtest.MarketDataRecorder}: события идут
+ * в записанном порядке и темпе (с ускорением), время сдвигается к текущему.
+ */
+final class ReplayFeed implements Runnable {
+    private static final Logger logger = LoggerFactory.getLogger(ReplayFeed.class);
+
+    private final FakeExchange exchange;
+    private final FakeInstrument instrument;
+    private final Path file;
+    private final double speed;
+    private final boolean loop;
+    private final MarketEvent recorded = new MarketEvent();
+    private final MarketEvent event = new MarketEvent();
+
+    private ReplayFeed(FakeExchange exchange, FakeInstrument instrument, Path file) {
+        FakeServerConfig config = exchange.getConfig();
+        this.exchange = exchange;
+        this.instrument = instrument;
+        this.file = file;
+        this.speed = config.getReplaySpeed();
+        this.loop = config.isReplayLoop();
+    }
+
+    /**
+     * Регистрирует инструмент записи на бирже (FIGI из заголовка, начальная цена — первое событие).
+     */
+    static ReplayFeed open(FakeExchange exchange, Path file) throws IOException {
+        try (MarketDataReader reader = new MarketDataReader(file)) {
+            MarketEvent first = new MarketEvent();
+            double price = exchange.getConfig().getInitialPrice();
+            while (reader.next(first)) {
+                if (first.getType() == MarketEvent.Type.TRADE) {
+                    price = first.getPrice();
+                    break;
+                }
+                if (first.getBidCount() > 0 && first.getAskCount() > 0) {
+                    price = (first.bidPrice(0) + first.askPrice(0)) / 2;
+                    break;
+                }
+            }
+            String figi = reader.getFigi();
+            FakeInstrument instrument = exchange.addInstrument(figi, figi, "Запись " + figi, price);
+            return new ReplayFeed(exchange, instrument, file);
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            do {
+                replay();
+            } while (loop && !Thread.currentThread().isInterrupted());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            logger.error("❌ Ошибка воспроизведения {}", file, e);
+        }
+    }
+
+    private void replay() throws IOException, InterruptedException {
+        long events = 0;
+        try (MarketDataReader reader = new MarketDataReader(file)) {
+            long firstRecorded = Long.MIN_VALUE;
+            long wallStart = 0;
+            while (!Thread.currentThread().isInterrupted() && reader.next(recorded)) {
+                long now = System.currentTimeMillis();
+                if (firstRecorded == Long.MIN_VALUE) {
+                    firstRecorded = recorded.getTimeMillis();
+                    wallStart = now;
+                }
+                long time = now;
+                if (speed > 0) {
+                    time = wallStart + (long) ((recorded.getTimeMillis() - firstRecorded) / speed);
+                    if (time > now) {
+                        Thread.sleep(time - now);
+                    }
+                }
+                shift(time);
+                exchange.onMarketEvent(instrument, event);
+                events++;
+            }
+        }
+        logger.info("📼 Запись {} воспроизведена: {} событий", instrument.getFigi(), events);
+    }
+
+    /**
+     * Копия записанного события со временем воспроизведения.
+     */
+    private void shift(long time) {
+        if (recorded.getType() == MarketEvent.Type.ORDER_BOOK) {
+            event.setOrderBook(time);
+            for (int level = 0; level < recorded.getBidCount(); level++) {
+                event.addBid(recorded.bidPrice(level), recorded.bidQuantity(level));
+            }
+            for (int level = 0; level < recorded.getAskCount(); level++) {
+                event.addAsk(recorded.askPrice(level), recorded.askQuantity(level));
+            }
+        } else {
+            event.setTrade(time, recorded.getPrice(), recorded.getQuantity(), recorded.getSide());
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.tradingbot.tinkoff.api.fake;
+
+import com.tradingbot.tinkoff.backtest.MarketEvent;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Синтетическая лента группы инструментов: случайное блуждание цены в тиках, стакан со спредом в один тик
+ * и сделки по лучшей цене. Обновления идут по кругу равномерно во времени с заданной частотой на инструмент.
+ *
+ * Последовательность цен и объемов инструмента определяется только seed и его номером,
+ * время событий — текущее.
+ */
+final class SyntheticFeed implements Runnable {
+    private static final long PARK_NANOS = 200_000;
+    private static final long MIN_TICKS = 10;
+
+    private final FakeExchange exchange;
+    private final FakeInstrument[] instruments;
+    private final long[] midTicks;
+    private final SplittableRandom[] randoms;
+    private final MarketEvent event = new MarketEvent();
+    private final double updatesPerSecond;
+    private final int depth;
+    private final double tradeProbability;
+    private final double volatility;
+
+    SyntheticFeed(FakeExchange exchange, List<FakeInstrument> instruments) {
+        FakeServerConfig config = exchange.getConfig();
+        this.exchange = exchange;
+        this.instruments = instruments.toArray(new FakeInstrument[0]);
+        this.midTicks = new long[this.instruments.length];
+        this.randoms = new SplittableRandom[this.instruments.length];
+        for (int i = 0; i < this.instruments.length; i++) {
+            FakeInstrument instrument = this.instruments[i];
+            midTicks[i] = Math.max(Math.round(instrument.getInitialPrice() / instrument.getTickSize()), MIN_TICKS);
+            randoms[i] = new SplittableRandom(config.getSeed() * 31 + instrument.getIndex());
+        }
+        this.updatesPerSecond = config.getUpdatesPerSecond() * this.instruments.length;
+        this.depth = config.getOrderBookDepth();
+        this.tradeProbability = config.getTradeProbability();
+        this.volatility = config.getVolatility();
+    }
+
+    @Override
+    public void run() {
+        if (instruments.length == 0 || updatesPerSecond <= 0) {
+            return;
+        }
+        long started = System.nanoTime();
+        long done = 0;
+        int next = 0;
+        while (!Thread.currentThread().isInterrupted()) {
+            long due = (long) ((System.nanoTime() - started) * updatesPerSecond / 1e9);
+            if (due <= done) {
+                LockSupport.parkNanos(PARK_NANOS);
+                continue;
+            }
+            // Отставание больше секунды (пауза GC, перегрузка) не догоняется всплеском
+            if (due - done > updatesPerSecond) {
+                done = due - (long) updatesPerSecond;
+            }
+            while (done < due) {
+                update(next);
+                next = next + 1 == instruments.length ? 0 : next + 1;
+                done++;
+            }
+        }
+    }
+
+    private void update(int i) {
+        FakeInstrument instrument = instruments[i];
+        SplittableRandom random = randoms[i];
+        double tick = instrument.getTickSize();
+
+        // Шаг в тиках: середина в тиках уже масштабирует волатильность по цене
+        long step = Math.round(random.nextGaussian() * volatility * midTicks[i]);
+        long mid = Math.max(midTicks[i] + step, MIN_TICKS);
+        midTicks[i] = mid;
+
+        long now = System.currentTimeMillis();
+        event.setOrderBook(now);
+        for (int level = 0; level < depth; level++) {
+            event.addBid((mid - level) * tick, 1 + random.nextInt(100) * (level + 1L));
+        }
+        for (int level = 0; level < depth; level++) {
+            event.addAsk((mid + 1 + level) * tick, 1 + random.nextInt(100) * (level + 1L));
+        }
+        exchange.onMarketEvent(instrument, event);
+
+        if (random.nextDouble() < tradeProbability) {
+            int side = step > 0 ? 1 : step < 0 ? -1 : random.nextBoolean() ? 1 : -1;
+            event.setTrade(now, (side > 0 ? mid + 1 : mid) * tick, 1 + random.nextInt(10), side);
+            exchange.onMarketEvent(instrument, event);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.tradingbot.tinkoff.api;
+
+import com.google.protobuf.Timestamp;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.tinkoff.piapi.contract.v1.Quotation;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Преобразования {@link TinkoffApiConnector} между сообщениями API и Java-типами.
+ * Варианты в double и миллисекундах (горячий путь стрима) — для сравнения с BigDecimal и Instant.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ConversionBenchmark {
+
+    private Quotation quotation;
+    private BigDecimal decimal;
+    private Timestamp timestamp;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        quotation = Quotation.newBuilder().setUnits(123).setNano(450_000_000).build();
+        decimal = new BigDecimal("123.45");
+        timestamp = Timestamp.newBuilder().setSeconds(1_709_276_400L).setNanos(123_000_000).build();
+    }
+
+    @Benchmark
+    public BigDecimal quotationToBigDecimal() {
+        return TinkoffApiConnector.quotationToBigDecimal(quotation);
+    }
+
+    @Benchmark
+    public double quotationToDouble() {
+        return TinkoffApiConnector.quotationToDouble(quotation);
+    }
+
+    @Benchmark
+    public Quotation bigDecimalToQuotation() {
+        return TinkoffApiConnector.bigDecimalToQuotation(decimal);
+    }
+
+    @Benchmark
+    public Instant timestampToInstant() {
+        return TinkoffApiConnector.timestampToInstant(timestamp);
+    }
+
+    @Benchmark
+    public long timestampToMillis() {
+        return TinkoffApiConnector.timestampToMillis(timestamp);
+    }
+}
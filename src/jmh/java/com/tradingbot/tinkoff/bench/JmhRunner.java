@@ -0,0 +1,49 @@
+package com.tradingbot.tinkoff.bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Запуск микробенчмарков JMH (профиль {@code jmh}): аргументы — как у JMH (регулярное выражение
+ * бенчмарков, -p, -f, ...). Профилировщик GC включен всегда: кроме времени в отчете
+ * скорость выделения памяти (gc.alloc.rate, gc.alloc.rate.norm — байт на операцию) и число сборок.
+ *
+ * Результаты пишутся в JSON ({@code tradingbot.jmh.result}), чтобы сравнивать замеры до и после изменений.
+ */
+public final class JmhRunner {
+
+    private JmhRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        Path result = Path.of(System.getProperty("tradingbot.jmh.result", "target/jmh/jmh-result.json"));
+        if (result.getParent() != null) {
+            Files.createDirectories(result.getParent());
+        }
+
+        // Форки получают модуль векторных индикаторов и настройки логирования раннера
+        List<String> jvmArgs = new ArrayList<>(List.of("--add-modules", "jdk.incubator.vector"));
+        String logback = System.getProperty("logback.configurationFile");
+        if (logback != null) {
+            jvmArgs.add("-Dlogback.configurationFile=" + logback);
+        }
+
+        ChainedOptionsBuilder options = new OptionsBuilder()
+                .parent(commandLine)
+                .addProfiler(GCProfiler.class)
+                .jvmArgsAppend(jvmArgs.toArray(new String[0]))
+                .resultFormat(ResultFormatType.JSON)
+                .result(result.toString());
+        new Runner(options.build()).run();
+    }
+}
@@ -0,0 +1,42 @@
+package com.tradingbot.tinkoff.bench;
+
+import java.util.SplittableRandom;
+
+/**
+ * Детерминированная история минутных баров для подготовки состояния микробенчмарков.
+ */
+public final class SyntheticBars {
+    public static final long START_MILLIS = 1_709_276_400_000L; // 2024-03-01 10:00 МСК
+    public static final long BAR_MILLIS = 60_000L;
+
+    /**
+     * Получатель бара; по сигнатуре совпадает с {@code MultiStrategyManager::onCandle}.
+     */
+    @FunctionalInterface
+    public interface BarSink {
+        void onBar(long timeMillis, double open, double high, double low, double close, double volume);
+    }
+
+    private SyntheticBars() {
+    }
+
+    /**
+     * Подает bars баров случайного блуждания от цены 100, начиная с {@link #START_MILLIS}.
+     *
+     * @return время открытия последнего бара
+     */
+    public static long feed(BarSink sink, int bars, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        double close = 100;
+        long time = START_MILLIS;
+        for (int i = 0; i < bars; i++) {
+            time = START_MILLIS + i * BAR_MILLIS;
+            double open = close;
+            close = Math.max(1, open * (1 + (random.nextDouble() - 0.5) * 0.004));
+            double high = Math.max(open, close) * (1 + random.nextDouble() * 0.001);
+            double low = Math.min(open, close) * (1 - random.nextDouble() * 0.001);
+            sink.onBar(time, open, high, low, close, 100 + random.nextInt(10_000));
+        }
+        return time;
+    }
+}
@@ -0,0 +1,103 @@
+package com.tradingbot.tinkoff.processor;
+
+import com.google.protobuf.Timestamp;
+import com.tradingbot.tinkoff.api.TinkoffApiConnector;
+import com.tradingbot.tinkoff.bench.SyntheticBars;
+import com.tradingbot.tinkoff.model.TradableInstrument;
+import com.tradingbot.tinkoff.strategy.MultiStrategyManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import ru.tinkoff.piapi.contract.v1.Candle;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Построение бара из свечи стрима ({@link InstrumentProcessor#applyCandle}) при всех включенных стратегиях:
+ * обновление открытого бара (основной поток свечей) и открытие нового бара с фиксацией предыдущего.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CandleBarBenchmark {
+    private static final int HISTORY = 300;
+    private static final int CANDLES = 1024;
+
+    private MultiStrategyManager strategyManager;
+    // Обновления открытого бара (одно время, разные цены) и свечи новых баров подряд
+    private Candle[] updates;
+    private Candle[] newBars;
+
+    @Setup(Level.Trial)
+    public void prepareCandles() {
+        long openBar = SyntheticBars.START_MILLIS + (HISTORY - 1) * SyntheticBars.BAR_MILLIS;
+        updates = new Candle[CANDLES];
+        newBars = new Candle[CANDLES];
+        for (int i = 0; i < CANDLES; i++) {
+            double close = 100 + (i % 50) * 0.01;
+            updates[i] = candle(openBar, close);
+            newBars[i] = candle(openBar + (i + 1) * SyntheticBars.BAR_MILLIS, close);
+        }
+    }
+
+    /**
+     * Свежий менеджер с историей на каждый вызов: свечи {@link #newBar} идут сразу за последним баром истории.
+     */
+    @Setup(Level.Invocation)
+    public void prepareManager() {
+        strategyManager = new MultiStrategyManager(
+                new TradableInstrument("BENCH", "BENCH00000000", TradableInstrument.InstrumentType.STOCK, "rub"),
+                MultiStrategyManager.getAvailableStrategyNames());
+        SyntheticBars.feed(strategyManager::onCandle, HISTORY, 42);
+    }
+
+    @TearDown(Level.Invocation)
+    public void releaseManager() {
+        strategyManager.release();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CANDLES)
+    public void updateOpenBar(Blackhole blackhole) {
+        for (Candle candle : updates) {
+            BigDecimal close = InstrumentProcessor.applyCandle(strategyManager, candle);
+            blackhole.consume(close);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CANDLES)
+    public void newBar(Blackhole blackhole) {
+        for (Candle candle : newBars) {
+            BigDecimal close = InstrumentProcessor.applyCandle(strategyManager, candle);
+            blackhole.consume(close);
+        }
+    }
+
+    private static Candle candle(long timeMillis, double close) {
+        return Candle.newBuilder()
+                .setFigi("BENCH00000000")
+                .setTime(Timestamp.newBuilder().setSeconds(timeMillis / 1000).build())
+                .setOpen(TinkoffApiConnector.bigDecimalToQuotation(BigDecimal.valueOf(100.0)))
+                .setHigh(TinkoffApiConnector.bigDecimalToQuotation(BigDecimal.valueOf(Math.max(100.0, close) + 0.05)))
+                .setLow(TinkoffApiConnector.bigDecimalToQuotation(BigDecimal.valueOf(Math.min(100.0, close) - 0.05)))
+                .setClose(TinkoffApiConnector.bigDecimalToQuotation(BigDecimal.valueOf(close)))
+                .setVolume(1_000)
+                .build();
+    }
+}
@@ -0,0 +1,60 @@
+package com.tradingbot.tinkoff.risk;
+
+import com.tradingbot.tinkoff.backtest.BacktestClock;
+import com.tradingbot.tinkoff.backtest.SimulatedBroker;
+import com.tradingbot.tinkoff.execution.AccountSnapshot;
+import com.tradingbot.tinkoff.model.TradableInstrument;
+import com.tradingbot.tinkoff.model.TradingSignal;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Проверка валидного сигнала {@link RiskManager#validateSignal}: риск/прибыль, размер позиции
+ * и достаточность средств (для фьючерса — маржи от брокера-симулятора).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RiskManagerBenchmark {
+
+    @Param({"STOCK", "FUTURE"})
+    public TradableInstrument.InstrumentType type;
+
+    private RiskManager riskManager;
+    private TradableInstrument instrument;
+    private TradingSignal signal;
+    private AccountSnapshot account;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        riskManager = RiskManager.withDefaults(new SimulatedBroker(new BacktestClock(), 1_000_000, 0.0005, 0));
+        instrument = new TradableInstrument("BENCH", "BENCH00000000", type, "rub", 0.01);
+        signal = new TradingSignal(TradingSignal.SignalType.BUY, 70, "Бенчмарк");
+        signal.setInstrument(instrument);
+        signal.setEntryPrice(new BigDecimal("100.00"));
+        signal.setStopLoss(new BigDecimal("99.00"));
+        signal.setTakeProfit(new BigDecimal("102.00"));
+        account = new AccountSnapshot(new BigDecimal("1000000"), new BigDecimal("1000000"), BigDecimal.ZERO, BigDecimal.ZERO);
+    }
+
+    @Benchmark
+    public RiskManager.ValidationResult validateSignal() {
+        return riskManager.validateSignal(instrument, signal, account);
+    }
+}
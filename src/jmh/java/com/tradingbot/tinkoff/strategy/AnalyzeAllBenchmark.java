@@ -0,0 +1,54 @@
+package com.tradingbot.tinkoff.strategy;
+
+import com.tradingbot.tinkoff.bench.SyntheticBars;
+import com.tradingbot.tinkoff.model.TradableInstrument;
+import com.tradingbot.tinkoff.model.TradingSignal;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Цикл анализа {@link MultiStrategyManager#analyzeAll} со всеми стратегиями по открытому бару:
+ * опрос слотов, ансамблевые фильтры и сборка итоговых сигналов.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AnalyzeAllBenchmark {
+    private static final int HISTORY = 300;
+
+    private MultiStrategyManager strategyManager;
+    private TradableInstrument instrument;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        instrument = new TradableInstrument("BENCH", "BENCH00000000", TradableInstrument.InstrumentType.STOCK, "rub");
+        strategyManager = new MultiStrategyManager(instrument, MultiStrategyManager.getAvailableStrategyNames());
+        SyntheticBars.feed(strategyManager::onCandle, HISTORY, 42);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        strategyManager.release();
+    }
+
+    @Benchmark
+    public List<TradingSignal> analyzeAll() {
+        return strategyManager.analyzeAll(instrument);
+    }
+}
@@ -0,0 +1,66 @@
+package com.tradingbot.tinkoff.strategy;
+
+import com.tradingbot.tinkoff.bench.SyntheticBars;
+import com.tradingbot.tinkoff.model.TradableInstrument;
+import com.tradingbot.tinkoff.model.TradingSignal;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Анализ по открытому бару: {@link StrategyDefinition#analyzeSignal} каждой стратегии
+ * на отдельном контексте с одной этой стратегией.
+ * Стратегия RULES без загруженных правил возвращает HOLD сразу.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class StrategyAnalysisBenchmark {
+    private static final int HISTORY = 300;
+
+    @Param({"SCALPING", "MEAN_REVERSION_CONSERVATIVE", "MEAN_REVERSION_AGGRESSIVE", "ADAPTIVE_TREND",
+            "RULES", "VWAP_EMA", "DONCHIAN_BREAKOUT"})
+    public String strategy;
+
+    private StrategyDefinition definition;
+    private InstrumentContext context;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        definition = MultiStrategyManager.DEFINITIONS.stream()
+                .filter(candidate -> candidate.name().equals(strategy))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Неизвестная стратегия: " + strategy));
+        TradableInstrument instrument = new TradableInstrument("BENCH", "BENCH00000000", TradableInstrument.InstrumentType.STOCK, "rub");
+        context = new InstrumentContext(instrument, new InstrumentContext.Layout(List.of(definition)));
+        context.setBarDuration(SyntheticBars.BAR_MILLIS);
+        context.setActive(0, true);
+        SyntheticBars.feed(context::onCandle, HISTORY, 42);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.release();
+    }
+
+    @Benchmark
+    public TradingSignal analyzeSignal() {
+        return definition.analyzeSignal(context, 0);
+    }
+}
@@ -0,0 +1,65 @@
+package com.tradingbot.tinkoff.tracking;
+
+import com.tradingbot.tinkoff.model.TradableInstrument;
+import com.tradingbot.tinkoff.model.TradingSignal;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link SignalTracker#updatePrice} при многих активных сигналах, распределенных по инструментам.
+ * Цена остается между стопом и целью, поэтому сигналы не завершаются и набор не меняется.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SignalTrackerBenchmark {
+    private static final int INSTRUMENTS = 100;
+
+    @Param({"100", "1000", "10000"})
+    public int activeSignals;
+
+    private SignalTracker tracker;
+    private String figi;
+    private BigDecimal price;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        tracker = new SignalTracker();
+        TradableInstrument[] instruments = new TradableInstrument[INSTRUMENTS];
+        for (int i = 0; i < INSTRUMENTS; i++) {
+            instruments[i] = new TradableInstrument("BENCH" + i, String.format("BENCH%08d", i), TradableInstrument.InstrumentType.STOCK, "rub");
+        }
+        for (int i = 0; i < activeSignals; i++) {
+            TradingSignal signal = new TradingSignal(i % 2 == 0 ? TradingSignal.SignalType.BUY : TradingSignal.SignalType.SELL, 70, "Бенчмарк");
+            signal.setSignalId(i + 1);
+            signal.setInstrument(instruments[i % INSTRUMENTS]);
+            signal.setEntryPrice(new BigDecimal("100.00"));
+            signal.setStopLoss(i % 2 == 0 ? new BigDecimal("98.00") : new BigDecimal("102.00"));
+            signal.setTakeProfit(i % 2 == 0 ? new BigDecimal("103.00") : new BigDecimal("97.00"));
+            tracker.trackSignal(signal);
+        }
+        figi = instruments[0].identifier();
+        price = new BigDecimal("100.50");
+    }
+
+    @Benchmark
+    public void updatePrice() {
+        tracker.updatePrice(figi, price);
+    }
+}
@@ -2,6 +2,8 @@ package com.tradingbot.tinkoff.api;
 
 import com.tradingbot.tinkoff.model.TradableInstrument;
 import com.tradingbot.tinkoff.model.OrderInfo;
+import io.grpc.ManagedChannel;
+import io.grpc.ManagedChannelBuilder;
 import lombok.Getter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -39,9 +41,17 @@ import java.net.InetSocketAddress;
 public class TinkoffApiConnector {
     private static final Logger logger = LoggerFactory.getLogger(TinkoffApiConnector.class);
 
+    /**
+     * Системное свойство с адресом API вместо invest-public-api.tinkoff.ru: host:port без TLS (фейковый сервер
+     * для нагрузочных тестов, профиль fake-api). Серверу в том же процессе канал передается в конструктор.
+     */
+    public static final String TARGET_PROPERTY = "tradingbot.api.target";
+
     private final InvestApi api;
     private final ExecutorService executorService;
     private final boolean sandboxMode;
+    // Адрес из TARGET_PROPERTY или переданного канала; null - боевой API
+    private final String target;
 
     /**
      * -- GETTER --
@@ -69,13 +79,15 @@ public class TinkoffApiConnector {
         Stream<TradableInstrument> sharesStream = api.getInstrumentsService().getShares(InstrumentStatus.INSTRUMENT_STATUS_BASE)
                 .join().stream()
                 .filter(s -> s.getTradingStatus() == SecurityTradingStatus.SECURITY_TRADING_STATUS_NORMAL_TRADING && s.getApiTradeAvailableFlag())
-                .map(s -> new TradableInstrument(s.getName() + " (Акция)", s.getFigi(), TradableInstrument.InstrumentType.STOCK, s.getCurrency()));
+                .map(s -> new TradableInstrument(s.getName() + " (Акция)", s.getFigi(), TradableInstrument.InstrumentType.STOCK, s.getCurrency(),
+                        quotationToDouble(s.getMinPriceIncrement()), s.getLot()));
 
         // Запрашиваем все фьючерсы (и срочные, и бессрочные)
         Stream<TradableInstrument> futuresStream = api.getInstrumentsService().getFutures(InstrumentStatus.INSTRUMENT_STATUS_ALL)
                 .join().stream()
                 .filter(f -> f.getTradingStatus() == SecurityTradingStatus.SECURITY_TRADING_STATUS_NORMAL_TRADING && f.getApiTradeAvailableFlag())
-                .map(f -> new TradableInstrument(f.getName() + " (Фьючерс)", f.getFigi(), TradableInstrument.InstrumentType.FUTURE, f.getCurrency()));
+                .map(f -> new TradableInstrument(f.getName() + " (Фьючерс)", f.getFigi(), TradableInstrument.InstrumentType.FUTURE, f.getCurrency(),
+                        quotationToDouble(f.getMinPriceIncrement()), f.getLot()));
 
         // Объединяем два потока в один общий список
         List<TradableInstrument> allInstruments = Stream.concat(sharesStream, futuresStream)
@@ -86,7 +98,24 @@ public class TinkoffApiConnector {
         return allInstruments;
     }
     public TinkoffApiConnector(String token, boolean sandboxMode) {
+        this(token, null, sandboxMode);
+    }
+
+    /**
+     * Коннектор поверх готового канала (например, in-process канала фейкового сервера); токен не нужен.
+     */
+    public TinkoffApiConnector(ManagedChannel channel, boolean sandboxMode) {
+        this(null, channel, sandboxMode);
+    }
+
+    private TinkoffApiConnector(String token, ManagedChannel channel, boolean sandboxMode) {
         this.sandboxMode = sandboxMode;
+        String configuredTarget = System.getProperty(TARGET_PROPERTY, "").trim();
+        if (channel != null) {
+            this.target = channel.authority();
+        } else {
+            this.target = configuredTarget.isEmpty() ? null : configuredTarget;
+        }
 
         try {
             // Принудительные системные настройки для устойчивого подключения
@@ -101,7 +130,13 @@ public class TinkoffApiConnector {
             logger.info("🔧 Применены системные настройки для стабильного подключения");
 
             // Создаем API клиент с правильной конфигурацией
-            if (sandboxMode) {
+            if (target != null) {
+                if (channel == null) {
+                    channel = ManagedChannelBuilder.forTarget(target).usePlaintext().build();
+                }
+                this.api = sandboxMode ? InvestApi.createSandbox(channel) : InvestApi.create(channel);
+                logger.info("🧪 API направлен на {}", target);
+            } else if (sandboxMode) {
                 this.api = InvestApi.createSandbox(token);
             } else {
                 this.api = InvestApi.create(token);
@@ -158,6 +193,13 @@ public class TinkoffApiConnector {
         return allCandles;
     }
 
+    /**
+     * Свечи за окно [from, to) одним запросом, без пауз (темп запросов задает вызывающая сторона).
+     */
+    public List<HistoricCandle> getCandles(String figi, Instant from, Instant to, CandleInterval interval) {
+        return api.getMarketDataService().getCandles(figi, from, to, interval).join();
+    }
+
     /**
      * Пополнение счета в песочнице на указанную сумму.
      * @param amount Сумма пополнения в рублях.
@@ -188,6 +230,16 @@ public class TinkoffApiConnector {
         }
     }
 
+    public PostOrderResponse postLimitOrder(String figi, long quantity, Quotation price, OrderDirection direction) {
+        String orderId = UUID.randomUUID().toString(); // Идемпотентность
+
+        if (sandboxMode) {
+            return api.getSandboxService().postOrderSync(figi, quantity, price, direction, accountId, OrderType.ORDER_TYPE_LIMIT, orderId);
+        } else {
+            return api.getOrdersService().postOrderSync(figi, quantity, price, direction, accountId, OrderType.ORDER_TYPE_LIMIT, orderId);
+        }
+    }
+
     /**
      * Получает полную информацию об инструменте по его FIGI.
      * @param figi FIGI инструмента.
@@ -399,6 +451,9 @@ public class TinkoffApiConnector {
      * Тестирование сетевого подключения
      */
     private void testNetworkConnectivity() {
+        if (target != null) {
+            return; // Свой адрес API: проверка доступности боевого хоста не нужна
+        }
         try {
             logger.info("🌐 Проверка сетевого подключения...");
 
@@ -446,6 +501,19 @@ public class TinkoffApiConnector {
         }, executorService);
     }
 
+    /**
+     * Получение последних цен пачкой инструментов одним запросом.
+     *
+     * @param figiList Список FIGI.
+     * @return Последние цены по инструментам, для которых они известны.
+     */
+    public List<LastPrice> getLastPrices(List<String> figiList) {
+        if (!isConnected) {
+            throw new IllegalStateException("API не подключено.");
+        }
+        return api.getMarketDataService().getLastPrices(figiList).join();
+    }
+
     /**
      * Получение размера гарантийного обеспечения по фьючерсам.
      *
@@ -456,6 +524,36 @@ public class TinkoffApiConnector {
         return api.getInstrumentsService().getFuturesMargin(figi);
     }
 
+    /**
+     * Подписка на стрим портфеля счета: полный портфель при каждом изменении.
+     *
+     * @return false, если API не подключено
+     */
+    public boolean subscribePortfolioStream(StreamProcessor<PortfolioStreamResponse> processor, Consumer<Throwable> onError) {
+        if (!isConnected || accountId == null) {
+            logger.error("❌ Не подключен к API или отсутствует ID аккаунта для подписки на портфель");
+            return false;
+        }
+        api.getOperationsStreamService().subscribePortfolio(processor, onError, List.of(accountId));
+        logger.info("📡 Подписка на стрим портфеля счета {}", accountId);
+        return true;
+    }
+
+    /**
+     * Подписка на стрим позиций счета: количество по бумагам и фьючерсам после каждого изменения.
+     *
+     * @return false, если API не подключено
+     */
+    public boolean subscribePositionsStream(StreamProcessor<PositionsStreamResponse> processor, Consumer<Throwable> onError) {
+        if (!isConnected || accountId == null) {
+            logger.error("❌ Не подключен к API или отсутствует ID аккаунта для подписки на позиции");
+            return false;
+        }
+        api.getOperationsStreamService().subscribePositions(processor, onError, List.of(accountId));
+        logger.info("📡 Подписка на стрим позиций счета {}", accountId);
+        return true;
+    }
+
     /**
      * Подписка на рыночные данные
      */
@@ -463,6 +561,18 @@ public class TinkoffApiConnector {
                                                                Consumer<Candle> candleConsumer,
                                                                Consumer<OrderBook> orderBookConsumer,
                                                                int orderBookDepth) {
+        return subscribeToMarketData(figiList, interval, candleConsumer, orderBookConsumer, orderBookDepth, null, null);
+    }
+
+    /**
+     * Подписка на рыночные данные, включая ленту сделок и последние цены (для интрабар-анализа)
+     */
+    public MarketDataSubscriptionService subscribeToMarketData(List<String> figiList, CandleInterval interval,
+                                                               Consumer<Candle> candleConsumer,
+                                                               Consumer<OrderBook> orderBookConsumer,
+                                                               int orderBookDepth,
+                                                               Consumer<Trade> tradeConsumer,
+                                                               Consumer<LastPrice> lastPriceConsumer) {
         if (!isConnected || accountId == null) {
             logger.error("❌ Не подключен к API или отсутствует ID аккаунта для подписки на рыночные данные");
             return null;
@@ -476,6 +586,10 @@ public class TinkoffApiConnector {
                 candleConsumer.accept(response.getCandle());
             } else if (response.hasOrderbook() && orderBookConsumer != null) {
                 orderBookConsumer.accept(response.getOrderbook());
+            } else if (response.hasTrade() && tradeConsumer != null) {
+                tradeConsumer.accept(response.getTrade());
+            } else if (response.hasLastPrice() && lastPriceConsumer != null) {
+                lastPriceConsumer.accept(response.getLastPrice());
             }
             // Дополнительная обработка других типов ответов, если необходимо
         };
@@ -497,6 +611,14 @@ public class TinkoffApiConnector {
             marketDataStream.subscribeOrderbook(figiList, orderBookDepth);
         }
 
+        // Подписка на ленту сделок и последние цены
+        if (tradeConsumer != null) {
+            marketDataStream.subscribeTrades(figiList);
+        }
+        if (lastPriceConsumer != null) {
+            marketDataStream.subscribeLastPrices(figiList);
+        }
+
         logger.info("✅ Подписки активированы");
         return marketDataStream;
     }
@@ -591,6 +713,16 @@ public class TinkoffApiConnector {
                 .add(BigDecimal.valueOf(quotation.getNano(), 9));
     }
 
+    /**
+     * Конвертация Quotation в double без промежуточных BigDecimal (для горячих путей)
+     */
+    public static double quotationToDouble(Quotation quotation) {
+        if (quotation == null) {
+            return 0;
+        }
+        return quotation.getUnits() + quotation.getNano() / 1_000_000_000.0;
+    }
+
     /**
      * Конвертация Timestamp в Instant
      */
@@ -598,6 +730,13 @@ public class TinkoffApiConnector {
         return Instant.ofEpochSecond(timestamp.getSeconds(), timestamp.getNanos());
     }
 
+    /**
+     * Конвертация Timestamp в миллисекунды эпохи без создания Instant (для горячего пути ленты сделок)
+     */
+    public static long timestampToMillis(com.google.protobuf.Timestamp timestamp) {
+        return timestamp.getSeconds() * 1000L + timestamp.getNanos() / 1_000_000;
+    }
+
     /**
      * Конвертация Timestamp в LocalDateTime
      */
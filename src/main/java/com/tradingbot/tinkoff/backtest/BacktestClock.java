@@ -0,0 +1,49 @@
+package com.tradingbot.tinkoff.backtest;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+/**
+ * Часы бэктеста: показывают время текущего бара, который двигает движок.
+ * Используются одним потоком прогона.
+ */
+public final class BacktestClock extends Clock {
+    private final ZoneId zone;
+    private long millis;
+
+    public BacktestClock() {
+        this(ZoneOffset.UTC);
+    }
+
+    private BacktestClock(ZoneId zone) {
+        this.zone = zone;
+    }
+
+    public void setMillis(long millis) {
+        this.millis = millis;
+    }
+
+    @Override
+    public long millis() {
+        return millis;
+    }
+
+    @Override
+    public Instant instant() {
+        return Instant.ofEpochMilli(millis);
+    }
+
+    @Override
+    public ZoneId getZone() {
+        return zone;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+        BacktestClock clock = new BacktestClock(zone);
+        clock.millis = millis;
+        return clock;
+    }
+}
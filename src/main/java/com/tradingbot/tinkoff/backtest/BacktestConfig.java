@@ -0,0 +1,35 @@
+package com.tradingbot.tinkoff.backtest;
+
+import com.tradingbot.tinkoff.rules.RuleSet;
+import com.tradingbot.tinkoff.strategy.MultiStrategyManager;
+import com.tradingbot.tinkoff.strategy.StrategyConfig;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Параметры прогона бэктеста.
+ */
+@Getter
+@Builder(toBuilder = true)
+public class BacktestConfig {
+    @Builder.Default
+    private final double initialCapital = 1_000_000;
+    // Комиссия как доля оборота (0.05% - тариф "Трейдер")
+    @Builder.Default
+    private final double commissionRate = 0.0005;
+    // Проскальзывание рыночного приказа как доля цены
+    @Builder.Default
+    private final double slippage = 0;
+    @Builder.Default
+    private final Duration barDuration = Duration.ofMinutes(1);
+    @Builder.Default
+    private final List<String> strategies = MultiStrategyManager.getAvailableStrategyNames();
+    // Параметры стратегий (имя стратегии -> параметры), null - встроенные
+    private final Map<String, StrategyConfig> strategyConfigs;
+    // Правила стратегии RULES, null - без правил
+    private final RuleSet rules;
+}
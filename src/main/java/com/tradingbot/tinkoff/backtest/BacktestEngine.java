@@ -0,0 +1,115 @@
+package com.tradingbot.tinkoff.backtest;
+
+import com.tradingbot.tinkoff.indicators.batch.BarColumns;
+import com.tradingbot.tinkoff.indicators.batch.IndicatorMemo;
+import com.tradingbot.tinkoff.model.TradableInstrument;
+import com.tradingbot.tinkoff.processor.SignalExecutor;
+import com.tradingbot.tinkoff.risk.RiskManager;
+import com.tradingbot.tinkoff.strategy.MultiStrategyManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Событийный бэктест на живом конвейере: свечи из локальных данных подаются в
+ * {@link MultiStrategyManager}, анализ, проверка рисков и приказы идут через тот же
+ * {@link SignalExecutor}, что и в {@code InstrumentProcessor}. Отличаются только часы
+ * ({@link BacktestClock} — время закрытия бара) и брокер ({@link SimulatedBroker}).
+ *
+ * Прогон одного инструмента однопоточный; {@link #runAll} распределяет инструменты
+ * по пулу ForkJoin, у каждого инструмента свой счет.
+ */
+public class BacktestEngine {
+    private static final Logger logger = LoggerFactory.getLogger(BacktestEngine.class);
+
+    private final BacktestConfig config;
+
+    public BacktestEngine(BacktestConfig config) {
+        this.config = config;
+    }
+
+    /**
+     * Прогон по колонке series из bars (для колонок одного инструмента - 0).
+     */
+    public BacktestResult run(TradableInstrument instrument, BarColumns bars, int series) {
+        BacktestResult result = run(instrument, bars, series, 0, bars.bars, null);
+        logger.info("🧪 Бэктест {} ({} баров/с)", result, Math.round(result.getBarsPerSecond()));
+        return result;
+    }
+
+    /**
+     * Прогон по барам [from, to) колонки series. Если задан memo по тем же колонкам,
+     * оконные индикаторы берутся из него (для серий прогонов на одних данных).
+     */
+    public BacktestResult run(TradableInstrument instrument, BarColumns bars, int series, int from, int to, IndicatorMemo memo) {
+        BacktestClock clock = new BacktestClock();
+        SimulatedBroker broker = new SimulatedBroker(clock, config.getInitialCapital(), config.getCommissionRate(), config.getSlippage());
+        MultiStrategyManager strategyManager = new MultiStrategyManager(instrument, config.getStrategies());
+        strategyManager.setClock(clock);
+        strategyManager.setBarDuration(config.getBarDuration());
+        if (config.getRules() != null) {
+            strategyManager.updateRules(config.getRules());
+        }
+        if (config.getStrategyConfigs() != null) {
+            strategyManager.updateConfigs(config.getStrategyConfigs());
+        }
+        if (memo != null) {
+            strategyManager.setIndicatorMemo(memo, series, from);
+        }
+
+        int[] accepted = new int[1];
+        SignalExecutor signalExecutor = new SignalExecutor(
+                instrument,
+                strategyManager,
+                RiskManager.withDefaults(broker),
+                broker,
+                clock,
+                Runnable::run, // Приказы исполняются сразу, в потоке прогона
+                logger::debug,
+                signal -> accepted[0]++,
+                (message, e) -> logger.error("💥 [{}] Бэктест: {}", instrument.name(), message, e)
+        );
+
+        long barMillis = config.getBarDuration().toMillis();
+        double[] equity = new double[to - from];
+        long started = System.nanoTime();
+        try {
+            for (int t = from; t < to; t++) {
+                int i = t * bars.width + series;
+                // Анализ выполняется на закрытии бара
+                clock.setMillis(bars.time[i] + barMillis);
+                broker.onBar(instrument, bars.open[i], bars.high[i], bars.low[i], bars.close[i]);
+                strategyManager.onCandle(bars.time[i], bars.open[i], bars.high[i], bars.low[i], bars.close[i], bars.volume[i]);
+                signalExecutor.runAnalysis();
+                equity[t - from] = broker.getEquity();
+            }
+            broker.liquidate(instrument);
+            if (equity.length > 0) {
+                equity[equity.length - 1] = broker.getEquity();
+            }
+        } finally {
+            strategyManager.release();
+        }
+
+        return new BacktestResult(instrument.identifier(), broker.getTrades(), equity,
+                config.getInitialCapital(), broker.getCommissionPaid(), accepted[0], System.nanoTime() - started);
+    }
+
+    public BacktestResult run(TradableInstrument instrument, BarColumns bars) {
+        return run(instrument, bars, 0);
+    }
+
+    /**
+     * Параллельный прогон независимых инструментов.
+     *
+     * @return FIGI -> результат
+     */
+    public Map<String, BacktestResult> runAll(Map<TradableInstrument, BarColumns> data) {
+        Map<String, BacktestResult> results = new ConcurrentHashMap<>();
+        data.entrySet().parallelStream()
+                .forEach(entry -> results.put(entry.getKey().identifier(), run(entry.getKey(), entry.getValue())));
+        return results;
+    }
+}
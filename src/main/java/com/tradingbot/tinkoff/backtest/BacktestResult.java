@@ -0,0 +1,105 @@
+package com.tradingbot.tinkoff.backtest;
+
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Итог прогона: сделки, кривая капитала по барам и основные метрики.
+ */
+@Getter
+public class BacktestResult {
+    private final String figi;
+    private final List<BacktestTrade> trades;
+    private final double[] equityCurve;
+    private final double initialCapital;
+    private final double finalEquity;
+    private final double commissionPaid;
+    private final int signalsAccepted;
+    private final long elapsedNanos;
+
+    private final double totalReturn;
+    private final double maxDrawdown;
+    private final double winRate;
+    private final double profitFactor;
+    // Отношение средней доходности бара к ее стандартному отклонению (без аннуализации)
+    private final double sharpePerBar;
+
+    public BacktestResult(String figi, List<BacktestTrade> trades, double[] equityCurve, double initialCapital,
+                          double commissionPaid, int signalsAccepted, long elapsedNanos) {
+        this.figi = figi;
+        this.trades = trades;
+        this.equityCurve = equityCurve;
+        this.initialCapital = initialCapital;
+        this.finalEquity = equityCurve.length > 0 ? equityCurve[equityCurve.length - 1] : initialCapital;
+        this.commissionPaid = commissionPaid;
+        this.signalsAccepted = signalsAccepted;
+        this.elapsedNanos = elapsedNanos;
+
+        this.totalReturn = finalEquity / initialCapital - 1;
+        this.maxDrawdown = maxDrawdown(equityCurve);
+        this.sharpePerBar = sharpePerBar(equityCurve, initialCapital);
+
+        double grossProfit = 0;
+        double grossLoss = 0;
+        int wins = 0;
+        for (BacktestTrade trade : trades) {
+            if (trade.isWin()) {
+                wins++;
+                grossProfit += trade.pnl();
+            } else {
+                grossLoss -= trade.pnl();
+            }
+        }
+        this.winRate = trades.isEmpty() ? 0 : (double) wins / trades.size();
+        this.profitFactor = grossLoss == 0 ? (grossProfit > 0 ? Double.POSITIVE_INFINITY : 0) : grossProfit / grossLoss;
+    }
+
+    public int getBarCount() {
+        return equityCurve.length;
+    }
+
+    public double getBarsPerSecond() {
+        return elapsedNanos == 0 ? 0 : equityCurve.length * 1e9 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: баров %d, сделок %d, доходность %.2f%%, просадка %.2f%%, win rate %.1f%%, PF %.2f, Sharpe/бар %.4f, комиссии %.2f",
+                figi, getBarCount(), trades.size(), totalReturn * 100, maxDrawdown * 100, winRate * 100, profitFactor, sharpePerBar, commissionPaid);
+    }
+
+    /**
+     * Максимальная просадка от пика как доля пикового капитала.
+     */
+    private static double maxDrawdown(double[] equity) {
+        double peak = Double.NEGATIVE_INFINITY;
+        double drawdown = 0;
+        for (double value : equity) {
+            peak = Math.max(peak, value);
+            if (peak > 0) {
+                drawdown = Math.max(drawdown, (peak - value) / peak);
+            }
+        }
+        return drawdown;
+    }
+
+    private static double sharpePerBar(double[] equity, double initialCapital) {
+        int n = equity.length;
+        if (n < 2) {
+            return 0;
+        }
+        double mean = 0;
+        double m2 = 0;
+        double previous = initialCapital;
+        for (int i = 0; i < n; i++) {
+            double r = previous == 0 ? 0 : equity[i] / previous - 1;
+            previous = equity[i];
+            double delta = r - mean;
+            mean += delta / (i + 1);
+            m2 += delta * (r - mean);
+        }
+        double deviation = Math.sqrt(m2 / (n - 1));
+        return deviation == 0 ? 0 : mean / deviation;
+    }
+}
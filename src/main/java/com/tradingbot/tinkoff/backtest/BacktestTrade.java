@@ -0,0 +1,28 @@
+package com.tradingbot.tinkoff.backtest;
+
+import com.tradingbot.tinkoff.model.TradingSignal;
+
+/**
+ * Закрытая сделка бэктеста (вход и выход по одной позиции).
+ *
+ * @param side BUY для длинной позиции, SELL для короткой
+ * @param pnl  результат в валюте инструмента с учетом комиссий входа и выхода
+ */
+public record BacktestTrade(String figi,
+                            TradingSignal.SignalType side,
+                            long lots,
+                            long entryTimeMillis,
+                            double entryPrice,
+                            long exitTimeMillis,
+                            double exitPrice,
+                            double pnl,
+                            ExitReason exitReason) {
+
+    public enum ExitReason {
+        SIGNAL, STOP_LOSS, END_OF_DATA
+    }
+
+    public boolean isWin() {
+        return pnl > 0;
+    }
+}
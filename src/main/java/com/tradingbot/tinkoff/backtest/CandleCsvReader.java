@@ -0,0 +1,77 @@
+package com.tradingbot.tinkoff.backtest;
+
+import com.tradingbot.tinkoff.indicators.batch.BarColumns;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Arrays;
+
+/**
+ * Чтение свечей из CSV: {@code time,open,high,low,close,volume}, где time - миллисекунды эпохи
+ * или ISO-8601 ({@code 2024-01-15T07:00:00Z}). Разделитель - запятая или точка с запятой,
+ * строка заголовка и пустые строки пропускаются. Свечи должны идти по возрастанию времени.
+ */
+public final class CandleCsvReader {
+
+    private CandleCsvReader() {
+    }
+
+    public static BarColumns read(Path file) throws IOException {
+        long[] time = new long[1024];
+        double[][] values = new double[5][1024];
+        int count = 0;
+        int lineNumber = 0;
+
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || !Character.isDigit(line.charAt(0))) {
+                    continue; // Заголовок или пустая строка
+                }
+                String[] fields = line.split("[,;]");
+                if (fields.length < 6) {
+                    throw new IOException(file + ":" + lineNumber + ": ожидается 6 полей, найдено " + fields.length);
+                }
+                if (count == time.length) {
+                    time = Arrays.copyOf(time, count * 2);
+                    for (int c = 0; c < values.length; c++) {
+                        values[c] = Arrays.copyOf(values[c], count * 2);
+                    }
+                }
+                try {
+                    time[count] = parseTime(fields[0].trim());
+                    for (int c = 0; c < values.length; c++) {
+                        values[c][count] = Double.parseDouble(fields[c + 1].trim());
+                    }
+                } catch (RuntimeException e) {
+                    throw new IOException(file + ":" + lineNumber + ": " + e.getMessage(), e);
+                }
+                if (count > 0 && time[count] < time[count - 1]) {
+                    throw new IOException(file + ":" + lineNumber + ": время свечи меньше предыдущей");
+                }
+                count++;
+            }
+        }
+
+        BarColumns bars = new BarColumns(1, count);
+        for (int t = 0; t < count; t++) {
+            bars.set(t, 0, time[t], values[0][t], values[1][t], values[2][t], values[3][t], values[4][t]);
+        }
+        return bars;
+    }
+
+    private static long parseTime(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (!Character.isDigit(value.charAt(i))) {
+                return Instant.parse(value).toEpochMilli();
+            }
+        }
+        return Long.parseLong(value);
+    }
+}
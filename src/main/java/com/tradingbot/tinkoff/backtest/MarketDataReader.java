@@ -0,0 +1,127 @@
+package com.tradingbot.tinkoff.backtest;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Последовательное чтение файла {@link MarketDataRecorder}. Формат: заголовок
+ * (магическое число, версия, FIGI), затем записи: тип (1 — стакан, 2 — сделка),
+ * время в мс эпохи и поля события (big-endian, как {@link java.io.DataOutputStream}).
+ *
+ * Чтение блоками в буфер без промежуточных потоков: день ликвидного инструмента
+ * (миллионы снимков стакана) читается за секунды.
+ */
+public class MarketDataReader implements Closeable {
+    static final int MAGIC = 0x54424D44; // "TBMD"
+    static final int VERSION = 1;
+    static final int ORDER_BOOK = 1;
+    static final int TRADE = 2;
+    private static final int LEVEL_BYTES = Double.BYTES + Long.BYTES;
+
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final Path file;
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final String figi;
+
+    public MarketDataReader(Path file) throws IOException {
+        this.file = file;
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        buffer.limit(0);
+        try {
+            if (!ensure(6) || buffer.getInt() != MAGIC) {
+                throw new IOException(file + ": не файл рыночных данных");
+            }
+            int version = buffer.getShort();
+            if (version != VERSION) {
+                throw new IOException(file + ": неподдерживаемая версия " + version);
+            }
+            require(2);
+            byte[] name = new byte[buffer.getShort() & 0xFFFF];
+            require(name.length);
+            buffer.get(name);
+            this.figi = new String(name, StandardCharsets.UTF_8); // FIGI — ASCII, modified UTF-8 совпадает с UTF-8
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public String getFigi() {
+        return figi;
+    }
+
+    /**
+     * Читает следующее событие в event.
+     *
+     * @return false в конце файла
+     */
+    public boolean next(MarketEvent event) throws IOException {
+        if (!ensure(1)) {
+            return false;
+        }
+        int type = buffer.get();
+        require(Long.BYTES);
+        long time = buffer.getLong();
+        if (type == ORDER_BOOK) {
+            event.setOrderBook(time);
+            require(Short.BYTES);
+            int bids = buffer.getShort();
+            require(bids * LEVEL_BYTES + Short.BYTES);
+            for (int level = 0; level < bids; level++) {
+                event.addBid(buffer.getDouble(), buffer.getLong());
+            }
+            int asks = buffer.getShort();
+            require(asks * LEVEL_BYTES);
+            for (int level = 0; level < asks; level++) {
+                event.addAsk(buffer.getDouble(), buffer.getLong());
+            }
+        } else if (type == TRADE) {
+            require(Double.BYTES + Long.BYTES + 1);
+            event.setTrade(time, buffer.getDouble(), buffer.getLong(), buffer.get());
+        } else {
+            throw new IOException(file + ": неизвестный тип записи " + type);
+        }
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void require(int bytes) throws IOException {
+        if (!ensure(bytes)) {
+            throw new EOFException(file + ": файл обрывается посреди записи");
+        }
+    }
+
+    /**
+     * Дочитывает файл, пока в буфере не будет bytes байт.
+     *
+     * @return false, если файл кончился раньше
+     */
+    private boolean ensure(int bytes) throws IOException {
+        if (buffer.remaining() >= bytes) {
+            return true;
+        }
+        if (bytes > BUFFER_SIZE) {
+            throw new IOException(file + ": запись длиннее буфера (" + bytes + " байт)");
+        }
+        buffer.compact();
+        while (buffer.position() < bytes) {
+            if (channel.read(buffer) < 0) {
+                break;
+            }
+        }
+        buffer.flip();
+        return buffer.remaining() >= bytes;
+    }
+}
@@ -0,0 +1,92 @@
+package com.tradingbot.tinkoff.backtest;
+
+import com.tradingbot.tinkoff.api.TinkoffApiConnector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ru.tinkoff.piapi.contract.v1.OrderBook;
+import ru.tinkoff.piapi.contract.v1.Trade;
+import ru.tinkoff.piapi.contract.v1.TradeDirection;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Запись стакана и ленты сделок одного инструмента из стрима в бинарный файл
+ * для {@link MarketDataReader}. Методы можно вызывать из потоков стрима; события
+ * после {@link #close()} (запоздавшие из отмененной подписки) отбрасываются.
+ *
+ * В живой торговле включается свойством {@code -Dtradingbot.record.dir}
+ * ({@code InstrumentProcessor}); записи воспроизводят бенчмарк и фейковый API.
+ */
+public class MarketDataRecorder implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(MarketDataRecorder.class);
+
+    private final String figi;
+    private final DataOutputStream out;
+    private long events;
+    private boolean closed;
+
+    public MarketDataRecorder(Path file, String figi) throws IOException {
+        this.figi = figi;
+        this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16));
+        out.writeInt(MarketDataReader.MAGIC);
+        out.writeShort(MarketDataReader.VERSION);
+        out.writeUTF(figi);
+        logger.info("⏺️ Запись рыночных данных {} в {}", figi, file);
+    }
+
+    public synchronized void onOrderBook(OrderBook orderBook) {
+        if (closed || !figi.equals(orderBook.getFigi())) {
+            return;
+        }
+        try {
+            out.writeByte(MarketDataReader.ORDER_BOOK);
+            out.writeLong(TinkoffApiConnector.timestampToMillis(orderBook.getTime()));
+            out.writeShort(orderBook.getBidsCount());
+            for (int level = 0; level < orderBook.getBidsCount(); level++) {
+                out.writeDouble(TinkoffApiConnector.quotationToDouble(orderBook.getBids(level).getPrice()));
+                out.writeLong(orderBook.getBids(level).getQuantity());
+            }
+            out.writeShort(orderBook.getAsksCount());
+            for (int level = 0; level < orderBook.getAsksCount(); level++) {
+                out.writeDouble(TinkoffApiConnector.quotationToDouble(orderBook.getAsks(level).getPrice()));
+                out.writeLong(orderBook.getAsks(level).getQuantity());
+            }
+            events++;
+        } catch (IOException e) {
+            logger.error("❌ Ошибка записи стакана {}", figi, e);
+        }
+    }
+
+    public synchronized void onTrade(Trade trade) {
+        if (closed || !figi.equals(trade.getFigi())) {
+            return;
+        }
+        int side = trade.getDirection() == TradeDirection.TRADE_DIRECTION_BUY ? 1
+                : trade.getDirection() == TradeDirection.TRADE_DIRECTION_SELL ? -1 : 0;
+        try {
+            out.writeByte(MarketDataReader.TRADE);
+            out.writeLong(TinkoffApiConnector.timestampToMillis(trade.getTime()));
+            out.writeDouble(TinkoffApiConnector.quotationToDouble(trade.getPrice()));
+            out.writeLong(trade.getQuantity());
+            out.writeByte(side);
+            events++;
+        } catch (IOException e) {
+            logger.error("❌ Ошибка записи сделки {}", figi, e);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        out.close();
+        logger.info("⏹️ Запись рыночных данных {} завершена: {} событий", figi, events);
+    }
+}
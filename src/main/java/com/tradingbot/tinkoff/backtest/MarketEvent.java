@@ -0,0 +1,125 @@
+package com.tradingbot.tinkoff.backtest;
+
+import java.util.Arrays;
+
+/**
+ * Записанное рыночное событие: снимок стакана или сделка из ленты.
+ * Изменяемый и переиспользуемый: читатель заполняет один экземпляр, чтобы
+ * воспроизведение не создавало объект на каждое событие.
+ */
+public final class MarketEvent {
+
+    public enum Type {
+        ORDER_BOOK, TRADE
+    }
+
+    private Type type;
+    private long timeMillis;
+
+    // Стакан: уровни от лучшей цены, количество в лотах
+    private double[] bidPrices = new double[20];
+    private long[] bidQuantities = new long[20];
+    private int bidCount;
+    private double[] askPrices = new double[20];
+    private long[] askQuantities = new long[20];
+    private int askCount;
+
+    // Сделка: сторона агрессора +1 покупка, -1 продажа, 0 неизвестна
+    private double price;
+    private long quantity;
+    private int side;
+
+    public Type getType() {
+        return type;
+    }
+
+    public long getTimeMillis() {
+        return timeMillis;
+    }
+
+    public int getBidCount() {
+        return bidCount;
+    }
+
+    public int getAskCount() {
+        return askCount;
+    }
+
+    public double bidPrice(int level) {
+        return bidPrices[level];
+    }
+
+    public long bidQuantity(int level) {
+        return bidQuantities[level];
+    }
+
+    public double askPrice(int level) {
+        return askPrices[level];
+    }
+
+    public long askQuantity(int level) {
+        return askQuantities[level];
+    }
+
+    public double getPrice() {
+        return price;
+    }
+
+    public long getQuantity() {
+        return quantity;
+    }
+
+    public int getSide() {
+        return side;
+    }
+
+    /**
+     * Начинает снимок стакана; уровни добавляются через {@link #addBid}/{@link #addAsk}.
+     */
+    public void setOrderBook(long timeMillis) {
+        this.type = Type.ORDER_BOOK;
+        this.timeMillis = timeMillis;
+        this.bidCount = 0;
+        this.askCount = 0;
+    }
+
+    public void addBid(double price, long quantity) {
+        if (bidCount == bidPrices.length) {
+            bidPrices = Arrays.copyOf(bidPrices, bidCount * 2);
+            bidQuantities = Arrays.copyOf(bidQuantities, bidCount * 2);
+        }
+        bidPrices[bidCount] = price;
+        bidQuantities[bidCount++] = quantity;
+    }
+
+    public void addAsk(double price, long quantity) {
+        if (askCount == askPrices.length) {
+            askPrices = Arrays.copyOf(askPrices, askCount * 2);
+            askQuantities = Arrays.copyOf(askQuantities, askCount * 2);
+        }
+        askPrices[askCount] = price;
+        askQuantities[askCount++] = quantity;
+    }
+
+    public void setTrade(long timeMillis, double price, long quantity, int side) {
+        this.type = Type.TRADE;
+        this.timeMillis = timeMillis;
+        this.price = price;
+        this.quantity = quantity;
+        this.side = side;
+    }
+
+    public void copyFrom(MarketEvent other) {
+        if (other.type == Type.ORDER_BOOK) {
+            setOrderBook(other.timeMillis);
+            for (int level = 0; level < other.bidCount; level++) {
+                addBid(other.bidPrices[level], other.bidQuantities[level]);
+            }
+            for (int level = 0; level < other.askCount; level++) {
+                addAsk(other.askPrices[level], other.askQuantities[level]);
+            }
+        } else {
+            setTrade(other.timeMillis, other.price, other.quantity, other.side);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.tradingbot.tinkoff.backtest;
+
+import com.tradingbot.tinkoff.strategy.StrategyConfig;
+import lombok.Getter;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Итог оптимизации: строки, отсортированные по обучающей оценке, и статистика поиска.
+ */
+@Getter
+public class OptimizationResult {
+
+    /**
+     * Строка таблицы. Оценки — среднее целевой метрики по окнам walk-forward;
+     * проверочная оценка NaN, если проверочных отрезков нет.
+     */
+    public record Row(int rank,
+                      Map<String, Number> parameters,
+                      StrategyConfig config,
+                      double inSampleScore,
+                      double outOfSampleScore,
+                      int trades,
+                      double totalReturn,
+                      double maxDrawdown) {
+    }
+
+    private final String strategy;
+    private final List<String> fields;
+    private final List<Row> rows;
+    private final int candidates;
+    private final long evaluations;
+    private final long barsReplayed;
+    private final int memoizedColumns;
+    private final long elapsedNanos;
+
+    public OptimizationResult(String strategy, List<String> fields, List<Row> rows, int candidates, long evaluations,
+                              long barsReplayed, int memoizedColumns, long elapsedNanos) {
+        this.strategy = strategy;
+        this.fields = fields;
+        this.rows = rows;
+        this.candidates = candidates;
+        this.evaluations = evaluations;
+        this.barsReplayed = barsReplayed;
+        this.memoizedColumns = memoizedColumns;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public Row getBest() {
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    public double getBarsPerSecond() {
+        return elapsedNanos == 0 ? 0 : barsReplayed * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * Таблица для лога или консоли.
+     */
+    public String toTable() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%-4s", "#"));
+        for (String field : fields) {
+            sb.append(String.format(" %14s", field));
+        }
+        sb.append(String.format(" %12s %12s %7s %10s %10s%n", "обучение", "проверка", "сделок", "доходн.%", "просадка%"));
+        for (Row row : rows) {
+            sb.append(String.format("%-4d", row.rank()));
+            for (String field : fields) {
+                sb.append(String.format(" %14s", row.parameters().get(field)));
+            }
+            sb.append(String.format(Locale.ROOT, " %12.4f %12.4f %7d %10.2f %10.2f%n",
+                    row.inSampleScore(), row.outOfSampleScore(), row.trades(),
+                    row.totalReturn() * 100, row.maxDrawdown() * 100));
+        }
+        return sb.toString();
+    }
+
+    public void writeCsv(Path file) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(file)) {
+            writer.write("rank," + String.join(",", fields) + ",in_sample,out_of_sample,trades,total_return,max_drawdown\n");
+            for (Row row : rows) {
+                StringBuilder line = new StringBuilder().append(row.rank());
+                for (String field : fields) {
+                    line.append(',').append(row.parameters().get(field));
+                }
+                line.append(String.format(Locale.ROOT, ",%.6f,%.6f,%d,%.6f,%.6f%n",
+                        row.inSampleScore(), row.outOfSampleScore(), row.trades(), row.totalReturn(), row.maxDrawdown()));
+                writer.write(line.toString());
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: кандидатов %d, прогонов %d, баров %d, колонок в кэше %d, %.1f с (%.0f баров/с)",
+                strategy, candidates, evaluations, barsReplayed, memoizedColumns, elapsedNanos / 1e9, getBarsPerSecond());
+    }
+}
@@ -0,0 +1,69 @@
+package com.tradingbot.tinkoff.backtest;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Параметры оптимизации: способ поиска, целевая метрика, walk-forward и параллелизм.
+ */
+@Getter
+@Builder(toBuilder = true)
+public class OptimizerConfig {
+
+    public enum Search {
+        GRID,
+        RANDOM,
+        // Все кандидаты на коротком отрезке, лучшая 1/halvingFactor доходит до следующего, в halvingFactor раз длиннее
+        SUCCESSIVE_HALVING
+    }
+
+    public enum Objective {
+        SHARPE(BacktestResult::getSharpePerBar),
+        TOTAL_RETURN(BacktestResult::getTotalReturn),
+        PROFIT_FACTOR(BacktestResult::getProfitFactor),
+        RETURN_OVER_DRAWDOWN(result -> result.getTotalReturn() / Math.max(result.getMaxDrawdown(), 1e-9));
+
+        private final ToDoubleFunction<BacktestResult> metric;
+
+        Objective(ToDoubleFunction<BacktestResult> metric) {
+            this.metric = metric;
+        }
+
+        public double score(BacktestResult result) {
+            return metric.applyAsDouble(result);
+        }
+    }
+
+    // Параметры прогона (капитал, комиссия, длительность бара); стратегия берется из пространства
+    @Builder.Default
+    private final BacktestConfig backtest = BacktestConfig.builder().build();
+    @Builder.Default
+    private final Search search = Search.GRID;
+    @Builder.Default
+    private final Objective objective = Objective.SHARPE;
+    // Число кандидатов случайного поиска и первого шага successive halving (0 - вся сетка)
+    @Builder.Default
+    private final int samples = 0;
+    @Builder.Default
+    private final long seed = 42;
+    @Builder.Default
+    private final int halvingFactor = 3;
+    // Минимальная длина отрезка на первом шаге successive halving
+    @Builder.Default
+    private final int minHalvingBars = 5_000;
+    // Окна walk-forward; 0 - оценка на всей истории без проверочного отрезка
+    @Builder.Default
+    private final int walkForwardFolds = 0;
+    @Builder.Default
+    private final double trainFraction = 0.7;
+    // Результат с меньшим числом сделок получает худшую оценку
+    @Builder.Default
+    private final int minTrades = 5;
+    // Строк в итоговой таблице (для них же считается проверочная оценка)
+    @Builder.Default
+    private final int topN = 20;
+    @Builder.Default
+    private final int parallelism = Runtime.getRuntime().availableProcessors();
+}
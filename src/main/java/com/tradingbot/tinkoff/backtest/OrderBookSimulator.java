@@ -0,0 +1,441 @@
+package com.tradingbot.tinkoff.backtest;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+/**
+ * Исполнение приказов одного инструмента по записанному стакану и ленте сделок.
+ *
+ * <ul>
+ *     <li>Приказ доходит до биржи через задержку (фиксированная часть плюс равномерный разброс)
+ *     и видит стакан на момент прихода.</li>
+ *     <li>Рыночный приказ проходит уровни противоположной стороны; остаток сверх глубины снимается.
+ *     Взятая ликвидность вычитается из стакана до следующего снимка.</li>
+ *     <li>Лимитный приказ исполняется по стакану до своей цены, остаток встает в очередь за
+ *     объемом своего уровня. Очередь уменьшают сделки по этой цене и сокращение уровня в
+ *     снимках; сделка хуже цены приказа или пересечение стакана исполняют его по своей цене.</li>
+ *     <li>Стоп срабатывает по цене сделки и становится рыночным приказом с той же задержкой.</li>
+ * </ul>
+ * Не потокобезопасен: события и приказы приходят из потока воспроизведения.
+ */
+public class OrderBookSimulator {
+    private static final double PRICE_EPSILON = 1e-9;
+
+    public enum OrderType {
+        MARKET, LIMIT, STOP
+    }
+
+    public enum OrderStatus {
+        // В пути до биржи
+        PENDING,
+        // Лимитный приказ в стакане или взведенный стоп
+        ACTIVE,
+        FILLED,
+        // Снят пользователем или остаток рыночного приказа не нашел ликвидности
+        CANCELLED
+    }
+
+    /**
+     * Исполнения приказов.
+     */
+    public interface FillListener {
+        void onFill(SimulatedOrder order, long lots, double price, long timeMillis);
+    }
+
+    /**
+     * Приказ симулятора.
+     */
+    public static final class SimulatedOrder {
+        private final String id;
+        private final OrderType type;
+        private final int side; // +1 покупка, -1 продажа
+        private final long lots;
+        private final double limitPrice;
+        private final double stopPrice;
+        private final long sequence;
+        private long arrivalMillis;
+        private OrderStatus status = OrderStatus.PENDING;
+        private boolean triggered;
+        private long filledLots;
+        private double filledValue;
+        private long queueAhead;
+
+        private SimulatedOrder(String id, OrderType type, int side, long lots, double limitPrice, double stopPrice,
+                               long arrivalMillis, long sequence) {
+            this.id = id;
+            this.type = type;
+            this.side = side;
+            this.lots = lots;
+            this.limitPrice = limitPrice;
+            this.stopPrice = stopPrice;
+            this.arrivalMillis = arrivalMillis;
+            this.sequence = sequence;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public OrderType getType() {
+            return type;
+        }
+
+        public int getSide() {
+            return side;
+        }
+
+        public long getLots() {
+            return lots;
+        }
+
+        public double getLimitPrice() {
+            return limitPrice;
+        }
+
+        public double getStopPrice() {
+            return stopPrice;
+        }
+
+        public long getArrivalMillis() {
+            return arrivalMillis;
+        }
+
+        public OrderStatus getStatus() {
+            return status;
+        }
+
+        public long getFilledLots() {
+            return filledLots;
+        }
+
+        public long getRemainingLots() {
+            return lots - filledLots;
+        }
+
+        public double getAverageFillPrice() {
+            return filledLots == 0 ? Double.NaN : filledValue / filledLots;
+        }
+
+        /**
+         * Оценка объема, стоящего в очереди перед лимитным приказом.
+         */
+        public long getQueueAhead() {
+            return queueAhead;
+        }
+
+        public boolean isDone() {
+            return status == OrderStatus.FILLED || status == OrderStatus.CANCELLED;
+        }
+    }
+
+    private final FillListener listener;
+    private final long latencyMillis;
+    private final long jitterMillis;
+    private final Random random;
+
+    private double[] bidPrices = new double[20];
+    private long[] bidQuantities = new long[20];
+    private int bidCount;
+    private double[] askPrices = new double[20];
+    private long[] askQuantities = new long[20];
+    private int askCount;
+    private double lastTradePrice = Double.NaN;
+
+    private final PriorityQueue<SimulatedOrder> pending = new PriorityQueue<>((a, b) -> a.arrivalMillis != b.arrivalMillis
+            ? Long.compare(a.arrivalMillis, b.arrivalMillis)
+            : Long.compare(a.sequence, b.sequence));
+    private final List<SimulatedOrder> limits = new ArrayList<>();
+    private final List<SimulatedOrder> stops = new ArrayList<>();
+    private final Map<String, SimulatedOrder> orders = new HashMap<>();
+    private long sequence;
+
+    /**
+     * @param latencyMillis задержка до биржи
+     * @param jitterMillis  разброс задержки (равномерно от 0 до jitterMillis)
+     */
+    public OrderBookSimulator(FillListener listener, long latencyMillis, long jitterMillis, long seed) {
+        this.listener = listener;
+        this.latencyMillis = latencyMillis;
+        this.jitterMillis = jitterMillis;
+        this.random = new Random(seed);
+    }
+
+    public long nextLatency() {
+        return latencyMillis + (jitterMillis > 0 ? (long) (random.nextDouble() * (jitterMillis + 1)) : 0);
+    }
+
+    /**
+     * Отправляет приказ; он попадет на биржу в arrivalMillis.
+     *
+     * @param side +1 покупка, -1 продажа
+     */
+    public SimulatedOrder submit(OrderType type, int side, long lots, double limitPrice, double stopPrice, long arrivalMillis) {
+        if (lots <= 0) {
+            throw new IllegalArgumentException("Объем приказа должен быть положительным: " + lots);
+        }
+        long number = ++sequence;
+        SimulatedOrder order = new SimulatedOrder("replay-" + number, type, side, lots, limitPrice, stopPrice, arrivalMillis, number);
+        orders.put(order.id, order);
+        pending.add(order);
+        return order;
+    }
+
+    public SimulatedOrder getOrder(String id) {
+        return orders.get(id);
+    }
+
+    /**
+     * Снимает неисполненный приказ (или его остаток).
+     *
+     * @return true, если приказ был активен или в пути
+     */
+    public boolean cancel(String id) {
+        SimulatedOrder order = orders.get(id);
+        if (order == null || order.isDone()) {
+            return false;
+        }
+        pending.remove(order);
+        limits.remove(order);
+        stops.remove(order);
+        order.status = OrderStatus.CANCELLED;
+        return true;
+    }
+
+    /**
+     * Снимает все взведенные и не дошедшие до биржи стопы.
+     */
+    public void cancelStops() {
+        for (SimulatedOrder stop : new ArrayList<>(stops)) {
+            cancel(stop.id);
+        }
+        pending.removeIf(order -> {
+            if (order.type == OrderType.STOP && !order.triggered) {
+                order.status = OrderStatus.CANCELLED;
+                return true;
+            }
+            return false;
+        });
+    }
+
+    public double getLastTradePrice() {
+        return lastTradePrice;
+    }
+
+    public double getBestBid() {
+        return bidCount > 0 ? bidPrices[0] : Double.NaN;
+    }
+
+    public double getBestAsk() {
+        return askCount > 0 ? askPrices[0] : Double.NaN;
+    }
+
+    /**
+     * Обрабатывает приказы, дошедшие до биржи к моменту timeMillis включительно.
+     */
+    public void processArrivals(long timeMillis) {
+        while (!pending.isEmpty() && pending.peek().arrivalMillis <= timeMillis) {
+            SimulatedOrder order = pending.poll();
+            arrive(order);
+        }
+    }
+
+    /**
+     * Рыночное событие: сначала приходят приказы, отправленные до него.
+     */
+    public void onEvent(MarketEvent event) {
+        processArrivals(event.getTimeMillis());
+        if (event.getType() == MarketEvent.Type.ORDER_BOOK) {
+            onOrderBook(event);
+        } else {
+            onTrade(event);
+        }
+    }
+
+    private void arrive(SimulatedOrder order) {
+        long time = order.arrivalMillis;
+        if (order.type == OrderType.MARKET || order.triggered) {
+            take(order, Double.NaN, time);
+            order.status = order.getRemainingLots() == 0 ? OrderStatus.FILLED : OrderStatus.CANCELLED;
+        } else if (order.type == OrderType.LIMIT) {
+            take(order, order.limitPrice, time);
+            if (order.getRemainingLots() == 0) {
+                order.status = OrderStatus.FILLED;
+            } else {
+                long level = ownLevelQuantity(order);
+                // Уровень за глубиной стакана: очередь неизвестна, до появления уровня исполнит только сделка хуже цены
+                order.queueAhead = level >= 0 ? level : Long.MAX_VALUE;
+                order.status = OrderStatus.ACTIVE;
+                limits.add(order);
+            }
+        } else {
+            order.status = OrderStatus.ACTIVE;
+            stops.add(order);
+        }
+    }
+
+    /**
+     * Проход по противоположной стороне стакана до limit (NaN — без ограничения), одним исполнением по средней цене.
+     */
+    private void take(SimulatedOrder order, double limit, long time) {
+        boolean buy = order.side > 0;
+        double[] prices = buy ? askPrices : bidPrices;
+        long[] quantities = buy ? askQuantities : bidQuantities;
+        int count = buy ? askCount : bidCount;
+        long remaining = order.getRemainingLots();
+        long taken = 0;
+        double value = 0;
+        for (int level = 0; level < count && remaining > 0; level++) {
+            double price = prices[level];
+            if (!Double.isNaN(limit) && (buy ? price > limit + PRICE_EPSILON : price < limit - PRICE_EPSILON)) {
+                break;
+            }
+            long quantity = Math.min(remaining, quantities[level]);
+            quantities[level] -= quantity;
+            remaining -= quantity;
+            taken += quantity;
+            value += quantity * price;
+        }
+        if (taken > 0) {
+            fill(order, taken, value / taken, time);
+        }
+    }
+
+    private void onOrderBook(MarketEvent event) {
+        bidCount = event.getBidCount();
+        askCount = event.getAskCount();
+        if (bidPrices.length < bidCount) {
+            bidPrices = new double[bidCount];
+            bidQuantities = new long[bidCount];
+        }
+        if (askPrices.length < askCount) {
+            askPrices = new double[askCount];
+            askQuantities = new long[askCount];
+        }
+        for (int level = 0; level < bidCount; level++) {
+            bidPrices[level] = event.bidPrice(level);
+            bidQuantities[level] = event.bidQuantity(level);
+        }
+        for (int level = 0; level < askCount; level++) {
+            askPrices[level] = event.askPrice(level);
+            askQuantities[level] = event.askQuantity(level);
+        }
+
+        long time = event.getTimeMillis();
+        for (int i = 0; i < limits.size(); i++) {
+            SimulatedOrder order = limits.get(i);
+            crossed(order, time);
+            if (order.getRemainingLots() == 0) {
+                order.status = OrderStatus.FILLED;
+                limits.remove(i--);
+                continue;
+            }
+            // Объем перед приказом не может быть больше объема его уровня
+            long level = ownLevelQuantity(order);
+            if (level >= 0) {
+                order.queueAhead = Math.min(order.queueAhead, level);
+            }
+        }
+    }
+
+    /**
+     * Противоположная сторона стакана дошла до цены лимитного приказа: исполнение по цене приказа.
+     */
+    private void crossed(SimulatedOrder order, long time) {
+        boolean buy = order.side > 0;
+        double[] prices = buy ? askPrices : bidPrices;
+        long[] quantities = buy ? askQuantities : bidQuantities;
+        int count = buy ? askCount : bidCount;
+        long remaining = order.getRemainingLots();
+        long taken = 0;
+        for (int level = 0; level < count && remaining > 0; level++) {
+            if (buy ? prices[level] > order.limitPrice + PRICE_EPSILON : prices[level] < order.limitPrice - PRICE_EPSILON) {
+                break;
+            }
+            long quantity = Math.min(remaining, quantities[level]);
+            quantities[level] -= quantity;
+            remaining -= quantity;
+            taken += quantity;
+        }
+        if (taken > 0) {
+            fill(order, taken, order.limitPrice, time);
+        }
+    }
+
+    private void onTrade(MarketEvent event) {
+        double price = event.getPrice();
+        long time = event.getTimeMillis();
+        lastTradePrice = price;
+
+        for (int i = 0; i < stops.size(); i++) {
+            SimulatedOrder stop = stops.get(i);
+            if (stop.side > 0 ? price >= stop.stopPrice - PRICE_EPSILON : price <= stop.stopPrice + PRICE_EPSILON) {
+                stops.remove(i--);
+                stop.triggered = true;
+                stop.status = OrderStatus.PENDING;
+                stop.arrivalMillis = time + nextLatency();
+                pending.add(stop);
+            }
+        }
+
+        for (int i = 0; i < limits.size(); i++) {
+            SimulatedOrder order = limits.get(i);
+            boolean buy = order.side > 0;
+            double limit = order.limitPrice;
+            if (buy ? price < limit - PRICE_EPSILON : price > limit + PRICE_EPSILON) {
+                // Сделка хуже цены приказа: весь стоящий перед ним объем уже выбран
+                fill(order, order.getRemainingLots(), limit, time);
+            } else if (Math.abs(price - limit) <= PRICE_EPSILON && event.getSide() != order.side) {
+                // Сделка по цене приказа с агрессором с другой стороны (или неизвестным) съедает очередь
+                long rest = order.queueAhead - event.getQuantity();
+                order.queueAhead = Math.max(rest, 0);
+                if (rest < 0) {
+                    fill(order, Math.min(order.getRemainingLots(), -rest), limit, time);
+                }
+            }
+            if (order.getRemainingLots() == 0) {
+                order.status = OrderStatus.FILLED;
+                limits.remove(i--);
+            }
+        }
+    }
+
+    /**
+     * Объем уровня стакана на стороне приказа по его цене; 0, если цена в пределах видимой глубины,
+     * но уровня на ней нет (приказ первый в очереди); -1, если цена дальше последнего видимого уровня.
+     */
+    private long ownLevelQuantity(SimulatedOrder order) {
+        boolean buy = order.side > 0;
+        double[] prices = buy ? bidPrices : askPrices;
+        long[] quantities = buy ? bidQuantities : askQuantities;
+        int count = buy ? bidCount : askCount;
+        for (int level = 0; level < count; level++) {
+            if (Math.abs(prices[level] - order.limitPrice) <= PRICE_EPSILON) {
+                return quantities[level];
+            }
+        }
+        if (count == 0) {
+            return 0;
+        }
+        double deepest = prices[count - 1];
+        if (buy ? order.limitPrice < deepest - PRICE_EPSILON : order.limitPrice > deepest + PRICE_EPSILON) {
+            return -1;
+        }
+        return 0;
+    }
+
+    private void fill(SimulatedOrder order, long lots, double price, long time) {
+        order.filledLots += lots;
+        order.filledValue += lots * price;
+        listener.onFill(order, lots, price, time);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("стакан %s/%s, последняя %s, приказов в пути %d, лимитных %d, стопов %d",
+                getBestBid(), getBestAsk(), lastTradePrice, pending.size(), limits.size(), stops.size());
+    }
+}
@@ -0,0 +1,200 @@
+package com.tradingbot.tinkoff.backtest;
+
+import com.tradingbot.tinkoff.indicators.batch.BarColumns;
+import com.tradingbot.tinkoff.indicators.batch.BatchIndicators;
+import com.tradingbot.tinkoff.indicators.batch.IndicatorMemo;
+import com.tradingbot.tinkoff.model.TradableInstrument;
+import com.tradingbot.tinkoff.strategy.InstrumentContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Поиск параметров стратегии на исторических данных: сетка, случайный поиск или
+ * successive halving, с окнами walk-forward. Каждая оценка — обычный прогон
+ * {@link BacktestEngine}, прогоны распределяются по собственному пулу ForkJoin.
+ *
+ * Оконные индикаторы (VWAP, стандартное отклонение) считаются один раз на спецификацию
+ * и период в общем {@link IndicatorMemo}; рекуррентные (EMA, RSI, ATR) обновляются
+ * за O(1) в состоянии стратегии и не кэшируются.
+ */
+public class ParameterOptimizer {
+    private static final Logger logger = LoggerFactory.getLogger(ParameterOptimizer.class);
+
+    private final OptimizerConfig config;
+
+    public ParameterOptimizer(OptimizerConfig config) {
+        this.config = config;
+    }
+
+    /**
+     * Оценка кандидата на всех окнах.
+     */
+    private record Evaluation(ParameterSpace.ParameterSet candidate, double score, int trades,
+                              double totalReturn, double maxDrawdown) {
+    }
+
+    public OptimizationResult optimize(TradableInstrument instrument, BarColumns bars, ParameterSpace space) {
+        long started = System.nanoTime();
+        List<WalkForwardSplit> splits = WalkForwardSplit.rolling(bars.bars, config.getWalkForwardFolds(), config.getTrainFraction());
+        List<ParameterSpace.ParameterSet> candidates = candidates(space);
+        IndicatorMemo memo = new IndicatorMemo(bars, BatchIndicators.kernels(), InstrumentContext.HISTORY_CAPACITY);
+        AtomicLong evaluations = new AtomicLong();
+        AtomicLong barsReplayed = new AtomicLong();
+        logger.info("🔧 Оптимизация {} [{}]: {} кандидатов из {}, окон {}, поиск {}, потоков {}",
+                space.getStrategy(), instrument.name(), candidates.size(), space.size(), splits.size(),
+                config.getSearch(), config.getParallelism());
+
+        ForkJoinPool pool = new ForkJoinPool(config.getParallelism());
+        try {
+            Scorer scorer = new Scorer(instrument, bars, space.getStrategy(), memo, evaluations, barsReplayed);
+            List<Evaluation> ranked = config.getSearch() == OptimizerConfig.Search.SUCCESSIVE_HALVING
+                    ? successiveHalving(pool, scorer, candidates, splits)
+                    : ranked(evaluateAll(pool, candidates, candidate -> scorer.onTrain(candidate, splits, Integer.MAX_VALUE)));
+
+            List<Evaluation> top = ranked.subList(0, Math.min(config.getTopN(), ranked.size()));
+            boolean hasTest = splits.get(0).testBars() > 0;
+            List<Double> outOfSample = hasTest
+                    ? evaluateAll(pool, top, evaluation -> scorer.onTest(evaluation.candidate(), splits))
+                    : top.stream().map(evaluation -> Double.NaN).toList();
+
+            List<OptimizationResult.Row> rows = new ArrayList<>(top.size());
+            for (int i = 0; i < top.size(); i++) {
+                Evaluation evaluation = top.get(i);
+                rows.add(new OptimizationResult.Row(i + 1, evaluation.candidate().parameters(), evaluation.candidate().config(),
+                        evaluation.score(), outOfSample.get(i), evaluation.trades(), evaluation.totalReturn(), evaluation.maxDrawdown()));
+            }
+            OptimizationResult result = new OptimizationResult(space.getStrategy(), space.getFields(), rows, candidates.size(),
+                    evaluations.get(), barsReplayed.get(), memo.getComputedColumns(), System.nanoTime() - started);
+            logger.info("🏁 Оптимизация завершена: {}", result);
+            return result;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private List<ParameterSpace.ParameterSet> candidates(ParameterSpace space) {
+        int samples = config.getSamples();
+        return switch (config.getSearch()) {
+            case GRID -> space.grid();
+            case RANDOM -> space.sample(samples > 0 ? samples : 100, config.getSeed());
+            case SUCCESSIVE_HALVING -> samples > 0 ? space.sample(samples, config.getSeed()) : space.grid();
+        };
+    }
+
+    /**
+     * Successive halving: на каждом шаге кандидаты оцениваются по последним budget барам
+     * обучающих отрезков, дальше проходит лучшая 1/halvingFactor, отрезок удлиняется в halvingFactor раз.
+     */
+    private List<Evaluation> successiveHalving(ForkJoinPool pool, Scorer scorer,
+                                               List<ParameterSpace.ParameterSet> candidates, List<WalkForwardSplit> splits) {
+        int eta = Math.max(2, config.getHalvingFactor());
+        int trainBars = splits.stream().mapToInt(WalkForwardSplit::trainBars).min().orElse(0);
+        int rungs = 0;
+        long reach = eta;
+        while (reach <= candidates.size() && trainBars / reach >= config.getMinHalvingBars()) {
+            rungs++;
+            reach *= eta;
+        }
+
+        List<ParameterSpace.ParameterSet> survivors = candidates;
+        for (int rung = rungs; ; rung--) {
+            int budget = (int) (trainBars / Math.pow(eta, rung));
+            List<Evaluation> ranked = ranked(evaluateAll(pool, survivors, candidate -> scorer.onTrain(candidate, splits, budget)));
+            logger.info("🔧 Successive halving: шаг {}, кандидатов {}, баров {}, лучшая оценка {}",
+                    rungs - rung + 1, survivors.size(), budget, ranked.isEmpty() ? Double.NaN : ranked.get(0).score());
+            if (rung == 0) {
+                return ranked;
+            }
+            int keep = Math.max(Math.max(1, config.getTopN()), (survivors.size() + eta - 1) / eta);
+            survivors = ranked.subList(0, Math.min(keep, ranked.size())).stream().map(Evaluation::candidate).toList();
+        }
+    }
+
+    private static <T, R> List<R> evaluateAll(ForkJoinPool pool, List<T> items, Function<T, R> evaluate) {
+        return pool.submit(() -> items.parallelStream().map(evaluate).toList()).join();
+    }
+
+    /**
+     * Оценки по убыванию.
+     */
+    private static List<Evaluation> ranked(List<Evaluation> evaluations) {
+        List<Evaluation> sorted = new ArrayList<>(evaluations);
+        sorted.sort(Comparator.comparingDouble(Evaluation::score).reversed());
+        return sorted;
+    }
+
+    /**
+     * Прогоны кандидата на отрезках окон с общим кэшем индикаторов.
+     */
+    private final class Scorer {
+        private final TradableInstrument instrument;
+        private final BarColumns bars;
+        private final String strategy;
+        private final IndicatorMemo memo;
+        private final AtomicLong evaluations;
+        private final AtomicLong barsReplayed;
+
+        Scorer(TradableInstrument instrument, BarColumns bars, String strategy, IndicatorMemo memo,
+               AtomicLong evaluations, AtomicLong barsReplayed) {
+            this.instrument = instrument;
+            this.bars = bars;
+            this.strategy = strategy;
+            this.memo = memo;
+            this.evaluations = evaluations;
+            this.barsReplayed = barsReplayed;
+        }
+
+        /**
+         * Оценка по последним budget барам обучающих отрезков.
+         */
+        Evaluation onTrain(ParameterSpace.ParameterSet candidate, List<WalkForwardSplit> splits, int budget) {
+            double score = 0;
+            int trades = 0;
+            double totalReturn = 0;
+            double maxDrawdown = 0;
+            for (WalkForwardSplit split : splits) {
+                BacktestResult result = run(candidate, Math.max(split.trainFrom(), split.trainTo() - budget), split.trainTo());
+                score += score(result);
+                trades += result.getTrades().size();
+                totalReturn += result.getTotalReturn();
+                maxDrawdown = Math.max(maxDrawdown, result.getMaxDrawdown());
+            }
+            return new Evaluation(candidate, score / splits.size(), trades, totalReturn / splits.size(), maxDrawdown);
+        }
+
+        double onTest(ParameterSpace.ParameterSet candidate, List<WalkForwardSplit> splits) {
+            double score = 0;
+            for (WalkForwardSplit split : splits) {
+                score += score(run(candidate, split.trainTo(), split.testTo()));
+            }
+            return score / splits.size();
+        }
+
+        private BacktestResult run(ParameterSpace.ParameterSet candidate, int from, int to) {
+            BacktestConfig backtest = config.getBacktest().toBuilder()
+                    .strategies(List.of(strategy))
+                    .strategyConfigs(Map.of(strategy, candidate.config()))
+                    .build();
+            BacktestResult result = new BacktestEngine(backtest).run(instrument, bars, 0, from, to, memo);
+            evaluations.incrementAndGet();
+            barsReplayed.addAndGet(to - from);
+            return result;
+        }
+
+        private double score(BacktestResult result) {
+            double score = config.getObjective().score(result);
+            if (result.getTrades().size() < config.getMinTrades() || Double.isNaN(score)) {
+                return Double.NEGATIVE_INFINITY;
+            }
+            return score;
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.tradingbot.tinkoff.backtest;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.tradingbot.tinkoff.strategy.MultiStrategyManager;
+import com.tradingbot.tinkoff.strategy.StrategyConfig;
+import com.tradingbot.tinkoff.strategy.StrategyConfigRepository;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Пространство параметров одной стратегии: оси по полям {@link StrategyConfig}
+ * поверх встроенных параметров стратегии.
+ * <pre>
+ * ParameterSpace.builder("MEAN_REVERSION_CONSERVATIVE")
+ *         .range("bbPeriod", 10, 40, 5)
+ *         .values("bbMultiplier", 1.5, 2.0, 2.5)
+ *         .build();
+ * </pre>
+ * Комбинации, не прошедшие проверку {@link StrategyConfigRepository#validate} или
+ * ограничение пространства, пропускаются.
+ */
+public class ParameterSpace {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /**
+     * Набор параметров: значения осей и собранная из них конфигурация.
+     */
+    public record ParameterSet(Map<String, Number> parameters, StrategyConfig config) {
+    }
+
+    private record Axis(String field, double[] values, boolean integer) {
+    }
+
+    private final String strategy;
+    private final StrategyConfig base;
+    private final List<Axis> axes;
+    private final Predicate<StrategyConfig> constraint;
+
+    private ParameterSpace(String strategy, StrategyConfig base, List<Axis> axes, Predicate<StrategyConfig> constraint) {
+        this.strategy = strategy;
+        this.base = base;
+        this.axes = axes;
+        this.constraint = constraint;
+    }
+
+    public static Builder builder(String strategy) {
+        return new Builder(strategy);
+    }
+
+    public String getStrategy() {
+        return strategy;
+    }
+
+    public StrategyConfig getBase() {
+        return base;
+    }
+
+    public List<String> getFields() {
+        return axes.stream().map(Axis::field).toList();
+    }
+
+    /**
+     * Число комбинаций полной сетки (до фильтрации).
+     */
+    public long size() {
+        long size = 1;
+        for (Axis axis : axes) {
+            size = Math.multiplyExact(size, axis.values().length);
+        }
+        return size;
+    }
+
+    /**
+     * Полная сетка.
+     */
+    public List<ParameterSet> grid() {
+        long size = size();
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Сетка из " + size + " комбинаций слишком велика, используйте случайный поиск");
+        }
+        List<ParameterSet> result = new ArrayList<>();
+        for (long index = 0; index < size; index++) {
+            ParameterSet set = decode(index);
+            if (set != null) {
+                result.add(set);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * До count различных случайных комбинаций сетки; если сетка не больше count — вся сетка.
+     */
+    public List<ParameterSet> sample(int count, long seed) {
+        long size = size();
+        if (size <= count) {
+            return grid();
+        }
+        Random random = new Random(seed);
+        Set<Long> drawn = new LinkedHashSet<>();
+        List<ParameterSet> result = new ArrayList<>();
+        // Недопустимые комбинации не засчитываются; число попыток ограничено
+        for (long attempts = 0; result.size() < count && attempts < 20L * count; attempts++) {
+            long index = Math.floorMod(random.nextLong(), size);
+            if (drawn.add(index)) {
+                ParameterSet set = decode(index);
+                if (set != null) {
+                    result.add(set);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Комбинация с номером index (смешанная система счисления по осям); null, если недопустима.
+     */
+    private ParameterSet decode(long index) {
+        ObjectNode node = MAPPER.valueToTree(base);
+        Map<String, Number> parameters = new LinkedHashMap<>();
+        long rest = index;
+        for (Axis axis : axes) {
+            double value = axis.values()[(int) (rest % axis.values().length)];
+            rest /= axis.values().length;
+            if (axis.integer()) {
+                node.put(axis.field(), (int) value);
+                parameters.put(axis.field(), (int) value);
+            } else {
+                node.put(axis.field(), value);
+                parameters.put(axis.field(), value);
+            }
+        }
+        try {
+            StrategyConfig config = MAPPER.treeToValue(node, StrategyConfig.class);
+            StrategyConfigRepository.validate(strategy, base, config);
+            if (!constraint.test(config)) {
+                return null;
+            }
+            return new ParameterSet(Collections.unmodifiableMap(parameters), config);
+        } catch (JsonProcessingException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    public static class Builder {
+        private final String strategy;
+        private StrategyConfig base;
+        private final List<Axis> axes = new ArrayList<>();
+        private Predicate<StrategyConfig> constraint = config -> true;
+
+        private Builder(String strategy) {
+            this.strategy = strategy;
+            this.base = MultiStrategyManager.getDefaultConfig(strategy);
+            if (base == null) {
+                throw new IllegalArgumentException("Стратегия " + strategy + " не имеет настраиваемых параметров");
+            }
+        }
+
+        /**
+         * Базовые параметры вместо встроенных (например, из strategies.json).
+         */
+        public Builder base(StrategyConfig base) {
+            this.base = base;
+            return this;
+        }
+
+        public Builder values(String field, double... values) {
+            JsonNode current = MAPPER.valueToTree(base).get(field);
+            if (current == null) {
+                throw new IllegalArgumentException("В StrategyConfig нет поля " + field);
+            }
+            if (values.length == 0) {
+                throw new IllegalArgumentException("Ось " + field + " без значений");
+            }
+            axes.add(new Axis(field, values.clone(), current.isIntegralNumber()));
+            return this;
+        }
+
+        /**
+         * Целочисленная ось from..to включительно с шагом step.
+         */
+        public Builder range(String field, int from, int to, int step) {
+            if (step <= 0 || to < from) {
+                throw new IllegalArgumentException("Некорректный диапазон " + field + ": " + from + ".." + to + " шаг " + step);
+            }
+            double[] values = new double[(to - from) / step + 1];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = from + i * step;
+            }
+            return values(field, values);
+        }
+
+        /**
+         * Дополнительное ограничение на комбинацию (например, быстрая EMA короче медленной).
+         */
+        public Builder constraint(Predicate<StrategyConfig> constraint) {
+            this.constraint = this.constraint.and(constraint);
+            return this;
+        }
+
+        public ParameterSpace build() {
+            return new ParameterSpace(strategy, base, List.copyOf(axes), constraint);
+        }
+    }
+}
@@ -0,0 +1,267 @@
+package com.tradingbot.tinkoff.backtest;
+
+import com.tradingbot.tinkoff.execution.AccountSnapshot;
+import com.tradingbot.tinkoff.execution.OrderGateway;
+import com.tradingbot.tinkoff.execution.OrderResult;
+import com.tradingbot.tinkoff.model.TradableInstrument;
+import com.tradingbot.tinkoff.model.TradingSignal;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Симулятор брокера для бэктеста: денежный счет, позиции со средней ценой, комиссия
+ * и проскальзывание, стоп-лоссы и лимитные приказы по диапазону бара. Рыночные приказы
+ * исполняются по последней цене инструмента. Позиции учитываются в лотах, деньги - по штукам
+ * (лоты на размер лота инструмента).
+ *
+ * Не потокобезопасен: один брокер обслуживает один прогон.
+ */
+public class SimulatedBroker implements OrderGateway {
+    private final Clock clock;
+    private final double commissionRate;
+    private final double slippage;
+    private final Map<String, PositionState> positions = new HashMap<>();
+    private final List<BacktestTrade> trades = new ArrayList<>();
+
+    private double cash;
+    private double commissionPaid;
+    private long orderSequence;
+
+    /**
+     * @param commissionRate комиссия как доля оборота (0.0005 = 0.05%)
+     * @param slippage       проскальзывание рыночного приказа как доля цены
+     */
+    public SimulatedBroker(Clock clock, double initialCash, double commissionRate, double slippage) {
+        this.clock = clock;
+        this.cash = initialCash;
+        this.commissionRate = commissionRate;
+        this.slippage = slippage;
+    }
+
+    /**
+     * Новый бар инструмента: сначала срабатывают стопы, затем лимитные приказы по диапазону бара
+     * (с гэпом — по цене открытия), затем последней ценой становится закрытие.
+     */
+    public void onBar(TradableInstrument instrument, double open, double high, double low, double close) {
+        PositionState position = position(instrument);
+        if (position.lots > 0 && position.stopSide == TradingSignal.SignalType.SELL && low <= position.stopPrice) {
+            fill(instrument.identifier(), position, -Math.min(position.stopLots, position.lots),
+                    Math.min(open, position.stopPrice), BacktestTrade.ExitReason.STOP_LOSS);
+        } else if (position.lots < 0 && position.stopSide == TradingSignal.SignalType.BUY && high >= position.stopPrice) {
+            fill(instrument.identifier(), position, Math.min(position.stopLots, -position.lots),
+                    Math.max(open, position.stopPrice), BacktestTrade.ExitReason.STOP_LOSS);
+        }
+        fillLimits(instrument.identifier(), position, open, high, low);
+        position.lastPrice = close;
+    }
+
+    /**
+     * Закрывает позицию по последней цене (конец данных).
+     */
+    public void liquidate(TradableInstrument instrument) {
+        PositionState position = position(instrument);
+        if (position.lots != 0) {
+            fill(instrument.identifier(), position, -position.lots, position.lastPrice, BacktestTrade.ExitReason.END_OF_DATA);
+        }
+    }
+
+    public double getEquity() {
+        double equity = cash;
+        for (PositionState position : positions.values()) {
+            equity += position.lots * position.lot * position.lastPrice;
+        }
+        return equity;
+    }
+
+    public double getCash() {
+        return cash;
+    }
+
+    public double getCommissionPaid() {
+        return commissionPaid;
+    }
+
+    public long getPositionLots(TradableInstrument instrument) {
+        PositionState position = positions.get(instrument.identifier());
+        return position != null ? position.lots : 0;
+    }
+
+    public List<BacktestTrade> getTrades() {
+        return Collections.unmodifiableList(trades);
+    }
+
+    @Override
+    public AccountSnapshot getAccount(TradableInstrument instrument) {
+        long lots = getPositionLots(instrument);
+        return new AccountSnapshot(BigDecimal.valueOf(getEquity()), BigDecimal.valueOf(cash),
+                BigDecimal.valueOf(lots * instrument.lot()), BigDecimal.valueOf(lots));
+    }
+
+    @Override
+    public OrderResult postMarketOrder(TradableInstrument instrument, long lots, TradingSignal.SignalType side) {
+        PositionState position = position(instrument);
+        boolean buy = side == TradingSignal.SignalType.BUY;
+        double price = position.lastPrice * (buy ? 1 + slippage : 1 - slippage);
+        fill(instrument.identifier(), position, buy ? lots : -lots, price, BacktestTrade.ExitReason.SIGNAL);
+        return new OrderResult("sim-" + (++orderSequence), OrderResult.Status.FILLED);
+    }
+
+    /**
+     * Лимитный приказ: по последней цене, если она не хуже лимита, иначе ждет бара,
+     * диапазон которого достигнет лимита. Ожидающие приказы не отменяются.
+     */
+    @Override
+    public OrderResult postLimitOrder(TradableInstrument instrument, long lots, BigDecimal price, TradingSignal.SignalType side) {
+        PositionState position = position(instrument);
+        boolean buy = side == TradingSignal.SignalType.BUY;
+        double limit = price.doubleValue();
+        String orderId = "sim-limit-" + (++orderSequence);
+        if (position.lastPrice > 0 && (buy ? position.lastPrice <= limit : position.lastPrice >= limit)) {
+            fill(instrument.identifier(), position, buy ? lots : -lots, position.lastPrice, BacktestTrade.ExitReason.SIGNAL);
+            return new OrderResult(orderId, OrderResult.Status.FILLED);
+        }
+        position.limits.add(new LimitOrder(buy ? lots : -lots, limit));
+        return new OrderResult(orderId, OrderResult.Status.PENDING);
+    }
+
+    @Override
+    public OrderResult closePosition(TradableInstrument instrument, long lots, TradingSignal.SignalType side) {
+        return postMarketOrder(instrument, lots, side);
+    }
+
+    /**
+     * Один стоп на инструмент: новый стоп заменяет прежний.
+     */
+    @Override
+    public String postStopLoss(TradableInstrument instrument, long lots, BigDecimal stopPrice, TradingSignal.SignalType side) {
+        PositionState position = position(instrument);
+        position.stopPrice = stopPrice.doubleValue();
+        position.stopLots = lots;
+        position.stopSide = side;
+        return "sim-stop-" + (++orderSequence);
+    }
+
+    @Override
+    public BigDecimal getInitialMargin(TradableInstrument instrument, TradingSignal.SignalType side) {
+        return BigDecimal.ZERO; // Маржинальные требования не моделируются
+    }
+
+    /**
+     * Исполнение, рассчитанное внешним симулятором (например, по стакану); время — по часам брокера.
+     */
+    void applyFill(TradableInstrument instrument, long signedLots, double price, BacktestTrade.ExitReason reason) {
+        fill(instrument.identifier(), position(instrument), signedLots, price, reason);
+    }
+
+    /**
+     * Текущая цена для оценки позиции.
+     */
+    void mark(TradableInstrument instrument, double price) {
+        position(instrument).lastPrice = price;
+    }
+
+    // Покупка исполняется, если минимум бара дошел до лимита, продажа - если максимум
+    private void fillLimits(String figi, PositionState position, double open, double high, double low) {
+        Iterator<LimitOrder> orders = position.limits.iterator();
+        while (orders.hasNext()) {
+            LimitOrder order = orders.next();
+            if (order.signedLots > 0 && low <= order.price) {
+                orders.remove();
+                fill(figi, position, order.signedLots, Math.min(open, order.price), BacktestTrade.ExitReason.SIGNAL);
+            } else if (order.signedLots < 0 && high >= order.price) {
+                orders.remove();
+                fill(figi, position, order.signedLots, Math.max(open, order.price), BacktestTrade.ExitReason.SIGNAL);
+            }
+        }
+    }
+
+    private PositionState position(TradableInstrument instrument) {
+        return positions.computeIfAbsent(instrument.identifier(), figi -> new PositionState(instrument.lot()));
+    }
+
+    /**
+     * Исполнение signedLots по цене price: сначала сокращает встречную позицию
+     * (фиксируя сделку), остаток открывает или наращивает позицию.
+     */
+    private void fill(String figi, PositionState position, long signedLots, double price, BacktestTrade.ExitReason reason) {
+        if (signedLots == 0) {
+            return;
+        }
+        long quantity = Math.abs(signedLots);
+        double commission = quantity * position.lot * price * commissionRate;
+        cash -= signedLots * position.lot * price + commission;
+        commissionPaid += commission;
+        long now = clock.millis();
+
+        long remaining = quantity;
+        if (position.lots != 0 && Long.signum(position.lots) != Long.signum(signedLots)) {
+            long held = Math.abs(position.lots);
+            long closing = Math.min(held, quantity);
+            double entryCommission = position.entryCommission * closing / held;
+            double exitCommission = commission * closing / quantity;
+            double pnl = closing * position.lot * (price - position.averagePrice) * Long.signum(position.lots)
+                    - entryCommission - exitCommission;
+            trades.add(new BacktestTrade(figi,
+                    position.lots > 0 ? TradingSignal.SignalType.BUY : TradingSignal.SignalType.SELL,
+                    closing, position.entryTimeMillis, position.averagePrice, now, price, pnl, reason));
+
+            position.entryCommission -= entryCommission;
+            position.lots += Long.signum(signedLots) * closing;
+            remaining -= closing;
+            if (position.lots == 0) {
+                position.clearStop();
+            } else {
+                position.stopLots = Math.min(position.stopLots, Math.abs(position.lots));
+            }
+        }
+
+        if (remaining > 0) {
+            long held = Math.abs(position.lots);
+            if (held == 0) {
+                position.entryTimeMillis = now;
+                position.entryCommission = 0;
+                position.averagePrice = price;
+            } else {
+                position.averagePrice = (held * position.averagePrice + remaining * price) / (held + remaining);
+            }
+            position.entryCommission += commission * remaining / quantity;
+            position.lots += Long.signum(signedLots) * remaining;
+        }
+    }
+
+    private static final class PositionState {
+        final int lot;
+        long lots;
+        double averagePrice;
+        double lastPrice;
+        long entryTimeMillis;
+        double entryCommission;
+        double stopPrice = Double.NaN;
+        long stopLots;
+        TradingSignal.SignalType stopSide;
+        final List<LimitOrder> limits = new ArrayList<>();
+
+        PositionState(int lot) {
+            this.lot = lot;
+        }
+
+        void clearStop() {
+            stopPrice = Double.NaN;
+            stopLots = 0;
+            stopSide = null;
+        }
+    }
+
+    /**
+     * Ожидающий лимитный приказ: лоты со знаком (покупка положительная) и цена лимита.
+     */
+    private record LimitOrder(long signedLots, double price) {
+    }
+}
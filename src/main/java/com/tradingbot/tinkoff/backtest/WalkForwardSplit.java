@@ -0,0 +1,46 @@
+package com.tradingbot.tinkoff.backtest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Окно walk-forward: обучающий отрезок [trainFrom, trainTo) и следующий за ним
+ * проверочный [trainTo, testTo) в индексах баров.
+ */
+public record WalkForwardSplit(int trainFrom, int trainTo, int testTo) {
+
+    public int trainBars() {
+        return trainTo - trainFrom;
+    }
+
+    public int testBars() {
+        return testTo - trainTo;
+    }
+
+    /**
+     * Скользящие окна одинаковой длины: проверочные отрезки идут подряд и вместе
+     * занимают долю 1 - trainFraction истории.
+     *
+     * @param folds число окон; 0 — один отрезок на всю историю без проверки
+     */
+    public static List<WalkForwardSplit> rolling(int bars, int folds, double trainFraction) {
+        if (folds <= 0) {
+            return List.of(new WalkForwardSplit(0, bars, bars));
+        }
+        if (trainFraction <= 0 || trainFraction >= 1) {
+            throw new IllegalArgumentException("trainFraction должна быть в (0, 1): " + trainFraction);
+        }
+        int testBars = (int) (bars * (1 - trainFraction) / folds);
+        int trainBars = bars - folds * testBars;
+        if (testBars <= 0 || trainBars <= 0) {
+            throw new IllegalArgumentException("Недостаточно баров (" + bars + ") для " + folds + " окон");
+        }
+        List<WalkForwardSplit> splits = new ArrayList<>(folds);
+        for (int fold = 0; fold < folds; fold++) {
+            int trainFrom = fold * testBars;
+            int trainTo = trainFrom + trainBars;
+            splits.add(new WalkForwardSplit(trainFrom, trainTo, trainTo + testBars));
+        }
+        return splits;
+    }
+}
@@ -1,13 +1,29 @@
 package com.tradingbot.tinkoff.controller;
 
 import com.tradingbot.tinkoff.api.TinkoffApiConnector;
+import com.tradingbot.tinkoff.execution.FuturesMarginCache;
 import com.tradingbot.tinkoff.model.OrderInfo;
 import com.tradingbot.tinkoff.model.TradableInstrument;
 import com.tradingbot.tinkoff.model.TradingSignal;
 import com.tradingbot.tinkoff.monitoring.ApiUsageMonitor;
 import com.tradingbot.tinkoff.processor.InstrumentProcessor;
+import com.tradingbot.tinkoff.processor.PairProcessor;
+import com.tradingbot.tinkoff.portfolio.EquitySnapshot;
+import com.tradingbot.tinkoff.portfolio.MarkToMarketEngine;
+import com.tradingbot.tinkoff.portfolio.PortfolioSnapshot;
+import com.tradingbot.tinkoff.portfolio.PortfolioStateService;
+import com.tradingbot.tinkoff.portfolio.PositionState;
+import com.tradingbot.tinkoff.risk.CapitalBudget;
+import com.tradingbot.tinkoff.risk.CapitalBudgetConfig;
+import com.tradingbot.tinkoff.risk.PortfolioRiskConfig;
+import com.tradingbot.tinkoff.risk.PortfolioRiskEngine;
+import com.tradingbot.tinkoff.rules.RuleRepository;
+import com.tradingbot.tinkoff.strategy.StrategyConfigRepository;
+import com.tradingbot.tinkoff.scanner.MarketScanner;
+import com.tradingbot.tinkoff.scanner.ScannerListener;
 import com.tradingbot.tinkoff.strategy.MultiStrategyManager;
-import org.ta4j.core.BaseBarSeriesBuilder;
+import com.tradingbot.tinkoff.strategy.PairConfig;
+import com.tradingbot.tinkoff.strategy.PairsTradingStrategy;
 import com.tradingbot.tinkoff.tracking.SignalTracker;
 import javafx.application.Platform;
 import javafx.beans.property.SimpleObjectProperty;
@@ -23,14 +39,14 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import ru.tinkoff.piapi.contract.v1.CandleInterval;
 import ru.tinkoff.piapi.contract.v1.OrderDirection;
-import ru.tinkoff.piapi.core.models.Portfolio;
-import ru.tinkoff.piapi.core.models.Position;
 //import ru.tinkoff.piapi.core.models.Portfolio;
 
 import java.math.BigDecimal;
+import java.nio.file.Paths;
 import java.time.Duration;
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -43,16 +59,17 @@ import java.util.stream.Collectors;
 import java.time.Instant;
 import com.tradingbot.tinkoff.model.TrackedPosition;
 // import com.tradingbot.tinkoff.strategy.MultiStrategyManager; // Этот импорт уже есть
-// import com.tradingbot.tinkoff.strategy.BaseBarSeriesBuilder; // Этот импорт уже есть
 
 public class MainController {
     private static final Logger logger = LoggerFactory.getLogger(MainController.class);
+    private static final int SCANNER_MAX_ACTIVE_PROCESSORS = 50;
 
     @FXML private TextField tokenField;
     @FXML private ListView<TradableInstrument> instrumentListView; // <<-- ИЗМЕНЕНО: ChoiceBox -> ListView
     @FXML private ChoiceBox<CandleInterval> intervalChoiceBox;
     @FXML private Button startButton;
     @FXML private Button stopButton;
+    @FXML private Button scannerButton;
     @FXML private Button connectButton;
     @FXML private Button depositButton;
     @FXML private TextArea logTextArea;
@@ -106,10 +123,27 @@ public class MainController {
     private TinkoffApiConnector apiConnector;
     private SignalTracker signalTracker;
     private ApiUsageMonitor apiMonitor;
-    private MultiStrategyManager multiStrategyManager; // <<-- ДОБАВЛЕНО
+    // Портфель из стримов счета: единый источник для процессоров, рисков и интерфейса
+    private PortfolioStateService portfolioState;
+    // Оценка портфеля в рублях по последним ценам и курсам валют
+    private MarkToMarketEngine markToMarket;
+    // ГО фьючерсов универсума, обновляется после клиринга
+    private FuturesMarginCache futuresMargins;
+    private final Map<String, String> instrumentNames = new ConcurrentHashMap<>();
+    private volatile long shownPositionsVersion = -1;
+    private MarketScanner marketScanner;
+    private List<TradableInstrument> availableInstruments = List.of();
+    private final RuleRepository ruleRepository = new RuleRepository(Paths.get("rules"));
+    private final StrategyConfigRepository strategyConfigRepository = new StrategyConfigRepository(Paths.get("config", "strategies.json"));
+    // VaR и стресс всей книги: история баров от процессоров, позиции от обновления портфеля
+    private final PortfolioRiskEngine portfolioRisk = new PortfolioRiskEngine(PortfolioRiskConfig.builder().build());
+    // Общий капитал процессоров: резервы сигналов против денег и лимитов по валютам и инструментам
+    private final CapitalBudget capitalBudget = new CapitalBudget(CapitalBudgetConfig.builder().build());
 
     // Карта для хранения активных обработчиков инструментов
     private final Map<String, InstrumentProcessor> activeProcessors = new ConcurrentHashMap<>();
+    // Парные процессоры по ключу "FIGI первой ноги/FIGI второй ноги"
+    private final Map<String, PairProcessor> activePairs = new ConcurrentHashMap<>();
     private final ObservableList<TradingSignal> tradingSignals = FXCollections.observableArrayList();
 
     private final ObservableList<OrderInfo> activeOrders = FXCollections.observableArrayList();
@@ -130,6 +164,7 @@ public class MainController {
         connectButton.setDisable(false);
         startButton.setDisable(true);
         stopButton.setDisable(true);
+        scannerButton.setDisable(true);
         depositButton.setDisable(true);
 
         intervalChoiceBox.setItems(FXCollections.observableArrayList(
@@ -145,18 +180,23 @@ public class MainController {
         favoriteInstrumentListView.setItems(favoriteInstruments);
         favoriteInstrumentListView.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
 
-        // Инициализация CheckListView для стратегий
-        // Примечание: MultiStrategyManager требует BarSeries, которую мы получим только при запуске InstrumentProcessor.
-        // Поэтому пока будем использовать заглушку или инициализировать его позже.
-        // Для получения имен стратегий без BarSeries, возможно, потребуется модифицировать MultiStrategyManager
-        // Или передать пустую BarSeries для инициализации, если она не используется сразу.
-
-        // Временно создадим MultiStrategyManager с пустой BarSeries для получения имен стратегий
-        // Предполагается, что getStrategyNames() не зависит от фактических данных BarSeries.
-        this.multiStrategyManager = new MultiStrategyManager(new BaseBarSeriesBuilder().withName("temp").build());
-        strategyListView.setItems(FXCollections.observableArrayList(multiStrategyManager.getStrategyNames()));
+        // Инициализация CheckListView для стратегий (определения стратегий общие, данные не нужны)
+        List<String> strategyNames = new ArrayList<>(MultiStrategyManager.getAvailableStrategyNames());
+        strategyNames.add(PairsTradingStrategy.NAME);
+        strategyListView.setItems(FXCollections.observableArrayList(strategyNames));
         strategyListView.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
 
+        // Правила стратегии RULES: загрузка и подмена в работающих процессорах при изменении файлов
+        ruleRepository.loadAll();
+        ruleRepository.startWatching(this::applyChangedRules);
+
+        // Параметры стратегий: применяются к работающим процессорам без повторного прогрева
+        strategyConfigRepository.loadAll();
+        strategyConfigRepository.startWatching(() -> activeProcessors.forEach(
+                (id, processor) -> processor.updateStrategyConfigs(strategyConfigRepository.configsFor(id))));
+
+        portfolioRisk.start();
+
         setupTableColumns();
         setupOrderTables();
         setupPositionsTable();
@@ -299,22 +339,29 @@ public class MainController {
 
                 boolean connected = apiConnector.connect().join();
                 if (connected) {
+                    startPortfolioState();
+                    if (futuresMargins != null) {
+                        futuresMargins.stop(); // Переподключение: кэш прежнего коннектора больше не нужен
+                    }
+                    futuresMargins = new FuturesMarginCache(apiConnector, apiMonitor::recordInstrument);
+                    futuresMargins.start();
                     Platform.runLater(() -> {
                         log("✅ API успешно подключено!");
                         tokenField.setDisable(true);
                         startButton.setDisable(false);
+                        scannerButton.setDisable(false);
                         depositButton.setDisable(false);
                         startOrderUpdates(); // <<-- ДОБАВЛЕНО
                         startPositionUpdates();
 
                     });
                     loadInstruments();
-                    fetchPortfolio();
                 } else {
                     handleConnectionFailure();
                 }
             } catch (Exception e) {
                 handleCriticalError("Ошибка при подключении", e);
+                stopPortfolioState();
                 Platform.runLater(() -> connectButton.setDisable(false));
             }
         });
@@ -325,6 +372,7 @@ public class MainController {
             try {
                 Platform.runLater(() -> log("⏳ Загрузка списка доступных инструментов..."));
                 List<TradableInstrument> instruments = apiConnector.getActiveInstruments();
+                futuresMargins.preload(instruments);
                 Platform.runLater(() -> updateInstrumentList(instruments));
             } catch (Exception e) {
                 handleCriticalError("Не удалось загрузить список инструментов", e);
@@ -338,6 +386,7 @@ public class MainController {
             startButton.setDisable(true);
             return;
         }
+        this.availableInstruments = instruments;
         instrumentListView.setItems(FXCollections.observableArrayList(instruments));
         log("✅ Список инструментов обновлен. Выберите один или несколько и нажмите 'Запуск'.");
     }
@@ -396,27 +445,149 @@ public class MainController {
             return;
         }
 
+        if (selectedStrategies.contains(PairsTradingStrategy.NAME)) {
+            // Пары составляются из выбранных инструментов по порядку: 1-й со 2-м, 3-й с 4-м...
+            if (selectedInstruments.size() < 2) {
+                log("⚠️ Для стратегии PAIRS выберите два инструмента (например, акцию и ее фьючерс).");
+            }
+            for (int i = 0; i + 1 < selectedInstruments.size(); i += 2) {
+                startPair(selectedInstruments.get(i), selectedInstruments.get(i + 1), interval, barDuration);
+            }
+            if (selectedStrategies.size() == 1) {
+                return;
+            }
+        }
+
         for (TradableInstrument instrument : selectedInstruments) {
             // Создаем и запускаем процессор для каждого выбранного инструмента
-            InstrumentProcessor processor = new InstrumentProcessor(
-                    instrument,
-                    apiConnector,
-                    signalTracker,
-                    backgroundExecutor,
-                    this::log, // Передаем метод логирования
-                    tradingSignals, // Передаем общий список для UI
-                    selectedStrategies // Передаем выбранные стратегии
-            );
-            activeProcessors.put(instrument.identifier(), processor);
-            processor.start(interval, barDuration);
+            startProcessor(instrument, interval, barDuration, selectedStrategies);
+        }
+    }
+
+    private void startPair(TradableInstrument first, TradableInstrument second, CandleInterval interval, Duration barDuration) {
+        PairProcessor processor = new PairProcessor(
+                first,
+                second,
+                apiConnector,
+                signalTracker,
+                backgroundExecutor,
+                portfolioState,
+                markToMarket,
+                portfolioRisk,
+                capitalBudget,
+                futuresMargins,
+                PairConfig.builder().build(),
+                this::log,
+                tradingSignals
+        );
+        activePairs.put(first.identifier() + "/" + second.identifier(), processor);
+        processor.start(interval, barDuration);
+    }
+
+    private void startProcessor(TradableInstrument instrument, CandleInterval interval, Duration barDuration, List<String> strategies) {
+        InstrumentProcessor processor = new InstrumentProcessor(
+                instrument,
+                apiConnector,
+                signalTracker,
+                backgroundExecutor,
+                portfolioState,
+                markToMarket,
+                portfolioRisk,
+                capitalBudget,
+                futuresMargins,
+                this::log, // Передаем метод логирования
+                tradingSignals, // Передаем общий список для UI
+                strategies // Передаем выбранные стратегии
+        );
+        processor.updateRules(ruleRepository.rulesFor(instrument.identifier()));
+        processor.updateStrategyConfigs(strategyConfigRepository.configsFor(instrument.identifier()));
+        activeProcessors.put(instrument.identifier(), processor);
+        processor.start(interval, barDuration);
+    }
+
+    /**
+     * @param figi инструмент, чьи правила изменились, или {@code null} для правил по умолчанию
+     */
+    private void applyChangedRules(String figi) {
+        if (figi == null) {
+            activeProcessors.forEach((id, processor) -> processor.updateRules(ruleRepository.rulesFor(id)));
+        } else {
+            InstrumentProcessor processor = activeProcessors.get(figi);
+            if (processor != null) {
+                processor.updateRules(ruleRepository.rulesFor(figi));
+            }
+        }
+    }
+
+    @FXML
+    private void handleToggleScanner() {
+        if (marketScanner != null) {
+            log("🛑 Остановка сканера рынка...");
+            marketScanner.stop();
+            marketScanner = null;
+            scannerButton.setText("Запустить сканер");
+            return;
         }
+
+        if (availableInstruments.isEmpty()) {
+            log("❌ Список инструментов еще не загружен.");
+            return;
+        }
+        List<String> selectedStrategies = List.copyOf(strategyListView.getSelectionModel().getSelectedItems());
+        if (selectedStrategies.isEmpty()) {
+            log("❌ Выберите хотя бы одну стратегию для запуска.");
+            return;
+        }
+
+        CandleInterval interval = intervalChoiceBox.getValue();
+        Duration barDuration = getDurationFromInterval();
+        marketScanner = new MarketScanner(apiConnector, new ScannerListener() {
+            @Override
+            public boolean onPromote(TradableInstrument instrument, double score) {
+                if (activeProcessors.containsKey(instrument.identifier())) {
+                    return false; // Процессор запущен вручную: сканер им не управляет
+                }
+                log(String.format("⬆️ Сканер: запуск процессора для %s (балл %.2f)", instrument.name(), score));
+                startProcessor(instrument, interval, barDuration, selectedStrategies);
+                return true;
+            }
+
+            @Override
+            public void onDemote(TradableInstrument instrument, double score) {
+                InstrumentProcessor processor = activeProcessors.remove(instrument.identifier());
+                if (processor != null) {
+                    log(String.format("⬇️ Сканер: остановка процессора для %s (балл %.2f)", instrument.name(), score));
+                    processor.stop();
+                }
+            }
+        }, SCANNER_MAX_ACTIVE_PROCESSORS);
+
+        log(String.format("🛰️ Запуск сканера рынка по %d инструментам...", availableInstruments.size()));
+        scannerButton.setText("Остановить сканер");
+        setTradingState(true);
+        MarketScanner scanner = marketScanner;
+        List<TradableInstrument> universe = availableInstruments;
+        backgroundExecutor.submit(() -> {
+            try {
+                scanner.start(universe, interval);
+            } catch (Exception e) {
+                handleCriticalError("Не удалось запустить сканер рынка", e);
+            }
+        });
     }
 
     @FXML
     private void handleStop() {
         log("🛑 Остановка всех торговых стратегий...");
+        if (marketScanner != null) {
+            marketScanner.stop();
+            marketScanner = null;
+            scannerButton.setText("Запустить сканер");
+        }
         activeProcessors.values().forEach(InstrumentProcessor::stop);
         activeProcessors.clear();
+        activePairs.values().forEach(PairProcessor::stop);
+        activePairs.clear();
         stopOrderUpdates(); // <<-- ДОБАВЛЕНО
         stopPositionUpdates();
         setTradingState(false);
@@ -439,18 +610,52 @@ public class MainController {
         }
     }
 
+    /**
+     * Состояние портфеля: первая сверка и стримы счета. Рублевая оценка, портфельный риск и баланс
+     * обновляются на каждом снимке, таблица позиций и баланс между снимками — планировщиком позиций.
+     */
+    private void startPortfolioState() {
+        stopPortfolioState(); // Переподключение: стримы прежнего коннектора больше не нужны
+        portfolioState = new PortfolioStateService(apiConnector, 60, apiMonitor::recordPortfolio);
+        markToMarket = new MarkToMarketEngine(apiConnector);
+        portfolioState.addListener(markToMarket::onSnapshot);
+        portfolioState.addListener(snapshot -> {
+            Map<String, Double> exposures = markToMarket.exposures();
+            portfolioRisk.updatePositions(exposures);
+            capitalBudget.sync(snapshot, markToMarket.current(), exposures, markToMarket.currencyExposures());
+        });
+        portfolioState.addListener(snapshot -> Platform.runLater(this::showBalance));
+        portfolioState.start();
+    }
+
+    /**
+     * Останавливает стримы и сверку портфеля и подписку на цены оценки. Поля сохраняются:
+     * баланс и позиции показывают последний снимок до следующего подключения.
+     */
+    private void stopPortfolioState() {
+        if (portfolioState != null) {
+            portfolioState.stop();
+        }
+        if (markToMarket != null) {
+            markToMarket.stop();
+        }
+    }
+
     private void updatePositions() {
-        if (apiConnector == null || !apiConnector.isConnected()) return;
+        if (portfolioState == null) return;
 
+        Platform.runLater(this::showBalance); // Оценка меняется с ценами и между снимками портфеля
+        PortfolioSnapshot snapshot = portfolioState.current();
+        if (snapshot == null || snapshot.version() == shownPositionsVersion) {
+            return; // Портфель не менялся с прошлого обновления таблицы
+        }
         backgroundExecutor.submit(() -> {
             try {
-                // Получаем портфель из API
-                Portfolio portfolio = apiConnector.getPortfolio().join();
-
-                List<TrackedPosition> positions = portfolio.getPositions().stream()
+                List<TrackedPosition> positions = snapshot.positions().values().stream()
                         .map(this::convertApiPositionToTrackedPosition)
                         .filter(java.util.Objects::nonNull) // Отфильтровываем пустые результаты
                         .collect(Collectors.toList());
+                shownPositionsVersion = snapshot.version();
 
                 Platform.runLater(() -> {
                     openPositions.setAll(positions);
@@ -462,19 +667,13 @@ public class MainController {
         });
     }
 
-    private TrackedPosition convertApiPositionToTrackedPosition(Position apiPosition) {
+    private TrackedPosition convertApiPositionToTrackedPosition(PositionState apiPosition) {
         try {
-            logger.debug("🔍 Конвертация API Position для FIGI: {}", apiPosition.getFigi());
-            // Получаем тикер из информации об инструменте
-            var instrument = apiConnector.getInstrumentByFigiSync(apiPosition.getFigi());
-
-            String figi = apiPosition.getFigi();
-            String ticker = instrument.getName(); // Используем полное имя инструмента
-            String instrumentType = convertInstrumentType(apiPosition.getInstrumentType()); // Преобразуем тип инструмента
-            long quantity = apiPosition.getQuantityLots().longValue();
-            BigDecimal averagePrice = TinkoffApiConnector.moneyToBigDecimal(apiPosition.getAveragePositionPrice());
-            BigDecimal currentPrice = TinkoffApiConnector.moneyToBigDecimal(apiPosition.getCurrentPrice());
-            String currency = apiPosition.getAveragePositionPrice().getCurrency().toUpperCase();
+            logger.debug("🔍 Конвертация позиции для FIGI: {}", apiPosition.figi());
+            String figi = apiPosition.figi();
+            // Имя инструмента запрашивается один раз на FIGI
+            String ticker = instrumentNames.computeIfAbsent(figi, id -> apiConnector.getInstrumentByFigiSync(id).getName());
+            String instrumentType = convertInstrumentType(apiPosition.instrumentType()); // Преобразуем тип инструмента
 
             // Получаем Stop Loss и Take Profit из SignalTracker
             SignalTracker.TrackedSignal trackedSignal = signalTracker.getTrackedSignal(figi);
@@ -482,7 +681,8 @@ public class MainController {
             BigDecimal takeProfit = (trackedSignal != null) ? trackedSignal.getTakeProfitPrice() : BigDecimal.ZERO;
 
             logger.debug("  FIGI: {}, Ticker: {}, Type: {}, Quantity: {}, AvgPrice: {}, CurrPrice: {}, Currency: {}, SL: {}, TP: {}",
-                    figi, ticker, instrumentType, quantity, averagePrice, currentPrice, currency, stopLoss, takeProfit);
+                    figi, ticker, instrumentType, apiPosition.quantityLots(), apiPosition.averagePrice(),
+                    apiPosition.currentPrice(), apiPosition.currency(), stopLoss, takeProfit);
 
             return new TrackedPosition(
                     apiPosition,
@@ -492,7 +692,7 @@ public class MainController {
                     instrumentType // Передаем тип инструмента
             );
         } catch (Exception e) {
-            logger.error("Не удалось получить информацию для FIGI: {}", apiPosition.getFigi(), e);
+            logger.error("Не удалось получить информацию для FIGI: {}", apiPosition.figi(), e);
             return null; // Возвращаем null, если не удалось обработать позицию
         }
     }
@@ -508,12 +708,9 @@ public class MainController {
 
                 apiConnector.closeMarketPosition(position.getFigi(), quantityToClose, directionToClose);
 
-                Platform.runLater(() -> {
-                    log(String.format("✅ Ордер на закрытие позиции %s (%d лотов) отправлен.", position.getTicker(), quantityToClose));
-                    fetchPortfolio(); // <<-- ДОБАВЛЕНО: Обновляем баланс после закрытия позиции
-                    // Немедленно запускаем обновление, чтобы увидеть результат
-                    updatePositions();
-                });
+                // Баланс и позиции обновятся из стримов счета; сверка — если стримы недоступны
+                portfolioState.requestReconcile();
+                Platform.runLater(() -> log(String.format("✅ Ордер на закрытие позиции %s (%d лотов) отправлен.", position.getTicker(), quantityToClose)));
             } catch (Exception e) {
                 handleCriticalError("Ошибка закрытия позиции " + position.getTicker(), e);
             }
@@ -591,7 +788,7 @@ public class MainController {
         });
     }
 
-    // Остальные методы (handleDeposit, fetchPortfolio, и т.д.) остаются почти без изменений,
+    // Остальные методы (handleDeposit, showBalance, и т.д.) остаются почти без изменений,
     // так как они управляют общими вещами (счет, баланс).
 
     @FXML
@@ -611,7 +808,7 @@ public class MainController {
                 try {
                     apiConnector.payInSandbox(amount);
                     log("✅ Счет успешно пополнен!");
-                    fetchPortfolio();
+                    portfolioState.requestReconcile(); // Пополнение не отражается в стриме позиций по бумагам
                 } catch (Exception e) {
                     handleCriticalError("Ошибка пополнения", e);
                 } finally {
@@ -623,27 +820,11 @@ public class MainController {
         }
     }
 
-    private void fetchPortfolio() {
-        if (apiConnector == null) return;
-        apiMonitor.recordPortfolio();
-        try {
-            Portfolio portfolioResponse = apiConnector.getPortfolio().join();
-            Platform.runLater(() -> {
-                BigDecimal totalValue = calculatePortfolioTotalValue(portfolioResponse);
-                balanceLabel.setText(String.format("%,.2f RUB", totalValue));
-                log("💰 Баланс обновлен: " + balanceLabel.getText());
-            });
-        } catch (Exception e) {
-            handleCriticalError("Ошибка получения портфеля", e);
-        }
-    }
-
-    private BigDecimal calculatePortfolioTotalValue(Portfolio portfolio) {
-        if (portfolio == null) return BigDecimal.ZERO;
-        BigDecimal positionsValue = portfolio.getPositions().stream()
-                .map(p -> p.getQuantity().multiply(p.getCurrentPrice().getValue()))
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-        return positionsValue.add(portfolio.getTotalAmountCurrencies().getValue());
+    private void showBalance() {
+        EquitySnapshot equity = markToMarket.current();
+        if (equity == null) return;
+        balanceLabel.setText(String.format("%,.2f RUB", equity.equity()));
+        logger.debug("💰 Баланс обновлен: {}", balanceLabel.getText());
     }
 
     private Duration getDurationFromInterval() {
@@ -661,6 +842,7 @@ public class MainController {
     }
 
     private void handleConnectionFailure() {
+        stopPortfolioState();
         Platform.runLater(() -> {
             log("❌ Не удалось подключиться. Проверьте токен и интернет.");
             connectButton.setDisable(false);
@@ -0,0 +1,46 @@
+package com.tradingbot.tinkoff.execution;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+
+/**
+ * Снимок счета для проверки одного сигнала.
+ *
+ * @param totalValue       стоимость портфеля в рублях (позиции и денежные остатки)
+ * @param availableBalance доступные деньги в валюте инструмента
+ * @param positionQuantity позиция по инструменту в штуках (со знаком), 0 если позиции нет
+ * @param positionLots     позиция по инструменту в лотах (со знаком)
+ * @param fxRate           курс валюты инструмента к рублю (1 для рублевых инструментов)
+ */
+public record AccountSnapshot(BigDecimal totalValue,
+                              BigDecimal availableBalance,
+                              BigDecimal positionQuantity,
+                              BigDecimal positionLots,
+                              BigDecimal fxRate) {
+
+    /**
+     * Счет в рублях (бэктест, прогрев, рублевые инструменты).
+     */
+    public AccountSnapshot(BigDecimal totalValue, BigDecimal availableBalance,
+                           BigDecimal positionQuantity, BigDecimal positionLots) {
+        this(totalValue, availableBalance, positionQuantity, positionLots, BigDecimal.ONE);
+    }
+
+    public boolean hasPosition() {
+        return positionQuantity.signum() != 0;
+    }
+
+    /**
+     * Сумма в рублях, пересчитанная в валюту инструмента.
+     */
+    public BigDecimal toInstrumentCurrency(BigDecimal rubles) {
+        return fxRate.compareTo(BigDecimal.ONE) == 0 ? rubles : rubles.divide(fxRate, MathContext.DECIMAL64);
+    }
+
+    /**
+     * Сумма в валюте инструмента, пересчитанная в рубли.
+     */
+    public BigDecimal toRubles(BigDecimal amount) {
+        return fxRate.compareTo(BigDecimal.ONE) == 0 ? amount : amount.multiply(fxRate);
+    }
+}
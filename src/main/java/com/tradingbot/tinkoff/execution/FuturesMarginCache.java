@@ -0,0 +1,247 @@
+package com.tradingbot.tinkoff.execution;
+
+import com.tradingbot.tinkoff.api.TinkoffApiConnector;
+import com.tradingbot.tinkoff.model.TradableInstrument;
+import com.tradingbot.tinkoff.model.TradingSignal;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ru.tinkoff.piapi.contract.v1.GetFuturesMarginResponse;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Гарантийное обеспечение фьючерсов на лот по FIGI и направлению сделки.
+ *
+ * ГО меняется биржей на клиринге (и изредка внутри сессии), поэтому проверка сигнала читает его
+ * из памяти без сетевого вызова. Фьючерсы универсума загружаются заранее очередью с паузой между
+ * запросами (лимит сервиса инструментов), после каждого клиринга срочного рынка и после отказа
+ * по приказу фьючерса ({@link TinkoffOrderGateway}) перечитываются в фоне; до прихода нового
+ * значения используется прежнее.
+ * Синхронный запрос остается только на промах по фьючерсу, который еще не загружен.
+ */
+public class FuturesMarginCache {
+    private static final Logger logger = LoggerFactory.getLogger(FuturesMarginCache.class);
+    private static final ZoneId EXCHANGE_ZONE = ZoneId.of("Europe/Moscow");
+    // Окончания дневного и вечернего клиринга срочного рынка Мосбиржи
+    private static final List<LocalTime> CLEARING_ENDS = List.of(LocalTime.of(14, 5), LocalTime.of(19, 5));
+    // Запас после клиринга, пока брокер публикует новое ГО
+    private static final Duration CLEARING_SETTLE = Duration.ofMinutes(1);
+    // Не больше 120 запросов ГО в минуту
+    private static final long REQUEST_INTERVAL_MS = 500;
+
+    /**
+     * ГО на один лот по направлениям: один ответ API содержит обе стороны.
+     */
+    record Margin(BigDecimal onBuy, BigDecimal onSell) {
+        BigDecimal forSide(TradingSignal.SignalType side) {
+            return switch (side) {
+                case BUY -> onBuy;
+                case SELL -> onSell;
+                default -> BigDecimal.ZERO;
+            };
+        }
+    }
+
+    private final TinkoffApiConnector apiConnector;
+    private final Runnable onRequest;
+    private final Map<String, Margin> margins = new ConcurrentHashMap<>();
+    private final Set<String> universe = ConcurrentHashMap.newKeySet();
+    // Очередь загрузки без повторов; защищена блокировкой очереди
+    private final Deque<String> queue = new ArrayDeque<>();
+    private final Set<String> queued = new HashSet<>();
+
+    private volatile ScheduledExecutorService scheduler;
+
+    /**
+     * @param onRequest вызывается перед каждым запросом ГО (мониторинг лимитов API)
+     */
+    public FuturesMarginCache(TinkoffApiConnector apiConnector, Runnable onRequest) {
+        this.apiConnector = apiConnector;
+        this.onRequest = onRequest;
+    }
+
+    /**
+     * Фоновая загрузка очереди и перечитывание после клиринга.
+     */
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "Futures-Margin");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(this::loadNext, 0, REQUEST_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        scheduleClearingRefresh();
+    }
+
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * Фьючерсы универсума: незагруженные ставятся в конец очереди.
+     */
+    public void preload(Collection<TradableInstrument> instruments) {
+        int added = 0;
+        for (TradableInstrument instrument : instruments) {
+            if (instrument.type() == TradableInstrument.InstrumentType.FUTURE) {
+                universe.add(instrument.identifier());
+                if (!margins.containsKey(instrument.identifier()) && enqueue(instrument.identifier(), false)) {
+                    added++;
+                }
+            }
+        }
+        if (added > 0) {
+            logger.info("⏳ Загрузка ГО {} фьючерсов в фоне", added);
+        }
+    }
+
+    /**
+     * Инструмент запущенного процессора: если ГО еще нет, загружается первым.
+     */
+    public void prioritize(TradableInstrument instrument) {
+        if (instrument.type() == TradableInstrument.InstrumentType.FUTURE) {
+            universe.add(instrument.identifier());
+            if (!margins.containsKey(instrument.identifier())) {
+                enqueue(instrument.identifier(), true);
+            }
+        }
+    }
+
+    /**
+     * Возможное изменение ГО фьючерса (отказ по приказу): перечитывается первым, до этого действует прежнее значение.
+     */
+    public void refresh(String figi) {
+        universe.add(figi);
+        enqueue(figi, true);
+    }
+
+    /**
+     * Перечитывание ГО всех фьючерсов универсума (после клиринга).
+     */
+    public void refreshAll() {
+        int added = 0;
+        for (String figi : universe) {
+            if (enqueue(figi, false)) {
+                added++;
+            }
+        }
+        logger.info("🔄 Обновление ГО {} фьючерсов после клиринга", added);
+    }
+
+    /**
+     * ГО на лот для направления сделки. Из памяти; синхронный запрос только для еще не загруженного фьючерса.
+     */
+    public BigDecimal initialMargin(TradableInstrument instrument, TradingSignal.SignalType side) {
+        if (side == TradingSignal.SignalType.HOLD) {
+            return BigDecimal.ZERO;
+        }
+        Margin margin = margins.get(instrument.identifier());
+        if (margin == null) {
+            logger.debug("[{}] ГО не загружено, синхронный запрос", instrument.name());
+            universe.add(instrument.identifier());
+            margin = load(instrument.identifier());
+            dequeue(instrument.identifier()); // Загружено, повторять из очереди предзагрузки не нужно
+        }
+        return margin.forSide(side);
+    }
+
+    private boolean enqueue(String figi, boolean first) {
+        synchronized (queue) {
+            if (queued.contains(figi)) {
+                if (first) {
+                    queue.remove(figi);
+                    queue.addFirst(figi);
+                }
+                return false;
+            }
+            queued.add(figi);
+            if (first) {
+                queue.addFirst(figi);
+            } else {
+                queue.addLast(figi);
+            }
+            return true;
+        }
+    }
+
+    private void dequeue(String figi) {
+        synchronized (queue) {
+            if (queued.remove(figi)) {
+                queue.remove(figi);
+            }
+        }
+    }
+
+    // Один запрос за запуск: пауза планировщика выдерживает лимит API
+    private void loadNext() {
+        String figi;
+        synchronized (queue) {
+            figi = queue.pollFirst();
+            if (figi != null) {
+                queued.remove(figi);
+            }
+        }
+        if (figi == null) {
+            return;
+        }
+        try {
+            load(figi);
+        } catch (Exception e) {
+            // Прежнее значение остается; без него следующий сигнал запросит ГО сам
+            logger.warn("⚠️ Не удалось загрузить ГО {}: {}", figi, e.getMessage());
+        }
+    }
+
+    private Margin load(String figi) {
+        onRequest.run();
+        GetFuturesMarginResponse response = apiConnector.getFuturesMarginResponse(figi).join();
+        Margin margin = new Margin(TinkoffApiConnector.moneyValueToBigDecimal(response.getInitialMarginOnBuy()),
+                TinkoffApiConnector.moneyValueToBigDecimal(response.getInitialMarginOnSell()));
+        Margin previous = margins.put(figi, margin);
+        if (previous != null && (previous.onBuy().compareTo(margin.onBuy()) != 0
+                || previous.onSell().compareTo(margin.onSell()) != 0)) {
+            logger.info("📊 ГО {} изменилось: покупка {} -> {}, продажа {} -> {}", figi,
+                    previous.onBuy(), margin.onBuy(), previous.onSell(), margin.onSell());
+        }
+        return margin;
+    }
+
+    private void scheduleClearingRefresh() {
+        ScheduledExecutorService executor = scheduler;
+        if (executor == null || executor.isShutdown()) {
+            return;
+        }
+        ZonedDateTime now = ZonedDateTime.now(EXCHANGE_ZONE);
+        ZonedDateTime next = CLEARING_ENDS.stream()
+                .map(end -> now.with(end).plus(CLEARING_SETTLE))
+                .map(at -> at.isAfter(now) ? at : at.plusDays(1))
+                .min(Comparator.naturalOrder())
+                .orElseThrow();
+        executor.schedule(() -> {
+            refreshAll();
+            scheduleClearingRefresh();
+        }, Duration.between(now, next).toMillis(), TimeUnit.MILLISECONDS);
+    }
+}
@@ -0,0 +1,54 @@
+package com.tradingbot.tinkoff.execution;
+
+import com.tradingbot.tinkoff.model.TradableInstrument;
+import com.tradingbot.tinkoff.model.TradingSignal;
+
+import java.math.BigDecimal;
+
+/**
+ * Брокер с точки зрения конвейера сигналов: снимок счета и торговые приказы.
+ * Живая реализация работает через Tinkoff API ({@link TinkoffOrderGateway}),
+ * бэктест — через симулятор, поэтому проверка рисков и исполнение сигналов
+ * в обоих режимах идут одним кодом.
+ */
+public interface OrderGateway {
+
+    /**
+     * Состояние счета для проверки сигнала по инструменту.
+     *
+     * @return {@code null}, если счет еще нельзя оценить (нет снимка портфеля или курса валюты инструмента)
+     */
+    AccountSnapshot getAccount(TradableInstrument instrument);
+
+    /**
+     * Рыночный приказ.
+     *
+     * @param side BUY или SELL
+     */
+    OrderResult postMarketOrder(TradableInstrument instrument, long lots, TradingSignal.SignalType side);
+
+    /**
+     * Лимитный приказ по цене price: исполняется по цене не хуже лимита, остаток ждет в заявках.
+     *
+     * @return {@link OrderResult#filled()} - исполнен ли приказ сразу при выставлении
+     */
+    OrderResult postLimitOrder(TradableInstrument instrument, long lots, BigDecimal price, TradingSignal.SignalType side);
+
+    /**
+     * Рыночный приказ на закрытие (части) позиции.
+     */
+    OrderResult closePosition(TradableInstrument instrument, long lots, TradingSignal.SignalType side);
+
+    /**
+     * Стоп-лосс по позиции.
+     *
+     * @param side направление приказа, который исполнится при срабатывании стопа
+     * @return идентификатор стоп-приказа
+     */
+    String postStopLoss(TradableInstrument instrument, long lots, BigDecimal stopPrice, TradingSignal.SignalType side);
+
+    /**
+     * Начальная маржа на лот фьючерса для направления side; {@link BigDecimal#ZERO}, если неизвестна.
+     */
+    BigDecimal getInitialMargin(TradableInstrument instrument, TradingSignal.SignalType side);
+}
@@ -0,0 +1,30 @@
+package com.tradingbot.tinkoff.execution;
+
+/**
+ * Результат отправки приказа.
+ *
+ * @param orderId идентификатор приказа у брокера
+ * @param status  состояние приказа сразу после выставления
+ */
+public record OrderResult(String orderId, Status status) {
+
+    public enum Status {
+        // Исполнен сразу
+        FILLED,
+        // Принят, исполнение придет позже (заявка в стакане, приказ в пути, частичное исполнение)
+        PENDING,
+        // Отклонен или снят брокером: позиции не будет
+        REJECTED
+    }
+
+    public boolean filled() {
+        return status == Status.FILLED;
+    }
+
+    /**
+     * Принят ли приказ: исполнен или ждет исполнения.
+     */
+    public boolean accepted() {
+        return status != Status.REJECTED;
+    }
+}
@@ -0,0 +1,118 @@
+package com.tradingbot.tinkoff.execution;
+
+import com.tradingbot.tinkoff.api.TinkoffApiConnector;
+import com.tradingbot.tinkoff.model.TradableInstrument;
+import com.tradingbot.tinkoff.model.TradingSignal;
+import com.tradingbot.tinkoff.portfolio.MarkToMarketEngine;
+import com.tradingbot.tinkoff.portfolio.PortfolioStateService;
+import ru.tinkoff.piapi.contract.v1.OrderDirection;
+import ru.tinkoff.piapi.contract.v1.OrderExecutionReportStatus;
+import ru.tinkoff.piapi.contract.v1.PostOrderResponse;
+import ru.tinkoff.piapi.contract.v1.StopOrderDirection;
+import ru.tinkoff.piapi.contract.v1.StopOrderType;
+
+import java.math.BigDecimal;
+import java.util.function.Supplier;
+
+/**
+ * Живой брокер: приказы через {@link TinkoffApiConnector}, счет из снимка {@link PortfolioStateService}
+ * и рублевой оценки {@link MarkToMarketEngine}, ГО фьючерсов из {@link FuturesMarginCache}
+ * (без сетевого вызова на каждый сигнал).
+ */
+public class TinkoffOrderGateway implements OrderGateway {
+
+    private final TinkoffApiConnector apiConnector;
+    private final PortfolioStateService portfolioState;
+    private final MarkToMarketEngine markToMarket;
+    private final FuturesMarginCache futuresMargins;
+
+    public TinkoffOrderGateway(TinkoffApiConnector apiConnector, PortfolioStateService portfolioState,
+                               MarkToMarketEngine markToMarket, FuturesMarginCache futuresMargins) {
+        this.apiConnector = apiConnector;
+        this.portfolioState = portfolioState;
+        this.markToMarket = markToMarket;
+        this.futuresMargins = futuresMargins;
+    }
+
+    @Override
+    public AccountSnapshot getAccount(TradableInstrument instrument) {
+        return markToMarket.accountFor(portfolioState.awaitSnapshot(), instrument);
+    }
+
+    @Override
+    public OrderResult postMarketOrder(TradableInstrument instrument, long lots, TradingSignal.SignalType side) {
+        PostOrderResponse response = post(instrument, () -> apiConnector.postMarketOrder(instrument.identifier(), lots, toOrderDirection(side)));
+        portfolioState.requestReconcile(); // На случай, если стримы счета недоступны
+        return toOrderResult(response);
+    }
+
+    @Override
+    public OrderResult postLimitOrder(TradableInstrument instrument, long lots, BigDecimal price, TradingSignal.SignalType side) {
+        PostOrderResponse response = post(instrument, () -> apiConnector.postLimitOrder(instrument.identifier(), lots,
+                TinkoffApiConnector.bigDecimalToQuotation(price), toOrderDirection(side)));
+        return toOrderResult(response);
+    }
+
+    @Override
+    public OrderResult closePosition(TradableInstrument instrument, long lots, TradingSignal.SignalType side) {
+        PostOrderResponse response = post(instrument, () -> apiConnector.closeMarketPosition(instrument.identifier(), lots, toOrderDirection(side)));
+        portfolioState.requestReconcile();
+        return toOrderResult(response);
+    }
+
+    @Override
+    public String postStopLoss(TradableInstrument instrument, long lots, BigDecimal stopPrice, TradingSignal.SignalType side) {
+        return apiConnector.postStopOrder(instrument.identifier(), lots,
+                TinkoffApiConnector.bigDecimalToQuotation(stopPrice), toStopOrderDirection(side), StopOrderType.STOP_ORDER_TYPE_STOP_LOSS);
+    }
+
+    @Override
+    public BigDecimal getInitialMargin(TradableInstrument instrument, TradingSignal.SignalType side) {
+        return futuresMargins.initialMargin(instrument, side);
+    }
+
+    /**
+     * Отказ по приказу фьючерса - возможно, ГО изменилось внутри сессии, и проверка сигнала
+     * шла по прежнему значению: ГО инструмента перечитывается первым в очереди.
+     */
+    private PostOrderResponse post(TradableInstrument instrument, Supplier<PostOrderResponse> order) {
+        PostOrderResponse response;
+        try {
+            response = order.get();
+        } catch (RuntimeException e) {
+            refreshMarginOnReject(instrument);
+            throw e;
+        }
+        if (response.getExecutionReportStatus() == OrderExecutionReportStatus.EXECUTION_REPORT_STATUS_REJECTED) {
+            refreshMarginOnReject(instrument);
+        }
+        return response;
+    }
+
+    private void refreshMarginOnReject(TradableInstrument instrument) {
+        if (instrument.type() == TradableInstrument.InstrumentType.FUTURE) {
+            futuresMargins.refresh(instrument.identifier());
+        }
+    }
+
+    static OrderDirection toOrderDirection(TradingSignal.SignalType side) {
+        return side == TradingSignal.SignalType.BUY
+                ? OrderDirection.ORDER_DIRECTION_BUY
+                : OrderDirection.ORDER_DIRECTION_SELL;
+    }
+
+    static StopOrderDirection toStopOrderDirection(TradingSignal.SignalType side) {
+        return side == TradingSignal.SignalType.BUY
+                ? StopOrderDirection.STOP_ORDER_DIRECTION_BUY
+                : StopOrderDirection.STOP_ORDER_DIRECTION_SELL;
+    }
+
+    static OrderResult toOrderResult(PostOrderResponse response) {
+        OrderResult.Status status = switch (response.getExecutionReportStatus()) {
+            case EXECUTION_REPORT_STATUS_FILL -> OrderResult.Status.FILLED;
+            case EXECUTION_REPORT_STATUS_REJECTED, EXECUTION_REPORT_STATUS_CANCELLED -> OrderResult.Status.REJECTED;
+            default -> OrderResult.Status.PENDING;
+        };
+        return new OrderResult(response.getOrderId(), status);
+    }
+}
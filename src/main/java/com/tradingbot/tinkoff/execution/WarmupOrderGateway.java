@@ -0,0 +1,119 @@
+package com.tradingbot.tinkoff.execution;
+
+import com.google.protobuf.Timestamp;
+import com.tradingbot.tinkoff.api.TinkoffApiConnector;
+import com.tradingbot.tinkoff.model.TradableInstrument;
+import com.tradingbot.tinkoff.model.TradingSignal;
+import ru.tinkoff.piapi.contract.v1.OrderExecutionReportStatus;
+import ru.tinkoff.piapi.contract.v1.OrderType;
+import ru.tinkoff.piapi.contract.v1.PostOrderRequest;
+import ru.tinkoff.piapi.contract.v1.PostOrderResponse;
+import ru.tinkoff.piapi.contract.v1.PostStopOrderRequest;
+import ru.tinkoff.piapi.contract.v1.Quotation;
+import ru.tinkoff.piapi.contract.v1.StopOrderExpirationType;
+import ru.tinkoff.piapi.contract.v1.StopOrderType;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Брокер прогрева JIT: приказы собираются и сериализуются в те же protobuf-запросы,
+ * что отправляет SDK, но никуда не уходят и сразу считаются исполненными.
+ * Позиции ведутся в памяти, счет не меняется. Используется одним потоком.
+ */
+public class WarmupOrderGateway implements OrderGateway {
+    private static final String ACCOUNT_ID = "warmup";
+
+    private final BigDecimal capital;
+    private final BigDecimal initialMargin;
+    private final Map<String, Long> positionLots = new HashMap<>();
+    // Размер сериализованных запросов: результат сборки используется и не удаляется JIT как мертвый код
+    private long serializedBytes;
+
+    /**
+     * @param capital       стоимость и доступный остаток счета
+     * @param initialMargin начальная маржа на лот фьючерса
+     */
+    public WarmupOrderGateway(BigDecimal capital, BigDecimal initialMargin) {
+        this.capital = capital;
+        this.initialMargin = initialMargin;
+    }
+
+    @Override
+    public AccountSnapshot getAccount(TradableInstrument instrument) {
+        BigDecimal lots = BigDecimal.valueOf(positionLots.getOrDefault(instrument.identifier(), 0L));
+        return new AccountSnapshot(capital, capital, lots, lots);
+    }
+
+    @Override
+    public OrderResult postMarketOrder(TradableInstrument instrument, long lots, TradingSignal.SignalType side) {
+        // Как в TinkoffApiConnector#postMarketOrder: пустая цена и идемпотентный идентификатор
+        return postOrder(instrument, lots, Quotation.newBuilder().setUnits(0).setNano(0).build(), side, OrderType.ORDER_TYPE_MARKET);
+    }
+
+    @Override
+    public OrderResult postLimitOrder(TradableInstrument instrument, long lots, BigDecimal price, TradingSignal.SignalType side) {
+        return postOrder(instrument, lots, TinkoffApiConnector.bigDecimalToQuotation(price), side, OrderType.ORDER_TYPE_LIMIT);
+    }
+
+    private OrderResult postOrder(TradableInstrument instrument, long lots, Quotation price, TradingSignal.SignalType side, OrderType type) {
+        PostOrderRequest request = PostOrderRequest.newBuilder()
+                .setInstrumentId(instrument.identifier())
+                .setQuantity(lots)
+                .setPrice(price)
+                .setDirection(TinkoffOrderGateway.toOrderDirection(side))
+                .setAccountId(ACCOUNT_ID)
+                .setOrderType(type)
+                .setOrderId(UUID.randomUUID().toString())
+                .build();
+        serializedBytes += request.toByteArray().length;
+        positionLots.merge(instrument.identifier(), side == TradingSignal.SignalType.BUY ? lots : -lots, Long::sum);
+
+        PostOrderResponse response = PostOrderResponse.newBuilder()
+                .setOrderId(request.getOrderId())
+                .setExecutionReportStatus(OrderExecutionReportStatus.EXECUTION_REPORT_STATUS_FILL)
+                .setLotsRequested(lots)
+                .setLotsExecuted(lots)
+                .setFigi(instrument.identifier())
+                .setDirection(request.getDirection())
+                .setOrderType(request.getOrderType())
+                .build();
+        return TinkoffOrderGateway.toOrderResult(response);
+    }
+
+    @Override
+    public OrderResult closePosition(TradableInstrument instrument, long lots, TradingSignal.SignalType side) {
+        return postMarketOrder(instrument, lots, side);
+    }
+
+    @Override
+    public String postStopLoss(TradableInstrument instrument, long lots, BigDecimal stopPrice, TradingSignal.SignalType side) {
+        Quotation price = TinkoffApiConnector.bigDecimalToQuotation(stopPrice);
+        Instant expireDate = Instant.now().plus(1, ChronoUnit.DAYS);
+        PostStopOrderRequest request = PostStopOrderRequest.newBuilder()
+                .setInstrumentId(instrument.identifier())
+                .setQuantity(lots)
+                .setPrice(price)
+                .setStopPrice(price)
+                .setDirection(TinkoffOrderGateway.toStopOrderDirection(side))
+                .setAccountId(ACCOUNT_ID)
+                .setExpirationType(StopOrderExpirationType.STOP_ORDER_EXPIRATION_TYPE_GOOD_TILL_DATE)
+                .setStopOrderType(StopOrderType.STOP_ORDER_TYPE_STOP_LOSS)
+                .setExpireDate(Timestamp.newBuilder()
+                        .setSeconds(expireDate.getEpochSecond())
+                        .setNanos(expireDate.getNano())
+                        .build())
+                .build();
+        serializedBytes += request.toByteArray().length;
+        return UUID.randomUUID().toString();
+    }
+
+    @Override
+    public BigDecimal getInitialMargin(TradableInstrument instrument, TradingSignal.SignalType side) {
+        return initialMargin;
+    }
+}
@@ -0,0 +1,54 @@
+package com.tradingbot.tinkoff.indicators;
+
+/**
+ * Шаги инкрементальных индикаторов в double с семантикой ta4j:
+ * EMA/MMA инициализируются первым значением, RSI и ATR сглаживаются по Уайлдеру.
+ */
+public final class Incremental {
+
+    private Incremental() {
+    }
+
+    /**
+     * EMA с множителем 2 / (period + 1), как EMAIndicator.
+     */
+    public static double ema(double prev, double value, int period, boolean first) {
+        return first ? value : prev + (value - prev) * (2.0 / (period + 1));
+    }
+
+    /**
+     * Сглаживание Уайлдера (множитель 1 / period), как MMAIndicator.
+     */
+    public static double mma(double prev, double value, int period, boolean first) {
+        return first ? value : prev + (value - prev) / period;
+    }
+
+    /**
+     * Истинный диапазон, на первом баре high - low, как TRIndicator.
+     */
+    public static double trueRange(double high, double low, double prevClose, boolean first) {
+        double range = high - low;
+        if (first) {
+            return Math.abs(range);
+        }
+        return Math.max(Math.abs(range), Math.max(Math.abs(high - prevClose), Math.abs(prevClose - low)));
+    }
+
+    public static double gain(double change) {
+        return change > 0 ? change : 0;
+    }
+
+    public static double loss(double change) {
+        return change < 0 ? -change : 0;
+    }
+
+    /**
+     * RSI по сглаженным прибылям и убыткам, как RSIIndicator.
+     */
+    public static double rsi(double avgGain, double avgLoss) {
+        if (avgLoss == 0) {
+            return avgGain == 0 ? 0 : 100;
+        }
+        return 100 - 100 / (1 + avgGain / avgLoss);
+    }
+}
@@ -0,0 +1,208 @@
+package com.tradingbot.tinkoff.indicators;
+
+/**
+ * Инкрементальные индикаторы потока ордеров по ленте сделок: кумулятивная дельта объема,
+ * дисбаланс агрессоров по барам, интенсивность сделок и крупные принты.
+ *
+ * Все окна — кольцевые примитивные массивы фиксированного размера, поэтому обработка
+ * сделки не выделяет память и выполняется за O(1). Класс не потокобезопасен:
+ * обновления и чтения выполняются под блокировкой контекста инструмента.
+ */
+public final class OrderFlowIndicators {
+    public static final int BUY = 1;
+    public static final int SELL = -1;
+
+    // Окно баров с разбивкой объема по агрессору
+    private static final int BAR_CAPACITY = 64;
+    private static final int BAR_MASK = BAR_CAPACITY - 1;
+    // Окно интенсивности: посекундные корзины
+    private static final int INTENSITY_SECONDS = 64;
+    private static final int INTENSITY_MASK = INTENSITY_SECONDS - 1;
+    // Крупный принт: объем выше среднего в LARGE_PRINT_RATIO раз и на LARGE_PRINT_SIGMA сигм
+    private static final double SIZE_ALPHA = 2.0 / (200 + 1);
+    private static final double LARGE_PRINT_RATIO = 5.0;
+    private static final double LARGE_PRINT_SIGMA = 3.0;
+    private static final int LARGE_PRINT_WARMUP = 50;
+
+    private final long[] barTime = new long[BAR_CAPACITY];
+    private final double[] buyVolume = new double[BAR_CAPACITY];
+    private final double[] sellVolume = new double[BAR_CAPACITY];
+    private final int[] tradeCount = new int[BAR_CAPACITY];
+    private final int[] largeBuyPrints = new int[BAR_CAPACITY];
+    private final int[] largeSellPrints = new int[BAR_CAPACITY];
+    private int barHead = -1;
+
+    private final long[] bucketSecond = new long[INTENSITY_SECONDS];
+    private final int[] bucketTrades = new int[INTENSITY_SECONDS];
+
+    private double cumulativeDelta;
+    private long totalTrades;
+    private double sizeMean;
+    private double sizeMeanSquare;
+    private long lastTradeMillis;
+    private long lastLargePrintMillis;
+    private int lastLargePrintSide;
+
+    /**
+     * Учитывает сделку.
+     *
+     * @param barTimeMillis время открытия бара, к которому относится сделка, или -1
+     * @param side          {@link #BUY}, {@link #SELL} или 0, если агрессор неизвестен
+     */
+    public void onTrade(long timeMillis, long barTimeMillis, double quantity, int side) {
+        if (quantity <= 0) {
+            return;
+        }
+        boolean large = isLargePrint(quantity);
+        updateSizeStatistics(quantity);
+        cumulativeDelta += side * quantity;
+        lastTradeMillis = Math.max(lastTradeMillis, timeMillis);
+
+        long second = Math.floorDiv(timeMillis, 1000L);
+        int bucket = (int) (second & INTENSITY_MASK);
+        if (bucketSecond[bucket] != second) {
+            bucketSecond[bucket] = second;
+            bucketTrades[bucket] = 0;
+        }
+        bucketTrades[bucket]++;
+
+        if (large && side != 0) {
+            lastLargePrintMillis = timeMillis;
+            lastLargePrintSide = side;
+        }
+
+        int slot = barTimeMillis < 0 ? -1 : slotFor(barTimeMillis);
+        if (slot < 0) {
+            return; // Бар уже вышел из окна
+        }
+        tradeCount[slot]++;
+        if (side == BUY) {
+            buyVolume[slot] += quantity;
+            if (large) largeBuyPrints[slot]++;
+        } else if (side == SELL) {
+            sellVolume[slot] += quantity;
+            if (large) largeSellPrints[slot]++;
+        }
+    }
+
+    public double getCumulativeDelta() {
+        return cumulativeDelta;
+    }
+
+    public long getTotalTrades() {
+        return totalTrades;
+    }
+
+    /**
+     * Дельта объема бара (покупки агрессором минус продажи).
+     */
+    public double barDelta(long barTimeMillis) {
+        int slot = find(barTimeMillis);
+        return slot < 0 ? 0 : buyVolume[slot] - sellVolume[slot];
+    }
+
+    /**
+     * Дисбаланс агрессоров бара в диапазоне [-1, 1]; 0, если сделок с известной стороной не было.
+     */
+    public double imbalance(long barTimeMillis) {
+        int slot = find(barTimeMillis);
+        if (slot < 0) {
+            return 0;
+        }
+        double total = buyVolume[slot] + sellVolume[slot];
+        return total == 0 ? 0 : (buyVolume[slot] - sellVolume[slot]) / total;
+    }
+
+    public int tradeCount(long barTimeMillis) {
+        int slot = find(barTimeMillis);
+        return slot < 0 ? 0 : tradeCount[slot];
+    }
+
+    /**
+     * Число крупных принтов стороны side в баре.
+     */
+    public int largePrints(long barTimeMillis, int side) {
+        int slot = find(barTimeMillis);
+        if (slot < 0) {
+            return 0;
+        }
+        return side == BUY ? largeBuyPrints[slot] : side == SELL ? largeSellPrints[slot] : 0;
+    }
+
+    /**
+     * Интенсивность сделок (сделок в секунду) за последние seconds секунд биржевого времени.
+     */
+    public double intensity(int seconds) {
+        int window = Math.min(Math.max(seconds, 1), INTENSITY_SECONDS);
+        long now = Math.floorDiv(lastTradeMillis, 1000L);
+        int trades = 0;
+        for (long second = now - window + 1; second <= now; second++) {
+            int bucket = (int) (second & INTENSITY_MASK);
+            if (bucketSecond[bucket] == second) {
+                trades += bucketTrades[bucket];
+            }
+        }
+        return (double) trades / window;
+    }
+
+    public long getLastLargePrintMillis() {
+        return lastLargePrintMillis;
+    }
+
+    public int getLastLargePrintSide() {
+        return lastLargePrintSide;
+    }
+
+    private boolean isLargePrint(double quantity) {
+        if (totalTrades < LARGE_PRINT_WARMUP) {
+            return false;
+        }
+        double deviation = Math.sqrt(Math.max(0, sizeMeanSquare - sizeMean * sizeMean));
+        return quantity >= sizeMean * LARGE_PRINT_RATIO && quantity >= sizeMean + LARGE_PRINT_SIGMA * deviation;
+    }
+
+    private void updateSizeStatistics(double quantity) {
+        if (totalTrades == 0) {
+            sizeMean = quantity;
+            sizeMeanSquare = quantity * quantity;
+        } else {
+            sizeMean += (quantity - sizeMean) * SIZE_ALPHA;
+            sizeMeanSquare += (quantity * quantity - sizeMeanSquare) * SIZE_ALPHA;
+        }
+        totalTrades++;
+    }
+
+    /**
+     * Слот бара для записи: новый бар занимает следующий слот кольца.
+     */
+    private int slotFor(long barTimeMillis) {
+        if (barHead >= 0 && barTimeMillis > barTime[barHead & BAR_MASK]) {
+            barHead++;
+        } else if (barHead < 0) {
+            barHead = 0;
+        } else {
+            return find(barTimeMillis);
+        }
+        int slot = barHead & BAR_MASK;
+        barTime[slot] = barTimeMillis;
+        buyVolume[slot] = 0;
+        sellVolume[slot] = 0;
+        tradeCount[slot] = 0;
+        largeBuyPrints[slot] = 0;
+        largeSellPrints[slot] = 0;
+        return slot;
+    }
+
+    private int find(long barTimeMillis) {
+        for (int i = barHead; i >= 0 && i > barHead - BAR_CAPACITY; i--) {
+            int slot = i & BAR_MASK;
+            if (barTime[slot] == barTimeMillis) {
+                return slot;
+            }
+            if (barTime[slot] < barTimeMillis) {
+                return -1;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,112 @@
+package com.tradingbot.tinkoff.indicators;
+
+/**
+ * Скользящие максимум и минимум на монотонных деках (амортизированно O(1) на бар).
+ *
+ * В деки попадают только зафиксированные значения, последнее хранится отдельно,
+ * поэтому его замена — O(1), а запрос берет максимум из фронта дека и последнего значения.
+ */
+public final class RollingExtrema implements RollingWindow {
+    private final int window;
+    private final int mask;
+    private final double[] values;
+    private final long[] maxDeque;
+    private final long[] minDeque;
+
+    private long committed; // Номер следующего зафиксированного значения
+    private long maxHead;
+    private long maxTail;
+    private long minHead;
+    private long minTail;
+    private double last;
+    private boolean hasLast;
+
+    /**
+     * @param window длина окна вместе с последним значением
+     */
+    public RollingExtrema(int window) {
+        if (window < 1) {
+            throw new IllegalArgumentException("Окно должно быть не меньше 1");
+        }
+        this.window = window;
+        int capacity = Integer.highestOneBit(window) << 1;
+        this.mask = capacity - 1;
+        this.values = new double[capacity];
+        this.maxDeque = new long[capacity];
+        this.minDeque = new long[capacity];
+    }
+
+    @Override
+    public void push(double value) {
+        if (hasLast) {
+            commit(last);
+        }
+        last = value;
+        hasLast = true;
+    }
+
+    @Override
+    public void replaceLast(double value) {
+        if (!hasLast) {
+            push(value);
+            return;
+        }
+        last = value;
+    }
+
+    @Override
+    public void clear() {
+        committed = 0;
+        maxHead = maxTail = minHead = minTail = 0;
+        hasLast = false;
+    }
+
+    @Override
+    public int size() {
+        return (int) Math.min(committed, window - 1) + (hasLast ? 1 : 0);
+    }
+
+    public double max() {
+        return Math.max(previousMax(), hasLast ? last : Double.NEGATIVE_INFINITY);
+    }
+
+    public double min() {
+        return Math.min(previousMin(), hasLast ? last : Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Максимум окна без последнего значения (window - 1 предыдущих), -∞ для пустого окна.
+     */
+    public double previousMax() {
+        return maxHead < maxTail ? values[(int) (maxDeque[(int) (maxHead & mask)] & mask)] : Double.NEGATIVE_INFINITY;
+    }
+
+    public double previousMin() {
+        return minHead < minTail ? values[(int) (minDeque[(int) (minHead & mask)] & mask)] : Double.POSITIVE_INFINITY;
+    }
+
+    private void commit(double value) {
+        if (window == 1) {
+            return;
+        }
+        long seq = committed++;
+        values[(int) (seq & mask)] = value;
+
+        while (maxTail > maxHead && values[(int) (maxDeque[(int) ((maxTail - 1) & mask)] & mask)] <= value) {
+            maxTail--;
+        }
+        maxDeque[(int) (maxTail++ & mask)] = seq;
+        while (minTail > minHead && values[(int) (minDeque[(int) ((minTail - 1) & mask)] & mask)] >= value) {
+            minTail--;
+        }
+        minDeque[(int) (minTail++ & mask)] = seq;
+
+        long oldest = committed - (window - 1);
+        while (maxDeque[(int) (maxHead & mask)] < oldest) {
+            maxHead++;
+        }
+        while (minDeque[(int) (minHead & mask)] < oldest) {
+            minHead++;
+        }
+    }
+}
@@ -0,0 +1,310 @@
+package com.tradingbot.tinkoff.indicators;
+
+/**
+ * Порядковые статистики скользящего окна: перцентильный ранг и квантили за O(log n).
+ *
+ * Зафиксированные значения хранятся в декартовом дереве (treap) на примитивных массивах
+ * с пулом узлов, последнее значение — отдельно, поэтому его замена O(1), а обновления
+ * не создают объектов.
+ */
+public final class RollingOrderStatistics implements RollingWindow {
+    private final int window;
+    private final int mask;
+    private final double[] values;
+
+    // Узлы дерева; 0 - пустая ссылка
+    private final double[] key;
+    private final int[] priority;
+    private final int[] left;
+    private final int[] right;
+    private final int[] count;
+    private final int[] freeNodes;
+    private int freeCount;
+    private int root;
+    private int seed = 0x2545F491;
+
+    // Результат split
+    private int splitLeft;
+    private int splitRight;
+
+    private long committed;
+    private double last;
+    private boolean hasLast;
+
+    /**
+     * @param window длина окна вместе с последним значением
+     */
+    public RollingOrderStatistics(int window) {
+        if (window < 1) {
+            throw new IllegalArgumentException("Окно должно быть не меньше 1");
+        }
+        this.window = window;
+        int capacity = Integer.highestOneBit(window) << 1;
+        this.mask = capacity - 1;
+        this.values = new double[capacity];
+        int nodes = window + 1;
+        this.key = new double[nodes];
+        this.priority = new int[nodes];
+        this.left = new int[nodes];
+        this.right = new int[nodes];
+        this.count = new int[nodes];
+        this.freeNodes = new int[nodes];
+        clear();
+    }
+
+    @Override
+    public void push(double value) {
+        if (hasLast) {
+            commit(last);
+        }
+        last = value;
+        hasLast = true;
+    }
+
+    @Override
+    public void replaceLast(double value) {
+        if (!hasLast) {
+            push(value);
+            return;
+        }
+        last = value;
+    }
+
+    @Override
+    public void clear() {
+        committed = 0;
+        hasLast = false;
+        root = 0;
+        freeCount = 0;
+        for (int node = key.length - 1; node >= 1; node--) {
+            freeNodes[freeCount++] = node;
+        }
+    }
+
+    @Override
+    public int size() {
+        return count(root) + (hasLast ? 1 : 0);
+    }
+
+    /**
+     * Число значений окна меньше x.
+     */
+    public int countLess(double x) {
+        int result = 0;
+        int t = root;
+        while (t != 0) {
+            if (key[t] < x) {
+                result += count(left[t]) + 1;
+                t = right[t];
+            } else {
+                t = left[t];
+            }
+        }
+        return result + (hasLast && last < x ? 1 : 0);
+    }
+
+    public int countLessOrEqual(double x) {
+        int result = 0;
+        int t = root;
+        while (t != 0) {
+            if (key[t] <= x) {
+                result += count(left[t]) + 1;
+                t = right[t];
+            } else {
+                t = left[t];
+            }
+        }
+        return result + (hasLast && last <= x ? 1 : 0);
+    }
+
+    /**
+     * Перцентильный ранг x в окне от 0 до 1 (равные значения считаются наполовину).
+     */
+    public double percentRank(double x) {
+        int n = size();
+        if (n == 0) {
+            return Double.NaN;
+        }
+        int less = countLess(x);
+        int equal = countLessOrEqual(x) - less;
+        return (less + 0.5 * equal) / n;
+    }
+
+    /**
+     * Перцентильный ранг последнего значения.
+     */
+    public double percentRankOfLast() {
+        return hasLast ? percentRank(last) : Double.NaN;
+    }
+
+    /**
+     * k-я порядковая статистика (с нуля).
+     */
+    public double select(int k) {
+        if (hasLast) {
+            int below = countLessInTree(last);
+            if (k == below) {
+                return last;
+            }
+            return selectInTree(k < below ? k : k - 1);
+        }
+        return selectInTree(k);
+    }
+
+    /**
+     * Квантиль q с линейной интерполяцией между порядковыми статистиками.
+     */
+    public double quantile(double q) {
+        int n = size();
+        if (n == 0) {
+            return Double.NaN;
+        }
+        double position = Math.max(0, Math.min(1, q)) * (n - 1);
+        int lower = (int) Math.floor(position);
+        double value = select(lower);
+        double fraction = position - lower;
+        return fraction == 0 ? value : value + (select(lower + 1) - value) * fraction;
+    }
+
+    private void commit(double value) {
+        if (window == 1) {
+            return;
+        }
+        long seq = committed++;
+        if (seq >= window - 1) {
+            root = remove(root, values[(int) ((seq - (window - 1)) & mask)]);
+        }
+        values[(int) (seq & mask)] = value;
+
+        int node = freeNodes[--freeCount];
+        key[node] = value;
+        priority[node] = nextPriority();
+        left[node] = 0;
+        right[node] = 0;
+        count[node] = 1;
+        root = insert(root, node);
+    }
+
+    private int countLessInTree(double x) {
+        int result = 0;
+        int t = root;
+        while (t != 0) {
+            if (key[t] < x) {
+                result += count(left[t]) + 1;
+                t = right[t];
+            } else {
+                t = left[t];
+            }
+        }
+        return result;
+    }
+
+    private double selectInTree(int k) {
+        int t = root;
+        while (t != 0) {
+            int leftCount = count(left[t]);
+            if (k < leftCount) {
+                t = left[t];
+            } else if (k == leftCount) {
+                return key[t];
+            } else {
+                k -= leftCount + 1;
+                t = right[t];
+            }
+        }
+        return Double.NaN;
+    }
+
+    private int insert(int t, int node) {
+        if (t == 0) {
+            return node;
+        }
+        if (priority[node] > priority[t]) {
+            split(t, key[node]);
+            left[node] = splitLeft;
+            right[node] = splitRight;
+            update(node);
+            return node;
+        }
+        if (key[node] < key[t]) {
+            left[t] = insert(left[t], node);
+        } else {
+            right[t] = insert(right[t], node);
+        }
+        update(t);
+        return t;
+    }
+
+    /**
+     * Делит дерево на ключи меньше k (splitLeft) и не меньше k (splitRight).
+     */
+    private void split(int t, double k) {
+        if (t == 0) {
+            splitLeft = 0;
+            splitRight = 0;
+            return;
+        }
+        if (key[t] < k) {
+            split(right[t], k);
+            right[t] = splitLeft;
+            update(t);
+            splitLeft = t;
+        } else {
+            split(left[t], k);
+            left[t] = splitRight;
+            update(t);
+            splitRight = t;
+        }
+    }
+
+    private int remove(int t, double k) {
+        if (t == 0) {
+            return 0;
+        }
+        if (key[t] == k) {
+            int merged = merge(left[t], right[t]);
+            freeNodes[freeCount++] = t;
+            return merged;
+        }
+        if (k < key[t]) {
+            left[t] = remove(left[t], k);
+        } else {
+            right[t] = remove(right[t], k);
+        }
+        update(t);
+        return t;
+    }
+
+    private int merge(int a, int b) {
+        if (a == 0) {
+            return b;
+        }
+        if (b == 0) {
+            return a;
+        }
+        if (priority[a] > priority[b]) {
+            right[a] = merge(right[a], b);
+            update(a);
+            return a;
+        }
+        left[b] = merge(a, left[b]);
+        update(b);
+        return b;
+    }
+
+    private void update(int t) {
+        count[t] = count(left[t]) + count(right[t]) + 1;
+    }
+
+    private int count(int t) {
+        return t == 0 ? 0 : count[t];
+    }
+
+    private int nextPriority() {
+        // xorshift32
+        seed ^= seed << 13;
+        seed ^= seed >>> 17;
+        seed ^= seed << 5;
+        return seed;
+    }
+}
@@ -0,0 +1,146 @@
+package com.tradingbot.tinkoff.indicators;
+
+/**
+ * Скользящая регрессия МНК y = alpha + beta * x по последним window парам (O(1) на бар).
+ *
+ * Суммы ведутся относительно опорной точки (сдвиг не меняет наклон и убирает потерю точности
+ * на ценах порядка 1e5), раз в window добавлений пересчитываются по окну заново,
+ * чтобы не копилась ошибка вычитаний. Последняя пара (открытый бар) может заменяться.
+ */
+public final class RollingRegression {
+    private final int window;
+    private final double[] xs;
+    private final double[] ys;
+
+    private int head; // Позиция следующей пары
+    private int size;
+    private int sinceResum;
+    private double x0;
+    private double y0;
+    private double sx;
+    private double sy;
+    private double sxx;
+    private double sxy;
+    private double syy;
+
+    public RollingRegression(int window) {
+        if (window < 2) {
+            throw new IllegalArgumentException("Окно регрессии должно быть не меньше 2");
+        }
+        this.window = window;
+        this.xs = new double[window];
+        this.ys = new double[window];
+    }
+
+    /**
+     * Новая пара: самая старая уходит из окна.
+     */
+    public void push(double x, double y) {
+        if (size == 0) {
+            x0 = x;
+            y0 = y;
+        }
+        if (size == window) {
+            remove(xs[head], ys[head]);
+        } else {
+            size++;
+        }
+        xs[head] = x;
+        ys[head] = y;
+        head = (head + 1) % window;
+        add(x, y);
+        if (++sinceResum >= window) {
+            resum();
+        }
+    }
+
+    /**
+     * Заменяет последнюю пару (обновление открытого бара).
+     */
+    public void replaceLast(double x, double y) {
+        if (size == 0) {
+            push(x, y);
+            return;
+        }
+        int last = (head - 1 + window) % window;
+        remove(xs[last], ys[last]);
+        xs[last] = x;
+        ys[last] = y;
+        add(x, y);
+    }
+
+    public void clear() {
+        head = 0;
+        size = 0;
+        sinceResum = 0;
+        sx = sy = sxx = sxy = syy = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isFull() {
+        return size == window;
+    }
+
+    /**
+     * Наклон (hedge ratio); 0, пока x не меняется.
+     */
+    public double beta() {
+        double varX = size * sxx - sx * sx;
+        return varX > 0 ? (size * sxy - sx * sy) / varX : 0;
+    }
+
+    public double alpha() {
+        if (size == 0) {
+            return 0;
+        }
+        // Сдвинутые средние возвращаются к исходным координатам
+        double meanX = sx / size + x0;
+        double meanY = sy / size + y0;
+        return meanY - beta() * meanX;
+    }
+
+    /**
+     * Коэффициент корреляции Пирсона; 0, если одна из серий постоянна.
+     */
+    public double correlation() {
+        double varX = size * sxx - sx * sx;
+        double varY = size * syy - sy * sy;
+        return varX > 0 && varY > 0 ? (size * sxy - sx * sy) / Math.sqrt(varX * varY) : 0;
+    }
+
+    private void add(double x, double y) {
+        double dx = x - x0;
+        double dy = y - y0;
+        sx += dx;
+        sy += dy;
+        sxx += dx * dx;
+        sxy += dx * dy;
+        syy += dy * dy;
+    }
+
+    private void remove(double x, double y) {
+        double dx = x - x0;
+        double dy = y - y0;
+        sx -= dx;
+        sy -= dy;
+        sxx -= dx * dx;
+        sxy -= dx * dy;
+        syy -= dy * dy;
+    }
+
+    private void resum() {
+        sinceResum = 0;
+        int last = (head - 1 + window) % window;
+        x0 = xs[last];
+        y0 = ys[last];
+        sx = sy = sxx = sxy = syy = 0;
+        int first = (head - size + window) % window;
+        for (int i = 0; i < size; i++) {
+            int index = (first + i) % window;
+            add(xs[index], ys[index]);
+        }
+    }
+}
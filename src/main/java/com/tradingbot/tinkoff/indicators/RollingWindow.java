@@ -0,0 +1,24 @@
+package com.tradingbot.tinkoff.indicators;
+
+/**
+ * Скользящее окно примитивных значений, последнее из которых (открытый бар) может заменяться.
+ */
+public interface RollingWindow {
+
+    /**
+     * Новое значение: предыдущее последнее фиксируется, самое старое уходит из окна.
+     */
+    void push(double value);
+
+    /**
+     * Заменяет последнее значение (обновление открытого бара).
+     */
+    void replaceLast(double value);
+
+    void clear();
+
+    /**
+     * Число значений в окне, включая последнее.
+     */
+    int size();
+}
@@ -0,0 +1,118 @@
+package com.tradingbot.tinkoff.indicators;
+
+/**
+ * Скользящие среднее и генеральное стандартное отклонение для z-оценки (O(1) на бар).
+ * Суммы ведутся относительно опорного значения и раз в window добавлений пересчитываются по окну.
+ */
+public final class RollingZScore implements RollingWindow {
+    private final int window;
+    private final double[] values;
+
+    private int head;
+    private int size;
+    private int sinceResum;
+    private double anchor;
+    private double sum;
+    private double sumSq;
+
+    public RollingZScore(int window) {
+        if (window < 2) {
+            throw new IllegalArgumentException("Окно z-оценки должно быть не меньше 2");
+        }
+        this.window = window;
+        this.values = new double[window];
+    }
+
+    @Override
+    public void push(double value) {
+        if (size == 0) {
+            anchor = value;
+        }
+        if (size == window) {
+            remove(values[head]);
+        } else {
+            size++;
+        }
+        values[head] = value;
+        head = (head + 1) % window;
+        add(value);
+        if (++sinceResum >= window) {
+            resum();
+        }
+    }
+
+    @Override
+    public void replaceLast(double value) {
+        if (size == 0) {
+            push(value);
+            return;
+        }
+        int last = (head - 1 + window) % window;
+        remove(values[last]);
+        values[last] = value;
+        add(value);
+    }
+
+    @Override
+    public void clear() {
+        head = 0;
+        size = 0;
+        sinceResum = 0;
+        sum = sumSq = 0;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    public boolean isFull() {
+        return size == window;
+    }
+
+    public double mean() {
+        return size == 0 ? 0 : anchor + sum / size;
+    }
+
+    public double stdDev() {
+        if (size == 0) {
+            return 0;
+        }
+        double mean = sum / size;
+        return Math.sqrt(Math.max(0, sumSq / size - mean * mean));
+    }
+
+    /**
+     * Z-оценка последнего значения окна; 0 при нулевом разбросе.
+     */
+    public double zScore() {
+        return size == 0 ? 0 : zScore(values[(head - 1 + window) % window]);
+    }
+
+    public double zScore(double value) {
+        double std = stdDev();
+        return std > 0 ? (value - mean()) / std : 0;
+    }
+
+    private void add(double value) {
+        double d = value - anchor;
+        sum += d;
+        sumSq += d * d;
+    }
+
+    private void remove(double value) {
+        double d = value - anchor;
+        sum -= d;
+        sumSq -= d * d;
+    }
+
+    private void resum() {
+        sinceResum = 0;
+        anchor = mean();
+        sum = sumSq = 0;
+        int first = (head - size + window) % window;
+        for (int i = 0; i < size; i++) {
+            add(values[(first + i) % window]);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.tradingbot.tinkoff.indicators;
+
+import java.util.Arrays;
+
+/**
+ * Инкрементальный профиль объема: гистограмма объема по ценовым уровням в примитивном массиве.
+ * Ширина уровня кратна шагу цены инструмента, поэтому POC, VAH и VAL лежат на ценовой сетке.
+ *
+ * Добавление и удаление бара — O(1); POC и зона стоимости считаются за O(уровней)
+ * и кэшируются до следующего изменения. Если цена не помещается в сетку,
+ * {@link #add} возвращает false и владелец перестраивает профиль через {@link #reset}.
+ */
+public final class VolumeProfile {
+    public static final double VALUE_AREA_SHARE = 0.70;
+
+    private final double[] volume;
+    private final double tickSize;
+
+    private int ticksPerLevel = 1;
+    private long origin; // Абсолютный номер уровня для volume[0]
+    private double totalVolume;
+
+    private boolean dirty = true;
+    private int pocLevel;
+    private int valueAreaHighLevel;
+    private int valueAreaLowLevel;
+
+    public VolumeProfile(int levels, double tickSize) {
+        if (levels <= 0 || tickSize <= 0) {
+            throw new IllegalArgumentException("Число уровней и шаг цены должны быть положительными");
+        }
+        this.volume = new double[levels];
+        this.tickSize = tickSize;
+    }
+
+    /**
+     * Очищает профиль и подбирает сетку под диапазон цен [low, high] так,
+     * чтобы диапазон занимал не больше половины уровней (запас на движение цены).
+     */
+    public void reset(double low, double high) {
+        long lowTicks = Math.round(low / tickSize);
+        long highTicks = Math.round(high / tickSize);
+        long span = Math.max(1, highTicks - lowTicks + 1);
+        int half = Math.max(1, volume.length / 2);
+        ticksPerLevel = 1;
+        while (span > (long) ticksPerLevel * half) {
+            ticksPerLevel *= 2;
+        }
+        long center = Math.floorDiv(lowTicks + highTicks, 2L * ticksPerLevel);
+        origin = center - volume.length / 2;
+        Arrays.fill(volume, 0);
+        totalVolume = 0;
+        dirty = true;
+    }
+
+    /**
+     * @return false, если цена вне сетки (объем не учтен)
+     */
+    public boolean add(double price, double quantity) {
+        int index = index(price);
+        if (index < 0) {
+            return false;
+        }
+        volume[index] += quantity;
+        totalVolume += quantity;
+        dirty = true;
+        return true;
+    }
+
+    public void remove(double price, double quantity) {
+        int index = index(price);
+        if (index < 0) {
+            return;
+        }
+        volume[index] -= quantity;
+        totalVolume -= quantity;
+        dirty = true;
+    }
+
+    public boolean isEmpty() {
+        return totalVolume <= 0;
+    }
+
+    public double getTotalVolume() {
+        return totalVolume;
+    }
+
+    public double getLevelWidth() {
+        return tickSize * ticksPerLevel;
+    }
+
+    /**
+     * Point of control — цена уровня с максимальным объемом.
+     */
+    public double pointOfControl() {
+        compute();
+        return levelPrice(pocLevel);
+    }
+
+    /**
+     * Верхняя граница зоны стоимости ({@value #VALUE_AREA_SHARE} объема вокруг POC).
+     */
+    public double valueAreaHigh() {
+        compute();
+        return levelPrice(valueAreaHighLevel);
+    }
+
+    public double valueAreaLow() {
+        compute();
+        return levelPrice(valueAreaLowLevel);
+    }
+
+    private int index(double price) {
+        long level = Math.floorDiv(Math.round(price / tickSize), (long) ticksPerLevel);
+        long index = level - origin;
+        return index < 0 || index >= volume.length ? -1 : (int) index;
+    }
+
+    private double levelPrice(int index) {
+        return (origin + index) * ticksPerLevel * tickSize;
+    }
+
+    /**
+     * POC и зона стоимости: от POC расширяемся в сторону большего соседнего объема.
+     */
+    private void compute() {
+        if (!dirty) {
+            return;
+        }
+        int poc = 0;
+        for (int i = 1; i < volume.length; i++) {
+            if (volume[i] > volume[poc]) {
+                poc = i;
+            }
+        }
+        int low = poc;
+        int high = poc;
+        double accumulated = volume[poc];
+        double target = totalVolume * VALUE_AREA_SHARE;
+        while (accumulated < target) {
+            double up = high + 1 < volume.length ? volume[high + 1] : -1;
+            double down = low > 0 ? volume[low - 1] : -1;
+            if (up < 0 && down < 0) {
+                break;
+            }
+            if (up >= down) {
+                accumulated += volume[++high];
+            } else {
+                accumulated += volume[--low];
+            }
+        }
+        pocLevel = poc;
+        valueAreaHighLevel = high;
+        valueAreaLowLevel = low;
+        dirty = false;
+    }
+}
@@ -0,0 +1,95 @@
+package com.tradingbot.tinkoff.indicators.batch;
+
+import org.ta4j.core.Bar;
+import org.ta4j.core.BarSeries;
+
+import java.util.List;
+
+/**
+ * Колонки OHLCV в примитивных массивах в раскладке {@link BatchKernels}:
+ * значение серии {@code s} на баре {@code t} лежит в элементе {@code t * width + s}.
+ */
+public final class BarColumns {
+    public final int width;
+    public final int bars;
+    // Время открытия бара, мс эпохи
+    public final long[] time;
+    public final double[] open;
+    public final double[] high;
+    public final double[] low;
+    public final double[] close;
+    public final double[] volume;
+
+    public BarColumns(int width, int bars) {
+        this.width = width;
+        this.bars = bars;
+        int length = width * bars;
+        this.time = new long[length];
+        this.open = new double[length];
+        this.high = new double[length];
+        this.low = new double[length];
+        this.close = new double[length];
+        this.volume = new double[length];
+    }
+
+    /**
+     * Колонки одного инструмента (width = 1).
+     */
+    public static BarColumns of(BarSeries series) {
+        int begin = series.getBeginIndex();
+        int bars = series.isEmpty() ? 0 : series.getEndIndex() - begin + 1;
+        BarColumns columns = new BarColumns(1, bars);
+        for (int t = 0; t < bars; t++) {
+            columns.set(t, 0, series.getBar(begin + t));
+        }
+        return columns;
+    }
+
+    /**
+     * Чередует несколько серий по последним общим барам: серии выравниваются по хвосту,
+     * длина равна длине самой короткой из них.
+     */
+    public static BarColumns interleave(List<BarSeries> seriesList) {
+        int width = seriesList.size();
+        int bars = Integer.MAX_VALUE;
+        for (BarSeries series : seriesList) {
+            bars = Math.min(bars, series.getBarCount());
+        }
+        if (width == 0) {
+            return new BarColumns(1, 0);
+        }
+        BarColumns columns = new BarColumns(width, bars);
+        for (int s = 0; s < width; s++) {
+            BarSeries series = seriesList.get(s);
+            int first = series.getEndIndex() - bars + 1;
+            for (int t = 0; t < bars; t++) {
+                columns.set(t, s, series.getBar(first + t));
+            }
+        }
+        return columns;
+    }
+
+    public double[] newColumn() {
+        return new double[width * bars];
+    }
+
+    public void set(int t, int s, long timeMillis, double open, double high, double low, double close, double volume) {
+        int i = t * width + s;
+        this.time[i] = timeMillis;
+        this.open[i] = open;
+        this.high[i] = high;
+        this.low[i] = low;
+        this.close[i] = close;
+        this.volume[i] = volume;
+    }
+
+    private void set(int t, int s, Bar bar) {
+        int i = t * width + s;
+        time[i] = bar.getBeginTime().toEpochMilli();
+        open[i] = bar.getOpenPrice().doubleValue();
+        high[i] = bar.getHighPrice().doubleValue();
+        low[i] = bar.getLowPrice().doubleValue();
+        close[i] = bar.getClosePrice().doubleValue();
+        volume[i] = bar.getVolume().doubleValue();
+    }
+}
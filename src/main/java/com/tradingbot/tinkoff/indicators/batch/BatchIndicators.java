@@ -0,0 +1,58 @@
+package com.tradingbot.tinkoff.indicators.batch;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Точка выбора реализации пакетных индикаторов.
+ *
+ * Векторная реализация подключается, только если JVM запущена с
+ * {@code --add-modules jdk.incubator.vector}; иначе используется скалярная.
+ * Принудительно отключить векторный путь можно свойством
+ * {@code -Dtradingbot.vector.enabled=false}.
+ */
+public final class BatchIndicators {
+    private static final Logger logger = LoggerFactory.getLogger(BatchIndicators.class);
+
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+    private static final String VECTOR_IMPLEMENTATION = "com.tradingbot.tinkoff.indicators.batch.VectorBatchKernels";
+
+    private static volatile BatchKernels kernels;
+
+    private BatchIndicators() {
+    }
+
+    public static BatchKernels kernels() {
+        BatchKernels result = kernels;
+        if (result == null) {
+            synchronized (BatchIndicators.class) {
+                result = kernels;
+                if (result == null) {
+                    result = select();
+                    kernels = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    public static BatchKernels scalar() {
+        return new ScalarBatchKernels();
+    }
+
+    private static BatchKernels select() {
+        boolean enabled = Boolean.parseBoolean(System.getProperty("tradingbot.vector.enabled", "true"));
+        if (enabled && ModuleLayer.boot().findModule(VECTOR_MODULE).isPresent()) {
+            try {
+                BatchKernels vector = (BatchKernels) Class.forName(VECTOR_IMPLEMENTATION)
+                        .getDeclaredConstructor().newInstance();
+                logger.info("⚡ Пакетные индикаторы: {}", vector.name());
+                return vector;
+            } catch (ReflectiveOperationException | LinkageError e) {
+                logger.warn("Векторная реализация индикаторов недоступна: {}", e.toString());
+            }
+        }
+        logger.info("Пакетные индикаторы: скалярная реализация (нет модуля {} или он отключен)", VECTOR_MODULE);
+        return new ScalarBatchKernels();
+    }
+}
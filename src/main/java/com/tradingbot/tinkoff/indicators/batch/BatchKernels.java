@@ -0,0 +1,70 @@
+package com.tradingbot.tinkoff.indicators.batch;
+
+/**
+ * Пакетный расчет индикаторов по примитивным колонкам.
+ *
+ * Колонки могут содержать несколько инструментов (или вариантов параметров) сразу:
+ * значение серии {@code s} на баре {@code t} лежит в элементе {@code t * width + s}.
+ * Для одного инструмента {@code width = 1}.
+ *
+ * Все реализации обязаны давать побитово одинаковый результат (проверяется
+ * {@code BatchKernelsParityTest} на ширинах, не кратных числу линий вектора): формулы
+ * и порядок операций зафиксированы в {@link ScalarBatchKernels} (скользящие суммы без FMA,
+ * StdDev — двухпроходный расчет окна). Первые {@code period - 1} баров считаются
+ * по неполному окну, как в ta4j.
+ *
+ * Потребитель — перебор параметров ({@code ParameterOptimizer} через {@link IndicatorMemo}),
+ * где одна колонка делится между вариантами. Прогрев, живая торговля и одиночный бэктест
+ * идут по барам и считают индикаторы инкрементально в {@code InstrumentContext}.
+ */
+public interface BatchKernels {
+
+    /**
+     * Истинный диапазон: max(high - low, |high - prevClose|, |low - prevClose|), на первом баре high - low.
+     */
+    void trueRange(double[] high, double[] low, double[] close, int width, int bars, double[] out);
+
+    /**
+     * Простая скользящая средняя.
+     */
+    void sma(double[] x, int width, int bars, int period, double[] out);
+
+    /**
+     * Стандартное отклонение (генеральное) двумя проходами по окну: среднее, затем сумма квадратов
+     * отклонений - как {@code InstrumentContext#stdDev}. Скользящая разность сумм x и x² теряет
+     * точность на ценах с малым разбросом, поэтому окно суммируется целиком.
+     */
+    void stdDev(double[] x, int width, int bars, int period, double[] out);
+
+    /**
+     * VWAP по типичной цене (high + low + close) / 3; при нулевом объеме окна — типичная цена.
+     */
+    void vwap(double[] high, double[] low, double[] close, double[] volume, int width, int bars, int period, double[] out);
+
+    /**
+     * Скользящий максимум (точный, алгоритм van Herk/Gil-Werman).
+     */
+    void rollingMax(double[] x, int width, int bars, int period, double[] out);
+
+    /**
+     * Скользящий минимум (точный, алгоритм van Herk/Gil-Werman).
+     */
+    void rollingMin(double[] x, int width, int bars, int period, double[] out);
+
+    /**
+     * Название реализации для логов и бенчмарков.
+     */
+    String name();
+
+    static void checkArguments(double[] x, int width, int bars, int period, double[] out) {
+        if (width <= 0 || bars < 0 || period <= 0) {
+            throw new IllegalArgumentException(String.format(
+                    "Некорректные параметры: width=%d, bars=%d, period=%d", width, bars, period));
+        }
+        long length = (long) width * bars;
+        if (x.length < length || out.length < length) {
+            throw new IllegalArgumentException(String.format(
+                    "Колонка короче %d элементов (width=%d, bars=%d)", length, width, bars));
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.tradingbot.tinkoff.indicators.batch;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Кэш колонок оконных индикаторов по спецификации (вид и период) для неизменных данных.
+ * Колонка считается пакетно при первом запросе и дальше общая для всех прогонов:
+ * варианты параметров с одинаковым VWAP(20) читают одну колонку.
+ *
+ * StdDev совпадает с оконным пересчетом {@code InstrumentContext} побитово (тот же двухпроходный
+ * расчет окна), VWAP - с точностью до последних разрядов (скользящие суммы вместо суммирования
+ * окна). Потокобезопасен.
+ */
+public final class IndicatorMemo {
+    private final BarColumns bars;
+    private final BatchKernels kernels;
+    private final int maxPeriod;
+    // Индекс — период; без ключей-объектов, чтобы чтение не создавало мусора
+    private final AtomicReferenceArray<double[]> vwap;
+    private final AtomicReferenceArray<double[]> stdDev;
+    private final AtomicInteger computed = new AtomicInteger();
+
+    public IndicatorMemo(BarColumns bars, BatchKernels kernels, int maxPeriod) {
+        this.bars = bars;
+        this.kernels = kernels;
+        this.maxPeriod = maxPeriod;
+        this.vwap = new AtomicReferenceArray<>(maxPeriod + 1);
+        this.stdDev = new AtomicReferenceArray<>(maxPeriod + 1);
+    }
+
+    public BarColumns getBars() {
+        return bars;
+    }
+
+    public boolean supports(int period) {
+        return period > 0 && period <= maxPeriod;
+    }
+
+    /**
+     * Число рассчитанных колонок (для статистики оптимизатора).
+     */
+    public int getComputedColumns() {
+        return computed.get();
+    }
+
+    /**
+     * VWAP по типичной цене за period баров в раскладке {@link BarColumns}.
+     */
+    public double[] vwap(int period) {
+        double[] column = vwap.get(period);
+        return column != null ? column : compute(vwap, period, true);
+    }
+
+    /**
+     * Генеральное стандартное отклонение цен закрытия за period баров.
+     */
+    public double[] stdDev(int period) {
+        double[] column = stdDev.get(period);
+        return column != null ? column : compute(stdDev, period, false);
+    }
+
+    private synchronized double[] compute(AtomicReferenceArray<double[]> columns, int period, boolean isVwap) {
+        double[] column = columns.get(period);
+        if (column == null) {
+            column = bars.newColumn();
+            if (isVwap) {
+                kernels.vwap(bars.high, bars.low, bars.close, bars.volume, bars.width, bars.bars, period, column);
+            } else {
+                kernels.stdDev(bars.close, bars.width, bars.bars, period, column);
+            }
+            columns.set(period, column);
+            computed.incrementAndGet();
+        }
+        return column;
+    }
+}
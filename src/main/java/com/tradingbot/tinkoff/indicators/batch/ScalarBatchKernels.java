@@ -0,0 +1,140 @@
+package com.tradingbot.tinkoff.indicators.batch;
+
+/**
+ * Эталонная скалярная реализация пакетных индикаторов.
+ * Используется как fallback, когда модуль jdk.incubator.vector недоступен.
+ */
+public final class ScalarBatchKernels implements BatchKernels {
+
+    @Override
+    public void trueRange(double[] high, double[] low, double[] close, int width, int bars, double[] out) {
+        BatchKernels.checkArguments(close, width, bars, 1, out);
+        int length = width * bars;
+        for (int i = 0; i < Math.min(width, length); i++) {
+            out[i] = high[i] - low[i];
+        }
+        for (int i = width; i < length; i++) {
+            double pc = close[i - width];
+            out[i] = Math.max(high[i] - low[i], Math.max(Math.abs(high[i] - pc), Math.abs(low[i] - pc)));
+        }
+    }
+
+    @Override
+    public void sma(double[] x, int width, int bars, int period, double[] out) {
+        BatchKernels.checkArguments(x, width, bars, period, out);
+        double[] sum = new double[width];
+        for (int t = 0; t < bars; t++) {
+            double n = Math.min(t + 1, period);
+            int row = t * width;
+            int old = (t - period) * width;
+            for (int s = 0; s < width; s++) {
+                double acc = sum[s] + x[row + s];
+                if (t >= period) {
+                    acc -= x[old + s];
+                }
+                sum[s] = acc;
+                out[row + s] = acc / n;
+            }
+        }
+    }
+
+    @Override
+    public void stdDev(double[] x, int width, int bars, int period, double[] out) {
+        BatchKernels.checkArguments(x, width, bars, period, out);
+        for (int t = 0; t < bars; t++) {
+            int n = Math.min(t + 1, period);
+            int start = t - n + 1;
+            int row = t * width;
+            for (int s = 0; s < width; s++) {
+                double sum = 0;
+                for (int i = start; i <= t; i++) {
+                    sum += x[i * width + s];
+                }
+                double mean = sum / n;
+                double variance = 0;
+                for (int i = start; i <= t; i++) {
+                    double d = x[i * width + s] - mean;
+                    variance += d * d;
+                }
+                out[row + s] = Math.sqrt(variance / n);
+            }
+        }
+    }
+
+    @Override
+    public void vwap(double[] high, double[] low, double[] close, double[] volume, int width, int bars, int period, double[] out) {
+        BatchKernels.checkArguments(close, width, bars, period, out);
+        double[] sumPv = new double[width];
+        double[] sumV = new double[width];
+        for (int t = 0; t < bars; t++) {
+            int row = t * width;
+            int old = (t - period) * width;
+            for (int s = 0; s < width; s++) {
+                int i = row + s;
+                double tp = (high[i] + low[i] + close[i]) / 3.0;
+                double accPv = sumPv[s] + tp * volume[i];
+                double accV = sumV[s] + volume[i];
+                if (t >= period) {
+                    int j = old + s;
+                    accPv -= (high[j] + low[j] + close[j]) / 3.0 * volume[j];
+                    accV -= volume[j];
+                }
+                sumPv[s] = accPv;
+                sumV[s] = accV;
+                out[i] = accV == 0.0 ? tp : accPv / accV;
+            }
+        }
+    }
+
+    @Override
+    public void rollingMax(double[] x, int width, int bars, int period, double[] out) {
+        rollingExtreme(x, width, bars, period, out, true);
+    }
+
+    @Override
+    public void rollingMin(double[] x, int width, int bars, int period, double[] out) {
+        rollingExtreme(x, width, bars, period, out, false);
+    }
+
+    @Override
+    public String name() {
+        return "scalar";
+    }
+
+    /**
+     * van Herk/Gil-Werman: префиксные экстремумы внутри блоков длины period пишутся в out,
+     * суффиксные — во временный массив, ответ — экстремум пары значений на границах окна.
+     */
+    private static void rollingExtreme(double[] x, int width, int bars, int period, double[] out, boolean max) {
+        BatchKernels.checkArguments(x, width, bars, period, out);
+        int length = width * bars;
+        double[] suffix = new double[length];
+
+        int phase = 0; // t % period без деления на каждом баре
+        for (int t = 0; t < bars; t++, phase = phase == period - 1 ? 0 : phase + 1) {
+            int row = t * width;
+            boolean blockStart = phase == 0;
+            for (int s = 0; s < width; s++) {
+                int i = row + s;
+                out[i] = blockStart ? x[i] : extreme(out[i - width], x[i], max);
+            }
+        }
+        phase = bars == 0 ? 0 : (bars - 1) % period;
+        for (int t = bars - 1; t >= 0; t--, phase = phase == 0 ? period - 1 : phase - 1) {
+            int row = t * width;
+            boolean blockEnd = phase == period - 1 || t == bars - 1;
+            for (int s = 0; s < width; s++) {
+                int i = row + s;
+                suffix[i] = blockEnd ? x[i] : extreme(suffix[i + width], x[i], max);
+            }
+        }
+        int shift = (period - 1) * width;
+        for (int i = shift; i < length; i++) {
+            out[i] = extreme(suffix[i - shift], out[i], max);
+        }
+    }
+
+    private static double extreme(double a, double b, boolean max) {
+        return max ? Math.max(a, b) : Math.min(a, b);
+    }
+}
@@ -0,0 +1,239 @@
+package com.tradingbot.tinkoff.indicators.batch;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Реализация пакетных индикаторов на jdk.incubator.vector.
+ *
+ * Рекуррентные и оконные индикаторы (SMA, StdDev, VWAP, проходы van Herk/Gil-Werman)
+ * векторизуются поперек серий: каждая линия вектора ведет свою серию в том же
+ * порядке операций, что и {@link ScalarBatchKernels}, поэтому результаты совпадают
+ * побитово. Поэлементные проходы (true range, объединение экстремумов)
+ * векторизуются вдоль времени при любой ширине.
+ *
+ * Класс загружается только через {@link BatchIndicators}, если модуль доступен.
+ */
+final class VectorBatchKernels implements BatchKernels {
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+    private static final int LANES = SPECIES.length();
+
+    @Override
+    public void trueRange(double[] high, double[] low, double[] close, int width, int bars, double[] out) {
+        BatchKernels.checkArguments(close, width, bars, 1, out);
+        int length = width * bars;
+        int first = Math.min(width, length);
+        for (int i = 0; i < first; i++) {
+            out[i] = high[i] - low[i];
+        }
+        int i = first;
+        int bound = first + SPECIES.loopBound(length - first);
+        for (; i < bound; i += LANES) {
+            DoubleVector h = DoubleVector.fromArray(SPECIES, high, i);
+            DoubleVector l = DoubleVector.fromArray(SPECIES, low, i);
+            DoubleVector pc = DoubleVector.fromArray(SPECIES, close, i - width);
+            h.sub(l).max(h.sub(pc).abs().max(l.sub(pc).abs())).intoArray(out, i);
+        }
+        for (; i < length; i++) {
+            double pc = close[i - width];
+            out[i] = Math.max(high[i] - low[i], Math.max(Math.abs(high[i] - pc), Math.abs(low[i] - pc)));
+        }
+    }
+
+    @Override
+    public void sma(double[] x, int width, int bars, int period, double[] out) {
+        BatchKernels.checkArguments(x, width, bars, period, out);
+        double[] sum = new double[width];
+        int bound = SPECIES.loopBound(width);
+        for (int t = 0; t < bars; t++) {
+            double n = Math.min(t + 1, period);
+            int row = t * width;
+            int old = (t - period) * width;
+            int s = 0;
+            for (; s < bound; s += LANES) {
+                DoubleVector acc = DoubleVector.fromArray(SPECIES, sum, s).add(DoubleVector.fromArray(SPECIES, x, row + s));
+                if (t >= period) {
+                    acc = acc.sub(DoubleVector.fromArray(SPECIES, x, old + s));
+                }
+                acc.intoArray(sum, s);
+                acc.div(n).intoArray(out, row + s);
+            }
+            for (; s < width; s++) {
+                double acc = sum[s] + x[row + s];
+                if (t >= period) {
+                    acc -= x[old + s];
+                }
+                sum[s] = acc;
+                out[row + s] = acc / n;
+            }
+        }
+    }
+
+    @Override
+    public void stdDev(double[] x, int width, int bars, int period, double[] out) {
+        BatchKernels.checkArguments(x, width, bars, period, out);
+        int bound = SPECIES.loopBound(width);
+        for (int t = 0; t < bars; t++) {
+            int n = Math.min(t + 1, period);
+            int start = t - n + 1;
+            int row = t * width;
+            int s = 0;
+            for (; s < bound; s += LANES) {
+                DoubleVector sum = DoubleVector.zero(SPECIES);
+                for (int i = start; i <= t; i++) {
+                    sum = sum.add(DoubleVector.fromArray(SPECIES, x, i * width + s));
+                }
+                DoubleVector mean = sum.div(n);
+                DoubleVector variance = DoubleVector.zero(SPECIES);
+                for (int i = start; i <= t; i++) {
+                    DoubleVector d = DoubleVector.fromArray(SPECIES, x, i * width + s).sub(mean);
+                    variance = variance.add(d.mul(d));
+                }
+                variance.div(n).sqrt().intoArray(out, row + s);
+            }
+            for (; s < width; s++) {
+                double sum = 0;
+                for (int i = start; i <= t; i++) {
+                    sum += x[i * width + s];
+                }
+                double mean = sum / n;
+                double variance = 0;
+                for (int i = start; i <= t; i++) {
+                    double d = x[i * width + s] - mean;
+                    variance += d * d;
+                }
+                out[row + s] = Math.sqrt(variance / n);
+            }
+        }
+    }
+
+    @Override
+    public void vwap(double[] high, double[] low, double[] close, double[] volume, int width, int bars, int period, double[] out) {
+        BatchKernels.checkArguments(close, width, bars, period, out);
+        double[] sumPv = new double[width];
+        double[] sumV = new double[width];
+        int bound = SPECIES.loopBound(width);
+        for (int t = 0; t < bars; t++) {
+            int row = t * width;
+            int old = (t - period) * width;
+            int s = 0;
+            for (; s < bound; s += LANES) {
+                int i = row + s;
+                DoubleVector vol = DoubleVector.fromArray(SPECIES, volume, i);
+                DoubleVector tp = typicalPrice(high, low, close, i);
+                DoubleVector accPv = DoubleVector.fromArray(SPECIES, sumPv, s).add(tp.mul(vol));
+                DoubleVector accV = DoubleVector.fromArray(SPECIES, sumV, s).add(vol);
+                if (t >= period) {
+                    int j = old + s;
+                    DoubleVector oldVol = DoubleVector.fromArray(SPECIES, volume, j);
+                    accPv = accPv.sub(typicalPrice(high, low, close, j).mul(oldVol));
+                    accV = accV.sub(oldVol);
+                }
+                accPv.intoArray(sumPv, s);
+                accV.intoArray(sumV, s);
+                VectorMask<Double> emptyWindow = accV.compare(VectorOperators.EQ, 0.0);
+                accPv.div(accV).blend(tp, emptyWindow).intoArray(out, i);
+            }
+            for (; s < width; s++) {
+                int i = row + s;
+                double tp = (high[i] + low[i] + close[i]) / 3.0;
+                double accPv = sumPv[s] + tp * volume[i];
+                double accV = sumV[s] + volume[i];
+                if (t >= period) {
+                    int j = old + s;
+                    accPv -= (high[j] + low[j] + close[j]) / 3.0 * volume[j];
+                    accV -= volume[j];
+                }
+                sumPv[s] = accPv;
+                sumV[s] = accV;
+                out[i] = accV == 0.0 ? tp : accPv / accV;
+            }
+        }
+    }
+
+    @Override
+    public void rollingMax(double[] x, int width, int bars, int period, double[] out) {
+        rollingExtreme(x, width, bars, period, out, true);
+    }
+
+    @Override
+    public void rollingMin(double[] x, int width, int bars, int period, double[] out) {
+        rollingExtreme(x, width, bars, period, out, false);
+    }
+
+    @Override
+    public String name() {
+        return "vector-" + SPECIES.vectorBitSize();
+    }
+
+    private static DoubleVector typicalPrice(double[] high, double[] low, double[] close, int i) {
+        return DoubleVector.fromArray(SPECIES, high, i)
+                .add(DoubleVector.fromArray(SPECIES, low, i))
+                .add(DoubleVector.fromArray(SPECIES, close, i))
+                .div(3.0);
+    }
+
+    private static void rollingExtreme(double[] x, int width, int bars, int period, double[] out, boolean max) {
+        BatchKernels.checkArguments(x, width, bars, period, out);
+        int length = width * bars;
+        double[] suffix = new double[length];
+        int bound = SPECIES.loopBound(width);
+
+        // Префиксные экстремумы внутри блоков: вектор поперек серий
+        int phase = 0; // t % period без деления на каждом баре
+        for (int t = 0; t < bars; t++, phase = phase == period - 1 ? 0 : phase + 1) {
+            int row = t * width;
+            boolean blockStart = phase == 0;
+            int s = 0;
+            for (; s < bound; s += LANES) {
+                int i = row + s;
+                DoubleVector v = DoubleVector.fromArray(SPECIES, x, i);
+                (blockStart ? v : extreme(DoubleVector.fromArray(SPECIES, out, i - width), v, max)).intoArray(out, i);
+            }
+            for (; s < width; s++) {
+                int i = row + s;
+                out[i] = blockStart ? x[i] : extreme(out[i - width], x[i], max);
+            }
+        }
+
+        // Суффиксные экстремумы внутри блоков
+        phase = bars == 0 ? 0 : (bars - 1) % period;
+        for (int t = bars - 1; t >= 0; t--, phase = phase == 0 ? period - 1 : phase - 1) {
+            int row = t * width;
+            boolean blockEnd = phase == period - 1 || t == bars - 1;
+            int s = 0;
+            for (; s < bound; s += LANES) {
+                int i = row + s;
+                DoubleVector v = DoubleVector.fromArray(SPECIES, x, i);
+                (blockEnd ? v : extreme(DoubleVector.fromArray(SPECIES, suffix, i + width), v, max)).intoArray(suffix, i);
+            }
+            for (; s < width; s++) {
+                int i = row + s;
+                suffix[i] = blockEnd ? x[i] : extreme(suffix[i + width], x[i], max);
+            }
+        }
+
+        // Объединение: поэлементно вдоль времени при любой ширине
+        int shift = (period - 1) * width;
+        int i = shift;
+        if (shift < length) {
+            int combineBound = shift + SPECIES.loopBound(length - shift);
+            for (; i < combineBound; i += LANES) {
+                extreme(DoubleVector.fromArray(SPECIES, suffix, i - shift), DoubleVector.fromArray(SPECIES, out, i), max).intoArray(out, i);
+            }
+        }
+        for (; i < length; i++) {
+            out[i] = extreme(suffix[i - shift], out[i], max);
+        }
+    }
+
+    private static DoubleVector extreme(DoubleVector a, DoubleVector b, boolean max) {
+        return max ? a.max(b) : a.min(b);
+    }
+
+    private static double extreme(double a, double b, boolean max) {
+        return max ? Math.max(a, b) : Math.min(a, b);
+    }
+}
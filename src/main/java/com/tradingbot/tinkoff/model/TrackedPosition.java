@@ -1,20 +1,19 @@
 package com.tradingbot.tinkoff.model;
 
-import ru.tinkoff.piapi.core.models.Position;
+import com.tradingbot.tinkoff.portfolio.PositionState;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 //import java.util.Objects; // Убираем неиспользуемый импорт
-import com.tradingbot.tinkoff.api.TinkoffApiConnector;
 
 public class TrackedPosition {
-    private final Position basePosition;
+    private final PositionState basePosition;
     private final BigDecimal stopLossPrice;
     private final BigDecimal takeProfitPrice;
     private final String ticker; // Добавляем поле для тикера/названия
     private final String instrumentType; // Добавляем поле для типа инструмента
 
-    public TrackedPosition(Position basePosition, BigDecimal stopLossPrice, BigDecimal takeProfitPrice, String ticker, String instrumentType) {
+    public TrackedPosition(PositionState basePosition, BigDecimal stopLossPrice, BigDecimal takeProfitPrice, String ticker, String instrumentType) {
         this.basePosition = basePosition;
         this.stopLossPrice = stopLossPrice;
         this.takeProfitPrice = takeProfitPrice;
@@ -22,7 +21,7 @@ public class TrackedPosition {
         this.instrumentType = instrumentType;
     }
 
-    public Position getBasePosition() {
+    public PositionState getBasePosition() {
         return basePosition;
     }
 
@@ -36,7 +35,7 @@ public class TrackedPosition {
 
     // Методы-обертки для доступа к полям базовой позиции, если это необходимо
     public String getFigi() {
-        return basePosition.getFigi();
+        return basePosition.figi();
     }
 
     public String getTicker() {
@@ -48,15 +47,15 @@ public class TrackedPosition {
     }
 
     public long quantity() {
-        return basePosition.getQuantityLots().longValue();
+        return basePosition.quantityLots().longValue();
     }
 
     public BigDecimal averagePrice() {
-        return TinkoffApiConnector.moneyToBigDecimal(basePosition.getAveragePositionPrice());
+        return basePosition.averagePrice() != null ? basePosition.averagePrice() : BigDecimal.ZERO;
     }
 
     public BigDecimal currentPrice() {
-        return TinkoffApiConnector.moneyToBigDecimal(basePosition.getCurrentPrice());
+        return basePosition.currentPrice() != null ? basePosition.currentPrice() : BigDecimal.ZERO;
     }
 
     public BigDecimal getProfitLossPercent() {
@@ -5,12 +5,27 @@ public class TradableInstrument {
     private final String figi;
     private final InstrumentType type;
     private final String currency;
+    private final double minPriceIncrement; // Шаг цены; 0, если неизвестен
+    private final int lot; // Штук (контрактов) в лоте
+    // Шаг цены в нано-единицах для расчета размера позиции, считается один раз
+    private final long minPriceIncrementNanos;
 
     public TradableInstrument(String name, String figi, InstrumentType type, String currency) {
+        this(name, figi, type, currency, 0);
+    }
+
+    public TradableInstrument(String name, String figi, InstrumentType type, String currency, double minPriceIncrement) {
+        this(name, figi, type, currency, minPriceIncrement, 1);
+    }
+
+    public TradableInstrument(String name, String figi, InstrumentType type, String currency, double minPriceIncrement, int lot) {
         this.name = name;
         this.figi = figi;
         this.type = type;
         this.currency = currency;
+        this.minPriceIncrement = minPriceIncrement;
+        this.lot = Math.max(1, lot);
+        this.minPriceIncrementNanos = Math.round(minPriceIncrement * 1_000_000_000L);
     }
 
     public String name() {
@@ -33,6 +48,18 @@ public class TradableInstrument {
         return currency;
     }
 
+    public double minPriceIncrement() {
+        return minPriceIncrement;
+    }
+
+    public int lot() {
+        return lot;
+    }
+
+    public long minPriceIncrementNanos() {
+        return minPriceIncrementNanos;
+    }
+
     public enum InstrumentType {
         STOCK,
         FUTURE
@@ -29,6 +29,7 @@ public class TradingSignal {
     private BigDecimal takeProfit;
     private ZonedDateTime timestamp;
     private TradableInstrument instrument;
+    private boolean exit; // Сигнал на закрытие позиции, а не на открытие новой
 
     // Lombok не генерирует сеттеры для измененных типов автоматически
     public void setInstrument(TradableInstrument instrument) {
@@ -44,4 +45,14 @@ public class TradingSignal {
         this.description = description;
         this.timestamp = ZonedDateTime.now();
     }
+
+    /**
+     * Результат HOLD для хранения в константе стратегии: анализ без сигнала возвращает
+     * общий экземпляр и не создает объектов. Общие экземпляры не изменяются.
+     */
+    public static TradingSignal hold(String description) {
+        TradingSignal signal = new TradingSignal(SignalType.HOLD, 0, description);
+        signal.setTrend(Trend.SIDEWAYS);
+        return signal;
+    }
 }
@@ -0,0 +1,19 @@
+package com.tradingbot.tinkoff.portfolio;
+
+/**
+ * Оценка портфеля по рынку в рублях, публикуемая {@link MarkToMarketEngine} после каждого изменения цены или курса.
+ *
+ * @param sequence         номер оценки, растет с каждой публикацией
+ * @param portfolioVersion версия {@link PortfolioSnapshot}, по позициям которой сделана оценка
+ * @param equity           стоимость портфеля: позиции и денежные остатки
+ * @param cash             денежные остатки во всех валютах
+ * @param netExposure      стоимость позиций по бумагам со знаком
+ * @param grossExposure    стоимость позиций по бумагам по модулю
+ */
+public record EquitySnapshot(long sequence,
+                             long portfolioVersion,
+                             double equity,
+                             double cash,
+                             double netExposure,
+                             double grossExposure) {
+}
@@ -0,0 +1,391 @@
+package com.tradingbot.tinkoff.portfolio;
+
+import com.tradingbot.tinkoff.api.TinkoffApiConnector;
+import com.tradingbot.tinkoff.execution.AccountSnapshot;
+import com.tradingbot.tinkoff.model.TradableInstrument;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ru.tinkoff.piapi.contract.v1.LastPrice;
+import ru.tinkoff.piapi.core.stream.MarketDataSubscriptionService;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Переоценка портфеля по рынку в рублях.
+ *
+ * Позиции берутся из {@link PortfolioSnapshot}, цены — из стрима последних цен, курсы валют —
+ * из цен валютных инструментов. По каждой валюте хранятся суммы стоимости позиций в этой валюте,
+ * поэтому новая цена бумаги или новый курс меняют итог за O(1), без пересчета всего портфеля.
+ * Полный пересчет — только при новом снимке портфеля и раз в {@link #RESUM_INTERVAL} обновлений
+ * (сброс накопленной ошибки double).
+ */
+public class MarkToMarketEngine {
+    private static final Logger logger = LoggerFactory.getLogger(MarkToMarketEngine.class);
+
+    /** Валютные инструменты (TOM) для курса к рублю. */
+    static final Map<String, String> FX_FIGIS = Map.of(
+            "usd", "BBG0013HGFT4",
+            "eur", "BBG0013HJJ31",
+            "cny", "BBG0013HRTL0");
+    private static final String RUB = "rub";
+    private static final String RUB_FIGI = "RUB000UTSTOM";
+    // Только у этих типов последняя цена в тех же единицах, что и цена портфеля
+    // (у облигаций она в % номинала, у фьючерсов — в пунктах): остальные переоцениваются снимком портфеля
+    private static final Set<String> TICKED_TYPES = Set.of("share", "etf", "currency");
+    private static final int RESUM_INTERVAL = 10_000;
+
+    private final TinkoffApiConnector apiConnector;
+    private final Object lock = new Object();
+    private final Map<String, Mark> marks = new HashMap<>();
+    private final Map<String, CurrencyBook> books = new HashMap<>();
+    private final Map<String, CurrencyBook> booksByFxFigi = new HashMap<>();
+
+    // Итоги в рублях, под lock
+    private double equity;
+    private double cash;
+    private double netExposure;
+    private double grossExposure;
+    private long sequence;
+    private long portfolioVersion;
+    private int updatesSinceResum;
+
+    private volatile EquitySnapshot current;
+    private MarketDataSubscriptionService priceSubscription;
+    private Set<String> subscribedFigis = Set.of();
+
+    public MarkToMarketEngine(TinkoffApiConnector apiConnector) {
+        this.apiConnector = apiConnector;
+        books.put(RUB, new CurrencyBook(null, 1));
+    }
+
+    /**
+     * Последняя оценка или {@code null}, пока не получен первый снимок портфеля.
+     */
+    public EquitySnapshot current() {
+        return current;
+    }
+
+    /**
+     * Новый снимок портфеля: состав позиций, цены портфеля и полный пересчет.
+     * Вызывается слушателем {@link PortfolioStateService}.
+     */
+    public void onSnapshot(PortfolioSnapshot snapshot) {
+        loadMissingRates(snapshot);
+        synchronized (lock) {
+            Map<String, Mark> previous = new HashMap<>(marks);
+            marks.clear();
+            boolean hasCash = false;
+            for (PositionState position : snapshot.positions().values()) {
+                Mark old = previous.get(position.figi());
+                String currency = !position.currency().isEmpty() ? position.currency()
+                        : old != null ? old.currency : RUB;
+                double price = position.currentPrice() != null ? position.currentPrice().doubleValue()
+                        : old != null ? old.price : Double.NaN;
+                boolean ticked = TICKED_TYPES.contains(position.instrumentType());
+                if (RUB_FIGI.equals(position.figi())) {
+                    currency = RUB;
+                    price = 1;
+                    ticked = false;
+                }
+                hasCash |= position.isCurrency();
+                marks.put(position.figi(), new Mark(currency, position.isCurrency(), ticked,
+                        position.quantity().doubleValue(), price));
+                book(currency);
+            }
+            if (!hasCash) {
+                // Портфель без валютных позиций (песочница, локальный сервер): остатки уже в рублях
+                marks.put(RUB_FIGI, new Mark(RUB, true, false, snapshot.currencies().doubleValue(), 1));
+            }
+            // Курс по рублевой цене валютной позиции, если стрим цен еще не дал свой
+            for (CurrencyBook book : books.values()) {
+                Mark fxPosition = book.fxFigi != null ? marks.get(book.fxFigi) : null;
+                if (Double.isNaN(book.rate) && fxPosition != null && RUB.equals(fxPosition.currency)
+                        && !Double.isNaN(fxPosition.price)) {
+                    book.rate = fxPosition.price;
+                }
+            }
+            portfolioVersion = snapshot.version();
+            resum();
+            publish();
+        }
+        updateSubscription();
+    }
+
+    /**
+     * Последняя цена инструмента: переоценка позиции и/или курса валюты.
+     */
+    public void onPrice(String figi, double price) {
+        if (!(price > 0)) {
+            return;
+        }
+        synchronized (lock) {
+            boolean changed = false;
+            Mark mark = marks.get(figi);
+            if (mark != null && mark.ticked && mark.price != price) {
+                apply(mark, -1);
+                mark.price = price;
+                apply(mark, 1);
+                changed = true;
+            }
+            CurrencyBook book = booksByFxFigi.get(figi);
+            if (book != null && book.rate != price) {
+                setRate(book, price);
+                changed = true;
+            }
+            if (changed) {
+                if (++updatesSinceResum >= RESUM_INTERVAL) {
+                    resum();
+                }
+                publish();
+            }
+        }
+    }
+
+    private void onLastPrice(LastPrice lastPrice) {
+        onPrice(lastPrice.getFigi(), TinkoffApiConnector.quotationToDouble(lastPrice.getPrice()));
+    }
+
+    /**
+     * Курс валюты к рублю; {@link Double#NaN}, если неизвестен.
+     */
+    public double rate(String currency) {
+        String key = currency.toLowerCase(Locale.ROOT);
+        synchronized (lock) {
+            CurrencyBook book = books.get(key);
+            return book != null ? book.rate : Double.NaN;
+        }
+    }
+
+    /**
+     * Стоимость позиций по бумагам в рублях со знаком для портфельного риска; денежные остатки не входят.
+     */
+    public Map<String, Double> exposures() {
+        synchronized (lock) {
+            Map<String, Double> exposures = new HashMap<>();
+            marks.forEach((figi, mark) -> {
+                double rate = books.get(mark.currency).rate;
+                if (!mark.cash && !Double.isNaN(mark.price) && !Double.isNaN(rate)) {
+                    exposures.put(figi, mark.quantity * mark.price * rate);
+                }
+            });
+            return exposures;
+        }
+    }
+
+    /**
+     * Стоимость позиций по бумагам в рублях по модулю в разбивке по валютам позиций.
+     */
+    public Map<String, Double> currencyExposures() {
+        synchronized (lock) {
+            Map<String, Double> exposures = new HashMap<>();
+            books.forEach((currency, book) -> {
+                if (!Double.isNaN(book.rate)) {
+                    exposures.put(currency, book.gross * book.rate);
+                }
+            });
+            return exposures;
+        }
+    }
+
+    /**
+     * Снимок счета для проверки сигнала: капитал в рублях, деньги и позиция в валюте инструмента.
+     * {@code null}, пока нет оценки или курса валюты инструмента (сигнал не проходит проверку).
+     */
+    public AccountSnapshot accountFor(PortfolioSnapshot snapshot, TradableInstrument instrument) {
+        EquitySnapshot valuation = current;
+        double rate = rate(instrument.currency());
+        String fxFigi = FX_FIGIS.get(instrument.currency().toLowerCase(Locale.ROOT));
+        if (Double.isNaN(rate) && fxFigi != null) {
+            // Валюта инструмента, которой нет в портфеле: курс загружается один раз, дальше идет из стрима
+            loadRates(List.of(fxFigi));
+            updateSubscription();
+            rate = rate(instrument.currency());
+        }
+        if (valuation == null || Double.isNaN(rate)) {
+            logger.warn("⚠️ [{}] Нет оценки портфеля или курса {}", instrument.name(), instrument.currency());
+            return null;
+        }
+        PositionState position = snapshot.position(instrument.identifier());
+        BigDecimal quantity = position != null ? position.quantity() : BigDecimal.ZERO;
+        BigDecimal lots = position != null ? position.quantityLots() : BigDecimal.ZERO;
+        return new AccountSnapshot(
+                BigDecimal.valueOf(valuation.equity()).setScale(2, RoundingMode.HALF_UP),
+                BigDecimal.valueOf(valuation.cash() / rate).setScale(2, RoundingMode.HALF_UP),
+                quantity, lots, BigDecimal.valueOf(rate));
+    }
+
+    public void stop() {
+        synchronized (lock) {
+            if (priceSubscription != null) {
+                priceSubscription.cancel();
+                priceSubscription = null;
+            }
+            subscribedFigis = Set.of();
+        }
+    }
+
+    // Вклад позиции в суммы ее валюты и в рублевые итоги (sign = 1 — добавить, -1 — убрать)
+    private void apply(Mark mark, int sign) {
+        if (Double.isNaN(mark.price)) {
+            return;
+        }
+        CurrencyBook book = books.get(mark.currency);
+        double local = sign * mark.quantity * mark.price;
+        double rate = book.effectiveRate();
+        if (mark.cash) {
+            book.cash += local;
+            cash += local * rate;
+        } else {
+            double absolute = sign * Math.abs(local); // gross — сумма модулей, а не модуль суммы
+            book.net += local;
+            book.gross += absolute;
+            netExposure += local * rate;
+            grossExposure += absolute * rate;
+        }
+        equity += local * rate;
+    }
+
+    private void setRate(CurrencyBook book, double rate) {
+        double delta = rate - book.effectiveRate();
+        equity += (book.net + book.cash) * delta;
+        cash += book.cash * delta;
+        netExposure += book.net * delta;
+        grossExposure += book.gross * delta;
+        book.rate = rate;
+    }
+
+    private void resum() {
+        equity = cash = netExposure = grossExposure = 0;
+        for (CurrencyBook book : books.values()) {
+            book.net = book.gross = book.cash = 0;
+        }
+        for (Mark mark : marks.values()) {
+            apply(mark, 1);
+        }
+        updatesSinceResum = 0;
+    }
+
+    private void publish() {
+        current = new EquitySnapshot(++sequence, portfolioVersion, equity, cash, netExposure, grossExposure);
+    }
+
+    private CurrencyBook book(String currency) {
+        return books.computeIfAbsent(currency, key -> {
+            CurrencyBook book = new CurrencyBook(FX_FIGIS.get(key), Double.NaN);
+            if (book.fxFigi != null) {
+                booksByFxFigi.put(book.fxFigi, book);
+            } else {
+                logger.warn("⚠️ Нет валютного инструмента для {}: позиции в этой валюте не входят в оценку", key);
+            }
+            return book;
+        });
+    }
+
+    /**
+     * Курсы новых валют портфеля одним запросом последних цен, до переоценки снимка.
+     */
+    private void loadMissingRates(PortfolioSnapshot snapshot) {
+        List<String> figis = new ArrayList<>();
+        synchronized (lock) {
+            for (PositionState position : snapshot.positions().values()) {
+                String fxFigi = FX_FIGIS.get(position.currency());
+                CurrencyBook book = books.get(position.currency());
+                if (fxFigi != null && (book == null || Double.isNaN(book.rate)) && !figis.contains(fxFigi)) {
+                    figis.add(fxFigi);
+                }
+            }
+        }
+        if (!figis.isEmpty()) {
+            loadRates(figis);
+        }
+    }
+
+    private void loadRates(List<String> figis) {
+        try {
+            for (LastPrice lastPrice : apiConnector.getLastPrices(figis)) {
+                double rate = TinkoffApiConnector.quotationToDouble(lastPrice.getPrice());
+                synchronized (lock) {
+                    FX_FIGIS.forEach((currency, fxFigi) -> {
+                        if (fxFigi.equals(lastPrice.getFigi()) && rate > 0) {
+                            setRate(book(currency), rate);
+                        }
+                    });
+                }
+            }
+        } catch (Exception e) {
+            logger.warn("⚠️ Не удалось загрузить курсы валют {}: {}", figis, e.getMessage());
+        }
+    }
+
+    /**
+     * Стрим последних цен по позициям с переоценкой по сделкам и по валютным инструментам;
+     * переподписка только при изменении набора.
+     */
+    private void updateSubscription() {
+        synchronized (lock) {
+            Set<String> figis = new HashSet<>(booksByFxFigi.keySet());
+            marks.forEach((figi, mark) -> {
+                if (mark.ticked) {
+                    figis.add(figi);
+                }
+            });
+            if (figis.equals(subscribedFigis)) {
+                return;
+            }
+            if (priceSubscription != null) {
+                priceSubscription.cancel();
+                priceSubscription = null;
+            }
+            subscribedFigis = Set.copyOf(figis);
+            if (!figis.isEmpty()) {
+                priceSubscription = apiConnector.subscribeToMarketData(new ArrayList<>(figis), null,
+                        null, null, 0, null, this::onLastPrice);
+                logger.info("💱 Переоценка портфеля: последние цены по {} инструментам", figis.size());
+            }
+        }
+    }
+
+    private static final class Mark {
+        final String currency;
+        final boolean cash;
+        final boolean ticked;
+        final double quantity;
+        double price; // в валюте позиции; NaN, пока неизвестна
+
+        Mark(String currency, boolean cash, boolean ticked, double quantity, double price) {
+            this.currency = currency;
+            this.cash = cash;
+            this.ticked = ticked;
+            this.quantity = quantity;
+            this.price = price;
+        }
+    }
+
+    /**
+     * Суммы стоимости позиций в одной валюте (в этой валюте) и ее курс к рублю.
+     */
+    private static final class CurrencyBook {
+        final String fxFigi;
+        double rate;  // NaN, пока неизвестен: позиции валюты не входят в рублевые итоги
+        double net;   // бумаги со знаком
+        double gross; // бумаги по модулю
+        double cash;  // денежные остатки
+
+        CurrencyBook(String fxFigi, double rate) {
+            this.fxFigi = fxFigi;
+            this.rate = rate;
+        }
+
+        double effectiveRate() {
+            return Double.isNaN(rate) ? 0 : rate;
+        }
+    }
+}
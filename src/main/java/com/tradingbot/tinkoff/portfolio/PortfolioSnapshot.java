@@ -0,0 +1,57 @@
+package com.tradingbot.tinkoff.portfolio;
+
+import com.tradingbot.tinkoff.api.TinkoffApiConnector;
+import ru.tinkoff.piapi.core.models.Portfolio;
+import ru.tinkoff.piapi.core.models.Position;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Неизменяемый снимок портфеля: публикуется {@link PortfolioStateService} целиком
+ * и читается без блокировок. Цены позиций — в их валютах; оценка в рублях — {@link MarkToMarketEngine}.
+ *
+ * @param version     номер снимка, растет с каждой публикацией
+ * @param currencies  денежные остатки (как totalAmountCurrencies портфеля)
+ * @param cashVersion версия снимка, в котором остатки последний раз пришли из портфеля
+ *                    (стрим позиций меняет количество, но остатки не обновляет)
+ * @param positions   позиции по FIGI, включая валютные
+ */
+public record PortfolioSnapshot(long version,
+                                Instant updatedAt,
+                                BigDecimal currencies,
+                                long cashVersion,
+                                Map<String, PositionState> positions) {
+
+    /**
+     * Снимок по ответу портфеля (унарный запрос или стрим портфеля).
+     */
+    static PortfolioSnapshot from(Portfolio portfolio, long version, Instant updatedAt) {
+        Map<String, PositionState> positions = new HashMap<>();
+        for (Position position : portfolio.getPositions()) {
+            BigDecimal quantity = position.getQuantity() != null ? position.getQuantity() : BigDecimal.ZERO;
+            BigDecimal lots = position.getQuantityLots() != null ? position.getQuantityLots() : BigDecimal.ZERO;
+            BigDecimal currentPrice = position.getCurrentPrice() != null
+                    ? TinkoffApiConnector.moneyToBigDecimal(position.getCurrentPrice()) : null;
+            BigDecimal averagePrice = position.getAveragePositionPrice() != null
+                    ? TinkoffApiConnector.moneyToBigDecimal(position.getAveragePositionPrice()) : null;
+            String currency = position.getAveragePositionPrice() != null && position.getAveragePositionPrice().getCurrency() != null
+                    ? position.getAveragePositionPrice().getCurrency().toLowerCase() : "";
+            positions.put(position.getFigi(), new PositionState(position.getFigi(), position.getInstrumentType(),
+                    quantity, lots, averagePrice, currentPrice, currency));
+        }
+        BigDecimal currencies = portfolio.getTotalAmountCurrencies() != null
+                ? TinkoffApiConnector.moneyToBigDecimal(portfolio.getTotalAmountCurrencies())
+                : BigDecimal.ZERO;
+        return new PortfolioSnapshot(version, updatedAt, currencies, version, Map.copyOf(positions));
+    }
+
+    /**
+     * Позиция по инструменту или {@code null}.
+     */
+    public PositionState position(String figi) {
+        return positions.get(figi);
+    }
+}
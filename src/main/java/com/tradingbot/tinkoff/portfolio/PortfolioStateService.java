@@ -0,0 +1,286 @@
+package com.tradingbot.tinkoff.portfolio;
+
+import com.tradingbot.tinkoff.api.TinkoffApiConnector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ru.tinkoff.piapi.contract.v1.PortfolioStreamResponse;
+import ru.tinkoff.piapi.contract.v1.PositionData;
+import ru.tinkoff.piapi.contract.v1.PositionsFutures;
+import ru.tinkoff.piapi.contract.v1.PositionsSecurities;
+import ru.tinkoff.piapi.contract.v1.PositionsStreamResponse;
+import ru.tinkoff.piapi.core.models.Portfolio;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+/**
+ * Единое состояние портфеля счета для процессоров, риск-менеджера и интерфейса.
+ *
+ * Источники: стрим портфеля (полный портфель с ценами при каждом изменении), стрим позиций
+ * (количество по бумагам и фьючерсам сразу после исполнения) и периодическая сверка унарным
+ * запросом, которая же подхватывает состояние, пока стримы недоступны. Каждое изменение
+ * публикует новый неизменяемый {@link PortfolioSnapshot}; чтение — одно volatile-чтение
+ * без блокировок и сетевых вызовов.
+ */
+public class PortfolioStateService {
+    private static final Logger logger = LoggerFactory.getLogger(PortfolioStateService.class);
+    private static final long RESUBSCRIBE_MIN_SECONDS = 5;
+
+    private final TinkoffApiConnector apiConnector;
+    private final long reconcileSeconds;
+    private final Runnable onRequest;
+    private final AtomicReference<PortfolioSnapshot> snapshot = new AtomicReference<>();
+    private final List<Consumer<PortfolioSnapshot>> listeners = new CopyOnWriteArrayList<>();
+    private final Object reconcileLock = new Object();
+    private final AtomicBoolean reconcilePending = new AtomicBoolean();
+    // Обновления из стримов: сверка, начатая до обновления, не затирает более новое состояние
+    private final AtomicLong streamUpdates = new AtomicLong();
+
+    // Неудачные подписки подряд, для паузы переподписки
+    private final AtomicInteger portfolioFailures = new AtomicInteger();
+    private final AtomicInteger positionsFailures = new AtomicInteger();
+
+    private volatile boolean running;
+    private volatile ScheduledExecutorService scheduler;
+
+    /**
+     * @param reconcileSeconds период сверки с унарным запросом портфеля
+     * @param onRequest        вызывается перед каждым унарным запросом (мониторинг лимитов API)
+     */
+    public PortfolioStateService(TinkoffApiConnector apiConnector, long reconcileSeconds, Runnable onRequest) {
+        this.apiConnector = apiConnector;
+        this.reconcileSeconds = reconcileSeconds;
+        this.onRequest = onRequest;
+    }
+
+    /**
+     * Первая сверка, подписка на стримы и периодическая сверка.
+     */
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "Portfolio-State");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(this::reconcileQuietly, 0, reconcileSeconds, TimeUnit.SECONDS);
+        scheduler.execute(this::subscribePortfolio);
+        scheduler.execute(this::subscribePositions);
+        logger.info("📡 Состояние портфеля: стримы портфеля и позиций, сверка раз в {} с", reconcileSeconds);
+    }
+
+    /**
+     * Обновления стримов после остановки игнорируются.
+     */
+    public synchronized void stop() {
+        running = false;
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * Последний снимок или {@code null}, пока портфель не загружен.
+     */
+    public PortfolioSnapshot current() {
+        return snapshot.get();
+    }
+
+    /**
+     * Последний снимок; до первой загрузки — блокирующая сверка.
+     */
+    public PortfolioSnapshot awaitSnapshot() {
+        PortfolioSnapshot current = snapshot.get();
+        return current != null ? current : reconcile();
+    }
+
+    /**
+     * Слушатель вызывается после каждой публикации в потоке источника обновления.
+     */
+    public void addListener(Consumer<PortfolioSnapshot> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Внеочередная сверка в фоне (например, после пополнения счета); повторные запросы схлопываются.
+     */
+    public void requestReconcile() {
+        ScheduledExecutorService current = scheduler;
+        if (current != null && reconcilePending.compareAndSet(false, true)) {
+            current.execute(() -> {
+                reconcilePending.set(false);
+                reconcileQuietly();
+            });
+        }
+    }
+
+    /**
+     * Сверка унарным запросом портфеля (блокирующая).
+     */
+    public PortfolioSnapshot reconcile() {
+        synchronized (reconcileLock) {
+            long updatesBefore = streamUpdates.get();
+            onRequest.run();
+            Portfolio portfolio = apiConnector.getPortfolio().join();
+            if (streamUpdates.get() != updatesBefore && snapshot.get() != null) {
+                logger.debug("Сверка портфеля пропущена: за время запроса пришли обновления из стримов");
+                return snapshot.get();
+            }
+            return publish(previous -> PortfolioSnapshot.from(portfolio, nextVersion(previous), Instant.now()));
+        }
+    }
+
+    private void reconcileQuietly() {
+        try {
+            reconcile();
+        } catch (Exception e) {
+            logger.error("❌ Ошибка сверки портфеля", e);
+        }
+    }
+
+    private void subscribePortfolio() {
+        if (!running) {
+            return;
+        }
+        if (!apiConnector.subscribePortfolioStream(this::onPortfolio,
+                e -> onStreamError("портфеля", e, this::subscribePortfolio, portfolioFailures))) {
+            resubscribeLater(this::subscribePortfolio, portfolioFailures.incrementAndGet());
+        }
+    }
+
+    private void subscribePositions() {
+        if (!running) {
+            return;
+        }
+        if (!apiConnector.subscribePositionsStream(this::onPositions,
+                e -> onStreamError("позиций", e, this::subscribePositions, positionsFailures))) {
+            resubscribeLater(this::subscribePositions, positionsFailures.incrementAndGet());
+        }
+    }
+
+    private void onStreamError(String stream, Throwable error, Runnable resubscribe, AtomicInteger failures) {
+        if (!running) {
+            return;
+        }
+        logger.warn("⚠️ Стрим {} прерван ({}), состояние поддерживается сверкой", stream, error.getMessage());
+        requestReconcile();
+        resubscribeLater(resubscribe, failures.incrementAndGet());
+    }
+
+    /**
+     * Переподписка с удвоением паузы до периода сверки: недоступный стрим не засыпает API запросами.
+     */
+    private void resubscribeLater(Runnable resubscribe, int failures) {
+        ScheduledExecutorService current = scheduler;
+        if (current == null) {
+            return;
+        }
+        long delay = Math.min(reconcileSeconds, RESUBSCRIBE_MIN_SECONDS << Math.min(failures - 1, 16));
+        current.schedule(resubscribe, delay, TimeUnit.SECONDS);
+    }
+
+    private void onPortfolio(PortfolioStreamResponse response) {
+        if (!running || !response.hasPortfolio()) {
+            return;
+        }
+        portfolioFailures.set(0);
+        streamUpdates.incrementAndGet();
+        Portfolio portfolio = Portfolio.fromResponse(response.getPortfolio());
+        publish(previous -> PortfolioSnapshot.from(portfolio, nextVersion(previous), Instant.now()));
+    }
+
+    /**
+     * Изменение количества по бумагам и фьючерсам: цены и остатки остаются из последнего портфеля
+     * до следующего обновления портфеля.
+     */
+    private void onPositions(PositionsStreamResponse response) {
+        if (!running || !response.hasPosition()) {
+            return;
+        }
+        positionsFailures.set(0);
+        if (snapshot.get() == null) {
+            requestReconcile(); // Количество без базового портфеля применить не к чему
+            return;
+        }
+        streamUpdates.incrementAndGet();
+        PositionData data = response.getPosition();
+        AtomicBoolean unknownLot = new AtomicBoolean();
+        publish(previous -> {
+            Map<String, PositionState> positions = new HashMap<>(previous.positions());
+            for (PositionsSecurities security : data.getSecuritiesList()) {
+                applyQuantity(positions, security.getFigi(), security.getInstrumentType(),
+                        security.getBalance() + security.getBlocked(), false, unknownLot);
+            }
+            for (PositionsFutures future : data.getFuturesList()) {
+                applyQuantity(positions, future.getFigi(), "futures",
+                        future.getBalance() + future.getBlocked(), true, unknownLot);
+            }
+            return new PortfolioSnapshot(previous.version() + 1, Instant.now(), previous.currencies(),
+                    previous.cashVersion(), Map.copyOf(positions));
+        });
+        if (unknownLot.get()) {
+            requestReconcile();
+        }
+    }
+
+    /**
+     * Лоты пересчитываются по размеру лота из прежней позиции; у фьючерса лот — контракт.
+     * Для новой бумаги размер лота неизвестен: до сверки лоты равны штукам (знак верен).
+     */
+    private static void applyQuantity(Map<String, PositionState> positions, String figi, String instrumentType,
+                                      long units, boolean future, AtomicBoolean unknownLot) {
+        PositionState previous = positions.get(figi);
+        if (units == 0) {
+            positions.remove(figi);
+            return;
+        }
+        BigDecimal quantity = BigDecimal.valueOf(units);
+        BigDecimal lots;
+        if (future) {
+            lots = quantity;
+        } else if (previous != null && previous.quantityLots().signum() != 0) {
+            BigDecimal lotSize = previous.quantity().divide(previous.quantityLots(), 0, RoundingMode.HALF_UP).abs();
+            lots = lotSize.signum() > 0 ? quantity.divide(lotSize, 0, RoundingMode.DOWN) : quantity;
+        } else {
+            lots = quantity;
+            unknownLot.set(true);
+        }
+        positions.put(figi, previous != null
+                ? previous.withQuantity(quantity, lots)
+                : new PositionState(figi, instrumentType, quantity, lots, null, null, ""));
+    }
+
+    private static long nextVersion(PortfolioSnapshot previous) {
+        return previous != null ? previous.version() + 1 : 1;
+    }
+
+    private PortfolioSnapshot publish(UnaryOperator<PortfolioSnapshot> update) {
+        PortfolioSnapshot published = snapshot.updateAndGet(update);
+        for (Consumer<PortfolioSnapshot> listener : listeners) {
+            try {
+                listener.accept(published);
+            } catch (Exception e) {
+                logger.error("❌ Ошибка слушателя состояния портфеля", e);
+            }
+        }
+        return published;
+    }
+}
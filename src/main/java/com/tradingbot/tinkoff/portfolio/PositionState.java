@@ -0,0 +1,29 @@
+package com.tradingbot.tinkoff.portfolio;
+
+import java.math.BigDecimal;
+
+/**
+ * Позиция по инструменту в снимке портфеля.
+ *
+ * @param quantity     количество в штуках (контрактах) со знаком
+ * @param quantityLots количество в лотах со знаком
+ * @param averagePrice средняя цена позиции; {@code null}, пока позиция известна только из стрима позиций
+ * @param currentPrice текущая цена из последнего портфеля; {@code null}, если еще неизвестна
+ * @param currency     валюта цен в нижнем регистре
+ */
+public record PositionState(String figi,
+                            String instrumentType,
+                            BigDecimal quantity,
+                            BigDecimal quantityLots,
+                            BigDecimal averagePrice,
+                            BigDecimal currentPrice,
+                            String currency) {
+
+    public boolean isCurrency() {
+        return "currency".equals(instrumentType);
+    }
+
+    PositionState withQuantity(BigDecimal quantity, BigDecimal quantityLots) {
+        return new PositionState(figi, instrumentType, quantity, quantityLots, averagePrice, currentPrice, currency);
+    }
+}
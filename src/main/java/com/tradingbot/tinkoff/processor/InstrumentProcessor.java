@@ -1,61 +1,83 @@
 package com.tradingbot.tinkoff.processor;
 
 import com.tradingbot.tinkoff.api.TinkoffApiConnector;
+import com.tradingbot.tinkoff.backtest.MarketDataRecorder;
+import com.tradingbot.tinkoff.execution.FuturesMarginCache;
+import com.tradingbot.tinkoff.execution.OrderGateway;
+import com.tradingbot.tinkoff.execution.TinkoffOrderGateway;
 import com.tradingbot.tinkoff.model.TradableInstrument;
 import com.tradingbot.tinkoff.model.TradingSignal;
+import com.tradingbot.tinkoff.portfolio.MarkToMarketEngine;
+import com.tradingbot.tinkoff.portfolio.PortfolioStateService;
+import com.tradingbot.tinkoff.risk.CapitalBudget;
+import com.tradingbot.tinkoff.risk.PortfolioRiskEngine;
 import com.tradingbot.tinkoff.risk.RiskManager;
+import com.tradingbot.tinkoff.rules.RuleSet;
 import com.tradingbot.tinkoff.strategy.MultiStrategyManager;
+import com.tradingbot.tinkoff.strategy.StrategyConfig;
 import com.tradingbot.tinkoff.tracking.SignalTracker;
 import javafx.collections.ObservableList;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.ta4j.core.BarSeries;
-import org.ta4j.core.BaseBar;
-import org.ta4j.core.BaseBarSeriesBuilder;
-import org.ta4j.core.num.DecimalNum;
 import ru.tinkoff.piapi.contract.v1.*;
 import ru.tinkoff.piapi.core.stream.MarketDataSubscriptionService;
 
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
 import java.time.Duration;
-import java.time.Instant;
-import java.time.ZoneId;
-import java.time.ZonedDateTime;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.*;
 import java.util.function.Consumer;
 import java.util.Map;
-import java.util.HashMap;
 
 /**
  * Инкапсулирует всю торговую логику для одного инструмента.
- * Отвечает за свою серию баров, стратегии, управление рисками и исполнение сделок.
+ * Отвечает за свою историю баров (в контексте менеджера стратегий), стратегии, управление рисками и исполнение сделок.
  */
 public class InstrumentProcessor {
     private static final Logger logger = LoggerFactory.getLogger(InstrumentProcessor.class);
-    private static final long SIGNAL_COOLDOWN_SECONDS = 60;
+    // Интрабар-анализ по сделкам и последним ценам (-Dtradingbot.intrabar.enabled=false отключает)
+    private static final boolean INTRABAR_ENABLED = Boolean.parseBoolean(System.getProperty("tradingbot.intrabar.enabled", "true"));
+    // Запись стакана и ленты в файлы MarketDataRecorder (-Dtradingbot.record.dir=recordings/); по умолчанию выключена
+    private static final String RECORD_DIR = System.getProperty("tradingbot.record.dir");
+    private static final int RECORD_DEPTH = Integer.getInteger("tradingbot.record.depth", 20);
+    private static final DateTimeFormatter RECORD_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+    // Сколько ждать идущий анализ при остановке, прежде чем вернуть массив состояния в пул
+    private static final long STOP_TIMEOUT_SECONDS = 5;
 
     private final TradableInstrument instrument;
     private final TinkoffApiConnector apiConnector;
     private final SignalTracker signalTracker;
-    private final BarSeries barSeries;
     private final MultiStrategyManager strategyManager;
-    private final RiskManager riskManager;
+    private final SignalExecutor signalExecutor;
     private final ExecutorService backgroundExecutor;
+    private final PortfolioRiskEngine portfolioRisk;
 
     // UI-зависимые компоненты, передаются извне
     private final Consumer<String> loggerCallback;
     private final ObservableList<TradingSignal> signalsList;
 
+    // Подписка и флаг остановки меняются под блокировкой процессора: подписка после stop() невозможна
     private MarketDataSubscriptionService marketDataSubscription;
-    private ScheduledExecutorService strategyExecutor;
-    private Instant lastSignalTimestamp;
+    private MarketDataRecorder recorder;
+    private volatile ScheduledExecutorService strategyExecutor;
+    private volatile boolean stopped;
 
     public InstrumentProcessor(TradableInstrument instrument,
                                TinkoffApiConnector apiConnector,
                                SignalTracker signalTracker,
                                ExecutorService backgroundExecutor,
+                               PortfolioStateService portfolioState,
+                               MarkToMarketEngine markToMarket,
+                               PortfolioRiskEngine portfolioRisk,
+                               CapitalBudget capitalBudget,
+                               FuturesMarginCache futuresMargins,
                                Consumer<String> loggerCallback,
                                ObservableList<TradingSignal> signalsList,
                                List<String> enabledStrategies) {
@@ -63,18 +85,26 @@ public class InstrumentProcessor {
         this.apiConnector = apiConnector;
         this.signalTracker = signalTracker;
         this.backgroundExecutor = backgroundExecutor;
+        this.portfolioRisk = portfolioRisk;
         this.loggerCallback = loggerCallback;
         this.signalsList = signalsList;
 
-        this.barSeries = new BaseBarSeriesBuilder().withName(instrument.identifier()).build();
-        this.strategyManager = new MultiStrategyManager(barSeries, enabledStrategies);
-        this.riskManager = new RiskManager(
-                new BigDecimal("1.0"), // 1% риска на сделку
-                new BigDecimal("1000"), // Минимальный размер позиции 1000 RUB
-                new BigDecimal("20.0"), // Максимальный % капитала на позицию 20%
-                new BigDecimal("0.5"), // Расстояние стоп-лосса 0.5%
-                new BigDecimal("0.001"), // Минимальное расстояние стоп-лосса (например, 0.1%)
-                apiConnector // Передаем TinkoffApiConnector
+        this.strategyManager = new MultiStrategyManager(instrument, enabledStrategies);
+        futuresMargins.prioritize(instrument);
+        OrderGateway orderGateway = new TinkoffOrderGateway(apiConnector, portfolioState, markToMarket, futuresMargins);
+        RiskManager riskManager = RiskManager.withDefaults(orderGateway);
+        riskManager.setPortfolioRisk(portfolioRisk);
+        riskManager.setCapitalBudget(capitalBudget);
+        this.signalExecutor = new SignalExecutor(
+                instrument,
+                strategyManager,
+                riskManager,
+                orderGateway,
+                Clock.systemDefaultZone(),
+                backgroundExecutor, // Приказы отправляются в фоновом пуле
+                this::log,
+                this::onSignalAccepted,
+                this::handleCriticalError
         );
     }
 
@@ -89,6 +119,7 @@ public class InstrumentProcessor {
             t.setDaemon(true);
             return t;
         });
+        strategyManager.setBarDuration(barDuration);
 
         backgroundExecutor.submit(() -> {
             try {
@@ -96,208 +127,240 @@ public class InstrumentProcessor {
                 log(String.format("⏳ [%s] Требуется %d баров для прогрева. Загрузка истории...", instrument.name(), requiredBars));
 
                 List<HistoricCandle> historicCandles = apiConnector.getHistoricCandles(instrument.identifier(), 7, interval);
-                historicCandles.forEach(candle -> addCandleToSeries(candle, barDuration));
-                log(String.format("✅ [%s] История загружена. Баров в серии: %d.", instrument.name(), barSeries.getBarCount()));
+                for (HistoricCandle candle : historicCandles) {
+                    if (stopped) {
+                        return; // Остановлен во время загрузки: контекст уже мог уйти в пул
+                    }
+                    addCandleToHistory(candle);
+                }
+                log(String.format("✅ [%s] История загружена. Баров в серии: %d.", instrument.name(), strategyManager.getBarCount()));
 
-                subscribeToMarketData(interval, barDuration);
-                startStrategyAnalysisScheduler();
+                TradingPathWarmup.ensureWarm(); // Один раз на процесс: первый сигнал не должен идти по холодному коду
+                synchronized (this) {
+                    if (stopped) {
+                        return;
+                    }
+                    subscribeToMarketData(interval);
+                    startStrategyAnalysisScheduler();
+                }
             } catch (Exception e) {
-                handleCriticalError("Ошибка при загрузке исторических данных", e);
+                if (!stopped) {
+                    handleCriticalError("Ошибка при загрузке исторических данных", e);
+                }
             }
         });
     }
 
     /**
-     * Полностью останавливает всю активность по инструменту.
+     * Полностью останавливает всю активность по инструменту: сначала подписку, затем поток анализа
+     * (с ожиданием идущего цикла) и только после этого возвращает массив состояния в пул.
+     * Загрузка истории и запоздавшие события стрима видят флаг остановки и ничего не пишут.
      */
     public void stop() {
-        if (strategyExecutor != null) {
-            strategyExecutor.shutdownNow();
+        synchronized (this) {
+            if (stopped) {
+                return;
+            }
+            stopped = true;
+            if (marketDataSubscription != null) {
+                marketDataSubscription.cancel();
+                marketDataSubscription = null;
+            }
+            if (recorder != null) {
+                try {
+                    recorder.close();
+                } catch (IOException e) {
+                    logger.warn("[{}] Не удалось закрыть запись рыночных данных: {}", instrument.name(), e.getMessage());
+                }
+                recorder = null;
+            }
         }
-        if (marketDataSubscription != null) {
-            marketDataSubscription.cancel();
+        ScheduledExecutorService executor = strategyExecutor;
+        if (executor != null) {
+            executor.shutdownNow();
+            try {
+                if (!executor.awaitTermination(STOP_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                    logger.warn("[{}] Анализ не завершился за {} с, массив состояния освобождается после него",
+                            instrument.name(), STOP_TIMEOUT_SECONDS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
         }
+        // Ждет под блокировкой контекста обновление, которое еще идет в потоке стрима или загрузки истории
+        strategyManager.release();
         log(String.format("🛑 [%s] Процесс остановлен.", instrument.name()));
     }
 
-    private void subscribeToMarketData(CandleInterval interval, Duration barDuration) {
+    /**
+     * Подменяет правила стратегии RULES. Вызывается из потока отслеживания файлов правил,
+     * новая версия подхватывается следующим циклом анализа.
+     */
+    public void updateRules(RuleSet rules) {
+        if (stopped) {
+            return;
+        }
+        strategyManager.updateRules(rules);
+        log(String.format("🧩 [%s] Применены правила: %s", instrument.name(), rules.getName()));
+    }
+
+    /**
+     * Подменяет параметры стратегий. Вызывается из потока отслеживания {@code strategies.json}.
+     */
+    public void updateStrategyConfigs(Map<String, StrategyConfig> configs) {
+        if (stopped) {
+            return;
+        }
+        strategyManager.updateConfigs(configs);
+    }
+
+    private void subscribeToMarketData(CandleInterval interval) {
+        boolean intrabar = INTRABAR_ENABLED && strategyManager.isIntrabarEnabled();
+        boolean orderFlow = INTRABAR_ENABLED && strategyManager.isOrderFlowEnabled();
+        MarketDataRecorder recording = openRecorder();
+        this.recorder = recording;
+        Consumer<Trade> tradeConsumer = orderFlow ? this::processTradeEvent : null;
+        if (recording != null) {
+            tradeConsumer = orderFlow
+                    ? trade -> {
+                        recording.onTrade(trade);
+                        processTradeEvent(trade);
+                    }
+                    : recording::onTrade;
+        }
         this.marketDataSubscription = apiConnector.subscribeToMarketData(
                 Collections.singletonList(instrument.identifier()),
                 interval,
-                candle -> processCandleEvent(candle, barDuration),
-                null,
-                0
+                this::processCandleEvent,
+                recording != null ? recording::onOrderBook : null,
+                recording != null ? RECORD_DEPTH : 0,
+                tradeConsumer,
+                intrabar ? this::processLastPriceEvent : null
         );
-        log(String.format("📊 [%s] Подписка на рыночные данные активна.", instrument.name()));
+        log(String.format("📊 [%s] Подписка на рыночные данные активна%s%s.", instrument.name(),
+                intrabar ? " (интрабар-режим)" : orderFlow ? " (лента сделок)" : "",
+                recording != null ? ", стакан и лента записываются" : ""));
+    }
+
+    /**
+     * Файл записи стакана и ленты инструмента, если запись включена; ошибка записи не мешает торговле.
+     */
+    private MarketDataRecorder openRecorder() {
+        if (RECORD_DIR == null || RECORD_DIR.isBlank()) {
+            return null;
+        }
+        try {
+            Path dir = Path.of(RECORD_DIR);
+            Files.createDirectories(dir);
+            Path file = dir.resolve(instrument.identifier() + "-" + LocalDateTime.now().format(RECORD_TIME) + ".tbmd");
+            return new MarketDataRecorder(file, instrument.identifier());
+        } catch (IOException | RuntimeException e) {
+            logger.warn("⚠️ [{}] Запись рыночных данных не включена: {}", instrument.name(), e.getMessage());
+            return null;
+        }
     }
 
     private void startStrategyAnalysisScheduler() {
-        strategyExecutor.scheduleAtFixedRate(this::runStrategyAnalysis, 15, 10, TimeUnit.SECONDS);
+        strategyExecutor.scheduleAtFixedRate(signalExecutor::runAnalysis, 15, 10, TimeUnit.SECONDS);
         log(String.format("🧠 [%s] Анализатор стратегий запущен.", instrument.name()));
     }
 
-    private void processCandleEvent(Candle candle, Duration barDuration) {
-        if (candle == null) return;
+    private void processCandleEvent(Candle candle) {
+        if (candle == null || stopped) return;
         try {
-            ZonedDateTime zdt = ZonedDateTime.ofInstant(TinkoffApiConnector.timestampToInstant(candle.getTime()), ZoneId.systemDefault());
-            BigDecimal close = TinkoffApiConnector.quotationToBigDecimal(candle.getClose());
-
-            BaseBar bar = new BaseBar(barDuration, zdt.toInstant(),
-                    DecimalNum.valueOf(TinkoffApiConnector.quotationToBigDecimal(candle.getOpen()).doubleValue()),
-                    DecimalNum.valueOf(TinkoffApiConnector.quotationToBigDecimal(candle.getHigh()).doubleValue()),
-                    DecimalNum.valueOf(TinkoffApiConnector.quotationToBigDecimal(candle.getLow()).doubleValue()),
-                    DecimalNum.valueOf(close.doubleValue()),
-                    DecimalNum.valueOf(BigDecimal.valueOf(candle.getVolume()).doubleValue()),
-                    DecimalNum.valueOf(BigDecimal.valueOf(candle.getVolume()).doubleValue()),
-                    0L);
-
-            synchronized (barSeries) {
-                if (barSeries.isEmpty() || zdt.toInstant().isAfter(barSeries.getLastBar().getEndTime())) {
-                    barSeries.addBar(bar);
-                } else if (zdt.toInstant().equals(barSeries.getLastBar().getEndTime())) {
-                    barSeries.addBar(bar, true);
-                }
-            }
-
+            BigDecimal close = applyCandle(strategyManager, candle);
+            portfolioRisk.onBar(instrument.identifier(), TinkoffApiConnector.timestampToMillis(candle.getTime()), close.doubleValue());
             signalTracker.updatePrice(instrument.identifier(), close);
-            log(String.format("📈 [%s] Свеча: %s | Баров: %d", instrument.name(), close, barSeries.getBarCount()));
+            log(String.format("📈 [%s] Свеча: %s | Баров: %d", instrument.name(), close, strategyManager.getBarCount()));
         } catch (Exception e) {
             logger.error(String.format("❌ [%s] Ошибка обработки свечи", instrument.name()), e);
         }
     }
 
-    private void runStrategyAnalysis() {
-        if (barSeries.getBarCount() < strategyManager.getUnstablePeriod()) {
-            logger.debug("[{}] Недостаточно баров для анализа: {}/{}. Ожидание...",
-                    instrument.name(), barSeries.getBarCount(), strategyManager.getUnstablePeriod());
-            return;
-        }
-
-        if (lastSignalTimestamp != null && Duration.between(lastSignalTimestamp, Instant.now()).getSeconds() < SIGNAL_COOLDOWN_SECONDS) {
-            logger.debug("Фильтр кулдауна для [{}]: сигналы игнорируются.", instrument.name());
-            return;
-        }
+    /**
+     * Построение бара из свечи стрима: новая свеча открывает бар, того же времени обновляет открытый.
+     *
+     * @return цена закрытия для трекера сигналов
+     */
+    static BigDecimal applyCandle(MultiStrategyManager strategyManager, Candle candle) {
+        BigDecimal close = TinkoffApiConnector.quotationToBigDecimal(candle.getClose());
+        strategyManager.onCandle(TinkoffApiConnector.timestampToInstant(candle.getTime()).toEpochMilli(),
+                TinkoffApiConnector.quotationToDouble(candle.getOpen()),
+                TinkoffApiConnector.quotationToDouble(candle.getHigh()),
+                TinkoffApiConnector.quotationToDouble(candle.getLow()),
+                close.doubleValue(),
+                candle.getVolume());
+        return close;
+    }
 
-        List<TradingSignal> signals = strategyManager.analyzeAll(instrument); // Передаем инструмент для обогащения сигнала
-        if (signals.isEmpty()) {
+    /**
+     * Сделка из ленты. Путь без аллокаций, пока нет сигнала: на пиковых потоках
+     * ликвидных бумаг вызывается тысячи раз в секунду.
+     */
+    private void processTradeEvent(Trade trade) {
+        if (stopped) {
             return;
         }
-
-        ru.tinkoff.piapi.core.models.Portfolio currentPortfolio = apiConnector.getPortfolio().join();
-
-        // Получаем текущую позицию для данного инструмента
-        ru.tinkoff.piapi.core.models.Position currentPosition = currentPortfolio.getPositions().stream()
-                .filter(p -> p.getFigi().equals(instrument.identifier()))
-                .findFirst()
-                .orElse(null);
-
-        // Собираем доступные балансы по валютам
-        Map<String, BigDecimal> availableBalances = new HashMap<>();
-        if (currentPortfolio.getTotalAmountCurrencies() != null) {
-            availableBalances.put(instrument.currency(), TinkoffApiConnector.moneyToBigDecimal(currentPortfolio.getTotalAmountCurrencies()));
+        try {
+            int side = trade.getDirection() == TradeDirection.TRADE_DIRECTION_BUY ? 1
+                    : trade.getDirection() == TradeDirection.TRADE_DIRECTION_SELL ? -1 : 0;
+            TradingSignal signal = strategyManager.onTrade(instrument,
+                    TinkoffApiConnector.timestampToMillis(trade.getTime()),
+                    TinkoffApiConnector.quotationToDouble(trade.getPrice()), trade.getQuantity(), side);
+            submitIntrabarSignal(signal);
+        } catch (Exception e) {
+            logger.error(String.format("❌ [%s] Ошибка обработки сделки", instrument.name()), e);
         }
+    }
 
-        for (TradingSignal signal : signals) {
-            // Проверка на "добор" позиции: если есть открытая позиция в том же направлении, игнорируем сигнал
-            if (currentPosition != null && currentPosition.getQuantity().compareTo(BigDecimal.ZERO) != 0) {
-                boolean isLongPosition = currentPosition.getQuantity().compareTo(BigDecimal.ZERO) > 0;
-                boolean isBuySignal = signal.getSignalType() == TradingSignal.SignalType.BUY;
-
-                if ((isLongPosition && isBuySignal) || (!isLongPosition && !isBuySignal)) {
-                    logger.info("[{}] Сигнал {} проигнорирован: уже есть открытая позиция в том же направлении.",
-                            instrument.name(), signal.getSignalType());
-                    continue; // Пропускаем текущий сигнал
-                }
-            }
-
-            RiskManager.ValidationResult validation = riskManager.validateSignal(
-                    instrument, signal, currentPortfolio, availableBalances, currentPosition);
-            if (validation.isValid()) {
-                this.lastSignalTimestamp = Instant.now();
-                signalTracker.trackSignal(signal);
-
-                log("🎯 [" + instrument.name() + "] Сигнал: " + signal.getDescription());
-                log("✅ [" + instrument.name() + "] " + validation.getMessage());
-
-                signalsList.add(0, signal);
-                executeTrade(signal, validation.getLots());
-                break;
-            } else {
-                logger.warn("[{}] Сигнал отклонен риск-менеджером: {}", instrument.name(), validation.getMessage());
-            }
-        }
+    private void processLastPriceEvent(LastPrice lastPrice) {
+        processTick(TinkoffApiConnector.timestampToMillis(lastPrice.getTime()),
+                TinkoffApiConnector.quotationToDouble(lastPrice.getPrice()), 0);
     }
 
-    private void executeTrade(TradingSignal signal, BigDecimal quantity) {
-        if (quantity.compareTo(BigDecimal.ZERO) <= 0) {
-            log(String.format("❌ [%s] Объем для сделки равен нулю. Сделка отменена.", instrument.name()));
+    /**
+     * Интрабар-тик: индикаторы пересчитываются сразу в потоке стрима,
+     * а обработка сигнала (портфель, риски, приказ) уходит в поток стратегий.
+     */
+    private void processTick(long timeMillis, double price, double quantity) {
+        if (stopped) {
             return;
         }
-
-        backgroundExecutor.submit(() -> {
-            try {
-                OrderDirection direction = signal.getSignalType() == TradingSignal.SignalType.BUY
-                        ? OrderDirection.ORDER_DIRECTION_BUY
-                        : OrderDirection.ORDER_DIRECTION_SELL;
-
-                log(String.format("🚀 [%s] Отправка рыночного приказа: %s, %d лот(а)...", instrument.name(), direction, quantity.longValue()));
-                PostOrderResponse response = apiConnector.postMarketOrder(instrument.identifier(), quantity.longValue(), direction);
-                log(String.format("✅ [%s] Приказ отправлен! OrderID: %s", instrument.name(), response.getOrderId()));
-
-                if (response.getExecutionReportStatus() == OrderExecutionReportStatus.EXECUTION_REPORT_STATUS_FILL) {
-                    if (signal.getStopLoss() != null && signal.getStopLoss().compareTo(BigDecimal.ZERO) > 0) {
-                        placeStopOrder(signal, quantity);
-                    }
-                } else {
-                    log(String.format("⚠️ [%s] Рыночный ордер не исполнился немедленно. Stop-Loss не выставлен.", instrument.name()));
-                }
-            } catch (Exception e) {
-                handleCriticalError("Ошибка исполнения приказа", e);
-            }
-        });
-    }
-
-    private void placeStopOrder(TradingSignal signal, BigDecimal quantity) {
         try {
-            StopOrderDirection stopDirection = (signal.getSignalType() == TradingSignal.SignalType.SELL)
-                    ? StopOrderDirection.STOP_ORDER_DIRECTION_BUY
-                    : StopOrderDirection.STOP_ORDER_DIRECTION_SELL;
-
-            log(String.format("🛡️ [%s] Выставление Stop-Loss: %s %d лотов по цене %s",
-                    instrument.name(), stopDirection, quantity.longValue(), signal.getStopLoss().toPlainString()));
-
-            String stopOrderId = apiConnector.postStopOrder(
-                    instrument.identifier(),
-                    quantity.longValue(),
-                    TinkoffApiConnector.bigDecimalToQuotation(signal.getStopLoss()),
-                    stopDirection,
-                    StopOrderType.STOP_ORDER_TYPE_STOP_LOSS
-            );
-            log(String.format("✅ [%s] Stop-Loss выставлен. OrderID: %s", instrument.name(), stopOrderId));
+            submitIntrabarSignal(strategyManager.onIntrabarTick(instrument, timeMillis, price, quantity));
         } catch (Exception e) {
-            handleCriticalError("Не удалось выставить Stop-Loss ордер", e);
+            logger.error(String.format("❌ [%s] Ошибка интрабар-анализа", instrument.name()), e);
         }
     }
 
-    private void addCandleToSeries(HistoricCandle candle, Duration barDuration) {
-        ZonedDateTime zdt = ZonedDateTime.ofInstant(TinkoffApiConnector.timestampToInstant(candle.getTime()), ZoneId.systemDefault());
-        synchronized (barSeries) {
-            BaseBar bar = new BaseBar(barDuration, zdt.toInstant(),
-                    DecimalNum.valueOf(TinkoffApiConnector.quotationToBigDecimal(candle.getOpen()).doubleValue()),
-                    DecimalNum.valueOf(TinkoffApiConnector.quotationToBigDecimal(candle.getHigh()).doubleValue()),
-                    DecimalNum.valueOf(TinkoffApiConnector.quotationToBigDecimal(candle.getLow()).doubleValue()),
-                    DecimalNum.valueOf(TinkoffApiConnector.quotationToBigDecimal(candle.getClose()).doubleValue()),
-                    DecimalNum.valueOf(BigDecimal.valueOf(candle.getVolume()).doubleValue()),
-                    DecimalNum.valueOf(BigDecimal.valueOf(candle.getVolume()).doubleValue()), 0L);
-
-            if (barSeries.isEmpty() || zdt.toInstant().isAfter(barSeries.getLastBar().getEndTime())) {
-                barSeries.addBar(bar);
-            } else if (zdt.toInstant().equals(barSeries.getLastBar().getEndTime())) {
-                barSeries.addBar(bar, true);
+    private void submitIntrabarSignal(TradingSignal signal) {
+        ScheduledExecutorService executor = strategyExecutor;
+        if (signal != null && executor != null && !stopped) {
+            try {
+                executor.execute(() -> signalExecutor.handleIntrabarSignal(signal));
+            } catch (RejectedExecutionException e) {
+                logger.debug("[{}] Интрабар-сигнал после остановки проигнорирован", instrument.name());
             }
         }
     }
 
+    private void onSignalAccepted(TradingSignal signal) {
+        signalTracker.trackSignal(signal);
+        signalsList.add(0, signal);
+    }
+
+    private void addCandleToHistory(HistoricCandle candle) {
+        long timeMillis = TinkoffApiConnector.timestampToInstant(candle.getTime()).toEpochMilli();
+        double close = TinkoffApiConnector.quotationToDouble(candle.getClose());
+        strategyManager.onCandle(timeMillis,
+                TinkoffApiConnector.quotationToDouble(candle.getOpen()),
+                TinkoffApiConnector.quotationToDouble(candle.getHigh()),
+                TinkoffApiConnector.quotationToDouble(candle.getLow()),
+                close,
+                candle.getVolume());
+        portfolioRisk.onBar(instrument.identifier(), timeMillis, close);
+    }
+
     private void log(String message) {
         // Вызываем колбэк для логирования в UI из основного потока JavaFX
         javafx.application.Platform.runLater(() -> loggerCallback.accept(message));
@@ -0,0 +1,358 @@
+package com.tradingbot.tinkoff.processor;
+
+import com.tradingbot.tinkoff.api.TinkoffApiConnector;
+import com.tradingbot.tinkoff.execution.AccountSnapshot;
+import com.tradingbot.tinkoff.execution.FuturesMarginCache;
+import com.tradingbot.tinkoff.execution.OrderGateway;
+import com.tradingbot.tinkoff.execution.OrderResult;
+import com.tradingbot.tinkoff.execution.TinkoffOrderGateway;
+import com.tradingbot.tinkoff.model.TradableInstrument;
+import com.tradingbot.tinkoff.model.TradingSignal;
+import com.tradingbot.tinkoff.portfolio.MarkToMarketEngine;
+import com.tradingbot.tinkoff.portfolio.PortfolioStateService;
+import com.tradingbot.tinkoff.risk.CapitalBudget;
+import com.tradingbot.tinkoff.risk.PortfolioRiskEngine;
+import com.tradingbot.tinkoff.risk.RiskManager;
+import com.tradingbot.tinkoff.strategy.AlignedSeries;
+import com.tradingbot.tinkoff.strategy.PairConfig;
+import com.tradingbot.tinkoff.strategy.PairsTradingStrategy;
+import com.tradingbot.tinkoff.strategy.SpreadSeries;
+import com.tradingbot.tinkoff.tracking.SignalTracker;
+import javafx.collections.ObservableList;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ru.tinkoff.piapi.contract.v1.Candle;
+import ru.tinkoff.piapi.contract.v1.CandleInterval;
+import ru.tinkoff.piapi.contract.v1.HistoricCandle;
+import ru.tinkoff.piapi.core.stream.MarketDataSubscriptionService;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Парная торговля двумя инструментами (например, акция и ее фьючерс): общая выровненная
+ * серия баров обеих ног, спред и {@link PairsTradingStrategy}.
+ *
+ * Объем первой ноги определяет риск-менеджер, вторая открывается по hedge ratio в тех же
+ * единицах (лот по цене инструмента, как в {@link RiskManager}). Стоп-приказы по ногам
+ * не выставляются: отдельный стоп ноги снял бы хедж, стоп пары — выход стратегии по stopZ.
+ */
+public class PairProcessor {
+    private static final Logger logger = LoggerFactory.getLogger(PairProcessor.class);
+
+    private final TradableInstrument first;
+    private final TradableInstrument second;
+    private final TinkoffApiConnector apiConnector;
+    private final SignalTracker signalTracker;
+    private final ExecutorService backgroundExecutor;
+    private final PortfolioRiskEngine portfolioRisk;
+    private final PairConfig config;
+    private final PairsTradingStrategy strategy = new PairsTradingStrategy();
+    private final OrderGateway orderGateway;
+    private final RiskManager riskManager;
+    private final Clock clock = Clock.systemDefaultZone();
+
+    // UI-зависимые компоненты, передаются извне
+    private final Consumer<String> loggerCallback;
+    private final ObservableList<TradingSignal> signalsList;
+
+    private AlignedSeries series;
+    private SpreadSeries spread;
+    private MarketDataSubscriptionService marketDataSubscription;
+    private ScheduledExecutorService strategyExecutor;
+    private Instant lastSignalTimestamp;
+
+    /**
+     * @param first  нога y спреда, ее объем считает риск-менеджер
+     * @param second нога x спреда (хедж)
+     */
+    public PairProcessor(TradableInstrument first,
+                         TradableInstrument second,
+                         TinkoffApiConnector apiConnector,
+                         SignalTracker signalTracker,
+                         ExecutorService backgroundExecutor,
+                         PortfolioStateService portfolioState,
+                         MarkToMarketEngine markToMarket,
+                         PortfolioRiskEngine portfolioRisk,
+                         CapitalBudget capitalBudget,
+                         FuturesMarginCache futuresMargins,
+                         PairConfig config,
+                         Consumer<String> loggerCallback,
+                         ObservableList<TradingSignal> signalsList) {
+        this.first = first;
+        this.second = second;
+        this.apiConnector = apiConnector;
+        this.signalTracker = signalTracker;
+        this.backgroundExecutor = backgroundExecutor;
+        this.portfolioRisk = portfolioRisk;
+        this.config = config;
+        this.loggerCallback = loggerCallback;
+        this.signalsList = signalsList;
+
+        futuresMargins.prioritize(first);
+        futuresMargins.prioritize(second);
+        this.orderGateway = new TinkoffOrderGateway(apiConnector, portfolioState, markToMarket, futuresMargins);
+        this.riskManager = RiskManager.withDefaults(orderGateway);
+        riskManager.setPortfolioRisk(portfolioRisk);
+        riskManager.setCapitalBudget(capitalBudget);
+    }
+
+    public String getName() {
+        return first.name() + " / " + second.name();
+    }
+
+    /**
+     * Загружает историю обеих ног, выравнивает ее и подписывается на свечи.
+     */
+    public void start(CandleInterval interval, Duration barDuration) {
+        log(String.format("🚀 [%s] Запуск парной торговли...", getName()));
+        this.series = new AlignedSeries(List.of(first, second), barDuration.toMillis());
+        this.spread = series.addSpread(0, 1, config);
+        this.strategyExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "Pair-" + getName());
+            t.setDaemon(true);
+            return t;
+        });
+
+        backgroundExecutor.submit(() -> {
+            try {
+                // История ног подается в серию одним потоком по возрастанию времени, как пришла бы из стрима
+                List<LegBar> history = new ArrayList<>();
+                for (TradableInstrument leg : List.of(first, second)) {
+                    int legIndex = series.legOf(leg.identifier());
+                    for (HistoricCandle candle : apiConnector.getHistoricCandles(leg.identifier(), 7, interval)) {
+                        history.add(new LegBar(legIndex, TinkoffApiConnector.timestampToMillis(candle.getTime()),
+                                TinkoffApiConnector.quotationToDouble(candle.getClose())));
+                    }
+                }
+                history.sort(Comparator.comparingLong(LegBar::timeMillis));
+                history.forEach(this::onBar);
+                log(String.format("✅ [%s] История выровнена. Шагов: %d, готово к анализу: %s.",
+                        getName(), series.getRowCount(), spread.isReady() ? "да" : "нет"));
+
+                subscribeToMarketData(interval);
+                strategyExecutor.scheduleAtFixedRate(this::runAnalysis, 15, 10, TimeUnit.SECONDS);
+            } catch (Exception e) {
+                handleCriticalError("Ошибка при загрузке исторических данных", e);
+            }
+        });
+    }
+
+    public void stop() {
+        if (strategyExecutor != null) {
+            strategyExecutor.shutdownNow();
+        }
+        if (marketDataSubscription != null) {
+            marketDataSubscription.cancel();
+        }
+        log(String.format("🛑 [%s] Парная торговля остановлена.", getName()));
+    }
+
+    private void subscribeToMarketData(CandleInterval interval) {
+        this.marketDataSubscription = apiConnector.subscribeToMarketData(
+                List.of(first.identifier(), second.identifier()), interval, this::processCandleEvent, null, 0);
+        log(String.format("📊 [%s] Подписка на свечи обеих ног активна.", getName()));
+    }
+
+    private void processCandleEvent(Candle candle) {
+        if (candle == null) return;
+        try {
+            int leg = series.legOf(candle.getFigi());
+            if (leg < 0) {
+                return;
+            }
+            onBar(new LegBar(leg, TinkoffApiConnector.timestampToMillis(candle.getTime()),
+                    TinkoffApiConnector.quotationToDouble(candle.getClose())));
+        } catch (Exception e) {
+            logger.error(String.format("❌ [%s] Ошибка обработки свечи", getName()), e);
+        }
+    }
+
+    private void onBar(LegBar bar) {
+        series.onBar(bar.leg(), bar.timeMillis(), bar.close());
+        portfolioRisk.onBar(series.getLegs().get(bar.leg()).identifier(), bar.timeMillis(), bar.close());
+    }
+
+    /**
+     * Цикл анализа спреда (поток стратегии пары).
+     */
+    private void runAnalysis() {
+        try {
+            if (lastSignalTimestamp != null
+                    && Duration.between(lastSignalTimestamp, clock.instant()).getSeconds() < SignalExecutor.SIGNAL_COOLDOWN_SECONDS) {
+                return;
+            }
+            AccountSnapshot firstAccount = orderGateway.getAccount(first);
+            AccountSnapshot secondAccount = orderGateway.getAccount(second);
+            if (firstAccount == null || secondAccount == null) {
+                logger.warn("[{}] Оценка счета недоступна (нет снимка портфеля или курса валюты). Цикл анализа пропущен.", getName());
+                return;
+            }
+            List<TradingSignal> signals = strategy.analyze(spread, firstAccount.positionLots().signum());
+            if (signals.isEmpty()) {
+                return;
+            }
+            if (signals.get(0).isExit()) {
+                closePair(signals, firstAccount, secondAccount);
+            } else {
+                openPair(signals, firstAccount, secondAccount);
+            }
+        } catch (Exception e) {
+            handleCriticalError("Ошибка анализа пары", e);
+        }
+    }
+
+    private void openPair(List<TradingSignal> signals, AccountSnapshot firstAccount, AccountSnapshot secondAccount) {
+        TradingSignal firstSignal = signals.get(0);
+        TradingSignal secondSignal = signals.get(1);
+        RiskManager.ValidationResult validation = riskManager.validateSignal(first, firstSignal, firstAccount);
+        if (!validation.isValid()) {
+            logger.warn("[{}] Сигнал пары отклонен риск-менеджером: {}", getName(), validation.getMessage());
+            return;
+        }
+        long firstLots = validation.getLots().longValue();
+        double hedge;
+        synchronized (series) {
+            hedge = spread.hedgeUnits();
+        }
+        // Хедж - штуки второй ноги на штуку первой: лоты переводятся через размеры лотов ног
+        long secondLots = Math.round(firstLots * first.lot() * hedge / second.lot());
+        if (firstLots <= 0 || secondLots <= 0) {
+            riskManager.releaseReservation(validation.getReservation());
+            log(String.format("❌ [%s] Объем ноги пары равен нулю (hedge %.4f). Сделка отменена.", getName(), hedge));
+            return;
+        }
+        // Резерв хеджа - под объем, который будет отправлен
+        RiskManager.ValidationResult hedgeValidation = riskManager.validateFixedSize(second, secondSignal, secondAccount, secondLots);
+        if (!hedgeValidation.isValid()) {
+            riskManager.releaseReservation(validation.getReservation());
+            logger.warn("[{}] Хедж пары отклонен риск-менеджером: {}", getName(), hedgeValidation.getMessage());
+            return;
+        }
+
+        accept(firstSignal);
+        accept(secondSignal);
+        backgroundExecutor.execute(() -> {
+            try {
+                log(String.format("🚀 [%s] Открытие пары: %s %d лот(а) / %s %d лот(а)...", getName(),
+                        firstSignal.getSignalType(), firstLots, secondSignal.getSignalType(), secondLots));
+                OrderResult firstResult = postLeg(first, firstLots, firstSignal, validation);
+                if (!firstResult.filled()) {
+                    riskManager.releaseReservation(hedgeValidation.getReservation());
+                    log(String.format("⚠️ [%s] Первая нога не исполнилась немедленно. Хедж не открыт.", getName()));
+                    return;
+                }
+                OrderResult secondResult;
+                try {
+                    secondResult = postLeg(second, secondLots, secondSignal, hedgeValidation);
+                } catch (Exception e) {
+                    riskManager.releaseReservation(hedgeValidation.getReservation());
+                    unwindFirstLeg(firstLots, firstSignal);
+                    throw e;
+                }
+                if (!secondResult.filled()) {
+                    log(String.format("❌ [%s] Хедж %s не исполнился (%s, OrderID: %s). Пара не открыта.",
+                            getName(), second.name(), secondResult.status(), secondResult.orderId()));
+                    unwindFirstLeg(firstLots, firstSignal);
+                    return;
+                }
+                log(String.format("✅ [%s] Пара открыта. OrderID: %s / %s", getName(), firstResult.orderId(), secondResult.orderId()));
+            } catch (Exception e) {
+                riskManager.releaseReservation(validation.getReservation());
+                riskManager.releaseReservation(hedgeValidation.getReservation());
+                handleCriticalError("Ошибка исполнения приказа пары", e);
+            }
+        });
+    }
+
+    /**
+     * Закрывает исполненную первую ногу, если хедж не открылся: стопов у ног нет, и без хеджа
+     * позиция осталась бы незащищенной. Принятый, но еще не исполненный хедж-приказ может
+     * исполниться позже — об этом предупреждает лог.
+     */
+    private void unwindFirstLeg(long lots, TradingSignal signal) {
+        TradingSignal.SignalType side = signal.getSignalType() == TradingSignal.SignalType.BUY
+                ? TradingSignal.SignalType.SELL
+                : TradingSignal.SignalType.BUY;
+        try {
+            log(String.format("🚪 [%s] Закрытие первой ноги %s без хеджа: %s, %d лот(а)...", getName(), first.name(), side, lots));
+            OrderResult result = orderGateway.closePosition(first, lots, side);
+            if (result.accepted()) {
+                log(String.format("✅ [%s] Приказ на закрытие первой ноги отправлен! OrderID: %s", getName(), result.orderId()));
+            } else {
+                handleCriticalError(String.format("брокер отклонил закрытие первой ноги %s (OrderID: %s), позиция без хеджа",
+                        first.name(), result.orderId()), null);
+            }
+        } catch (Exception e) {
+            handleCriticalError(String.format("не удалось закрыть первую ногу %s, позиция без хеджа", first.name()), e);
+        }
+    }
+
+    /**
+     * Приказ ноги: резерв капитала подтверждается, если приказ исполнился, иначе освобождается
+     * (после подтверждения освобождение не действует).
+     */
+    private OrderResult postLeg(TradableInstrument leg, long lots, TradingSignal signal, RiskManager.ValidationResult validation) {
+        OrderResult result = orderGateway.postMarketOrder(leg, lots, signal.getSignalType());
+        if (result.filled()) {
+            riskManager.commitReservation(validation.getReservation(), lots, signal.getSignalType());
+        } else {
+            riskManager.releaseReservation(validation.getReservation());
+        }
+        return result;
+    }
+
+    private void closePair(List<TradingSignal> signals, AccountSnapshot firstAccount, AccountSnapshot secondAccount) {
+        accept(signals.get(0));
+        accept(signals.get(1));
+        backgroundExecutor.execute(() -> {
+            try {
+                closeLeg(first, signals.get(0), firstAccount);
+                closeLeg(second, signals.get(1), secondAccount);
+            } catch (Exception e) {
+                handleCriticalError("Ошибка закрытия пары", e);
+            }
+        });
+    }
+
+    private void closeLeg(TradableInstrument leg, TradingSignal signal, AccountSnapshot account) {
+        long lots = account.positionLots().abs().longValue();
+        boolean closes = account.positionLots().signum() > 0 == (signal.getSignalType() == TradingSignal.SignalType.SELL);
+        if (lots == 0 || !closes) {
+            return;
+        }
+        log(String.format("🚪 [%s] Закрытие ноги %s: %s, %d лот(а)...", getName(), leg.name(), signal.getSignalType(), lots));
+        OrderResult result = orderGateway.closePosition(leg, lots, signal.getSignalType());
+        log(String.format("✅ [%s] Приказ на закрытие отправлен! OrderID: %s", getName(), result.orderId()));
+    }
+
+    private void accept(TradingSignal signal) {
+        lastSignalTimestamp = clock.instant();
+        signalTracker.trackSignal(signal);
+        javafx.application.Platform.runLater(() -> signalsList.add(0, signal));
+        log("🎯 [" + signal.getInstrument().name() + "] Сигнал пары: " + signal.getDescription());
+    }
+
+    private void log(String message) {
+        javafx.application.Platform.runLater(() -> loggerCallback.accept(message));
+        logger.info(message);
+    }
+
+    private void handleCriticalError(String message, Throwable e) {
+        String errorMessage = String.format("💥 [%s] Ошибка: %s. См. логи.", getName(), message);
+        logger.error(errorMessage, e);
+        javafx.application.Platform.runLater(() -> loggerCallback.accept(errorMessage));
+    }
+
+    private record LegBar(int leg, long timeMillis, double close) {
+    }
+}
@@ -0,0 +1,247 @@
+package com.tradingbot.tinkoff.processor;
+
+import com.tradingbot.tinkoff.execution.AccountSnapshot;
+import com.tradingbot.tinkoff.execution.OrderGateway;
+import com.tradingbot.tinkoff.execution.OrderResult;
+import com.tradingbot.tinkoff.model.TradableInstrument;
+import com.tradingbot.tinkoff.model.TradingSignal;
+import com.tradingbot.tinkoff.risk.CapitalBudget;
+import com.tradingbot.tinkoff.risk.RiskManager;
+import com.tradingbot.tinkoff.strategy.MultiStrategyManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Конвейер сигналов инструмента: прогрев и кулдаун, анализ стратегий, проверка рисков
+ * и исполнение через {@link OrderGateway}. Один и тот же код работает в живом процессоре
+ * и в бэктесте — режимы различаются только брокером, часами и исполнителем приказов.
+ *
+ * Методы анализа и обработки сигналов вызываются из одного потока (потока стратегий).
+ */
+public class SignalExecutor {
+    private static final Logger logger = LoggerFactory.getLogger(SignalExecutor.class);
+    static final long SIGNAL_COOLDOWN_SECONDS = 60;
+
+    private final TradableInstrument instrument;
+    private final MultiStrategyManager strategyManager;
+    private final RiskManager riskManager;
+    private final OrderGateway orderGateway;
+    private final Clock clock;
+    private final Executor orderExecutor;
+
+    private final Consumer<String> log;
+    private final Consumer<TradingSignal> onSignalAccepted;
+    private final BiConsumer<String, Throwable> onError;
+
+    private Instant lastSignalTimestamp;
+
+    /**
+     * @param orderExecutor    где отправляются приказы (фоновый пул в живой торговле, текущий поток в бэктесте)
+     * @param onSignalAccepted вызывается для сигнала, прошедшего проверки, перед отправкой приказа
+     */
+    public SignalExecutor(TradableInstrument instrument,
+                          MultiStrategyManager strategyManager,
+                          RiskManager riskManager,
+                          OrderGateway orderGateway,
+                          Clock clock,
+                          Executor orderExecutor,
+                          Consumer<String> log,
+                          Consumer<TradingSignal> onSignalAccepted,
+                          BiConsumer<String, Throwable> onError) {
+        this.instrument = instrument;
+        this.strategyManager = strategyManager;
+        this.riskManager = riskManager;
+        this.orderGateway = orderGateway;
+        this.clock = clock;
+        this.orderExecutor = orderExecutor;
+        this.log = log;
+        this.onSignalAccepted = onSignalAccepted;
+        this.onError = onError;
+    }
+
+    public boolean isInCooldown() {
+        return lastSignalTimestamp != null && Duration.between(lastSignalTimestamp, clock.instant()).getSeconds() < SIGNAL_COOLDOWN_SECONDS;
+    }
+
+    /**
+     * Цикл анализа по закрытым и текущему барам.
+     */
+    public void runAnalysis() {
+        int barCount = strategyManager.getBarCount();
+        int unstablePeriod = strategyManager.getUnstablePeriod();
+        if (barCount < unstablePeriod) {
+            logger.debug("[{}] Недостаточно баров для анализа: {}/{}. Ожидание...",
+                    instrument.name(), barCount, unstablePeriod);
+            return;
+        }
+
+        if (isInCooldown()) {
+            logger.debug("Фильтр кулдауна для [{}]: сигналы игнорируются.", instrument.name());
+            return;
+        }
+
+        List<TradingSignal> signals = strategyManager.analyzeAll(instrument); // Передаем инструмент для обогащения сигнала
+        if (signals.isEmpty()) {
+            return;
+        }
+        handleSignals(signals);
+    }
+
+    /**
+     * Интрабар-сигнал, рассчитанный в потоке стрима.
+     */
+    public void handleIntrabarSignal(TradingSignal signal) {
+        if (isInCooldown()) {
+            logger.debug("Фильтр кулдауна для [{}]: интрабар-сигнал игнорируется.", instrument.name());
+            return;
+        }
+        handleSignals(Collections.singletonList(signal));
+    }
+
+    /**
+     * Проверка сигналов против текущей позиции и риск-менеджера, исполнение первого валидного.
+     */
+    private void handleSignals(List<TradingSignal> signals) {
+        AccountSnapshot account = orderGateway.getAccount(instrument);
+        if (account == null) {
+            logger.warn("[{}] Оценка счета недоступна (нет снимка портфеля или курса валюты). Сигналы пропущены.", instrument.name());
+            return;
+        }
+
+        for (TradingSignal signal : signals) {
+            // Сигнал выхода исполняется только при наличии противоположной ему позиции
+            if (signal.isExit()) {
+                if (isClosedBy(signal, account)) {
+                    accept(signal);
+                    closePosition(signal, account.positionLots().abs());
+                    break;
+                }
+                logger.debug("[{}] Сигнал выхода {} проигнорирован: нет подходящей позиции.", instrument.name(), signal.getSignalType());
+                continue;
+            }
+
+            // Проверка на "добор" позиции: если есть открытая позиция в том же направлении, игнорируем сигнал
+            if (account.hasPosition()) {
+                boolean isLongPosition = account.positionQuantity().signum() > 0;
+                boolean isBuySignal = signal.getSignalType() == TradingSignal.SignalType.BUY;
+
+                if ((isLongPosition && isBuySignal) || (!isLongPosition && !isBuySignal)) {
+                    logger.info("[{}] Сигнал {} проигнорирован: уже есть открытая позиция в том же направлении.",
+                            instrument.name(), signal.getSignalType());
+                    continue; // Пропускаем текущий сигнал
+                }
+            }
+
+            RiskManager.ValidationResult validation = riskManager.validateSignal(instrument, signal, account);
+            if (validation.isValid()) {
+                accept(signal);
+                log.accept("✅ [" + instrument.name() + "] " + validation.getMessage());
+                executeTrade(signal, validation);
+                break;
+            } else {
+                logger.warn("[{}] Сигнал отклонен риск-менеджером: {}", instrument.name(), validation.getMessage());
+            }
+        }
+    }
+
+    private void accept(TradingSignal signal) {
+        this.lastSignalTimestamp = clock.instant();
+        onSignalAccepted.accept(signal);
+        log.accept("🎯 [" + instrument.name() + "] Сигнал: " + signal.getDescription());
+    }
+
+    /**
+     * @param validation объем, уровни по шагу цены и резерв капитала под сделку; резерв подтверждается,
+     *                   если брокер принял приказ (исполнен или ждет исполнения), при отказе или ошибке освобождается
+     */
+    private void executeTrade(TradingSignal signal, RiskManager.ValidationResult validation) {
+        BigDecimal quantity = validation.getLots();
+        CapitalBudget.Reservation reservation = validation.getReservation();
+        if (quantity.compareTo(BigDecimal.ZERO) <= 0) {
+            riskManager.releaseReservation(reservation);
+            log.accept(String.format("❌ [%s] Объем для сделки равен нулю. Сделка отменена.", instrument.name()));
+            return;
+        }
+
+        orderExecutor.execute(() -> {
+            try {
+                log.accept(String.format("🚀 [%s] Отправка рыночного приказа: %s, %d лот(а)...", instrument.name(), signal.getSignalType(), quantity.longValue()));
+                OrderResult result;
+                try {
+                    result = orderGateway.postMarketOrder(instrument, quantity.longValue(), signal.getSignalType());
+                } catch (Exception e) {
+                    riskManager.releaseReservation(reservation);
+                    throw e;
+                }
+                if (!result.accepted()) {
+                    // Отклоненный приказ позиции не откроет: резерв не ждет сверки и TTL
+                    riskManager.releaseReservation(reservation);
+                    log.accept(String.format("❌ [%s] Брокер отклонил приказ. OrderID: %s", instrument.name(), result.orderId()));
+                    return;
+                }
+                riskManager.commitReservation(reservation, quantity.longValue(), signal.getSignalType());
+                log.accept(String.format("✅ [%s] Приказ отправлен! OrderID: %s", instrument.name(), result.orderId()));
+
+                if (result.filled()) {
+                    BigDecimal stopLoss = validation.getStopLoss();
+                    if (stopLoss != null && stopLoss.compareTo(BigDecimal.ZERO) > 0) {
+                        placeStopOrder(signal, quantity, stopLoss);
+                    }
+                } else {
+                    log.accept(String.format("⚠️ [%s] Рыночный ордер не исполнился немедленно. Stop-Loss не выставлен.", instrument.name()));
+                }
+            } catch (Exception e) {
+                onError.accept("Ошибка исполнения приказа", e);
+            }
+        });
+    }
+
+    private boolean isClosedBy(TradingSignal signal, AccountSnapshot account) {
+        if (account.positionLots().signum() == 0) {
+            return false;
+        }
+        boolean isLongPosition = account.positionLots().signum() > 0;
+        return isLongPosition == (signal.getSignalType() == TradingSignal.SignalType.SELL);
+    }
+
+    private void closePosition(TradingSignal signal, BigDecimal lots) {
+        orderExecutor.execute(() -> {
+            try {
+                log.accept(String.format("🚪 [%s] Закрытие позиции: %s, %d лот(а)...", instrument.name(), signal.getSignalType(), lots.longValue()));
+                OrderResult result = orderGateway.closePosition(instrument, lots.longValue(), signal.getSignalType());
+                log.accept(String.format("✅ [%s] Приказ на закрытие отправлен! OrderID: %s", instrument.name(), result.orderId()));
+            } catch (Exception e) {
+                onError.accept("Ошибка закрытия позиции", e);
+            }
+        });
+    }
+
+    /**
+     * @param stopLoss стоп сигнала, округленный риск-менеджером по шагу цены
+     */
+    private void placeStopOrder(TradingSignal signal, BigDecimal quantity, BigDecimal stopLoss) {
+        try {
+            TradingSignal.SignalType stopSide = signal.getSignalType() == TradingSignal.SignalType.SELL
+                    ? TradingSignal.SignalType.BUY
+                    : TradingSignal.SignalType.SELL;
+
+            log.accept(String.format("🛡️ [%s] Выставление Stop-Loss: %s %d лотов по цене %s",
+                    instrument.name(), stopSide, quantity.longValue(), stopLoss.toPlainString()));
+
+            String stopOrderId = orderGateway.postStopLoss(instrument, quantity.longValue(), stopLoss, stopSide);
+            log.accept(String.format("✅ [%s] Stop-Loss выставлен. OrderID: %s", instrument.name(), stopOrderId));
+        } catch (Exception e) {
+            onError.accept("Не удалось выставить Stop-Loss ордер", e);
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package com.tradingbot.tinkoff.processor;
+
+import com.google.protobuf.Timestamp;
+import com.tradingbot.tinkoff.api.TinkoffApiConnector;
+import com.tradingbot.tinkoff.backtest.BacktestClock;
+import com.tradingbot.tinkoff.execution.WarmupOrderGateway;
+import com.tradingbot.tinkoff.model.TradableInstrument;
+import com.tradingbot.tinkoff.model.TradingSignal;
+import com.tradingbot.tinkoff.risk.PortfolioRiskConfig;
+import com.tradingbot.tinkoff.risk.PortfolioRiskEngine;
+import com.tradingbot.tinkoff.risk.RiskManager;
+import com.tradingbot.tinkoff.strategy.MultiStrategyManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ru.tinkoff.piapi.contract.v1.Candle;
+
+import java.lang.management.CompilationMXBean;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Прогрев JIT торгового пути перед первой подпиской на рыночные данные.
+ *
+ * Без прогрева первый сигнал дня проходит через интерпретируемый код: построение бара из свечи,
+ * анализ стратегий, {@link RiskManager#validateSignal} с портфельным риском и сборку приказа. Прогрев гоняет этот путь
+ * на синтетических барах через {@link SignalExecutor} и {@link WarmupOrderGateway} (приказы никуда
+ * не отправляются), пока JIT не затихнет: время компиляции за пачку итераций перестает расти.
+ * Выполняется один раз на процесс в отдельном потоке; {@code -Dtradingbot.warmup.enabled=false} отключает прогрев.
+ */
+public final class TradingPathWarmup {
+    private static final Logger logger = LoggerFactory.getLogger(TradingPathWarmup.class);
+    private static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("tradingbot.warmup.enabled", "true"));
+    // Логи синтетических сигналов из этого потока ниже ERROR отбрасываются фильтром в logback.xml,
+    // поэтому итог и ошибки прогрева логирует вызывающий поток
+    static final String THREAD_NAME = "JIT-Warmup";
+
+    private static final int BATCH = 500;
+    // Не меньше порогов C2 для методов, вызываемых один раз за итерацию
+    private static final int MIN_ITERATIONS = 20_000;
+    private static final int MAX_ITERATIONS = 200_000;
+    private static final long TIME_BUDGET_MILLIS = 20_000;
+    // Пачка считается тихой, если время компиляции выросло не больше чем на порог
+    private static final long QUIET_COMPILE_MILLIS = 2;
+    private static final int QUIET_BATCHES = 3;
+
+    private static final long START_MILLIS = 1_709_276_400_000L; // 2024-03-01 10:00 МСК
+    private static final long BAR_MILLIS = 60_000L;
+    // Шаг часов сигналов: каждый следующий сигнал уже вне кулдауна
+    private static final long SIGNAL_STEP_MILLIS = (SignalExecutor.SIGNAL_COOLDOWN_SECONDS + 1) * 1000;
+
+    // Уровни сигналов проходят все проверки риск-менеджера: R/R 1:3, позиция 10% капитала
+    private static final BigDecimal CAPITAL = new BigDecimal("1000000");
+    private static final BigDecimal INITIAL_MARGIN = new BigDecimal("100");
+    private static final BigDecimal ENTRY = new BigDecimal("100");
+    private static final BigDecimal LONG_STOP = new BigDecimal("90");
+    private static final BigDecimal LONG_TAKE = new BigDecimal("130");
+    private static final BigDecimal SHORT_STOP = new BigDecimal("110");
+    private static final BigDecimal SHORT_TAKE = new BigDecimal("70");
+
+    /**
+     * Итог прогрева.
+     *
+     * @param compileMillis время компиляции JIT за прогрев (по всему процессу)
+     * @param converged     JIT затих до исчерпания бюджета итераций и времени
+     */
+    public record Result(int iterations, int acceptedSignals, long elapsedMillis, long compileMillis, boolean converged) {
+    }
+
+    private static Result result;
+
+    private final TradableInstrument stock = new TradableInstrument("WARMUP", "WARMUP000000", TradableInstrument.InstrumentType.STOCK, "rub");
+    private final TradableInstrument future = new TradableInstrument("WARMUP-F", "WARMUPF00000", TradableInstrument.InstrumentType.FUTURE, "rub");
+    private final BacktestClock clock = new BacktestClock();
+    private final WarmupOrderGateway orderGateway = new WarmupOrderGateway(CAPITAL, INITIAL_MARGIN);
+    private final PortfolioRiskConfig riskConfig = PortfolioRiskConfig.builder().build();
+    private final PortfolioRiskEngine portfolioRisk = new PortfolioRiskEngine(riskConfig);
+    private final MultiStrategyManager strategyManager;
+    private final SignalExecutor stockExecutor;
+    private final SignalExecutor futureExecutor;
+    private final SplittableRandom random = new SplittableRandom(42);
+
+    private long barTime = START_MILLIS;
+    private double close = 100;
+    private int acceptedSignals;
+    private Throwable firstError;
+
+    private TradingPathWarmup() {
+        strategyManager = new MultiStrategyManager(stock, MultiStrategyManager.getAvailableStrategyNames());
+        strategyManager.setBarDuration(Duration.ofMillis(BAR_MILLIS));
+        stockExecutor = executor(stock);
+        futureExecutor = executor(future);
+    }
+
+    /**
+     * Прогревает торговый путь при первом вызове; остальные вызовы ждут его окончания.
+     * Ошибка прогрева не мешает торговле: она логируется, а подписка продолжается на холодном коде.
+     */
+    public static synchronized Result ensureWarm() {
+        if (result != null) {
+            return result;
+        }
+        if (!ENABLED) {
+            logger.info("ℹ️ Прогрев JIT торгового пути отключен.");
+            result = new Result(0, 0, 0, 0, false);
+            return result;
+        }
+
+        logger.info("🔥 Прогрев JIT торгового пути на синтетических данных...");
+        AtomicReference<Result> outcome = new AtomicReference<>(new Result(0, 0, 0, 0, false));
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread thread = new Thread(() -> {
+            try {
+                TradingPathWarmup warmup = new TradingPathWarmup();
+                outcome.set(warmup.run());
+                failure.set(warmup.firstError);
+            } catch (Exception e) {
+                failure.set(e);
+            }
+        }, THREAD_NAME);
+        thread.setDaemon(true);
+        thread.start();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        result = outcome.get();
+        if (failure.get() != null) {
+            logger.warn("⚠️ Ошибка при прогреве JIT торгового пути: {}", failure.get().getMessage(), failure.get());
+        }
+        logger.info("✅ Прогрев JIT завершен: {} итераций, {} сигналов, {} мс (компиляция {} мс){}",
+                result.iterations(), result.acceptedSignals(), result.elapsedMillis(), result.compileMillis(),
+                result.converged() ? "" : " — бюджет исчерпан до затихания JIT");
+        if (result.iterations() > 0 && result.acceptedSignals() == 0) {
+            logger.warn("⚠️ Прогрев не провел ни одного сигнала через риск-менеджер и приказы.");
+        }
+        return result;
+    }
+
+    private Result run() {
+        CompilationMXBean jit = ManagementFactory.getCompilationMXBean();
+        boolean monitored = jit != null && jit.isCompilationTimeMonitoringSupported();
+        long started = System.nanoTime();
+        long compileStarted = monitored ? jit.getTotalCompilationTime() : 0;
+        long compileBefore = compileStarted;
+        int iterations = 0;
+        int quietBatches = 0;
+        boolean converged = false;
+        try {
+            // История для периода нестабильности индикаторов и сценариев портфельного риска
+            int history = Math.max(strategyManager.getUnstablePeriod(), riskConfig.getScenarios() + riskConfig.getHorizonBars());
+            for (int i = 0; i < history; i++) {
+                nextBar();
+            }
+            portfolioRisk.updatePositions(Map.of(stock.identifier(), 100_000.0, future.identifier(), -50_000.0));
+            portfolioRisk.recompute();
+            while (iterations < MAX_ITERATIONS && elapsedMillis(started) < TIME_BUDGET_MILLIS) {
+                for (int i = 0; i < BATCH; i++) {
+                    iterate(iterations++);
+                }
+                if (!monitored) {
+                    // Без счетчика компиляции ограничиваемся минимальным числом итераций
+                    converged = iterations >= MIN_ITERATIONS;
+                } else {
+                    long compile = jit.getTotalCompilationTime();
+                    quietBatches = compile - compileBefore <= QUIET_COMPILE_MILLIS ? quietBatches + 1 : 0;
+                    compileBefore = compile;
+                    converged = iterations >= MIN_ITERATIONS && quietBatches >= QUIET_BATCHES;
+                }
+                if (converged) {
+                    break;
+                }
+            }
+        } finally {
+            strategyManager.release();
+            portfolioRisk.stop();
+        }
+        return new Result(iterations, acceptedSignals, elapsedMillis(started),
+                monitored ? jit.getTotalCompilationTime() - compileStarted : 0, converged);
+    }
+
+    /**
+     * Одна итерация: новый бар из свечи стрима, сделка и тик внутри бара, анализ всех стратегий,
+     * затем сигнал по акции и фьючерсу через проверку рисков и приказ.
+     * Фазы сигналов по кругу: вход в лонг, выход, вход в шорт, выход.
+     */
+    private void iterate(int iteration) {
+        nextBar();
+        strategyManager.onTrade(stock, barTime + 1_000, close, 10, (iteration & 1) == 0 ? 1 : -1);
+        strategyManager.onIntrabarTick(stock, barTime + 2_000, close, 0);
+        strategyManager.analyzeAll(stock);
+
+        clock.setMillis(START_MILLIS + iteration * SIGNAL_STEP_MILLIS);
+        stockExecutor.handleIntrabarSignal(signal(stock, iteration & 3));
+        futureExecutor.handleIntrabarSignal(signal(future, iteration & 3));
+    }
+
+    private void nextBar() {
+        barTime += BAR_MILLIS;
+        double open = close;
+        close = Math.max(1, open * (1 + (random.nextDouble() - 0.5) * 0.004));
+        double high = Math.max(open, close) * (1 + random.nextDouble() * 0.001);
+        double low = Math.min(open, close) * (1 - random.nextDouble() * 0.001);
+        InstrumentProcessor.applyCandle(strategyManager, Candle.newBuilder()
+                .setFigi(stock.identifier())
+                .setTime(Timestamp.newBuilder().setSeconds(barTime / 1000).build())
+                .setOpen(TinkoffApiConnector.bigDecimalToQuotation(BigDecimal.valueOf(open)))
+                .setHigh(TinkoffApiConnector.bigDecimalToQuotation(BigDecimal.valueOf(high)))
+                .setLow(TinkoffApiConnector.bigDecimalToQuotation(BigDecimal.valueOf(low)))
+                .setClose(TinkoffApiConnector.bigDecimalToQuotation(BigDecimal.valueOf(close)))
+                .setVolume(100 + random.nextInt(10_000))
+                .build());
+        portfolioRisk.onBar(stock.identifier(), barTime, close);
+        portfolioRisk.onBar(future.identifier(), barTime, close);
+    }
+
+    private static TradingSignal signal(TradableInstrument instrument, int phase) {
+        boolean buy = phase == 0 || phase == 3;
+        TradingSignal signal = new TradingSignal(buy ? TradingSignal.SignalType.BUY : TradingSignal.SignalType.SELL,
+                80, "Прогрев JIT");
+        signal.setInstrument(instrument);
+        signal.setEntryPrice(ENTRY);
+        signal.setExit(phase == 1 || phase == 3);
+        signal.setStopLoss(buy ? LONG_STOP : SHORT_STOP);
+        signal.setTakeProfit(buy ? LONG_TAKE : SHORT_TAKE);
+        return signal;
+    }
+
+    private SignalExecutor executor(TradableInstrument instrument) {
+        RiskManager riskManager = RiskManager.withDefaults(orderGateway);
+        riskManager.setPortfolioRisk(portfolioRisk);
+        return new SignalExecutor(
+                instrument,
+                strategyManager,
+                riskManager,
+                orderGateway,
+                clock,
+                Runnable::run, // Приказы собираются в потоке прогрева
+                message -> { },
+                signal -> acceptedSignals++,
+                (message, e) -> {
+                    if (firstError == null) {
+                        firstError = new IllegalStateException(message, e);
+                    }
+                }
+        );
+    }
+
+    private static long elapsedMillis(long startedNanos) {
+        return (System.nanoTime() - startedNanos) / 1_000_000;
+    }
+}
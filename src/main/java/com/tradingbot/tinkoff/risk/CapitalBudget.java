@@ -0,0 +1,273 @@
+package com.tradingbot.tinkoff.risk;
+
+import com.tradingbot.tinkoff.model.TradableInstrument;
+import com.tradingbot.tinkoff.portfolio.EquitySnapshot;
+import com.tradingbot.tinkoff.portfolio.PortfolioSnapshot;
+import com.tradingbot.tinkoff.portfolio.PositionState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Общий бюджет капитала всех процессоров счета.
+ *
+ * Сигнал, прошедший проверку, резервирует сумму сделки в трех бюджетах: денежных остатках счета,
+ * бюджете валюты инструмента и бюджете инструмента. Резерв становится обязательством после отправки
+ * приказа и освобождается при отказе. Обязательство снимается, только когда сделка видна в снимке
+ * портфеля целиком: количество по FIGI изменилось на объем приказа и денежные остатки пришли из портфеля
+ * не раньше этого. Так два процессора, проверяющие сигналы одновременно, не тратят одни и те же деньги.
+ *
+ * Суммы — в рублях в нано-единицах (как {@code Quotation}); каждый бюджет — счетчик с CAS без блокировок,
+ * общей блокировки на весь универсум нет.
+ */
+public class CapitalBudget {
+    private static final Logger logger = LoggerFactory.getLogger(CapitalBudget.class);
+    static final long NANOS_PER_UNIT = 1_000_000_000L;
+
+    private final CapitalBudgetConfig config;
+    private final Limit cash = new Limit();
+    private final Map<String, Limit> currencies = new ConcurrentHashMap<>();
+    private final Map<String, Limit> instruments = new ConcurrentHashMap<>();
+    private final Set<Reservation> outstanding = ConcurrentHashMap.newKeySet();
+    private final AtomicLong reservationIds = new AtomicLong();
+
+    // Доли стоимости портфеля из последней синхронизации, в нано-единицах
+    private volatile long instrumentCapacity;
+    private volatile long currencyCapacity;
+    private volatile Map<String, PositionState> positions = Map.of();
+    private volatile Map<String, Double> exposures = Map.of();
+    private volatile Map<String, Double> currencyExposures = Map.of();
+
+    public CapitalBudget(CapitalBudgetConfig config) {
+        this.config = config;
+    }
+
+    /**
+     * Резерв суммы сделки; {@code null}, если не хватает денег или лимита валюты/инструмента.
+     */
+    public Reservation reserve(TradableInstrument instrument, BigDecimal amountRub) {
+        long amount = toNanos(amountRub);
+        String currency = instrument.currency().toLowerCase(Locale.ROOT);
+        Limit currencyLimit = currencies.computeIfAbsent(currency, key -> new Limit(currencyCapacity(key)));
+        Limit instrumentLimit = instruments.computeIfAbsent(instrument.identifier(), key -> new Limit(instrumentCapacity(key)));
+
+        if (!cash.tryAcquire(amount)) {
+            logger.debug("[{}] Резерв {} отклонен: денежные остатки {} из {} заняты", instrument.name(), amountRub,
+                    fromNanos(cash.used.get()), fromNanos(cash.capacity));
+            return null;
+        }
+        if (!currencyLimit.tryAcquire(amount)) {
+            cash.release(amount);
+            logger.debug("[{}] Резерв {} отклонен лимитом валюты {}", instrument.name(), amountRub, currency);
+            return null;
+        }
+        if (!instrumentLimit.tryAcquire(amount)) {
+            currencyLimit.release(amount);
+            cash.release(amount);
+            logger.debug("[{}] Резерв {} отклонен лимитом инструмента", instrument.name(), amountRub);
+            return null;
+        }
+        Reservation reservation = new Reservation(reservationIds.incrementAndGet(), instrument.identifier(),
+                currencyLimit, instrumentLimit, amount, System.currentTimeMillis(), lotsOf(positions, instrument.identifier()));
+        outstanding.add(reservation);
+        return reservation;
+    }
+
+    /**
+     * Приказ отправлен: резерв держится до снимка портфеля, в котором видна сделка.
+     *
+     * @param lots объем приказа в лотах со знаком направления (покупка положительная)
+     */
+    public void commit(Reservation reservation, long lots) {
+        if (reservation != null) {
+            reservation.expectedLots = lots;
+            reservation.committedAtMillis = System.currentTimeMillis();
+            reservation.state.compareAndSet(Reservation.RESERVED, Reservation.COMMITTED);
+        }
+    }
+
+    /**
+     * Приказ не отправлен или отклонен: сумма возвращается в бюджеты. Подтвержденный или уже
+     * освобожденный резерв не меняется.
+     */
+    public void release(Reservation reservation) {
+        if (reservation != null) {
+            settle(reservation, Reservation.RESERVED);
+        }
+    }
+
+    // Переход из состояния from в RELEASED выполняет ровно один поток
+    private void settle(Reservation reservation, int from) {
+        if (reservation.state.compareAndSet(from, Reservation.RELEASED)) {
+            reservation.instrumentLimit.release(reservation.amount);
+            reservation.currencyLimit.release(reservation.amount);
+            cash.release(reservation.amount);
+            outstanding.remove(reservation);
+        }
+    }
+
+    /**
+     * Новый снимок портфеля: емкости бюджетов по деньгам, стоимости портфеля и текущим позициям;
+     * обязательства, отраженные в снимке, и просроченные резервы снимаются.
+     *
+     * @param exposures         стоимость позиций по FIGI в рублях со знаком
+     * @param currencyExposures стоимость позиций по валютам в рублях по модулю
+     */
+    public void sync(PortfolioSnapshot snapshot, EquitySnapshot equity, Map<String, Double> exposures, Map<String, Double> currencyExposures) {
+        long now = System.currentTimeMillis();
+        long reservedBefore = now - config.getReservationTtlSeconds() * 1000L;
+        long committedBefore = now - config.getCommitmentTtlSeconds() * 1000L;
+        for (Reservation reservation : outstanding) {
+            int state = reservation.state.get();
+            if (state == Reservation.RESERVED && reservation.reservedAtMillis < reservedBefore) {
+                logger.warn("⚠️ Резерв #{} по {} не подтвержден за {} с и освобожден",
+                        reservation.id, reservation.figi, config.getReservationTtlSeconds());
+                settle(reservation, state);
+            } else if (state == Reservation.COMMITTED) {
+                if (reservation.filledVersion < 0 && isFilledIn(reservation, snapshot)) {
+                    reservation.filledVersion = snapshot.version();
+                }
+                // Количество могло прийти из стрима позиций раньше остатков: ждем остатки не старее сделки
+                if (reservation.filledVersion >= 0 && snapshot.cashVersion() >= reservation.filledVersion) {
+                    settle(reservation, state);
+                } else if (reservation.committedAtMillis < committedBefore) {
+                    logger.warn("⚠️ Сделка по обязательству #{} ({}) не видна в портфеле за {} с, обязательство снято",
+                            reservation.id, reservation.figi, config.getCommitmentTtlSeconds());
+                    settle(reservation, state);
+                }
+            }
+        }
+        positions = snapshot.positions();
+        long equityNanos = toNanos(equity.equity());
+        instrumentCapacity = (long) (equityNanos * config.getMaxInstrumentFraction());
+        currencyCapacity = (long) (equityNanos * config.getMaxCurrencyFraction());
+        this.exposures = exposures;
+        this.currencyExposures = currencyExposures;
+        cash.capacity = Math.max(0, toNanos(equity.cash()));
+        currencies.forEach((currency, limit) -> limit.capacity = currencyCapacity(currency));
+        instruments.forEach((figi, limit) -> limit.capacity = instrumentCapacity(figi));
+    }
+
+    // Количество по FIGI изменилось от резерва на весь объем приказа в его направлении
+    private static boolean isFilledIn(Reservation reservation, PortfolioSnapshot snapshot) {
+        long expected = reservation.expectedLots;
+        long moved = lotsOf(snapshot.positions(), reservation.figi) - reservation.baselineLots;
+        return expected != 0 && Long.signum(moved) == Long.signum(expected) && Math.abs(moved) >= Math.abs(expected);
+    }
+
+    private static long lotsOf(Map<String, PositionState> positions, String figi) {
+        PositionState position = positions.get(figi);
+        return position != null ? position.quantityLots().longValue() : 0;
+    }
+
+    // Доля портфеля за вычетом уже открытых позиций
+    private long currencyCapacity(String currency) {
+        return Math.max(0, currencyCapacity - toNanos(currencyExposures.getOrDefault(currency, 0.0)));
+    }
+
+    private long instrumentCapacity(String figi) {
+        return Math.max(0, instrumentCapacity - toNanos(Math.abs(exposures.getOrDefault(figi, 0.0))));
+    }
+
+    /**
+     * Свободная сумма денежных остатков в рублях (без резервов и обязательств).
+     */
+    public BigDecimal availableCash() {
+        return fromNanos(Math.max(0, cash.capacity - cash.used.get()));
+    }
+
+    static long toNanos(BigDecimal amount) {
+        return amount.movePointRight(9).setScale(0, RoundingMode.UP).longValueExact();
+    }
+
+    static long toNanos(double amount) {
+        return Math.round(amount * NANOS_PER_UNIT);
+    }
+
+    static BigDecimal fromNanos(long nanos) {
+        return BigDecimal.valueOf(nanos, 9);
+    }
+
+    /**
+     * Бюджет: емкость задается синхронизацией, занятая часть меняется CAS.
+     */
+    private static final class Limit {
+        volatile long capacity;
+        final AtomicLong used = new AtomicLong();
+
+        Limit() {
+            this(0);
+        }
+
+        Limit(long capacity) {
+            this.capacity = capacity;
+        }
+
+        boolean tryAcquire(long amount) {
+            while (true) {
+                long current = used.get();
+                if (current + amount > capacity) {
+                    return false;
+                }
+                if (used.compareAndSet(current, current + amount)) {
+                    return true;
+                }
+            }
+        }
+
+        void release(long amount) {
+            used.addAndGet(-amount);
+        }
+    }
+
+    /**
+     * Резерв одной сделки.
+     */
+    public static final class Reservation {
+        static final int RESERVED = 0;
+        static final int COMMITTED = 1;
+        static final int RELEASED = 2;
+
+        private final long id;
+        private final String figi;
+        private final Limit currencyLimit;
+        private final Limit instrumentLimit;
+        private final long amount;
+        private final long reservedAtMillis;
+        // Количество лотов по FIGI в последнем снимке до отправки приказа
+        private final long baselineLots;
+        private final AtomicInteger state = new AtomicInteger(RESERVED);
+        private volatile long expectedLots;
+        private volatile long committedAtMillis;
+        // Версия снимка, в котором впервые видно исполнение; -1 - еще не видно
+        private volatile long filledVersion = -1;
+
+        private Reservation(long id, String figi, Limit currencyLimit, Limit instrumentLimit, long amount,
+                            long reservedAtMillis, long baselineLots) {
+            this.id = id;
+            this.figi = figi;
+            this.currencyLimit = currencyLimit;
+            this.instrumentLimit = instrumentLimit;
+            this.amount = amount;
+            this.reservedAtMillis = reservedAtMillis;
+            this.baselineLots = baselineLots;
+        }
+
+        public BigDecimal amount() {
+            return fromNanos(amount);
+        }
+
+        @Override
+        public String toString() {
+            return "#" + id + " " + figi + " " + amount().toPlainString();
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.tradingbot.tinkoff.risk;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Параметры общего бюджета капитала: доли стоимости портфеля на инструмент и на валюту.
+ */
+@Getter
+@Builder(toBuilder = true)
+public class CapitalBudgetConfig {
+    // Позиция по инструменту вместе с резервами, как maxPositionPercent риск-менеджера
+    @Builder.Default
+    private final double maxInstrumentFraction = 0.20;
+    // Позиции в одной валюте вместе с резервами
+    @Builder.Default
+    private final double maxCurrencyFraction = 1.0;
+    // Резерв без подтверждения или отмены дольше этого срока считается потерянным и освобождается
+    @Builder.Default
+    private final int reservationTtlSeconds = 60;
+    // Обязательство, сделка которого так и не видна в портфеле (приказ не исполнился), снимается через этот срок
+    @Builder.Default
+    private final int commitmentTtlSeconds = 300;
+}
@@ -0,0 +1,268 @@
+package com.tradingbot.tinkoff.risk;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntConsumer;
+
+/**
+ * Экспоненциально взвешенная ковариация доходностей баров инструментов (RiskMetrics, нулевое среднее):
+ * на каждом баре C = decay * C + (1 - decay) * r r^T. Обновление ранга один идет блоками строк
+ * и стоит O(n^2) на бар вместо O(n^2 * окно) при пересчете по истории.
+ *
+ * Пишет один поток (планировщик портфельного риска); матрица корреляций публикуется неизменяемым
+ * снимком, поэтому проверки сделок читают ее без блокировок.
+ */
+final class CorrelationMatrix {
+    private static final int ROW_BLOCK = 16;
+    // Отставание инструмента в точках сетки, после которого он не задерживает шаг
+    static final int STALE_POINTS = 3;
+
+    /**
+     * Выполнение тела по индексам блоков: в потоке вызова или на пуле движка.
+     */
+    interface Parallel {
+        void forEach(int count, long cells, IntConsumer body);
+    }
+
+    /**
+     * Опубликованные корреляции [строка][столбец] по инструментам универсума.
+     */
+    record View(String[] ids, Map<String, Integer> index, double[] correlation, long bars) {
+        int size() {
+            return ids.length;
+        }
+    }
+
+    private final double decay;
+    private final double weight;
+    private String[] ids = new String[0];
+    private Map<String, Integer> index = Map.of();
+    private double[] covariance = new double[0];
+    private double[] lastClose = new double[0];
+    private double[] returns = new double[0];
+    private long barTime = Long.MIN_VALUE;
+    // Буферы шага: новые бары инструментов по stride на строку и новые точки сетки
+    private int stride;
+    private long[] pendingTimes = new long[0];
+    private double[] pendingCloses = new double[0];
+    private int[] pendingLengths = new int[0];
+    private int[] cursors = new int[0];
+    private long[] lastTimes = new long[0];
+    private long[] grid = new long[0];
+    private long bars;
+    private volatile View view;
+
+    CorrelationMatrix(double decay) {
+        this.decay = decay;
+        this.weight = 1 - decay;
+    }
+
+    View view() {
+        return view;
+    }
+
+    /**
+     * Совпадает ли универсум матрицы с набором инструментов пересчета.
+     */
+    synchronized boolean covers(String[] candidates, int n) {
+        if (n != ids.length) {
+            return false;
+        }
+        for (int i = 0; i < n; i++) {
+            if (!index.containsKey(candidates[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Новый универсум: матрица строится заново по выровненным ценам баров, бар за баром.
+     *
+     * @param aligned цены инструмента i на сетке: aligned[i * stride + g], g в [0, points); NaN - бара еще не было
+     * @param time    время последней точки сетки
+     */
+    synchronized void seed(String[] universe, int n, double[] aligned, int stride, int points, long time, Parallel parallel) {
+        ids = Arrays.copyOf(universe, n);
+        Map<String, Integer> rows = new HashMap<>(n * 2);
+        for (int i = 0; i < n; i++) {
+            rows.put(ids[i], i);
+        }
+        index = rows;
+        covariance = new double[n * n];
+        lastClose = new double[n];
+        returns = new double[n];
+
+        // Доходности по времени: строка на бар, чтобы внутренний цикл обновления шел подряд
+        int steps = Math.max(0, points - 1);
+        double[] history = new double[steps * n];
+        for (int i = 0; i < n; i++) {
+            int base = i * stride;
+            for (int g = 0; g < steps; g++) {
+                history[g * n + i] = barReturn(aligned[base + g], aligned[base + g + 1]);
+            }
+            double close = points > 0 ? aligned[base + points - 1] : Double.NaN;
+            lastClose[i] = close > 0 ? close : 0;
+        }
+        int blocks = (n + ROW_BLOCK - 1) / ROW_BLOCK;
+        parallel.forEach(blocks, (long) n * n * steps, block -> {
+            for (int g = 0; g < steps; g++) {
+                update(history, g * n, n, block);
+            }
+        });
+        barTime = time;
+        bars = steps;
+        publish(n, parallel);
+    }
+
+    /**
+     * Обновление по новым точкам той же сетки, что и при построении: объединение времен баров
+     * универсума с переносом последней цены на времена без бара. Точка берется, только когда
+     * она выровнена полностью - у каждого инструмента уже начался более поздний бар, то есть
+     * его бар этого времени закрыт или не появится. Инструмент, отставший на {@link #STALE_POINTS}
+     * точек сетки, шаг не держит: его цена переносится, как при построении.
+     *
+     * @return был ли шаг
+     */
+    synchronized boolean step(Map<String, PriceHistory> histories, Parallel parallel) {
+        int n = ids.length;
+        if (n == 0) {
+            return false;
+        }
+        // 1. Бары после последней точки сетки по каждому инструменту
+        for (int i = 0; i < n; i++) {
+            PriceHistory history = histories.get(ids[i]);
+            if (history != null) {
+                stride = Math.max(stride, history.capacity());
+            }
+        }
+        if (pendingLengths.length < n) {
+            pendingLengths = new int[n];
+            cursors = new int[n];
+            lastTimes = new long[n];
+        }
+        if (pendingTimes.length < n * stride) {
+            pendingTimes = new long[n * stride];
+            pendingCloses = new double[n * stride];
+        }
+        int total = 0;
+        for (int i = 0; i < n; i++) {
+            PriceHistory history = histories.get(ids[i]);
+            pendingLengths[i] = history != null ? history.copyAfter(barTime, pendingTimes, pendingCloses, i * stride) : 0;
+            lastTimes[i] = pendingLengths[i] > 0 ? pendingTimes[i * stride + pendingLengths[i] - 1]
+                    : history != null ? history.lastTime() : Long.MIN_VALUE;
+            total += pendingLengths[i];
+        }
+        if (total == 0) {
+            return false;
+        }
+
+        // 2. Новые точки сетки: различные времена баров по возрастанию
+        if (grid.length < total) {
+            grid = new long[total];
+        }
+        Arrays.fill(cursors, 0, n, 0);
+        int points = 0;
+        while (true) {
+            long earliest = Long.MAX_VALUE;
+            for (int i = 0; i < n; i++) {
+                if (cursors[i] < pendingLengths[i]) {
+                    earliest = Math.min(earliest, pendingTimes[i * stride + cursors[i]]);
+                }
+            }
+            if (earliest == Long.MAX_VALUE) {
+                break;
+            }
+            grid[points++] = earliest;
+            for (int i = 0; i < n; i++) {
+                if (cursors[i] < pendingLengths[i] && pendingTimes[i * stride + cursors[i]] == earliest) {
+                    cursors[i]++;
+                }
+            }
+        }
+
+        // 3. Граница выравнивания: точка закрыта, если у каждого не отставшего инструмента есть бар позже нее
+        long frontier = Long.MAX_VALUE;
+        for (int i = 0; i < n; i++) {
+            int ahead = 0;
+            for (int g = points - 1; g >= 0 && grid[g] > lastTimes[i]; g--) {
+                ahead++;
+            }
+            if (ahead < STALE_POINTS) {
+                frontier = Math.min(frontier, lastTimes[i]);
+            }
+        }
+
+        // 4. Шаг на каждую закрытую точку: цена на время точки с переносом последней
+        Arrays.fill(cursors, 0, n, 0);
+        int blocks = (n + ROW_BLOCK - 1) / ROW_BLOCK;
+        int stepped = 0;
+        for (int g = 0; g < points && grid[g] < frontier; g++) {
+            long time = grid[g];
+            for (int i = 0; i < n; i++) {
+                int base = i * stride;
+                double close = lastClose[i];
+                while (cursors[i] < pendingLengths[i] && pendingTimes[base + cursors[i]] <= time) {
+                    close = pendingCloses[base + cursors[i]];
+                    cursors[i]++;
+                }
+                returns[i] = barReturn(lastClose[i], close);
+                if (close > 0) {
+                    lastClose[i] = close;
+                }
+            }
+            parallel.forEach(blocks, (long) n * n, block -> update(returns, 0, n, block));
+            barTime = time;
+            bars++;
+            stepped++;
+        }
+        if (stepped == 0) {
+            return false;
+        }
+        publish(n, parallel);
+        return true;
+    }
+
+    // C[i][j] = decay * C[i][j] + (1 - decay) * r[i] * r[j] для строк блока
+    private void update(double[] r, int offset, int n, int block) {
+        int from = block * ROW_BLOCK;
+        int to = Math.min(n, from + ROW_BLOCK);
+        for (int i = from; i < to; i++) {
+            double ri = weight * r[offset + i];
+            int row = i * n;
+            for (int j = 0; j < n; j++) {
+                covariance[row + j] = decay * covariance[row + j] + ri * r[offset + j];
+            }
+        }
+    }
+
+    private void publish(int n, Parallel parallel) {
+        double[] deviation = new double[n];
+        for (int i = 0; i < n; i++) {
+            double variance = covariance[i * n + i];
+            deviation[i] = variance > 0 ? Math.sqrt(variance) : 0;
+        }
+        double[] correlation = new double[n * n];
+        int blocks = (n + ROW_BLOCK - 1) / ROW_BLOCK;
+        parallel.forEach(blocks, (long) n * n, block -> {
+            int from = block * ROW_BLOCK;
+            int to = Math.min(n, from + ROW_BLOCK);
+            for (int i = from; i < to; i++) {
+                int row = i * n;
+                for (int j = 0; j < n; j++) {
+                    double scale = deviation[i] * deviation[j];
+                    correlation[row + j] = scale > 0 ? covariance[row + j] / scale : 0;
+                }
+                // Инструмент без движения цены коррелирован только сам с собой
+                correlation[row + i] = 1;
+            }
+        });
+        view = new View(ids, index, correlation, bars);
+    }
+
+    // До первого бара инструмента цена неизвестна: доходность нулевая
+    private static double barReturn(double from, double to) {
+        return from > 0 && to > 0 ? to / from - 1 : 0;
+    }
+}
@@ -0,0 +1,116 @@
+package com.tradingbot.tinkoff.risk;
+
+import ru.tinkoff.piapi.contract.v1.Quotation;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Арифметика с фиксированной точкой на {@code long} в нано-единицах (1e-9), как {@link Quotation}.
+ * Доли — в миллионных (ppm). Переполнение насыщается до {@link Long#MAX_VALUE}: такие суммы
+ * (больше 9.2 млрд) на счете недостижимы и любой лимит их отклоняет.
+ */
+public final class FixedPoint {
+    public static final long NANOS = 1_000_000_000L;
+    public static final long PPM = 1_000_000L;
+
+    private static final BigDecimal MAX_LONG = BigDecimal.valueOf(Long.MAX_VALUE);
+    private static final BigDecimal MIN_LONG = BigDecimal.valueOf(Long.MIN_VALUE);
+
+    private FixedPoint() {
+    }
+
+    public static long toNanos(BigDecimal value) {
+        return saturatedLong(value.movePointRight(9));
+    }
+
+    public static long toNanos(Quotation quotation) {
+        return quotation.getUnits() * NANOS + quotation.getNano();
+    }
+
+    public static long toNanos(double value) {
+        return Math.round(value * NANOS);
+    }
+
+    public static BigDecimal toBigDecimal(long nanos) {
+        return BigDecimal.valueOf(nanos, 9);
+    }
+
+    /**
+     * Сумма с двумя знаками для сообщений и логов.
+     */
+    public static BigDecimal toMoney(long nanos) {
+        return BigDecimal.valueOf(nanos, 9).setScale(2, RoundingMode.HALF_UP);
+    }
+
+    public static double toDouble(long nanos) {
+        return nanos / (double) NANOS;
+    }
+
+    /**
+     * Процент (1.5 = 1.5%) как доля в ppm (15 000).
+     */
+    public static long percentToPpm(BigDecimal percent) {
+        return saturatedLong(percent.movePointRight(4));
+    }
+
+    /**
+     * Доля value в ppm: value * ppm / 1e6, вниз.
+     */
+    public static long ofPpm(long value, long ppm) {
+        return mulDiv(value, ppm, PPM);
+    }
+
+    /**
+     * floor(a * b / c) для неотрицательных a, b и небольшого положительного c (масштаб: ppm, нано);
+     * результат насыщается.
+     */
+    public static long mulDiv(long a, long b, long c) {
+        long high = Math.multiplyHigh(a, b);
+        long low = a * b;
+        if (high == 0 && low >= 0) {
+            return low / c;
+        }
+        // (a / c) * b + (a % c) * b / c: без 128-битного произведения при небольших b и c
+        long whole = saturatedMultiply(a / c, b);
+        long rest = saturatedMultiply(a % c, b);
+        return rest == Long.MAX_VALUE ? Long.MAX_VALUE : saturatedAdd(whole, rest / c);
+    }
+
+    /**
+     * Округленное значение; за пределами {@code long} — {@link Long#MAX_VALUE} (отрицательное — {@link Long#MIN_VALUE}).
+     */
+    private static long saturatedLong(BigDecimal value) {
+        // Сравнение до округления: границы целые, а огромный порядок не разворачивается в BigInteger
+        if (value.compareTo(MAX_LONG) > 0) {
+            return Long.MAX_VALUE;
+        }
+        if (value.compareTo(MIN_LONG) < 0) {
+            return Long.MIN_VALUE;
+        }
+        return value.setScale(0, RoundingMode.HALF_UP).longValue();
+    }
+
+    public static long saturatedMultiply(long a, long b) {
+        long high = Math.multiplyHigh(a, b);
+        long low = a * b;
+        return high == 0 && low >= 0 ? low : Long.MAX_VALUE;
+    }
+
+    public static long saturatedAdd(long a, long b) {
+        long sum = a + b;
+        return ((a ^ sum) & (b ^ sum)) < 0 ? Long.MAX_VALUE : sum;
+    }
+
+    /**
+     * Цена, округленная до шага step вниз или вверх; без шага (0) — как есть.
+     */
+    public static long roundToStep(long price, long step, boolean up) {
+        if (step <= 0) {
+            return price;
+        }
+        long steps = Math.floorDiv(price, step);
+        long floor = steps * step;
+        return up && floor != price ? floor + step : floor;
+    }
+}
@@ -0,0 +1,47 @@
+package com.tradingbot.tinkoff.risk;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Параметры портфельного риска: исторические сценарии, стресс-шоки и предторговые лимиты.
+ */
+@Getter
+@Builder(toBuilder = true)
+public class PortfolioRiskConfig {
+    // Число исторических сценариев (перекрывающихся окон горизонта) на инструмент
+    @Builder.Default
+    private final int scenarios = 2_000;
+    // Горизонт сценария в барах: доходность от цены бара до цены через horizonBars баров
+    @Builder.Default
+    private final int horizonBars = 60;
+    // Меньше сценариев - оценка ненадежна, сделки лимитом не ограничиваются
+    @Builder.Default
+    private final int minScenarios = 250;
+    @Builder.Default
+    private final double confidence = 0.99;
+    // Шок стресс-сценариев (доля цены)
+    @Builder.Default
+    private final double stressShock = 0.10;
+    // Лимиты как доля стоимости портфеля
+    @Builder.Default
+    private final double maxVarFraction = 0.03;
+    @Builder.Default
+    private final double maxStressFraction = 0.25;
+    // Затухание EWMA-ковариации доходностей баров: вес прошлого на каждом новом баре
+    @Builder.Default
+    private final double correlationDecay = 0.99;
+    // Меньше баров в матрице корреляций - концентрация считается только по своей позиции
+    @Builder.Default
+    private final int minCorrelationBars = 60;
+    // Лимит эффективной экспозиции (позиции книги, взвешенные корреляцией) как доля стоимости портфеля
+    @Builder.Default
+    private final double maxConcentrationFraction = 0.40;
+    @Builder.Default
+    private final int parallelism = Runtime.getRuntime().availableProcessors();
+    // Меньше ячеек (инструменты x сценарии) - расчет в вызывающем потоке без пула
+    @Builder.Default
+    private final int parallelThreshold = 1 << 16;
+    @Builder.Default
+    private final int recomputeSeconds = 10;
+}
@@ -0,0 +1,612 @@
+package com.tradingbot.tinkoff.risk;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * Риск портфеля целиком: историческая симуляция VaR/CVaR и стресс-сценарии по текущим позициям.
+ *
+ * Сценарии — доходности за горизонт по локальной истории баров, выровненной по времени бара
+ * для всех инструментов. Полный пересчет (матрица доходностей, P&L книги по сценариям, ковариации
+ * с каждым инструментом) идет в фоне на собственном пуле ForkJoin, когда изменились бары или позиции.
+ * Проверка сделки ({@link #checkTrade}) досчитывает к готовому P&L книги только вклад сделки
+ * в буферах потока и не создает массивов, поэтому выполняется на каждом сигнале.
+ *
+ * Стресс: равномерный шок ±shock по всем позициям и коррелированные шоки — шок ±shock по одному
+ * инструменту, остальные сдвигаются по бете к нему (условное ожидание по исторической ковариации).
+ *
+ * Пересчитанная книга публикуется подменой под записывающей блокировкой; проверки читают ее
+ * под читающей, поэтому второй буфер книги можно перезаписывать без копий.
+ *
+ * Концентрация: {@link CorrelationMatrix} ведет EWMA-корреляции доходностей баров, обновляя их
+ * на каждом новом баре; {@link #checkConcentration} взвешивает позиции книги корреляцией
+ * с инструментом сделки за O(n).
+ */
+public class PortfolioRiskEngine {
+    private static final Logger logger = LoggerFactory.getLogger(PortfolioRiskEngine.class);
+    private static final int SCENARIO_BLOCK = 1024;
+
+    /**
+     * Риск книги по последнему пересчету; суммы в валюте позиций, потери положительные.
+     *
+     * @param valueAtRisk          исторический VaR на уровне confidence за горизонт
+     * @param expectedShortfall    средняя потеря в хвосте за VaR (CVaR)
+     * @param uniformStressLoss    потеря при худшем из шоков ±shock по всем позициям
+     * @param correlatedStressLoss потеря при худшем коррелированном шоке
+     * @param worstFactor          инструмент, шок которого дает худший коррелированный сценарий
+     * @param uncoveredExposure    позиции без истории: входят только в равномерный стресс
+     */
+    public record Report(int instruments, int scenarios, double valueAtRisk, double expectedShortfall,
+                         double uniformStressLoss, double correlatedStressLoss, String worstFactor,
+                         double netExposure, double uncoveredExposure, long computeMicros) {
+
+        public double stressLoss() {
+            return Math.max(uniformStressLoss, correlatedStressLoss);
+        }
+    }
+
+    /**
+     * Риск книги вместе с проверяемой сделкой.
+     */
+    public record TradeCheck(boolean allowed, double valueAtRisk, double expectedShortfall, double stressLoss, String message) {
+    }
+
+    /**
+     * Эффективная экспозиция по инструменту: сумма позиций книги, взвешенных корреляцией с ним, до и после сделки.
+     */
+    public record ConcentrationCheck(boolean allowed, double exposureBefore, double exposureAfter, String message) {
+    }
+
+    private final PortfolioRiskConfig config;
+    private final ForkJoinPool pool;
+    private final Map<String, PriceHistory> histories = new ConcurrentHashMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Workspace workspace = new Workspace();
+    private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+    private final CorrelationMatrix correlation;
+
+    private volatile Map<String, Double> positions = Map.of();
+    private volatile boolean dirty;
+    private volatile Report lastReport;
+    // Публикуемая книга и буфер следующего пересчета
+    private Book current;
+    private Book spare = new Book();
+    private ScheduledExecutorService scheduler;
+
+    public PortfolioRiskEngine(PortfolioRiskConfig config) {
+        this.config = config;
+        this.pool = new ForkJoinPool(config.getParallelism());
+        this.correlation = new CorrelationMatrix(config.getCorrelationDecay());
+    }
+
+    /**
+     * Фоновый шаг корреляций и пересчет раз в recomputeSeconds, если изменились бары или позиции.
+     */
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "Portfolio-Risk");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(this::onSchedule,
+                config.getRecomputeSeconds(), config.getRecomputeSeconds(), TimeUnit.SECONDS);
+    }
+
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        pool.shutdownNow();
+    }
+
+    /**
+     * Бар инструмента из истории или стрима.
+     */
+    public void onBar(String instrumentId, long timeMillis, double close) {
+        if (!(close > 0)) {
+            return;
+        }
+        PriceHistory history = histories.computeIfAbsent(instrumentId,
+                id -> new PriceHistory(config.getScenarios() + config.getHorizonBars()));
+        if (history.onBar(timeMillis, close)) {
+            dirty = true;
+        }
+    }
+
+    /**
+     * Текущие позиции: стоимость со знаком (лонг положительный) по идентификатору инструмента.
+     */
+    public void updatePositions(Map<String, Double> exposures) {
+        this.positions = Map.copyOf(exposures);
+        dirty = true;
+    }
+
+    public Report getLastReport() {
+        return lastReport;
+    }
+
+    private void onSchedule() {
+        try {
+            correlation.step(histories, this::parallelFor);
+        } catch (Exception e) {
+            logger.error("❌ Ошибка обновления матрицы корреляций", e);
+        }
+        if (!dirty) {
+            return;
+        }
+        try {
+            recompute();
+        } catch (Exception e) {
+            logger.error("❌ Ошибка пересчета портфельного риска", e);
+        }
+    }
+
+    /**
+     * Полный пересчет книги по текущим барам и позициям; вызывается из одного потока.
+     */
+    public synchronized Report recompute() {
+        dirty = false;
+        long started = System.nanoTime();
+        int horizon = config.getHorizonBars();
+        int window = config.getScenarios() + horizon;
+
+        List<String> ids = new ArrayList<>(histories.size());
+        List<PriceHistory> series = new ArrayList<>(histories.size());
+        histories.forEach((id, history) -> {
+            if (history.size() >= 2) {
+                ids.add(id);
+                series.add(history);
+            }
+        });
+        int n = ids.size();
+        Workspace ws = workspace;
+        ws.ensure(n, window);
+
+        // 1. Снимки историй и общая сетка времени баров
+        parallelFor(n, (long) n * window, i -> ws.lengths[i] = series.get(i).copyTo(ws.times, ws.closes, i * window));
+        int points = ws.mergeGrid(n, window);
+        int scenarios = Math.max(0, points - horizon);
+
+        Book book = spare;
+        book.ensure(n, scenarios);
+        book.index.clear();
+        for (int i = 0; i < n; i++) {
+            book.ids[i] = ids.get(i);
+            book.index.put(ids.get(i), i);
+        }
+
+        // 2. Доходности за горизонт с переносом последней цены на времена без бара
+        if (scenarios > 1) {
+            int gridStart = window - points;
+            parallelFor(n, (long) n * points, i -> fillReturns(ws, book, i, window, gridStart, points, horizon));
+
+            // Новый универсум: корреляции заново по тем же выровненным барам, дальше - по бару за шаг
+            if (!correlation.covers(book.ids, n)) {
+                long seedStarted = System.nanoTime();
+                correlation.seed(book.ids, n, ws.aligned, window, points, ws.grid[window - 1], this::parallelFor);
+                logger.info("📐 Матрица корреляций: {} инструментов, {} баров за {} мс",
+                        n, points - 1, (System.nanoTime() - seedStarted) / 1_000_000);
+            }
+        }
+
+        // 3. Позиции по строкам матрицы
+        Arrays.fill(book.exposure, 0, n, 0);
+        book.heldCount = 0;
+        double net = 0;
+        double uncovered = 0;
+        for (Map.Entry<String, Double> position : positions.entrySet()) {
+            double value = position.getValue();
+            net += value;
+            Integer row = scenarios > 1 ? book.index.get(position.getKey()) : null;
+            if (row == null) {
+                uncovered += value;
+            } else if (value != 0) {
+                book.exposure[row] += value;
+                book.held[book.heldCount++] = row;
+            }
+        }
+        book.netExposure = net;
+
+        // 4. P&L книги по сценариям и его ковариация с доходностью каждого инструмента
+        Arrays.fill(book.pnl, 0, scenarios, 0);
+        Arrays.fill(book.pnlCov, 0, n, 0);
+        double pnlMean = 0;
+        if (scenarios > 1 && book.heldCount > 0) {
+            int blocks = (scenarios + SCENARIO_BLOCK - 1) / SCENARIO_BLOCK;
+            parallelFor(blocks, (long) book.heldCount * scenarios, block -> accumulatePnl(book, block));
+            for (int s = 0; s < scenarios; s++) {
+                pnlMean += book.pnl[s];
+            }
+            pnlMean /= scenarios;
+            double mean = pnlMean;
+            parallelFor(n, (long) n * scenarios, i -> {
+                int base = i * scenarios;
+                double acc = 0;
+                for (int s = 0; s < scenarios; s++) {
+                    acc += (book.pnl[s] - mean) * book.returns[base + s];
+                }
+                book.pnlCov[i] = acc / (scenarios - 1);
+            });
+        }
+
+        // 5. VaR/CVaR и стресс
+        double var = 0;
+        double cvar = 0;
+        if (scenarios > 1) {
+            System.arraycopy(book.pnl, 0, ws.tail, 0, scenarios);
+            int tail = tailCount(scenarios);
+            var = Math.max(0, -select(ws.tail, scenarios, tail - 1));
+            cvar = Math.max(0, -mean(ws.tail, tail));
+        }
+        double shock = config.getStressShock();
+        int worst = -1;
+        double correlated = 0;
+        for (int j = 0; j < n && scenarios > 1; j++) {
+            if (book.variance[j] > 0) {
+                double loss = shock * Math.abs(book.pnlCov[j]) / book.variance[j];
+                if (loss > correlated) {
+                    correlated = loss;
+                    worst = j;
+                }
+            }
+        }
+        book.report = new Report(n, scenarios, var, cvar, shock * Math.abs(net), correlated,
+                worst >= 0 ? book.ids[worst] : null, net, uncovered, (System.nanoTime() - started) / 1_000);
+
+        lock.writeLock().lock();
+        try {
+            spare = current != null ? current : new Book();
+            current = book;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        lastReport = book.report;
+        logger.debug("📉 Портфельный риск: {}", book.report);
+        return book.report;
+    }
+
+    /**
+     * Риск книги вместе со сделкой на сумму tradeExposure (со знаком направления) по инструменту.
+     * Сделка отклоняется, если VaR или стресс-потеря превышают лимит и при этом растут:
+     * сделки, снижающие риск перегруженной книги, проходят.
+     *
+     * @param capital стоимость портфеля для лимитов
+     */
+    public TradeCheck checkTrade(String instrumentId, double tradeExposure, double capital) {
+        lock.readLock().lock();
+        try {
+            Book book = current;
+            if (book == null || book.scenarios < config.getMinScenarios()) {
+                return new TradeCheck(true, 0, 0, 0, "Недостаточно истории для портфельного риска");
+            }
+            Report before = book.report;
+            int scenarios = book.scenarios;
+            int n = book.instruments;
+            Integer row = book.index.get(instrumentId);
+            double shock = config.getStressShock();
+
+            double var = before.valueAtRisk();
+            double cvar = before.expectedShortfall();
+            // Без истории инструмента сделка сдвигается шоком 1:1 только в стрессе
+            double correlated = before.correlatedStressLoss() + shock * Math.abs(tradeExposure);
+            if (row != null) {
+                Scratch buffers = scratch.get().ensure(scenarios, n);
+                int base = row * scenarios;
+                for (int s = 0; s < scenarios; s++) {
+                    buffers.pnl[s] = book.pnl[s] + tradeExposure * book.returns[base + s];
+                }
+                int tail = tailCount(scenarios);
+                var = Math.max(0, -select(buffers.pnl, scenarios, tail - 1));
+                cvar = Math.max(0, -mean(buffers.pnl, tail));
+
+                // Ковариация доходности инструмента сделки с каждым инструментом книги
+                double rowMean = book.mean[row];
+                double[] cov = buffers.cov;
+                parallelFor(n, (long) n * scenarios, j -> {
+                    int other = j * scenarios;
+                    double acc = 0;
+                    for (int s = 0; s < scenarios; s++) {
+                        acc += (book.returns[base + s] - rowMean) * book.returns[other + s];
+                    }
+                    cov[j] = acc / (scenarios - 1);
+                });
+                correlated = 0;
+                for (int j = 0; j < n; j++) {
+                    if (book.variance[j] > 0) {
+                        correlated = Math.max(correlated,
+                                shock * Math.abs(book.pnlCov[j] + tradeExposure * cov[j]) / book.variance[j]);
+                    }
+                }
+            }
+            double stress = Math.max(shock * Math.abs(book.netExposure + tradeExposure), correlated);
+
+            double varLimit = capital * config.getMaxVarFraction();
+            double stressLimit = capital * config.getMaxStressFraction();
+            if (var > varLimit && var > before.valueAtRisk()) {
+                return new TradeCheck(false, var, cvar, stress, String.format(Locale.ROOT,
+                        "VaR портфеля %.0f превысит лимит %.0f (%.1f%% капитала)",
+                        var, varLimit, config.getMaxVarFraction() * 100));
+            }
+            if (stress > stressLimit && stress > before.stressLoss()) {
+                return new TradeCheck(false, var, cvar, stress, String.format(Locale.ROOT,
+                        "Стресс-потеря портфеля %.0f превысит лимит %.0f (%.1f%% капитала)",
+                        stress, stressLimit, config.getMaxStressFraction() * 100));
+            }
+            return new TradeCheck(true, var, cvar, stress, "Портфельный риск в пределах лимитов");
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Эффективная экспозиция после сделки на сумму tradeExposure (со знаком направления): позиции книги,
+     * взвешенные корреляцией их доходностей с инструментом сделки. Сделка отклоняется, если экспозиция
+     * превышает лимит и при этом растет по модулю. Пока корреляций мало, учитывается только своя позиция.
+     *
+     * @param capital стоимость портфеля для лимита
+     */
+    public ConcentrationCheck checkConcentration(String instrumentId, double tradeExposure, double capital) {
+        Map<String, Double> book = positions;
+        double before = book.getOrDefault(instrumentId, 0.0);
+        CorrelationMatrix.View view = correlation.view();
+        Integer row = view != null && view.bars() >= config.getMinCorrelationBars() ? view.index().get(instrumentId) : null;
+        if (row != null) {
+            // Строка корреляций инструмента на позиции книги: O(n) без пересчета по истории
+            int base = row * view.size();
+            double[] rho = view.correlation();
+            before = 0;
+            for (Map.Entry<String, Double> position : book.entrySet()) {
+                Integer column = view.index().get(position.getKey());
+                if (column != null) {
+                    before += rho[base + column] * position.getValue();
+                } else if (position.getKey().equals(instrumentId)) {
+                    before += position.getValue();
+                }
+            }
+        }
+        double after = before + tradeExposure;
+        double limit = capital * config.getMaxConcentrationFraction();
+        if (Math.abs(after) > limit && Math.abs(after) > Math.abs(before)) {
+            return new ConcentrationCheck(false, before, after, String.format(Locale.ROOT,
+                    "Эффективная экспозиция с учетом корреляций %.0f превысит лимит %.0f (%.1f%% капитала)",
+                    after, limit, config.getMaxConcentrationFraction() * 100));
+        }
+        return new ConcentrationCheck(true, before, after, "Концентрация риска в пределах лимита");
+    }
+
+    private static void fillReturns(Workspace ws, Book book, int i, int window, int gridStart, int points, int horizon) {
+        int base = i * window;
+        int length = ws.lengths[i];
+        int cursor = 0;
+        double last = Double.NaN;
+        for (int g = 0; g < points; g++) {
+            long time = ws.grid[gridStart + g];
+            while (cursor < length && ws.times[base + cursor] <= time) {
+                last = ws.closes[base + cursor];
+                cursor++;
+            }
+            ws.aligned[base + g] = last;
+        }
+
+        int scenarios = book.scenarios;
+        int row = i * scenarios;
+        double sum = 0;
+        double sumSquares = 0;
+        for (int s = 0; s < scenarios; s++) {
+            double from = ws.aligned[base + s];
+            double to = ws.aligned[base + s + horizon];
+            // До первого бара инструмента цена неизвестна (NaN): доходность сценария нулевая
+            double r = from > 0 && to > 0 ? to / from - 1 : 0;
+            book.returns[row + s] = r;
+            sum += r;
+            sumSquares += r * r;
+        }
+        double mean = sum / scenarios;
+        book.mean[i] = mean;
+        book.variance[i] = Math.max(0, (sumSquares - scenarios * mean * mean) / (scenarios - 1));
+    }
+
+    private static void accumulatePnl(Book book, int block) {
+        int from = block * SCENARIO_BLOCK;
+        int to = Math.min(book.scenarios, from + SCENARIO_BLOCK);
+        for (int h = 0; h < book.heldCount; h++) {
+            int row = book.held[h];
+            double exposure = book.exposure[row];
+            int base = row * book.scenarios;
+            for (int s = from; s < to; s++) {
+                book.pnl[s] += exposure * book.returns[base + s];
+            }
+        }
+    }
+
+    private void parallelFor(int count, long cells, IntConsumer body) {
+        if (cells < config.getParallelThreshold() || count < 2) {
+            for (int i = 0; i < count; i++) {
+                body.accept(i);
+            }
+        } else {
+            pool.submit(() -> IntStream.range(0, count).parallel().forEach(body)).join();
+        }
+    }
+
+    private int tailCount(int scenarios) {
+        return Math.max(1, (int) Math.ceil((1 - config.getConfidence()) * scenarios));
+    }
+
+    /**
+     * k-й по возрастанию элемент первых n (выбор Хоара на месте); после вызова
+     * элементы левее k не больше него.
+     */
+    static double select(double[] values, int n, int k) {
+        int lo = 0;
+        int hi = n - 1;
+        while (lo < hi) {
+            double pivot = values[(lo + hi) >>> 1];
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (values[i] < pivot) {
+                    i++;
+                }
+                while (values[j] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    double swap = values[i];
+                    values[i] = values[j];
+                    values[j] = swap;
+                    i++;
+                    j--;
+                }
+            }
+            if (k <= j) {
+                hi = j;
+            } else if (k >= i) {
+                lo = i;
+            } else {
+                break;
+            }
+        }
+        return values[k];
+    }
+
+    private static double mean(double[] values, int n) {
+        double sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += values[i];
+        }
+        return sum / n;
+    }
+
+    /**
+     * Опубликованный результат пересчета: матрица доходностей [инструмент][сценарий] и P&L книги.
+     */
+    private static final class Book {
+        final Map<String, Integer> index = new HashMap<>();
+        String[] ids = new String[0];
+        double[] exposure = new double[0];
+        int[] held = new int[0];
+        int heldCount;
+        double[] returns = new double[0];
+        double[] mean = new double[0];
+        double[] variance = new double[0];
+        double[] pnl = new double[0];
+        double[] pnlCov = new double[0];
+        int instruments;
+        int scenarios;
+        double netExposure;
+        Report report;
+
+        void ensure(int n, int scenarioCount) {
+            instruments = n;
+            scenarios = scenarioCount;
+            if (ids.length < n) {
+                ids = new String[n];
+                exposure = new double[n];
+                held = new int[n];
+                mean = new double[n];
+                variance = new double[n];
+                pnlCov = new double[n];
+            }
+            if (returns.length < n * scenarioCount) {
+                returns = new double[n * scenarioCount];
+            }
+            if (pnl.length < scenarioCount) {
+                pnl = new double[scenarioCount];
+            }
+        }
+    }
+
+    /**
+     * Буферы пересчета: снимки историй, сетка времени и выровненные цены.
+     */
+    private static final class Workspace {
+        long[] times = new long[0];
+        double[] closes = new double[0];
+        double[] aligned = new double[0];
+        int[] lengths = new int[0];
+        int[] cursors = new int[0];
+        long[] grid = new long[0];
+        double[] tail = new double[0];
+
+        void ensure(int n, int window) {
+            if (times.length < n * window) {
+                times = new long[n * window];
+                closes = new double[n * window];
+                aligned = new double[n * window];
+            }
+            if (lengths.length < n) {
+                lengths = new int[n];
+                cursors = new int[n];
+            }
+            if (grid.length < window) {
+                grid = new long[window];
+                tail = new double[window];
+            }
+        }
+
+        /**
+         * Последние window различных времен баров по всем инструментам, слиянием с конца историй.
+         * Сетка занимает grid[window - points, window).
+         *
+         * @return число точек сетки
+         */
+        int mergeGrid(int n, int window) {
+            for (int i = 0; i < n; i++) {
+                cursors[i] = lengths[i] - 1;
+            }
+            int points = 0;
+            while (points < window) {
+                long latest = Long.MIN_VALUE;
+                for (int i = 0; i < n; i++) {
+                    if (cursors[i] >= 0) {
+                        latest = Math.max(latest, times[i * window + cursors[i]]);
+                    }
+                }
+                if (latest == Long.MIN_VALUE) {
+                    break;
+                }
+                grid[window - 1 - points++] = latest;
+                for (int i = 0; i < n; i++) {
+                    if (cursors[i] >= 0 && times[i * window + cursors[i]] == latest) {
+                        cursors[i]--;
+                    }
+                }
+            }
+            return points;
+        }
+    }
+
+    /**
+     * Буферы проверки сделки в потоке вызова.
+     */
+    private static final class Scratch {
+        double[] pnl = new double[0];
+        double[] cov = new double[0];
+
+        Scratch ensure(int scenarios, int n) {
+            if (pnl.length < scenarios) {
+                pnl = new double[scenarios];
+            }
+            if (cov.length < n) {
+                cov = new double[n];
+            }
+            return this;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.tradingbot.tinkoff.risk;
+
+/**
+ * Кольцевой буфер последних цен закрытия баров инструмента для исторических сценариев.
+ * Свеча того же времени обновляет последний бар, более старая игнорируется.
+ */
+final class PriceHistory {
+    private final long[] times;
+    private final double[] closes;
+    private int head;
+    private int size;
+
+    PriceHistory(int capacity) {
+        this.times = new long[capacity];
+        this.closes = new double[capacity];
+    }
+
+    synchronized boolean onBar(long timeMillis, double close) {
+        if (size > 0) {
+            int last = (head - 1 + times.length) % times.length;
+            if (timeMillis == times[last]) {
+                closes[last] = close;
+                return true;
+            }
+            if (timeMillis < times[last]) {
+                return false;
+            }
+        }
+        times[head] = timeMillis;
+        closes[head] = close;
+        head = (head + 1) % times.length;
+        size = Math.min(size + 1, times.length);
+        return true;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    synchronized long lastTime() {
+        return size > 0 ? times[(head - 1 + times.length) % times.length] : Long.MIN_VALUE;
+    }
+
+    int capacity() {
+        return times.length;
+    }
+
+    /**
+     * Копирует бары со временем позже after по возрастанию времени начиная с offset.
+     *
+     * @return число скопированных баров
+     */
+    synchronized int copyAfter(long after, long[] timesOut, double[] closesOut, int offset) {
+        int first = (head - size + times.length) % times.length;
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            int index = (first + i) % times.length;
+            if (times[index] > after) {
+                timesOut[offset + count] = times[index];
+                closesOut[offset + count] = closes[index];
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Копирует бары по возрастанию времени начиная с offset.
+     *
+     * @return число скопированных баров
+     */
+    synchronized int copyTo(long[] timesOut, double[] closesOut, int offset) {
+        int first = (head - size + times.length) % times.length;
+        for (int i = 0; i < size; i++) {
+            int index = (first + i) % times.length;
+            timesOut[offset + i] = times[index];
+            closesOut[offset + i] = closes[index];
+        }
+        return size;
+    }
+}
@@ -1,8 +1,9 @@
 package com.tradingbot.tinkoff.risk;
 
+import com.tradingbot.tinkoff.execution.AccountSnapshot;
+import com.tradingbot.tinkoff.execution.OrderGateway;
 import com.tradingbot.tinkoff.model.TradableInstrument;
 import com.tradingbot.tinkoff.model.TradingSignal;
-import com.tradingbot.tinkoff.api.TinkoffApiConnector;
 
 import lombok.AllArgsConstructor;
 import lombok.Getter;
@@ -10,48 +11,109 @@ import lombok.Setter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-// Новые импорты для SDK v1.32
-import ru.tinkoff.piapi.contract.v1.GetFuturesMarginResponse;
-
 import java.math.BigDecimal;
 import java.math.RoundingMode;
-import java.util.Map;
+
+import static com.tradingbot.tinkoff.risk.FixedPoint.ofPpm;
+import static com.tradingbot.tinkoff.risk.FixedPoint.saturatedMultiply;
+import static com.tradingbot.tinkoff.risk.FixedPoint.toBigDecimal;
+import static com.tradingbot.tinkoff.risk.FixedPoint.toMoney;
+import static com.tradingbot.tinkoff.risk.FixedPoint.toNanos;
 
 /**
- * Менеджер рисков, адаптированный для Tinkoff SDK v1.32
- * Работает с новыми типами данных Portfolio и Position
+ * Менеджер рисков. Работает со снимком счета {@link AccountSnapshot}, поэтому одинаково
+ * проверяет сигналы на живом счете и в бэктесте.
+ *
+ * Расчет размера позиции идет в {@link FixedPoint} (нано-единицы на {@code long}) с учетом лота
+ * и шага цены инструмента; {@link BigDecimal} остается только на входе (цены сигнала, снимок счета)
+ * и в результате. Пересчет снимка счета кешируется, поэтому серия сигналов по одному снимку
+ * не повторяет его.
  */
 public class RiskManager {
     private static final Logger logger = LoggerFactory.getLogger(RiskManager.class);
     private static final int MIN_SIGNAL_SCORE = 10;
+    // Минимальное соотношение прибыль/риск 1.5 в виде дроби 3/2 для сравнения без деления
+    private static final long MIN_REWARD_NUMERATOR = 3;
+    private static final long MIN_REWARD_DENOMINATOR = 2;
+    // Минимальная стоп-дистанция сигнала - 0.1% от цены входа
+    private static final long MIN_SIGNAL_STOP_PPM = 1_000;
 
     // Настройки риск-менеджмента
-    @Getter @Setter
+    @Getter
     private BigDecimal riskPercentage; // 1% от капитала на сделку
+    private volatile long riskPerTradePpm;
 
     // private final BigDecimal maxRiskPercentage = new BigDecimal("5.0"); // Максимальный риск
-    private final BigDecimal minPositionSize; // Минимальный размер позиции в рублях
-    private final BigDecimal maxPositionPercent; // Максимальный % капитала на позицию
-    private final BigDecimal stopLossDistancePercent; // Расстояние стоп-лосса в процентах от цены входа
-    private final BigDecimal minStopDistance;
+    private final long minPositionSize; // Минимальный размер позиции в рублях (нано)
+    private final long maxPositionPpm; // Максимальная доля капитала на позицию
+    private final long stopLossDistancePpm; // Расстояние стоп-лосса от цены входа
+    private final long minStopDistance; // нано
+
+    private final OrderGateway orderGateway;
+
+    // Движок VaR/стресса всей книги; null - портфельный лимит не проверяется
+    @Setter
+    private PortfolioRiskEngine portfolioRisk;
 
-    private final TinkoffApiConnector apiConnector;
+    // Общий бюджет капитала процессоров; null - сделки не резервируют капитал
+    @Setter
+    private CapitalBudget capitalBudget;
+
+    // Снимок счета последней проверки в нано-единицах
+    private volatile AccountNanos lastAccount;
 
     public RiskManager(BigDecimal riskPerTradePercent, BigDecimal minPositionSizeRub,
                        BigDecimal maxPositionPercent, BigDecimal stopLossDistancePercent,
-                       BigDecimal minStopDistance, TinkoffApiConnector apiConnector) {
-        this.riskPercentage = riskPerTradePercent;
-        this.minPositionSize = minPositionSizeRub;
-        this.maxPositionPercent = maxPositionPercent;
-        this.stopLossDistancePercent = stopLossDistancePercent;
-        this.minStopDistance = minStopDistance;
-        this.apiConnector = apiConnector;
+                       BigDecimal minStopDistance, OrderGateway orderGateway) {
+        setRiskPercentage(riskPerTradePercent);
+        this.minPositionSize = toNanos(minPositionSizeRub);
+        this.maxPositionPpm = FixedPoint.percentToPpm(maxPositionPercent);
+        this.stopLossDistancePpm = FixedPoint.percentToPpm(stopLossDistancePercent);
+        this.minStopDistance = toNanos(minStopDistance);
+        this.orderGateway = orderGateway;
+    }
+
+    /**
+     * Параметры риска процессора инструмента (живая торговля и бэктест).
+     */
+    public static RiskManager withDefaults(OrderGateway orderGateway) {
+        return new RiskManager(
+                new BigDecimal("1.0"), // 1% риска на сделку
+                new BigDecimal("1000"), // Минимальный размер позиции 1000 RUB
+                new BigDecimal("20.0"), // Максимальный % капитала на позицию 20%
+                new BigDecimal("0.5"), // Расстояние стоп-лосса 0.5%
+                new BigDecimal("0.001"), // Минимальное расстояние стоп-лосса (например, 0.1%)
+                orderGateway
+        );
+    }
+
+    public void setRiskPercentage(BigDecimal riskPercentage) {
+        this.riskPercentage = riskPercentage;
+        this.riskPerTradePpm = FixedPoint.percentToPpm(riskPercentage);
     }
 
     /**
      * Основной метод валидации торгового сигнала
      */
-    public ValidationResult validateSignal(TradableInstrument instrument, TradingSignal signal, ru.tinkoff.piapi.core.models.Portfolio portfolio, Map<String, BigDecimal> availableBalances, ru.tinkoff.piapi.core.models.Position currentPosition) {
+    public ValidationResult validateSignal(TradableInstrument instrument, TradingSignal signal, AccountSnapshot account) {
+        return validate(instrument, signal, account, 0);
+    }
+
+    /**
+     * Валидация сигнала с заданным объемом (хедж-нога пары): те же проверки и резерв капитала,
+     * но объем не рассчитывается по риску, а только проверяется на средства и долю капитала.
+     */
+    public ValidationResult validateFixedSize(TradableInstrument instrument, TradingSignal signal, AccountSnapshot account, long lots) {
+        if (lots <= 0) {
+            return ValidationResult.invalid("Количество лотов для сделки <= 0");
+        }
+        return validate(instrument, signal, account, lots);
+    }
+
+    /**
+     * @param fixedLots объем сделки в лотах; 0 - рассчитать по риску на сделку
+     */
+    private ValidationResult validate(TradableInstrument instrument, TradingSignal signal, AccountSnapshot account, long fixedLots) {
         logger.debug("🔍 Начало валидации сигнала: {}", signal != null ? signal.getSignalType() : "null");
 
         // Базовая валидация сигнала
@@ -61,76 +123,61 @@ public class RiskManager {
         }
 
         // Валидация портфеля
-        if (portfolio == null) {
+        if (account == null) {
             logger.warn("⚠️ Портфель не загружен");
             return ValidationResult.invalid("Данные портфеля недоступны");
         }
+        AccountNanos funds = accountNanos(account);
 
-        BigDecimal initialCapital = calculateTotalPortfolioValue(portfolio);
-        BigDecimal availableCurrencyBalance = availableBalances.getOrDefault(instrument.currency(), BigDecimal.ZERO);
-
-        // Получаем текущую цену инструмента
-        BigDecimal currentPrice = null; // <<-- ИЗМЕНЕНО: Инициализация null
-        if (signal != null) { // <<-- ДОБАВЛЕНО: Защита от NullPointerException
-            currentPrice = signal.getEntryPrice();
-        }
-
-        if (currentPrice == null) {
-            return ValidationResult.invalid("Не удалось определить текущую цену инструмента.");
-        }
+        boolean buy = signal.getSignalType() == TradingSignal.SignalType.BUY;
+        long tick = instrument.minPriceIncrementNanos();
+        long entryPrice = toNanos(signal.getEntryPrice());
+        long stopLoss = roundLevelToTick(toNanos(signal.getStopLoss()), tick, buy);
+        long stopDistance = Math.abs(entryPrice - stopLoss);
 
         // Проверка соотношения риск/прибыль
-        BigDecimal riskRewardRatio = calculateRiskRewardRatio(signal);
-        if (riskRewardRatio.compareTo(new BigDecimal("1.5")) < 0) {
-            logger.warn("[{}] Низкое соотношение риск/прибыль: 1:{}", instrument.name(), riskRewardRatio);
-            return ValidationResult.invalid(String.format("Низкое соотношение риск/прибыль: 1:%.2f (требуется ≥1:1.5)", riskRewardRatio));
+        if (signal.getTakeProfit() == null || stopDistance == 0) {
+            logger.warn("⚠️ Отсутствуют данные для расчета R/R");
+            return ValidationResult.invalid("Низкое соотношение риск/прибыль: 1:0.00 (требуется ≥1:1.5)");
         }
-
-        // Проверка концентрации риска
-        ValidationResult concentrationCheck = checkRiskConcentration(signal, portfolio);
-        if (!concentrationCheck.isValid()) {
-            return concentrationCheck;
+        long takeProfit = roundLevelToTick(toNanos(signal.getTakeProfit()), tick, buy);
+        long reward = Math.abs(takeProfit - entryPrice);
+        if (saturatedMultiply(reward, MIN_REWARD_DENOMINATOR) < saturatedMultiply(stopDistance, MIN_REWARD_NUMERATOR)) {
+            double ratio = (double) reward / stopDistance;
+            logger.warn("[{}] Низкое соотношение риск/прибыль: 1:{}", instrument.name(), String.format("%.2f", ratio));
+            return ValidationResult.invalid(String.format("Низкое соотношение риск/прибыль: 1:%.2f (требуется ≥1:1.5)", ratio));
         }
 
         // Защита от "микро-стопов" (слишком близких стопов)
-        BigDecimal actualStopDistance = currentPrice.multiply(stopLossDistancePercent.divide(new BigDecimal("100"), 8, RoundingMode.HALF_UP));
-        if (actualStopDistance.compareTo(minStopDistance) < 0) {
+        long actualStopDistance = ofPpm(entryPrice, stopLossDistancePpm);
+        if (actualStopDistance < minStopDistance) {
             logger.warn("[{}] Сигнал отклонен: слишком короткое расстояние до стоп-лосса ({} < {}).",
-                    instrument.name(), actualStopDistance.toPlainString(), minStopDistance.toPlainString());
+                    instrument.name(), toBigDecimal(actualStopDistance).stripTrailingZeros().toPlainString(),
+                    toBigDecimal(minStopDistance).stripTrailingZeros().toPlainString());
             return ValidationResult.invalid("Слишком короткое расстояние до стоп-лосса.");
         }
 
         // Расчет размера позиции
-        PositionSizeResult positionSizeResult = calculatePositionSize(
-                instrument, signal, portfolio, availableBalances, currentPosition, initialCapital);
-
-        if (!positionSizeResult.isValid()) {
-            return ValidationResult.invalid(positionSizeResult.getDescription());
+        PositionSize size = fixedLots > 0
+                ? fixedPositionSize(instrument, funds, entryPrice, fixedLots)
+                : calculatePositionSize(instrument, signal, funds, entryPrice, stopDistance);
+        if (size.error() != null) {
+            return ValidationResult.invalid(size.error());
         }
-
-        BigDecimal lotsToTrade = positionSizeResult.getPositionSize();
-        BigDecimal tradeAmount = positionSizeResult.getPositionSizeInRubles();
-
-        logger.debug("💰 Расчет требуемых средств: {} RUB", tradeAmount.toPlainString());
+        logger.debug("💰 Расчет требуемых средств: {} {}", toMoney(size.amount()), instrument.currency());
 
         // Учет маржинальных требований для фьючерсов
         if (instrument.type() == TradableInstrument.InstrumentType.FUTURE) {
             try {
-                GetFuturesMarginResponse futuresMargin = apiConnector.getFuturesMarginResponse(instrument.identifier()).join();
-                BigDecimal initialMargin = BigDecimal.ZERO;
-                if (signal != null && signal.getSignalType() == TradingSignal.SignalType.BUY) {
-                    initialMargin = TinkoffApiConnector.moneyValueToBigDecimal(futuresMargin.getInitialMarginOnBuy());
-                } else if (signal != null && signal.getSignalType() == TradingSignal.SignalType.SELL) {
-                    initialMargin = TinkoffApiConnector.moneyValueToBigDecimal(futuresMargin.getInitialMarginOnSell());
-                }
-                if (initialMargin.compareTo(BigDecimal.ZERO) > 0) {
-                    BigDecimal requiredMarginForTrade = initialMargin.multiply(lotsToTrade);
+                long initialMargin = toNanos(orderGateway.getInitialMargin(instrument, signal.getSignalType()));
+                if (initialMargin > 0) {
+                    long requiredMarginForTrade = saturatedMultiply(initialMargin, size.openLots());
                     logger.debug("📊 [Фьючерс] Требуемая начальная маржа для {} лотов: {} {}",
-                            lotsToTrade, requiredMarginForTrade.toPlainString(), instrument.currency().toUpperCase());
+                            size.openLots(), toMoney(requiredMarginForTrade), instrument.currency().toUpperCase());
 
-                    if (availableCurrencyBalance.compareTo(requiredMarginForTrade) < 0) {
+                    if (funds.available() < requiredMarginForTrade) {
                         return ValidationResult.invalid(String.format("Недостаточно маржи для фьючерса. Требуется: %s, Доступно: %s",
-                                requiredMarginForTrade.toPlainString(), availableCurrencyBalance.toPlainString()));
+                                toMoney(requiredMarginForTrade).toPlainString(), toMoney(funds.available()).toPlainString()));
                     }
                 } else {
                     logger.warn("[{}] Не удалось получить маржинальные требования для фьючерса.", instrument.name());
@@ -140,16 +187,61 @@ public class RiskManager {
                 logger.error("[{}] Ошибка при получении маржинальных требований для фьючерса: {}", instrument.name(), e.getMessage(), e);
                 return ValidationResult.invalid("Ошибка при проверке маржинальных требований.");
             }
-        } else { // Для акций проверяем просто доступный баланс
-            if (availableCurrencyBalance.compareTo(tradeAmount) < 0) {
-                return ValidationResult.invalid(String.format("Недостаточно средств. Требуется: %s, Доступно: %s",
-                        tradeAmount.toPlainString(), availableCurrencyBalance.toPlainString()));
+        } else if (funds.available() < size.amount()) { // Для акций проверяем просто доступный баланс
+            return ValidationResult.invalid(String.format("Недостаточно средств. Требуется: %s, Доступно: %s",
+                    toMoney(size.amount()).toPlainString(), toMoney(funds.available()).toPlainString()));
+        }
+
+        BigDecimal lotsToTrade = BigDecimal.valueOf(size.lots());
+        BigDecimal tradeAmount = toBigDecimal(size.amount());
+
+        // Предторговый лимит портфельного риска по книге вместе со сделкой
+        ValidationResult portfolioCheck = checkPortfolioRisk(instrument, signal, account.toRubles(tradeAmount), account.totalValue());
+        if (!portfolioCheck.isValid()) {
+            return portfolioCheck;
+        }
+        ValidationResult concentrationCheck = checkRiskConcentration(instrument, signal, account.toRubles(tradeAmount), account.totalValue());
+        if (!concentrationCheck.isValid()) {
+            return concentrationCheck;
+        }
+
+        // Резерв в общем бюджете последним шагом: отклоненный выше сигнал капитал не занимает.
+        // У реверса резервируется только открываемая часть (tradeAmount - стоимость openLots)
+        CapitalBudget.Reservation reservation = null;
+        if (capitalBudget != null) {
+            reservation = capitalBudget.reserve(instrument, account.toRubles(tradeAmount));
+            if (reservation == null) {
+                logger.warn("[{}] Сигнал отклонен: капитал занят сделками других процессоров (свободно {} RUB)",
+                        instrument.name(), capitalBudget.availableCash().setScale(2, RoundingMode.DOWN));
+                return ValidationResult.invalid("Недостаточно свободного капитала с учетом резервов других сигналов");
             }
         }
 
         logger.info("✅ Сигнал прошел валидацию. Рекомендуемый размер: {} лотов на сумму {} {}",
-                lotsToTrade.toPlainString(), tradeAmount.toPlainString(), instrument.currency().toUpperCase());
-        return ValidationResult.valid(lotsToTrade, tradeAmount, "Сигнал валиден.");
+                size.lots(), toMoney(size.amount()).toPlainString(), instrument.currency().toUpperCase());
+        return new ValidationResult(true, "Сигнал валиден.", lotsToTrade, tradeAmount, reservation,
+                toBigDecimal(stopLoss).stripTrailingZeros(), toBigDecimal(takeProfit).stripTrailingZeros());
+    }
+
+    /**
+     * Приказ по проверенному сигналу принят брокером: резерв капитала становится обязательством
+     * до снимка портфеля, в котором видна сделка.
+     *
+     * @param lots объем отправленного приказа
+     */
+    public void commitReservation(CapitalBudget.Reservation reservation, long lots, TradingSignal.SignalType side) {
+        if (capitalBudget != null) {
+            capitalBudget.commit(reservation, side == TradingSignal.SignalType.SELL ? -lots : lots);
+        }
+    }
+
+    /**
+     * Приказ по проверенному сигналу не отправлен или отклонен: резерв капитала освобождается.
+     */
+    public void releaseReservation(CapitalBudget.Reservation reservation) {
+        if (capitalBudget != null) {
+            capitalBudget.release(reservation);
+        }
     }
 
     /**
@@ -181,235 +273,197 @@ public class RiskManager {
     }
 
     /**
-     * Расчет размера позиции на основе данных портфеля SDK v1.32
+     * Стоп или цель сигнала по шагу цены инструмента: у покупки вниз, у продажи вверх — стоп дальше
+     * от входа, цель ближе (стоп-приказ с ценой не по шагу брокер отклонит). Сигнал не меняется:
+     * округленные уровни возвращаются в {@link ValidationResult}.
      */
-    private PositionSizeResult calculatePositionSize(com.tradingbot.tinkoff.model.TradableInstrument instrument,
-                                                      TradingSignal signal,
-                                                      ru.tinkoff.piapi.core.models.Portfolio portfolio,
-                                                      Map<String, BigDecimal> availableBalances,
-                                                      ru.tinkoff.piapi.core.models.Position currentPosition,
-                                                      BigDecimal totalCapital) { // <<-- ДОБАВЛЕНО
-        try {
-            // Расчет общей стоимости портфеля
-            // BigDecimal totalCapital = calculateTotalPortfolioValue(portfolio); // <<-- УДАЛЕНО
-
-            logger.debug("💰 Общая стоимость портфеля: {} RUB", totalCapital);
-
-            if (totalCapital.compareTo(BigDecimal.ZERO) <= 0) {
-                return new PositionSizeResult(false, BigDecimal.ZERO,
-                        "Нулевая или отрицательная стоимость портфеля", null, null, null);
-            }
-
-            BigDecimal entryPrice = signal.getEntryPrice();
-            BigDecimal stopLoss = signal.getStopLoss();
-
-            // Проверка минимальной стоп-дистанции для защиты от микро-стопов
-            BigDecimal minStopDistance = entryPrice.multiply(new BigDecimal("0.001")); // Например, 0.1% от цены
-            BigDecimal actualStopDistance = entryPrice.subtract(stopLoss).abs();
-            if (actualStopDistance.compareTo(minStopDistance) < 0) {
-                return new PositionSizeResult(false, BigDecimal.ZERO,
-                        String.format("Стоп-дистанция (%.4f) слишком мала (мин. %.4f)", actualStopDistance, minStopDistance), null, null, null);
-            }
+    private static long roundLevelToTick(long level, long tick, boolean buy) {
+        return FixedPoint.roundToStep(level, tick, !buy);
+    }
 
-            if (actualStopDistance.compareTo(BigDecimal.ZERO) == 0) {
-                return new PositionSizeResult(false, BigDecimal.ZERO,
-                        "Стоп-лосс равен цене входа", null, null, null);
-            }
+    /**
+     * Расчет размера позиции в лотах на основе снимка счета
+     *
+     * @param stopDistance расстояние от входа до стопа в нано-единицах цены
+     */
+    private PositionSize calculatePositionSize(TradableInstrument instrument,
+                                               TradingSignal signal,
+                                               AccountNanos funds,
+                                               long entryPrice,
+                                               long stopDistance) {
+        long totalCapital = funds.capital();
+        logger.debug("💰 Общая стоимость портфеля: {} {}", toMoney(totalCapital), instrument.currency());
+
+        if (totalCapital <= 0) {
+            return PositionSize.invalid("Нулевая или отрицательная стоимость портфеля");
+        }
 
-            // Расчет максимального риска на сделку
-            BigDecimal maxRiskAmount = totalCapital
-                    .multiply(riskPercentage)
-                    .divide(new BigDecimal("100"), 2, RoundingMode.HALF_UP);
-
-            // Базовый размер позиции в лотах, без учета текущей позиции
-            // БЫЛО:
-            // BigDecimal calculatedLots = maxRiskAmount.divide(actualStopDistance.multiply(entryPrice), 0, RoundingMode.DOWN);
-            // СТАЛО (для акций, где 1 лот = 1 акция):
-            BigDecimal calculatedLots = maxRiskAmount.divide(actualStopDistance, 0, RoundingMode.DOWN);
-
-            // ========== ЛОГИКА НЕТТИНГА ПОЗИЦИЙ И ПРОВЕРКИ ДОСТУПНЫХ СРЕДСТВ ===========
-            BigDecimal lotsToTrade = BigDecimal.ZERO;
-            BigDecimal availableCurrencyBalance = availableBalances.getOrDefault(instrument.currency(), BigDecimal.ZERO);
-
-            if (currentPosition != null && currentPosition.getQuantity().compareTo(BigDecimal.ZERO) != 0) {
-                // Есть открытая позиция по данному инструменту
-                boolean isLong = currentPosition.getQuantity().signum() > 0;
-
-                if ((isLong && signal.getSignalType() == TradingSignal.SignalType.SELL) ||
-                        (!isLong && signal.getSignalType() == TradingSignal.SignalType.BUY)) {
-                    // Реверсный сигнал: сначала закрываем текущую позицию
-                    BigDecimal currentLots = currentPosition.getQuantity();
-                    lotsToTrade = currentLots.negate(); // Закрываем позицию
-                    logger.info("🔄 Обнаружен реверсный сигнал. Закрываем текущую позицию {} лотов.", currentLots);
-
-                    // После закрытия, возможно, открываем новую в другом направлении
-                    // Рассчитываем лоты для новой позиции на оставшиеся средства
-                    // Здесь нужна более сложная логика, но для MVP просто добавляем к закрытию
-                    // TODO: Улучшить логику неттинга для открытия новой позиции после закрытия
-                    lotsToTrade = lotsToTrade.add(calculatedLots); // пока просто добавляем
-                } else {
-                    // Сигнал в том же направлении, что и текущая позиция, просто увеличиваем
-                    // TODO: Реализовать логику увеличения позиции с учетом доступных средств
-                    lotsToTrade = calculatedLots;
-                }
-            } else {
-                // Нет открытой позиции, просто открываем новую
-                lotsToTrade = calculatedLots;
-            }
+        // Проверка минимальной стоп-дистанции для защиты от микро-стопов
+        long minSignalStop = ofPpm(entryPrice, MIN_SIGNAL_STOP_PPM);
+        if (stopDistance < minSignalStop) {
+            return PositionSize.invalid(String.format("Стоп-дистанция (%.4f) слишком мала (мин. %.4f)",
+                    FixedPoint.toDouble(stopDistance), FixedPoint.toDouble(minSignalStop)));
+        }
 
-            if (lotsToTrade.compareTo(BigDecimal.ZERO) <= 0) {
-                return new PositionSizeResult(false, BigDecimal.ZERO, "Количество лотов для сделки <= 0", null, null, null);
+        // Риск и стоимость одного лота: цена за штуку, умноженная на размер лота
+        long lot = instrument.lot();
+        long lotValue = saturatedMultiply(entryPrice, lot);
+        long maxRiskAmount = ofPpm(totalCapital, riskPerTradePpm);
+        long calculatedLots = maxRiskAmount / saturatedMultiply(stopDistance, lot);
+
+        // ========== ЛОГИКА НЕТТИНГА ПОЗИЦИЙ И ПРОВЕРКИ ДОСТУПНЫХ СРЕДСТВ ===========
+        long closeLots = 0;
+        if (funds.positionLots() != 0) {
+            boolean isLong = funds.positionLots() > 0;
+            if (isLong == (signal.getSignalType() == TradingSignal.SignalType.SELL)) {
+                // Реверсный сигнал: закрываем текущую позицию и открываем новую в другом направлении
+                closeLots = Math.abs(funds.positionLots());
+                logger.info("🔄 Обнаружен реверсный сигнал. Закрываем текущую позицию {} лотов.", funds.positionLots());
             }
+            // Сигнал в том же направлении увеличивает позицию на рассчитанный объем
+        }
 
-            // Проверка доступных средств/маржи (упрощенная)
-            BigDecimal requiredFunds = lotsToTrade.multiply(entryPrice);
-            if (availableCurrencyBalance.compareTo(requiredFunds) < 0) {
-                // Недостаточно средств, уменьшаем количество лотов
-                BigDecimal affordableLots = availableCurrencyBalance.divide(entryPrice, 0, RoundingMode.DOWN);
-                if (affordableLots.compareTo(BigDecimal.ZERO) == 0) {
-                    return new PositionSizeResult(false, BigDecimal.ZERO,
-                            String.format("Недостаточно средств (%s %s) для покупки даже 1 лота по %s %s",
-                                    availableCurrencyBalance, instrument.currency(), entryPrice, instrument.currency()), null, null, null);
-                }
-                lotsToTrade = affordableLots;
-                logger.warn("⚠️ Недостаточно средств, уменьшаем заявку до {} лотов.", lotsToTrade);
-            }
+        long openLots = calculatedLots;
+        if (openLots <= 0) {
+            return PositionSize.invalid("Количество лотов для сделки <= 0");
+        }
 
-            // Корректировка на минимальный размер позиции и лотность
-            if (lotsToTrade.multiply(entryPrice).compareTo(minPositionSize) < 0) { // <<-- ИСПРАВЛЕНО: используем minPositionSize
-                return new PositionSizeResult(false, BigDecimal.ZERO,
-                        String.format("Рассчитанный размер позиции (%.2f %s) меньше минимально допустимого (%.2f %s)",
-                                lotsToTrade.multiply(entryPrice), instrument.currency(), minPositionSize, instrument.currency()), null, null, null);
+        // Проверка доступных средств/маржи (упрощенная)
+        if (funds.available() < saturatedMultiply(openLots, lotValue)) {
+            // Недостаточно средств, уменьшаем количество лотов
+            long affordableLots = funds.available() / lotValue;
+            if (affordableLots == 0) {
+                return PositionSize.invalid(String.format("Недостаточно средств (%s %s) для покупки даже 1 лота по %s %s",
+                        toMoney(funds.available()), instrument.currency(), toMoney(lotValue), instrument.currency()));
             }
+            openLots = affordableLots;
+            logger.warn("⚠️ Недостаточно средств, уменьшаем заявку до {} лотов.", openLots);
+        }
 
-            // TODO: Учесть instrument.lot() и instrument.minPriceIncrement()
-
-            BigDecimal positionSizeInRubles = lotsToTrade.multiply(entryPrice);
-            BigDecimal positionPercentage = positionSizeInRubles
-                    .divide(totalCapital, 4, RoundingMode.HALF_UP)
-                    .multiply(new BigDecimal("100"));
-
-            if (positionPercentage.compareTo(maxPositionPercent) > 0) {
-                logger.warn("⚠️ Рассчитанный размер позиции (%.1f%%) превышает максимально допустимый (%.1f%%). Корректировка...",
-                        positionPercentage, maxPositionPercent);
-                // Пересчитываем positionSizeInRubles, чтобы оно соответствовало maxPositionPercent
-                positionSizeInRubles = totalCapital.multiply(maxPositionPercent).divide(new BigDecimal("100"), 2, RoundingMode.HALF_UP);
-                // Пересчитываем lotsToTrade на основе скорректированного positionSizeInRubles
-                if (entryPrice.compareTo(BigDecimal.ZERO) > 0) {
-                    lotsToTrade = positionSizeInRubles.divide(entryPrice, 0, RoundingMode.DOWN);
-                } else {
-                    lotsToTrade = BigDecimal.ZERO; // Избегаем деления на ноль
-                }
-
-                // Дополнительная проверка на минимальный размер после корректировки
-                if (lotsToTrade.multiply(entryPrice).compareTo(minPositionSize) < 0) {
-                    return new PositionSizeResult(false, BigDecimal.ZERO,
-                            String.format("Скорректированный размер позиции (%.2f %s) все еще меньше минимально допустимого (%.2f %s)",
-                                    lotsToTrade.multiply(entryPrice), instrument.currency(), minPositionSize, instrument.currency()), null, null, null);
-                }
+        // Корректировка на минимальный размер позиции
+        long positionValue = saturatedMultiply(openLots, lotValue);
+        if (positionValue < funds.minPosition()) {
+            return PositionSize.invalid(String.format("Рассчитанный размер позиции (%.2f %s) меньше минимально допустимого (%.2f %s)",
+                    FixedPoint.toDouble(positionValue), instrument.currency(), FixedPoint.toDouble(funds.minPosition()), instrument.currency()));
+        }
 
-                positionPercentage = maxPositionPercent; // Устанавливаем процент на максимальный
+        long maxPositionValue = ofPpm(totalCapital, maxPositionPpm);
+        if (positionValue > maxPositionValue) {
+            logger.warn("⚠️ Рассчитанный размер позиции ({}%) превышает максимально допустимый ({}%). Корректировка...",
+                    String.format("%.1f", percentOfCapital(positionValue, totalCapital)), String.format("%.1f", maxPositionPpm / 10_000.0));
+            // Лоты, укладывающиеся в максимальную долю капитала
+            openLots = maxPositionValue / lotValue;
+            positionValue = saturatedMultiply(openLots, lotValue);
+
+            // Дополнительная проверка на минимальный размер после корректировки
+            if (positionValue < funds.minPosition()) {
+                return PositionSize.invalid(String.format("Скорректированный размер позиции (%.2f %s) все еще меньше минимально допустимого (%.2f %s)",
+                        FixedPoint.toDouble(positionValue), instrument.currency(), FixedPoint.toDouble(funds.minPosition()), instrument.currency()));
             }
+        }
 
-            String description = String.format("Позиция: %.2f %s (%.1f%% капитала), %s лотов",
-                    positionSizeInRubles, instrument.currency(), positionPercentage, lotsToTrade);
-
-            logger.debug("📊 Расчет позиции: {} лотов, {} {} ({}% капитала)",
-                    lotsToTrade, positionSizeInRubles, instrument.currency(), positionPercentage);
-
-            return new PositionSizeResult(true, lotsToTrade, description,
-                    positionSizeInRubles, maxRiskAmount, positionPercentage);
+        long lotsToTrade = closeLots + openLots;
+        logger.debug("📊 Расчет позиции: {} лотов (лот {} шт.), {} {} ({}% капитала)",
+                lotsToTrade, lot, toMoney(positionValue), instrument.currency(),
+                String.format("%.1f", percentOfCapital(positionValue, totalCapital)));
 
-        } catch (Exception e) {
-            logger.error("❌ Ошибка при расчете размера позиции", e);
-            return new PositionSizeResult(false, BigDecimal.ZERO,
-                    "Ошибка расчета: " + e.getMessage(), null, null, null);
-        }
+        return new PositionSize(lotsToTrade, openLots, closeLots, positionValue, null);
     }
 
     /**
-     * Расчет общей стоимости портфеля с использованием SDK v1.32
+     * Заданный объем: только проверка доли капитала, средства проверяются общим путем.
      */
-    // Файл: src/main/java/com/tradingbot/tinkoff/risk/RiskManager.java
-
-    private BigDecimal calculateTotalPortfolioValue(ru.tinkoff.piapi.core.models.Portfolio portfolio) {
-        if (portfolio == null) {
-            logger.warn("Портфель не предоставлен для расчета стоимости, возвращен ноль.");
-            return BigDecimal.ZERO;
+    private PositionSize fixedPositionSize(TradableInstrument instrument, AccountNanos funds, long entryPrice, long lots) {
+        long positionValue = saturatedMultiply(lots, saturatedMultiply(entryPrice, instrument.lot()));
+        long maxPositionValue = ofPpm(funds.capital(), maxPositionPpm);
+        if (positionValue > maxPositionValue) {
+            return PositionSize.invalid(String.format("Размер позиции (%.2f %s) превышает максимально допустимый (%.2f %s)",
+                    FixedPoint.toDouble(positionValue), instrument.currency(), FixedPoint.toDouble(maxPositionValue), instrument.currency()));
         }
-
-        // 1. Считаем стоимость всех ценных бумаг
-        BigDecimal positionsValue = portfolio.getPositions().stream()
-                .map(position -> position.getQuantity()
-                        .multiply(TinkoffApiConnector.moneyToBigDecimal(position.getCurrentPrice())))
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        // 2. Считаем стоимость всех валютных остатков
-        BigDecimal currenciesValue = TinkoffApiConnector.moneyToBigDecimal(portfolio.getTotalAmountCurrencies());
-
-        BigDecimal totalValue = positionsValue.add(currenciesValue);
-        logger.debug("Расчет стоимости портфеля: Позиции={} + Валюта={} = {}", positionsValue, currenciesValue, totalValue);
-
-        return totalValue;
+        return new PositionSize(lots, lots, 0, positionValue, null);
     }
 
+    private static double percentOfCapital(long value, long capital) {
+        return value * 100.0 / capital;
+    }
 
     /**
-     * Расчет соотношения риск/прибыль
+     * Снимок счета в нано-единицах валюты инструмента; повторная проверка по тому же снимку
+     * берет готовый пересчет.
      */
-    private BigDecimal calculateRiskRewardRatio(TradingSignal signal) {
-        try {
-            BigDecimal entryPrice = signal.getEntryPrice();
-            BigDecimal stopLoss = signal.getStopLoss();
-            BigDecimal takeProfit = signal.getTakeProfit();
-
-            if (entryPrice == null || stopLoss == null || takeProfit == null) {
-                logger.warn("⚠️ Отсутствуют данные для расчета R/R");
-                return BigDecimal.ZERO;
-            }
-
-            BigDecimal risk = entryPrice.subtract(stopLoss).abs();
-            BigDecimal reward = takeProfit.subtract(entryPrice).abs();
-
-            if (risk.compareTo(BigDecimal.ZERO) == 0) {
-                logger.warn("⚠️ Нулевой риск при расчете R/R");
-                return BigDecimal.ZERO;
-            }
-
-            BigDecimal ratio = reward.divide(risk, 2, RoundingMode.HALF_UP);
-            logger.debug("📈 Соотношение риск/прибыль: 1:{}", ratio);
-
-            return ratio;
+    private AccountNanos accountNanos(AccountSnapshot account) {
+        AccountNanos cached = lastAccount;
+        if (cached != null && cached.source() == account) {
+            return cached;
+        }
+        AccountNanos converted = new AccountNanos(account,
+                toNanos(account.toInstrumentCurrency(account.totalValue())),
+                toNanos(account.availableBalance()),
+                toNanos(account.toInstrumentCurrency(toBigDecimal(minPositionSize))),
+                account.positionLots().longValue());
+        lastAccount = converted;
+        return converted;
+    }
 
-        } catch (Exception e) {
-            logger.error("❌ Ошибка расчета R/R", e);
-            return BigDecimal.ZERO;
+    /**
+     * Проверка портфельного риска: исторический VaR/CVaR и стресс-сценарии книги вместе со сделкой.
+     * Без движка портфельного риска (бэктест) проверка пропускается.
+     */
+    private ValidationResult checkPortfolioRisk(TradableInstrument instrument, TradingSignal signal,
+                                                BigDecimal tradeAmount, BigDecimal capital) {
+        if (portfolioRisk == null) {
+            return ValidationResult.valid(BigDecimal.ZERO, BigDecimal.ZERO, "Портфельный риск не отслеживается");
+        }
+        double exposure = signal.getSignalType() == TradingSignal.SignalType.BUY
+                ? tradeAmount.doubleValue()
+                : -tradeAmount.doubleValue();
+        PortfolioRiskEngine.TradeCheck check = portfolioRisk.checkTrade(instrument.identifier(), exposure, capital.doubleValue());
+        if (!check.allowed()) {
+            logger.warn("[{}] Сигнал отклонен лимитом портфельного риска: {}", instrument.name(), check.message());
+            return ValidationResult.invalid(check.message());
         }
+        logger.debug("📉 [{}] Портфельный риск со сделкой: VaR={}, CVaR={}, стресс={}",
+                instrument.name(), check.valueAtRisk(), check.expectedShortfall(), check.stressLoss());
+        return ValidationResult.valid(BigDecimal.ZERO, BigDecimal.ZERO, check.message());
     }
 
     /**
-     * Проверка концентрации риска
+     * Концентрация риска: сделка вместе с позициями книги, взвешенными корреляцией с инструментом.
+     * Без движка портфельного риска (бэктест) проверка пропускается.
      */
-    private ValidationResult checkRiskConcentration(TradingSignal signal, ru.tinkoff.piapi.core.models.Portfolio portfolio) {
-        // Здесь можно добавить дополнительные проверки:
-        // - Максимальное количество открытых позиций
-        // - Концентрация в одном секторе
-        // - Корреляция с существующими позициями
-        // Пока возвращаем положительный результат
-
-        return ValidationResult.valid(BigDecimal.ZERO, BigDecimal.ZERO, "Концентрация риска в норме");
+    private ValidationResult checkRiskConcentration(TradableInstrument instrument, TradingSignal signal,
+                                                    BigDecimal tradeAmount, BigDecimal capital) {
+        if (portfolioRisk == null) {
+            return ValidationResult.valid(BigDecimal.ZERO, BigDecimal.ZERO, "Концентрация риска не отслеживается");
+        }
+        double exposure = signal.getSignalType() == TradingSignal.SignalType.BUY
+                ? tradeAmount.doubleValue()
+                : -tradeAmount.doubleValue();
+        PortfolioRiskEngine.ConcentrationCheck check = portfolioRisk.checkConcentration(instrument.identifier(), exposure, capital.doubleValue());
+        if (!check.allowed()) {
+            logger.warn("[{}] Сигнал отклонен лимитом концентрации: {}", instrument.name(), check.message());
+            return ValidationResult.invalid(check.message());
+        }
+        logger.debug("🧲 [{}] Эффективная экспозиция с учетом корреляций: {} -> {}",
+                instrument.name(), String.format("%.0f", check.exposureBefore()), String.format("%.0f", check.exposureAfter()));
+        return ValidationResult.valid(BigDecimal.ZERO, BigDecimal.ZERO, check.message());
     }
 
     // =============== РЕЗУЛЬТИРУЮЩИЕ КЛАССЫ ===============
 
-    @Getter @Setter @AllArgsConstructor
-    public static class PositionSizeResult {
-        private final boolean valid;
-        private final BigDecimal positionSize; // Количество лотов
-        private final String description;
-        private BigDecimal positionSizeInRubles; // Размер в валюте
-        private BigDecimal riskAmount; // Размер риска
-        private BigDecimal positionPercentage; // Процент от капитала
+    /**
+     * Размер сделки: лоты на закрытие реверсируемой позиции и на открытие новой, стоимость открытия (нано).
+     */
+    private record PositionSize(long lots, long openLots, long closeLots, long amount, String error) {
+        static PositionSize invalid(String error) {
+            return new PositionSize(0, 0, 0, 0, error);
+        }
+    }
+
+    /**
+     * Снимок счета в нано-единицах валюты инструмента.
+     */
+    private record AccountNanos(AccountSnapshot source, long capital, long available, long minPosition, long positionLots) {
     }
 
     @Getter @AllArgsConstructor
@@ -418,17 +472,22 @@ public class RiskManager {
         private final String message;
         private final BigDecimal lots;
         private final BigDecimal tradeAmount; // <<-- ДОБАВЛЕНО
+        // Резерв капитала под сделку: подтверждается после отправки приказа или освобождается
+        private final CapitalBudget.Reservation reservation;
+        // Стоп и цель сигнала, округленные по шагу цены инструмента; null, если сигнал не прошел проверку
+        private final BigDecimal stopLoss;
+        private final BigDecimal takeProfit;
 
         public ValidationResult(boolean valid, String message, BigDecimal lots) {
-            this(valid, message, lots, BigDecimal.ZERO); // <<-- ИЗМЕНЕНО
+            this(valid, message, lots, BigDecimal.ZERO, null, null, null); // <<-- ИЗМЕНЕНО
         }
 
         public static ValidationResult invalid(String message) {
-            return new ValidationResult(false, message, BigDecimal.ZERO, BigDecimal.ZERO); // <<-- ИЗМЕНЕНО
+            return new ValidationResult(false, message, BigDecimal.ZERO, BigDecimal.ZERO, null, null, null); // <<-- ИЗМЕНЕНО
         }
 
         public static ValidationResult valid(BigDecimal lots, BigDecimal tradeAmount, String message) {
-            return new ValidationResult(true, message, lots, tradeAmount); // <<-- ИЗМЕНЕНО
+            return new ValidationResult(true, message, lots, tradeAmount, null, null, null); // <<-- ИЗМЕНЕНО
         }
     }
 }
@@ -0,0 +1,266 @@
+package com.tradingbot.tinkoff.rules;
+
+import com.tradingbot.tinkoff.strategy.InstrumentContext;
+import org.codehaus.commons.compiler.CompileException;
+import org.codehaus.janino.ClassBodyEvaluator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Компилятор правил стратегий в байткод через Janino.
+ *
+ * Формат файла правил (properties, UTF-8):
+ * <pre>
+ * name=rsi-vwap
+ * param.oversold=25
+ * entry.long=price &gt; vwap and rsi &lt; oversold
+ * exit.long=rsi &gt; 60
+ * score=min(100, 50 + abs(rsi - 50))
+ * period.rsi=7
+ * stop.atr=1.5
+ * </pre>
+ *
+ * Выражения проходят через токенизатор с белым списком: допускаются только числа,
+ * имена из {@link RuleVariables}, параметры {@code param.*}, функции
+ * abs/min/max/sqrt/log/exp/pow, операторы сравнения, арифметика, тернарный оператор
+ * и {@code and/or/not}. Переменные транслируются в обращения к массиву значений,
+ * параметры подставляются литералами, поэтому JIT сворачивает их как константы.
+ */
+public final class RuleCompiler {
+    private static final Logger logger = LoggerFactory.getLogger(RuleCompiler.class);
+
+    private static final Map<String, String> FUNCTIONS = Map.of(
+            "abs", "Math.abs",
+            "min", "Math.min",
+            "max", "Math.max",
+            "sqrt", "Math.sqrt",
+            "log", "Math.log",
+            "exp", "Math.exp",
+            "pow", "Math.pow");
+
+    private static final Map<String, String> WORD_OPERATORS = Map.of(
+            "and", "&&",
+            "or", "||",
+            "not", "!");
+
+    private static final String[] OPERATORS = {
+            "&&", "||", "==", "!=", "<=", ">=", "<", ">", "!", "+", "-", "*", "/", "%", "?", ":", "(", ")", ","};
+
+    // Кэш ограничен, чтобы долгие сессии правок не копили классы бесконечно
+    private static final int MAX_CACHED_PROGRAMS = 64;
+
+    private static final Map<String, RuleProgram> programCache = new ConcurrentHashMap<>();
+    private static final AtomicInteger classCounter = new AtomicInteger();
+
+    private RuleCompiler() {
+    }
+
+    /**
+     * Компилирует набор правил. Одинаковые правила (после трансляции) разделяют один класс.
+     *
+     * @throws IllegalArgumentException если правило содержит недопустимые токены или не компилируется
+     */
+    public static RuleSet compile(String defaultName, Properties source) {
+        String name = source.getProperty("name", defaultName).trim();
+
+        Map<String, String> params = new HashMap<>();
+        for (String key : source.stringPropertyNames()) {
+            if (key.startsWith("param.")) {
+                String paramName = key.substring("param.".length());
+                if (!isIdentifier(paramName) || RuleVariables.NAMES.contains(paramName)
+                        || FUNCTIONS.containsKey(paramName) || WORD_OPERATORS.containsKey(paramName)) {
+                    throw new IllegalArgumentException("Недопустимое имя параметра правил: " + paramName);
+                }
+                params.put(paramName, toDoubleLiteral(key, source.getProperty(key).trim()));
+            }
+        }
+
+        String body = "public boolean entryLong(double[] v) { return " + translate("entry.long", source.getProperty("entry.long", "false"), params) + "; }\n"
+                + "public boolean entryShort(double[] v) { return " + translate("entry.short", source.getProperty("entry.short", "false"), params) + "; }\n"
+                + "public boolean exitLong(double[] v) { return " + translate("exit.long", source.getProperty("exit.long", "false"), params) + "; }\n"
+                + "public boolean exitShort(double[] v) { return " + translate("exit.short", source.getProperty("exit.short", "false"), params) + "; }\n"
+                + "public double score(double[] v) { return " + translate("score", source.getProperty("score", "50"), params) + "; }\n";
+
+        RuleProgram program = programCache.get(body);
+        if (program == null) {
+            program = cook(name, body);
+            if (programCache.size() >= MAX_CACHED_PROGRAMS) {
+                programCache.clear();
+            }
+            programCache.put(body, program);
+        }
+
+        return new RuleSet(name, program,
+                intProperty(source, "period.rsi", 14),
+                intProperty(source, "period.emaFast", 9),
+                intProperty(source, "period.emaSlow", 21),
+                intProperty(source, "period.atr", 14),
+                windowProperty(source, "period.vwap", 14),
+                windowProperty(source, "period.bb", 20),
+                doubleProperty(source, "bb.multiplier", 2.0),
+                doubleProperty(source, "stop.atr", 1.5),
+                doubleProperty(source, "take.atr", 3.0));
+    }
+
+    private static RuleProgram cook(String name, String body) {
+        ClassBodyEvaluator evaluator = new ClassBodyEvaluator();
+        evaluator.setClassName("com.tradingbot.tinkoff.rules.generated.Rules" + classCounter.incrementAndGet());
+        evaluator.setImplementedInterfaces(new Class<?>[]{RuleProgram.class});
+        evaluator.setParentClassLoader(RuleProgram.class.getClassLoader());
+        try {
+            evaluator.cook(body);
+            RuleProgram program = (RuleProgram) evaluator.getClazz().getDeclaredConstructor().newInstance();
+            logger.info("🧩 Правила '{}' скомпилированы в {}", name, evaluator.getClazz().getName());
+            return program;
+        } catch (CompileException e) {
+            throw new IllegalArgumentException("Ошибка компиляции правил '" + name + "': " + e.getMessage(), e);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Не удалось создать экземпляр правил '" + name + "'", e);
+        }
+    }
+
+    /**
+     * Переводит выражение правила в выражение Java, отвергая все, что не входит в белый список.
+     */
+    static String translate(String key, String expression, Map<String, String> params) {
+        StringBuilder out = new StringBuilder("(");
+        int i = 0;
+        int length = expression.length();
+        while (i < length) {
+            char c = expression.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (Character.isDigit(c) || c == '.') {
+                int start = i;
+                while (i < length && (Character.isDigit(expression.charAt(i)) || expression.charAt(i) == '.')) {
+                    i++;
+                }
+                i = skipExponent(expression, i);
+                out.append(toDoubleLiteral(key, expression.substring(start, i)));
+            } else if (Character.isLetter(c) || c == '_') {
+                int start = i;
+                while (i < length && (Character.isLetterOrDigit(expression.charAt(i)) || expression.charAt(i) == '_')) {
+                    i++;
+                }
+                String word = expression.substring(start, i);
+                int variable = RuleVariables.NAMES.indexOf(word);
+                if (variable >= 0) {
+                    out.append("v[").append(variable).append(']');
+                } else if (params.containsKey(word)) {
+                    out.append(params.get(word));
+                } else if (FUNCTIONS.containsKey(word)) {
+                    out.append(FUNCTIONS.get(word));
+                } else if (WORD_OPERATORS.containsKey(word)) {
+                    out.append(WORD_OPERATORS.get(word));
+                } else if (word.equals("true") || word.equals("false")) {
+                    out.append(word);
+                } else {
+                    throw new IllegalArgumentException(String.format(
+                            "Правило %s: неизвестное имя '%s' (позиция %d). Доступны: %s", key, word, start, RuleVariables.NAMES));
+                }
+            } else {
+                String operator = matchOperator(expression, i);
+                if (operator == null) {
+                    throw new IllegalArgumentException(String.format(
+                            "Правило %s: недопустимый символ '%c' (позиция %d)", key, c, i));
+                }
+                out.append(operator);
+                i += operator.length();
+            }
+            out.append(' ');
+        }
+        return out.append(')').toString();
+    }
+
+    /**
+     * Порядок числа (1e-7, 2.5E+3): буква e с необязательным знаком входит в число, только если за ней цифра.
+     */
+    private static int skipExponent(String expression, int index) {
+        int length = expression.length();
+        if (index >= length || (expression.charAt(index) != 'e' && expression.charAt(index) != 'E')) {
+            return index;
+        }
+        int i = index + 1;
+        if (i < length && (expression.charAt(i) == '+' || expression.charAt(i) == '-')) {
+            i++;
+        }
+        if (i >= length || !Character.isDigit(expression.charAt(i))) {
+            return index;
+        }
+        while (i < length && Character.isDigit(expression.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static String matchOperator(String expression, int index) {
+        for (String operator : OPERATORS) {
+            if (expression.startsWith(operator, index)) {
+                return operator;
+            }
+        }
+        return null;
+    }
+
+    private static String toDoubleLiteral(String key, String text) {
+        double value;
+        try {
+            value = Double.parseDouble(text);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Правило " + key + ": некорректное число '" + text + "'", e);
+        }
+        // 1e400 разбирается в бесконечность, у которой нет литерала Java
+        if (!Double.isFinite(value)) {
+            throw new IllegalArgumentException("Правило " + key + ": число вне диапазона double '" + text + "'");
+        }
+        return Double.toString(value);
+    }
+
+    private static boolean isIdentifier(String text) {
+        if (text.isEmpty() || !Character.isLetter(text.charAt(0))) {
+            return false;
+        }
+        for (int i = 1; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (!Character.isLetterOrDigit(c) && c != '_') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int intProperty(Properties source, String key, int defaultValue) {
+        String value = source.getProperty(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        int parsed = Integer.parseInt(value.trim());
+        if (parsed <= 0) {
+            throw new IllegalArgumentException("Период " + key + " должен быть положительным: " + value);
+        }
+        return parsed;
+    }
+
+    /**
+     * Оконные индикаторы считаются по кольцевой истории инструмента, окно не может быть длиннее нее.
+     */
+    private static int windowProperty(Properties source, String key, int defaultValue) {
+        int period = intProperty(source, key, defaultValue);
+        if (period > InstrumentContext.HISTORY_CAPACITY) {
+            throw new IllegalArgumentException(String.format(
+                    "Период %s=%d больше глубины истории (%d баров)", key, period, InstrumentContext.HISTORY_CAPACITY));
+        }
+        return period;
+    }
+
+    private static double doubleProperty(Properties source, String key, double defaultValue) {
+        String value = source.getProperty(key);
+        return value == null ? defaultValue : Double.parseDouble(value.trim());
+    }
+}
@@ -0,0 +1,22 @@
+package com.tradingbot.tinkoff.rules;
+
+/**
+ * Контракт класса, который Janino генерирует из файла правил.
+ * Все методы получают значения индикаторов в порядке {@link RuleVariables#NAMES}.
+ * Интерфейс должен оставаться публичным: его реализует класс из отдельного загрузчика.
+ */
+public interface RuleProgram {
+
+    boolean entryLong(double[] v);
+
+    boolean entryShort(double[] v);
+
+    boolean exitLong(double[] v);
+
+    boolean exitShort(double[] v);
+
+    /**
+     * Оценка сигнала 0-100 (значения вне диапазона обрезаются вызывающей стороной).
+     */
+    double score(double[] v);
+}
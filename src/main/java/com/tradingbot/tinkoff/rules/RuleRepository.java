@@ -0,0 +1,194 @@
+package com.tradingbot.tinkoff.rules;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Хранилище скомпилированных правил: {@code default.rules} для всех инструментов
+ * и {@code <FIGI>.rules} для конкретного инструмента.
+ *
+ * Каталог отслеживается через WatchService: измененный файл перекомпилируется,
+ * и слушатель получает FIGI (или {@code null} для правил по умолчанию), чтобы
+ * подменить правила в работающих процессорах. Файл с ошибкой не заменяет
+ * действующие правила.
+ */
+public class RuleRepository {
+    private static final Logger logger = LoggerFactory.getLogger(RuleRepository.class);
+
+    private static final String DEFAULT_RULES = "default";
+    private static final String RULES_EXTENSION = ".rules";
+    private static final String CLASSPATH_DEFAULT = "/rules/default.rules";
+    private static final long DEBOUNCE_MILLIS = 200;
+
+    private final Path directory;
+    private final Map<String, RuleSet> instrumentRules = new ConcurrentHashMap<>();
+    private volatile RuleSet defaultRules = RuleSet.EMPTY;
+
+    private WatchService watchService;
+    private Thread watcherThread;
+
+    public RuleRepository(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Загружает все файлы правил из каталога (и встроенные правила по умолчанию).
+     */
+    public void loadAll() {
+        defaultRules = loadClasspathDefault();
+        if (!Files.isDirectory(directory)) {
+            logger.info("📂 Каталог правил {} не найден, используются встроенные правила", directory.toAbsolutePath());
+            return;
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(p -> p.getFileName().toString().endsWith(RULES_EXTENSION)).forEach(this::reload);
+        } catch (IOException e) {
+            logger.error("❌ Не удалось прочитать каталог правил {}", directory, e);
+        }
+    }
+
+    public RuleSet rulesFor(String figi) {
+        RuleSet specific = instrumentRules.get(figi);
+        return specific != null ? specific : defaultRules;
+    }
+
+    /**
+     * Запускает отслеживание каталога правил.
+     *
+     * @param onChange получает FIGI измененного файла или {@code null}, если изменились правила по умолчанию
+     */
+    public void startWatching(Consumer<String> onChange) {
+        if (watcherThread != null) {
+            return;
+        }
+        try {
+            Files.createDirectories(directory);
+            watchService = FileSystems.getDefault().newWatchService();
+            directory.register(watchService,
+                    StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY,
+                    StandardWatchEventKinds.ENTRY_DELETE);
+        } catch (IOException e) {
+            logger.error("❌ Не удалось запустить отслеживание каталога правил {}", directory, e);
+            return;
+        }
+
+        watcherThread = new Thread(() -> watchLoop(onChange), "Rules-Watcher");
+        watcherThread.setDaemon(true);
+        watcherThread.start();
+        logger.info("👀 Отслеживание правил в {}", directory.toAbsolutePath());
+    }
+
+    public void stopWatching() {
+        if (watcherThread != null) {
+            watcherThread.interrupt();
+            watcherThread = null;
+        }
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                logger.warn("Ошибка при закрытии WatchService правил", e);
+            }
+            watchService = null;
+        }
+    }
+
+    private void watchLoop(Consumer<String> onChange) {
+        WatchService service = watchService;
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                WatchKey key = service.take();
+                // Редакторы сохраняют файл несколькими событиями — собираем их в одно обновление
+                TimeUnit.MILLISECONDS.sleep(DEBOUNCE_MILLIS);
+
+                Set<String> changed = new HashSet<>();
+                do {
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.context() instanceof Path path && path.toString().endsWith(RULES_EXTENSION)) {
+                            changed.add(path.toString());
+                        }
+                    }
+                    key.reset();
+                    key = service.poll();
+                } while (key != null);
+
+                for (String fileName : changed) {
+                    String figi = reload(directory.resolve(fileName));
+                    if (figi != null) {
+                        onChange.accept(DEFAULT_RULES.equals(figi) ? null : figi);
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // Отслеживание остановлено
+        }
+    }
+
+    /**
+     * Перечитывает один файл правил.
+     *
+     * @return имя набора (FIGI или "default"), если правила изменились; {@code null} при ошибке
+     */
+    private String reload(Path file) {
+        String fileName = file.getFileName().toString();
+        String key = fileName.substring(0, fileName.length() - RULES_EXTENSION.length());
+
+        if (!Files.exists(file)) {
+            if (DEFAULT_RULES.equals(key)) {
+                defaultRules = loadClasspathDefault();
+            } else {
+                instrumentRules.remove(key);
+            }
+            logger.info("🗑️ Правила {} удалены, применяются правила по умолчанию", key);
+            return key;
+        }
+
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            Properties properties = new Properties();
+            properties.load(reader);
+            RuleSet rules = RuleCompiler.compile(key, properties);
+            if (DEFAULT_RULES.equals(key)) {
+                defaultRules = rules;
+            } else {
+                instrumentRules.put(key, rules);
+            }
+            logger.info("✅ Правила {} загружены из {}", rules.getName(), file);
+            return key;
+        } catch (IOException | IllegalArgumentException e) {
+            logger.error("❌ Правила {} не загружены, действуют прежние: {}", file, e.getMessage());
+            return null;
+        }
+    }
+
+    private RuleSet loadClasspathDefault() {
+        try (InputStream in = RuleRepository.class.getResourceAsStream(CLASSPATH_DEFAULT)) {
+            if (in == null) {
+                return RuleSet.EMPTY;
+            }
+            Properties properties = new Properties();
+            properties.load(new InputStreamReader(in, StandardCharsets.UTF_8));
+            return RuleCompiler.compile(DEFAULT_RULES, properties);
+        } catch (IOException | IllegalArgumentException e) {
+            logger.error("❌ Встроенные правила по умолчанию не загружены: {}", e.getMessage());
+            return RuleSet.EMPTY;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.tradingbot.tinkoff.rules;
+
+import lombok.Getter;
+
+/**
+ * Скомпилированный набор правил. Неизменяем, поэтому один экземпляр
+ * безопасно разделяется между процессорами разных инструментов.
+ */
+@Getter
+public final class RuleSet {
+
+    /**
+     * Набор без правил: стратегия всегда возвращает HOLD.
+     */
+    public static final RuleSet EMPTY = new RuleSet("empty", null, 14, 9, 21, 14, 14, 20, 2.0, 1.5, 3.0);
+
+    private final String name;
+    private final RuleProgram program;
+
+    // Периоды индикаторов, которые стратегия строит под этот набор
+    private final int rsiPeriod;
+    private final int emaFastPeriod;
+    private final int emaSlowPeriod;
+    private final int atrPeriod;
+    private final int vwapPeriod;
+    private final int bbPeriod;
+    private final double bbMultiplier;
+
+    // Уровни стоп-лосса и тейк-профита в ATR
+    private final double stopAtr;
+    private final double takeAtr;
+
+    RuleSet(String name, RuleProgram program,
+            int rsiPeriod, int emaFastPeriod, int emaSlowPeriod, int atrPeriod, int vwapPeriod,
+            int bbPeriod, double bbMultiplier, double stopAtr, double takeAtr) {
+        this.name = name;
+        this.program = program;
+        this.rsiPeriod = rsiPeriod;
+        this.emaFastPeriod = emaFastPeriod;
+        this.emaSlowPeriod = emaSlowPeriod;
+        this.atrPeriod = atrPeriod;
+        this.vwapPeriod = vwapPeriod;
+        this.bbPeriod = bbPeriod;
+        this.bbMultiplier = bbMultiplier;
+        this.stopAtr = stopAtr;
+        this.takeAtr = takeAtr;
+    }
+
+    public boolean isEmpty() {
+        return program == null;
+    }
+
+    /**
+     * Количество баров, необходимое для стабилизации всех индикаторов набора.
+     */
+    public int getUnstablePeriod() {
+        int max = Math.max(Math.max(rsiPeriod, emaSlowPeriod), Math.max(atrPeriod, Math.max(vwapPeriod, bbPeriod)));
+        return Math.max(max, emaFastPeriod) + 2;
+    }
+
+    /**
+     * Индикаторы должны быть перестроены, если отличается хотя бы один период.
+     */
+    public boolean hasSameIndicators(RuleSet other) {
+        return other != null
+                && rsiPeriod == other.rsiPeriod
+                && emaFastPeriod == other.emaFastPeriod
+                && emaSlowPeriod == other.emaSlowPeriod
+                && atrPeriod == other.atrPeriod
+                && vwapPeriod == other.vwapPeriod
+                && bbPeriod == other.bbPeriod
+                && Double.compare(bbMultiplier, other.bbMultiplier) == 0;
+    }
+
+    @Override
+    public String toString() {
+        return "RuleSet[" + name + "]";
+    }
+}
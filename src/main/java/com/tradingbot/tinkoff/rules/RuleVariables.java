@@ -0,0 +1,38 @@
+package com.tradingbot.tinkoff.rules;
+
+import java.util.List;
+
+/**
+ * Словарь именованных индикаторов, доступных в выражениях правил.
+ * Индекс имени в {@link #NAMES} совпадает с позицией значения в массиве,
+ * который стратегия передает в {@link RuleProgram}.
+ */
+public final class RuleVariables {
+    public static final int PRICE = 0;
+    public static final int OPEN = 1;
+    public static final int HIGH = 2;
+    public static final int LOW = 3;
+    public static final int VOLUME = 4;
+    public static final int RSI = 5;
+    public static final int VWAP = 6;
+    public static final int EMA_FAST = 7;
+    public static final int EMA_SLOW = 8;
+    public static final int EMA_FAST_PREV = 9;
+    public static final int EMA_SLOW_PREV = 10;
+    public static final int ATR = 11;
+    public static final int BB_UPPER = 12;
+    public static final int BB_MIDDLE = 13;
+    public static final int BB_LOWER = 14;
+
+    public static final List<String> NAMES = List.of(
+            "price", "open", "high", "low", "volume",
+            "rsi", "vwap",
+            "emaFast", "emaSlow", "emaFastPrev", "emaSlowPrev",
+            "atr",
+            "bbUpper", "bbMiddle", "bbLower");
+
+    public static final int COUNT = NAMES.size();
+
+    private RuleVariables() {
+    }
+}
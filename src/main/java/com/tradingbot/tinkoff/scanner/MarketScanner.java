@@ -0,0 +1,464 @@
+package com.tradingbot.tinkoff.scanner;
+
+import com.tradingbot.tinkoff.api.TinkoffApiConnector;
+import com.tradingbot.tinkoff.model.TradableInstrument;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ru.tinkoff.piapi.contract.v1.Candle;
+import ru.tinkoff.piapi.contract.v1.CandleInterval;
+import ru.tinkoff.piapi.contract.v1.HistoricCandle;
+import ru.tinkoff.piapi.contract.v1.LastPrice;
+import ru.tinkoff.piapi.contract.v1.OrderBook;
+import ru.tinkoff.piapi.core.stream.MarketDataSubscriptionService;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Легковесный сканер всей вселенной инструментов.
+ * Держит крошечное инкрементальное состояние на инструмент (цена, объем, ATR, RSI, спред),
+ * непрерывно ранжирует вселенную и автоматически переводит лучшие инструменты
+ * в полноценные {@link com.tradingbot.tinkoff.processor.InstrumentProcessor} и обратно.
+ *
+ * Состояние прогревается историческими свечами: пачка инструментов загружается в фоне
+ * с паузой между запросами и только затем подписывается на стрим, поэтому слот по-прежнему
+ * пишет один поток. Переведенными считаются только процессоры, запущенные для сканера;
+ * при остановке сканера они останавливаются.
+ */
+public class MarketScanner {
+    private static final Logger logger = LoggerFactory.getLogger(MarketScanner.class);
+
+    private static final int STREAM_CHUNK_SIZE = 300;          // Лимит подписок на один стрим
+    private static final int LAST_PRICE_CHUNK_SIZE = 1000;     // FIGI в одном запросе последних цен
+    private static final long LAST_PRICE_POLL_SECONDS = 5;
+    private static final long RANKING_INTERVAL_SECONDS = 30;
+    private static final long STALE_PRICE_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    private static final long MIN_HOLD_MILLIS = TimeUnit.MINUTES.toMillis(10);
+    private static final double DEMOTE_RANK_FACTOR = 1.5;      // Гистерезис: выбываем только ниже 1.5×N места
+    private static final int DEMOTE_STRIKES = 3;               // ... и несколько ранжирований подряд
+    private static final int ORDER_BOOK_CANDIDATE_FACTOR = 2;  // Стакан (спред) только для топ-2×N кандидатов
+    private static final long HISTORY_REQUEST_INTERVAL_MS = 150; // Не больше 400 запросов свечей в минуту
+
+    private final TinkoffApiConnector apiConnector;
+    private final ScannerListener listener;
+    private final int maxActive;
+
+    private TradableInstrument[] instruments;
+    private Map<String, Integer> slotByFigi;
+    private ScannerState state;
+
+    // Рабочие массивы ранжирования, переиспользуются между циклами
+    private double[] scores;
+    private double[] scratch;
+    private int[] candidates;
+    private boolean[] promoted;
+    private long[] promotedAtMillis;
+    private int[] demoteStrikes;
+    private int promotedCount;
+
+    private final List<MarketDataSubscriptionService> candleStreams = new ArrayList<>();
+    private MarketDataSubscriptionService orderBookStream;
+    private final Set<String> orderBookFigis = new HashSet<>();
+    private CandleInterval interval;
+    private ScheduledExecutorService scheduler;
+    private ExecutorService historyLoader;
+    private volatile boolean running;
+    // Сканер одноразовый: после stop() запуск, не успевший начаться в фоне, уже не выполняется
+    private boolean stopped;
+
+    public MarketScanner(TinkoffApiConnector apiConnector, ScannerListener listener, int maxActive) {
+        this.apiConnector = apiConnector;
+        this.listener = listener;
+        this.maxActive = maxActive;
+    }
+
+    /**
+     * Запускает сканирование вселенной: подписки на свечи пачками, опрос последних цен и ранжирование.
+     * Запуск и остановка сериализованы на сканере; после {@link #stop()} запуск ничего не делает.
+     */
+    public synchronized void start(List<TradableInstrument> universe, CandleInterval interval) {
+        if (stopped) {
+            logger.info("🛑 Сканер остановлен до запуска, запуск отменен.");
+            return;
+        }
+        if (running) {
+            throw new IllegalStateException("Сканер уже запущен");
+        }
+        int size = universe.size();
+        this.interval = interval;
+        this.instruments = universe.toArray(new TradableInstrument[0]);
+        this.slotByFigi = new HashMap<>(size * 2);
+        for (int i = 0; i < size; i++) {
+            slotByFigi.put(instruments[i].identifier(), i);
+        }
+        this.state = new ScannerState(size);
+        this.scores = new double[size];
+        this.scratch = new double[size];
+        this.candidates = new int[size];
+        this.promoted = new boolean[size];
+        this.promotedAtMillis = new long[size];
+        this.demoteStrikes = new int[size];
+        this.promotedCount = 0;
+        this.running = true;
+
+        logger.info("🛰️ Запуск сканера: {} инструментов, до {} активных процессоров", size, maxActive);
+
+        historyLoader = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "Market-Scanner-History");
+            t.setDaemon(true);
+            return t;
+        });
+        historyLoader.submit(this::seedAndSubscribe);
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "Market-Scanner");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(this::pollLastPrices, 0, LAST_PRICE_POLL_SECONDS, TimeUnit.SECONDS);
+        scheduler.scheduleWithFixedDelay(this::rank, RANKING_INTERVAL_SECONDS, RANKING_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Останавливает сканер и процессоры, запущенные для него (через {@link ScannerListener#onDemote}).
+     */
+    public synchronized void stop() {
+        stopped = true;
+        running = false;
+        if (historyLoader != null) {
+            historyLoader.shutdownNow();
+        }
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        if (promoted != null) {
+            for (int i = 0; i < instruments.length; i++) {
+                if (promoted[i]) {
+                    promoted[i] = false;
+                    listener.onDemote(instruments[i], scores[i]);
+                }
+            }
+            promotedCount = 0;
+        }
+        candleStreams.forEach(MarketDataSubscriptionService::cancel);
+        candleStreams.clear();
+        if (orderBookStream != null) {
+            orderBookStream.cancel();
+            orderBookStream = null;
+        }
+        orderBookFigis.clear();
+        logger.info("🛑 Сканер остановлен.");
+    }
+
+    /**
+     * Прогрев по историческим свечам пачками по {@link #STREAM_CHUNK_SIZE}: пачка подписывается на стрим
+     * после загрузки истории, чтобы свечи слота приходили из одного потока и по порядку.
+     */
+    private void seedAndSubscribe() {
+        int seeded = 0;
+        for (int from = 0; from < instruments.length && running; from += STREAM_CHUNK_SIZE) {
+            int to = Math.min(instruments.length, from + STREAM_CHUNK_SIZE);
+            for (int slot = from; slot < to && running; slot++) {
+                if (seed(slot)) {
+                    seeded++;
+                }
+            }
+            subscribeCandles(figis(from, to));
+        }
+        if (running) {
+            logger.info("✅ Сканер подписан на свечи: {} стримов, прогрето историей {} из {} инструментов",
+                    candleStreams.size(), seeded, instruments.length);
+        }
+    }
+
+    private boolean seed(int slot) {
+        Instant to = Instant.now();
+        try {
+            List<HistoricCandle> candles = apiConnector.getCandles(instruments[slot].identifier(), to.minus(historyWindow(interval)), to, interval);
+            for (HistoricCandle candle : candles) {
+                state.onCandle(slot, TinkoffApiConnector.timestampToMillis(candle.getTime()),
+                        TinkoffApiConnector.quotationToDouble(candle.getHigh()),
+                        TinkoffApiConnector.quotationToDouble(candle.getLow()),
+                        TinkoffApiConnector.quotationToDouble(candle.getClose()),
+                        candle.getVolume());
+            }
+            Thread.sleep(HISTORY_REQUEST_INTERVAL_MS);
+            return state.isWarmedUp(slot);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+            return false;
+        } catch (Exception e) {
+            // Без истории инструмент прогреется живыми свечами
+            logger.debug("Сканер: не удалось загрузить историю {}: {}", instruments[slot].name(), e.getMessage());
+            return false;
+        }
+    }
+
+    private synchronized void subscribeCandles(List<String> chunk) {
+        if (!running) {
+            return;
+        }
+        MarketDataSubscriptionService stream = apiConnector.subscribeToMarketData(chunk, interval, this::onCandle, null, 0);
+        if (stream != null) {
+            candleStreams.add(stream);
+        }
+    }
+
+    /**
+     * Окно истории одного запроса: наибольшее, которое API отдает для интервала.
+     */
+    private static Duration historyWindow(CandleInterval interval) {
+        return switch (interval) {
+            case CANDLE_INTERVAL_HOUR -> Duration.ofDays(7);
+            case CANDLE_INTERVAL_DAY -> Duration.ofDays(365);
+            default -> Duration.ofDays(1);
+        };
+    }
+
+    private void onCandle(Candle candle) {
+        Integer slot = slotByFigi.get(candle.getFigi());
+        if (slot == null) {
+            return;
+        }
+        long timeMillis = candle.getTime().getSeconds() * 1000 + candle.getTime().getNanos() / 1_000_000;
+        state.onCandle(slot, timeMillis,
+                TinkoffApiConnector.quotationToDouble(candle.getHigh()),
+                TinkoffApiConnector.quotationToDouble(candle.getLow()),
+                TinkoffApiConnector.quotationToDouble(candle.getClose()),
+                candle.getVolume());
+    }
+
+    private void onOrderBook(OrderBook orderBook) {
+        Integer slot = slotByFigi.get(orderBook.getFigi());
+        if (slot == null || orderBook.getBidsCount() == 0 || orderBook.getAsksCount() == 0) {
+            return;
+        }
+        state.onSpread(slot,
+                TinkoffApiConnector.quotationToDouble(orderBook.getBids(0).getPrice()),
+                TinkoffApiConnector.quotationToDouble(orderBook.getAsks(0).getPrice()));
+    }
+
+    private void pollLastPrices() {
+        try {
+            for (int from = 0; from < instruments.length; from += LAST_PRICE_CHUNK_SIZE) {
+                List<LastPrice> prices = apiConnector.getLastPrices(figis(from, Math.min(instruments.length, from + LAST_PRICE_CHUNK_SIZE)));
+                for (LastPrice lastPrice : prices) {
+                    Integer slot = slotByFigi.get(lastPrice.getFigi());
+                    if (slot != null) {
+                        long timeMillis = lastPrice.getTime().getSeconds() * 1000 + lastPrice.getTime().getNanos() / 1_000_000;
+                        state.onLastPrice(slot, TinkoffApiConnector.quotationToDouble(lastPrice.getPrice()), timeMillis);
+                    }
+                }
+            }
+        } catch (Exception e) {
+            logger.warn("⚠️ Сканер: не удалось получить последние цены: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Ранжирование вселенной и перевод инструментов между сканером и полноценными процессорами.
+     */
+    private synchronized void rank() {
+        try {
+            long now = System.currentTimeMillis();
+            int size = instruments.length;
+            int eligible = 0;
+            for (int i = 0; i < size; i++) {
+                double score = score(i, now);
+                scores[i] = score;
+                if (score > 0) {
+                    scratch[eligible++] = score;
+                }
+            }
+            if (eligible == 0) {
+                logger.debug("Сканер: нет инструментов с достаточными данными для ранжирования.");
+                return;
+            }
+
+            double promoteThreshold = kthLargest(scratch, eligible, Math.min(maxActive, eligible));
+            int demoteRank = Math.min((int) Math.ceil(maxActive * DEMOTE_RANK_FACTOR), eligible);
+            double demoteThreshold = kthLargest(scratch, eligible, demoteRank);
+            int orderBookRank = Math.min(maxActive * ORDER_BOOK_CANDIDATE_FACTOR, eligible);
+            double orderBookThreshold = kthLargest(scratch, eligible, orderBookRank);
+
+            applyDemotions(now, demoteThreshold);
+            applyPromotions(now, promoteThreshold);
+            updateOrderBookSubscriptions(orderBookThreshold);
+
+            logger.info("🛰️ Сканер: ранжировано {} из {}, активно {}/{}, порог входа {}",
+                    eligible, size, promotedCount, maxActive, String.format("%.2f", promoteThreshold));
+        } catch (Exception e) {
+            logger.error("❌ Ошибка ранжирования в сканере", e);
+        }
+    }
+
+    /**
+     * Балл инструмента: волатильность (ATR в б.п.) × ликвидность (log оборота) × экстремальность RSI,
+     * со штрафом за широкий спред относительно ATR. Ноль — инструмент не участвует в рейтинге.
+     */
+    private double score(int slot, long now) {
+        double price = state.lastPrice[slot];
+        if (price <= 0 || !state.isWarmedUp(slot) || now - state.lastPriceTimeMillis[slot] > STALE_PRICE_MILLIS) {
+            return 0;
+        }
+        double atrPct = state.atr[slot] / price;
+        if (atrPct <= 0) {
+            return 0;
+        }
+        double liquidity = Math.log10(1 + state.volumeEma[slot] * price);
+        double extremity = Math.abs(state.rsi(slot) - 50) / 50;
+        double spread = state.spread[slot];
+        double spreadFactor = Double.isNaN(spread) ? 1 : 1 / (1 + spread / atrPct);
+        return atrPct * 10_000 * liquidity * (0.5 + extremity) * spreadFactor;
+    }
+
+    private void applyDemotions(long now, double demoteThreshold) {
+        for (int i = 0; i < instruments.length; i++) {
+            if (!promoted[i]) {
+                continue;
+            }
+            if (scores[i] > 0 && scores[i] >= demoteThreshold) {
+                demoteStrikes[i] = 0;
+                continue;
+            }
+            demoteStrikes[i]++;
+            if (demoteStrikes[i] >= DEMOTE_STRIKES && now - promotedAtMillis[i] >= MIN_HOLD_MILLIS) {
+                promoted[i] = false;
+                demoteStrikes[i] = 0;
+                promotedCount--;
+                logger.info("⬇️ Сканер: {} выбывает (балл {})", instruments[i].name(), String.format("%.2f", scores[i]));
+                listener.onDemote(instruments[i], scores[i]);
+            }
+        }
+    }
+
+    private void applyPromotions(long now, double promoteThreshold) {
+        int free = maxActive - promotedCount;
+        if (free <= 0) {
+            return;
+        }
+        int count = 0;
+        for (int i = 0; i < instruments.length; i++) {
+            if (!promoted[i] && scores[i] > 0 && scores[i] >= promoteThreshold) {
+                candidates[count++] = i;
+            }
+        }
+        sortByScoreDescending(candidates, count);
+        for (int c = 0; c < count && free > 0; c++) {
+            int i = candidates[c];
+            // Инструмент с процессором, запущенным вручную, не занимает место сканера
+            if (!listener.onPromote(instruments[i], scores[i])) {
+                continue;
+            }
+            promoted[i] = true;
+            promotedAtMillis[i] = now;
+            demoteStrikes[i] = 0;
+            promotedCount++;
+            free--;
+            logger.info("⬆️ Сканер: {} переведен в полноценный процессор (балл {})", instruments[i].name(), String.format("%.2f", scores[i]));
+        }
+    }
+
+    /**
+     * Стакан глубины 1 держим только для лучших кандидатов, чтобы учитывать спред без подписки на всю вселенную.
+     */
+    private void updateOrderBookSubscriptions(double threshold) {
+        List<String> added = new ArrayList<>();
+        Set<String> wanted = new HashSet<>();
+        for (int i = 0; i < instruments.length; i++) {
+            if (scores[i] > 0 && scores[i] >= threshold) {
+                String figi = instruments[i].identifier();
+                wanted.add(figi);
+                if (!orderBookFigis.contains(figi)) {
+                    added.add(figi);
+                }
+            }
+        }
+        List<String> removed = new ArrayList<>();
+        for (String figi : orderBookFigis) {
+            if (!wanted.contains(figi)) {
+                removed.add(figi);
+                state.spread[slotByFigi.get(figi)] = Double.NaN;
+            }
+        }
+
+        if (orderBookStream == null) {
+            if (!added.isEmpty()) {
+                orderBookStream = apiConnector.subscribeToMarketData(added, interval, null, this::onOrderBook, 1);
+            }
+        } else {
+            if (!removed.isEmpty()) {
+                orderBookStream.unsubscribeOrderbook(removed, 1);
+            }
+            if (!added.isEmpty()) {
+                orderBookStream.subscribeOrderbook(added, 1);
+            }
+        }
+        orderBookFigis.clear();
+        orderBookFigis.addAll(wanted);
+    }
+
+    private List<String> figis(int from, int to) {
+        List<String> result = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            result.add(instruments[i].identifier());
+        }
+        return result;
+    }
+
+    private void sortByScoreDescending(int[] slots, int count) {
+        for (int i = 1; i < count; i++) {
+            int slot = slots[i];
+            int j = i - 1;
+            while (j >= 0 && scores[slots[j]] < scores[slot]) {
+                slots[j + 1] = slots[j];
+                j--;
+            }
+            slots[j + 1] = slot;
+        }
+    }
+
+    /**
+     * k-е по величине значение среди первых n элементов (quickselect, O(n), переставляет элементы массива).
+     */
+    static double kthLargest(double[] values, int n, int k) {
+        int target = k - 1;
+        int left = 0;
+        int right = n - 1;
+        while (left < right) {
+            double pivot = values[(left + right) >>> 1];
+            int i = left;
+            int j = right;
+            while (i <= j) {
+                while (values[i] > pivot) i++;
+                while (values[j] < pivot) j--;
+                if (i <= j) {
+                    double tmp = values[i];
+                    values[i] = values[j];
+                    values[j] = tmp;
+                    i++;
+                    j--;
+                }
+            }
+            if (target <= j) {
+                right = j;
+            } else if (target >= i) {
+                left = i;
+            } else {
+                break;
+            }
+        }
+        return values[target];
+    }
+}
@@ -0,0 +1,23 @@
+package com.tradingbot.tinkoff.scanner;
+
+import com.tradingbot.tinkoff.model.TradableInstrument;
+
+/**
+ * Получатель решений сканера о переводе инструментов в полноценные процессоры и обратно.
+ */
+public interface ScannerListener {
+
+    /**
+     * Инструмент вошел в топ рейтинга и должен получить полноценный процессор.
+     *
+     * @return запущен ли процессор для сканера; {@code false}, если у инструмента уже есть процессор,
+     * запущенный вручную, - сканер его не считает своим и не остановит
+     */
+    boolean onPromote(TradableInstrument instrument, double score);
+
+    /**
+     * Инструмент устойчиво выпал из рейтинга или сканер остановлен: процессор, запущенный
+     * для сканера в {@link #onPromote}, останавливается.
+     */
+    void onDemote(TradableInstrument instrument, double score);
+}
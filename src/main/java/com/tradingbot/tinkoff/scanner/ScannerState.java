@@ -0,0 +1,140 @@
+package com.tradingbot.tinkoff.scanner;
+
+import java.util.Arrays;
+
+/**
+ * Компактное инкрементальное состояние сканера для всей вселенной инструментов.
+ * Хранится в виде параллельных примитивных массивов (по слоту на инструмент),
+ * поэтому 2000+ инструментов занимают сотни килобайт вместо полноценных процессоров.
+ *
+ * Запись по слоту выполняет один поток (стрим, в котором подписан инструмент),
+ * ранжирование читает значения без блокировок и терпимо к слегка устаревшим данным.
+ */
+final class ScannerState {
+    static final int ATR_PERIOD = 14;
+    static final int RSI_PERIOD = 14;
+    static final int VOLUME_PERIOD = 20;
+
+    private static final double VOLUME_ALPHA = 2.0 / (VOLUME_PERIOD + 1);
+
+    final int capacity;
+
+    // Последняя цена (из батчевых запросов last price и из свечей)
+    final double[] lastPrice;
+    final long[] lastPriceTimeMillis;
+
+    // Текущий (незакрытый) бар
+    final long[] barTimeMillis;
+    final double[] barHigh;
+    final double[] barLow;
+    final double[] barClose;
+    final double[] barVolume;
+
+    // Инкрементальные индикаторы по закрытым барам
+    final double[] prevClose;
+    final double[] atr;
+    final double[] avgGain;
+    final double[] avgLoss;
+    final double[] volumeEma;
+    final int[] barsSeen;
+
+    // Относительный спред (ask - bid) / mid; NaN, пока стакан не получен
+    final double[] spread;
+
+    ScannerState(int capacity) {
+        this.capacity = capacity;
+        this.lastPrice = new double[capacity];
+        this.lastPriceTimeMillis = new long[capacity];
+        this.barTimeMillis = new long[capacity];
+        this.barHigh = new double[capacity];
+        this.barLow = new double[capacity];
+        this.barClose = new double[capacity];
+        this.barVolume = new double[capacity];
+        this.prevClose = new double[capacity];
+        this.atr = new double[capacity];
+        this.avgGain = new double[capacity];
+        this.avgLoss = new double[capacity];
+        this.volumeEma = new double[capacity];
+        this.barsSeen = new int[capacity];
+        this.spread = new double[capacity];
+        Arrays.fill(spread, Double.NaN);
+    }
+
+    void onLastPrice(int slot, double price, long timeMillis) {
+        if (price <= 0 || timeMillis < lastPriceTimeMillis[slot]) {
+            return;
+        }
+        lastPrice[slot] = price;
+        lastPriceTimeMillis[slot] = timeMillis;
+    }
+
+    /**
+     * Обновление по свече из стрима. Свеча с тем же временем замещает текущий бар,
+     * свеча с более поздним временем закрывает текущий бар и открывает новый.
+     */
+    void onCandle(int slot, long timeMillis, double high, double low, double close, double volume) {
+        long current = barTimeMillis[slot];
+        if (timeMillis < current) {
+            return; // Запоздавшая свеча
+        }
+        if (current != 0 && timeMillis > current) {
+            commitBar(slot);
+        }
+        barTimeMillis[slot] = timeMillis;
+        barHigh[slot] = high;
+        barLow[slot] = low;
+        barClose[slot] = close;
+        barVolume[slot] = volume;
+        onLastPrice(slot, close, timeMillis);
+    }
+
+    void onSpread(int slot, double bestBid, double bestAsk) {
+        if (bestBid <= 0 || bestAsk <= 0 || bestAsk < bestBid) {
+            return;
+        }
+        spread[slot] = (bestAsk - bestBid) / ((bestAsk + bestBid) / 2);
+    }
+
+    /**
+     * Закрывает текущий бар: Wilder-сглаживание ATR и RSI, EMA объема.
+     */
+    private void commitBar(int slot) {
+        double high = barHigh[slot];
+        double low = barLow[slot];
+        double close = barClose[slot];
+        int seen = barsSeen[slot];
+
+        double trueRange = high - low;
+        if (seen > 0) {
+            double pc = prevClose[slot];
+            trueRange = Math.max(trueRange, Math.max(Math.abs(high - pc), Math.abs(low - pc)));
+
+            double change = close - pc;
+            double gain = change > 0 ? change : 0;
+            double loss = change < 0 ? -change : 0;
+            int rsiDivisor = Math.min(seen, RSI_PERIOD);
+            avgGain[slot] = (avgGain[slot] * (rsiDivisor - 1) + gain) / rsiDivisor;
+            avgLoss[slot] = (avgLoss[slot] * (rsiDivisor - 1) + loss) / rsiDivisor;
+        }
+
+        int atrDivisor = Math.min(seen + 1, ATR_PERIOD);
+        atr[slot] = (atr[slot] * (atrDivisor - 1) + trueRange) / atrDivisor;
+        volumeEma[slot] = seen == 0 ? barVolume[slot] : volumeEma[slot] + VOLUME_ALPHA * (barVolume[slot] - volumeEma[slot]);
+
+        prevClose[slot] = close;
+        barsSeen[slot] = seen + 1;
+    }
+
+    double rsi(int slot) {
+        double gain = avgGain[slot];
+        double loss = avgLoss[slot];
+        if (loss == 0) {
+            return gain == 0 ? 50 : 100;
+        }
+        return 100 - 100 / (1 + gain / loss);
+    }
+
+    boolean isWarmedUp(int slot) {
+        return barsSeen[slot] > Math.max(ATR_PERIOD, RSI_PERIOD);
+    }
+}
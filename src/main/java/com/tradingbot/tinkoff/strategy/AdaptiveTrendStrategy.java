@@ -1,74 +1,124 @@
 package com.tradingbot.tinkoff.strategy;
 
+import com.tradingbot.tinkoff.indicators.Incremental;
+import com.tradingbot.tinkoff.model.TradableInstrument;
 import com.tradingbot.tinkoff.model.TradingSignal;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.ta4j.core.BarSeries;
-import org.ta4j.core.indicators.averages.EMAIndicator;
-import org.ta4j.core.indicators.ATRIndicator;
-import org.ta4j.core.indicators.adx.ADXIndicator;
-import org.ta4j.core.indicators.helpers.ClosePriceIndicator;
-import org.ta4j.core.num.Num;
-import org.ta4j.core.num.DecimalNum;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
-import java.time.ZonedDateTime;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Адаптивная трендовая стратегия, которая подстраивается под волатильность
  */
-public class AdaptiveTrendStrategy {
+public final class AdaptiveTrendStrategy implements StrategyDefinition {
     private static final Logger logger = LoggerFactory.getLogger(AdaptiveTrendStrategy.class);
 
-    private static final int FAST_EMA = 8;
-    private static final int SLOW_EMA = 21;
-    private static final int ATR_PERIOD = 14;
-    private static final int ADX_PERIOD = 14;
-
-    private final BarSeries barSeries;
-    private final ClosePriceIndicator closePrice;
-    private final EMAIndicator fastEma;
-    private final EMAIndicator slowEma;
-    private final ATRIndicator atr;
-    private final ADXIndicator adx; // Для определения силы тренда
-    private final AtomicInteger signalCounter = new AtomicInteger(0);
+    // Общие результаты без сигнала: анализ без сигнала не создает объектов
+    private static final TradingSignal HOLD_WARMUP = TradingSignal.hold("Накопление данных");
+    private static final TradingSignal HOLD_NO_CROSSOVER = TradingSignal.hold("Нет пересечения или слабый тренд");
+
+    public static final AdaptiveTrendStrategy INSTANCE = new AdaptiveTrendStrategy();
+
+    static final int FAST_EMA = 8;
+    static final int SLOW_EMA = 21;
+    static final int ATR_PERIOD = 14;
+    static final int ADX_PERIOD = 14; // Для определения силы тренда; DI считаются по ATR того же периода
+
+    // Блок состояния
+    private static final int BARS = 0;
+    private static final int PREV_CLOSE = 1;
+    private static final int PREV_HIGH = 2;
+    private static final int PREV_LOW = 3;
+    static final int EMA_FAST = 4;
+    static final int EMA_SLOW = 5;
+    static final int ATR = 6;
+    private static final int AVG_PLUS_DM = 7;
+    private static final int AVG_MINUS_DM = 8;
+    static final int ADX = 9;
+    private static final int STATE_SIZE = 10;
 
-    public AdaptiveTrendStrategy(BarSeries barSeries) {
-        this.barSeries = barSeries;
-        this.closePrice = new ClosePriceIndicator(barSeries);
-        this.fastEma = new EMAIndicator(closePrice, FAST_EMA);
-        this.slowEma = new EMAIndicator(closePrice, SLOW_EMA);
-        this.atr = new ATRIndicator(barSeries, ATR_PERIOD);
-        this.adx = new ADXIndicator(barSeries, ADX_PERIOD);
+    private final AtomicInteger signalCounter = new AtomicInteger(0);
 
+    private AdaptiveTrendStrategy() {
         logger.info("🚀 AdaptiveTrendStrategy инициализирована");
     }
 
-    public int getUnstablePeriod() { return Math.max(SLOW_EMA, ADX_PERIOD) + 2; }
+    @Override
+    public String name() {
+        return "ADAPTIVE_TREND";
+    }
+
+    @Override
+    public int stateSize() {
+        return STATE_SIZE;
+    }
+
+    @Override
+    public int getUnstablePeriod(InstrumentContext context, int slot) {
+        return Math.max(SLOW_EMA, ADX_PERIOD) + 2;
+    }
 
-    public TradingSignal analyzeSignal(com.tradingbot.tinkoff.model.TradableInstrument instrument) {
-        int lastIndex = barSeries.getEndIndex();
-        if (lastIndex < getUnstablePeriod()) {
-            return new TradingSignal(TradingSignal.SignalType.HOLD, 0, "Накопление данных");
+    @Override
+    public void onBar(InstrumentContext context, int slot, double[] s, int o, int bar) {
+        double high = context.high(bar);
+        double low = context.low(bar);
+        double close = context.close(bar);
+        boolean first = s[o + BARS] == 0;
+
+        s[o + EMA_FAST] = Incremental.ema(s[o + EMA_FAST], close, FAST_EMA, first);
+        s[o + EMA_SLOW] = Incremental.ema(s[o + EMA_SLOW], close, SLOW_EMA, first);
+
+        double atr = Incremental.mma(s[o + ATR], Incremental.trueRange(high, low, s[o + PREV_CLOSE], first), ATR_PERIOD, first);
+        s[o + ATR] = atr;
+
+        // Направленное движение (+DM/-DM), DI и DX, как в ADXIndicator
+        double upMove = first ? 0 : high - s[o + PREV_HIGH];
+        double downMove = first ? 0 : s[o + PREV_LOW] - low;
+        double plusDm = upMove > downMove && upMove > 0 ? upMove : 0;
+        double minusDm = downMove > upMove && downMove > 0 ? downMove : 0;
+        double avgPlusDm = Incremental.mma(s[o + AVG_PLUS_DM], plusDm, ADX_PERIOD, first);
+        double avgMinusDm = Incremental.mma(s[o + AVG_MINUS_DM], minusDm, ADX_PERIOD, first);
+        s[o + AVG_PLUS_DM] = avgPlusDm;
+        s[o + AVG_MINUS_DM] = avgMinusDm;
+
+        double plusDi = atr == 0 ? 0 : avgPlusDm / atr * 100;
+        double minusDi = atr == 0 ? 0 : avgMinusDm / atr * 100;
+        double diSum = plusDi + minusDi;
+        double dx = diSum == 0 ? 0 : Math.abs(plusDi - minusDi) / diSum * 100;
+        s[o + ADX] = Incremental.mma(s[o + ADX], dx, ADX_PERIOD, first);
+
+        s[o + PREV_CLOSE] = close;
+        s[o + PREV_HIGH] = high;
+        s[o + PREV_LOW] = low;
+        s[o + BARS] += 1;
+    }
+
+    @Override
+    public TradingSignal analyzeSignal(InstrumentContext context, int slot) {
+        int lastIndex = context.getEndIndex();
+        if (lastIndex < getUnstablePeriod(context, slot)) {
+            return HOLD_WARMUP;
         }
 
-        Num fastEmaValue = fastEma.getValue(lastIndex);
-        Num slowEmaValue = slowEma.getValue(lastIndex);
-        Num prevFastEma = fastEma.getValue(lastIndex - 1);
-        Num prevSlowEma = slowEma.getValue(lastIndex - 1);
-        Num adxValue = adx.getValue(lastIndex);
+        double[] s = context.slab();
+        int w = context.working(slot);
+        int c = context.committed(slot);
+        double fastEmaValue = s[w + EMA_FAST];
+        double slowEmaValue = s[w + EMA_SLOW];
+        double prevFastEma = s[c + EMA_FAST];
+        double prevSlowEma = s[c + EMA_SLOW];
+        double adxValue = s[w + ADX];
 
         // Проверяем силу тренда (ADX > 25 означает сильный тренд)
-        boolean strongTrend = adxValue.doubleValue() > 25;
+        boolean strongTrend = adxValue > 25;
 
         // Пересечение EMA + сильный тренд
-        boolean bullishCrossover = prevFastEma.isLessThanOrEqual(prevSlowEma) &&
-                fastEmaValue.isGreaterThan(slowEmaValue) && strongTrend;
+        boolean bullishCrossover = prevFastEma <= prevSlowEma && fastEmaValue > slowEmaValue && strongTrend;
 
-        boolean bearishCrossover = prevFastEma.isGreaterThanOrEqual(prevSlowEma) &&
-                fastEmaValue.isLessThan(slowEmaValue) && strongTrend;
+        boolean bearishCrossover = prevFastEma >= prevSlowEma && fastEmaValue < slowEmaValue && strongTrend;
 
         TradingSignal.Trend currentTrend = TradingSignal.Trend.SIDEWAYS;
         if (bullishCrossover) {
@@ -78,24 +128,21 @@ public class AdaptiveTrendStrategy {
         }
 
         if (bullishCrossover) {
-            return createAdaptiveSignal(TradingSignal.SignalType.BUY, "Бычье пересечение EMA + сильный тренд", lastIndex, currentTrend, instrument);
+            return createAdaptiveSignal(TradingSignal.SignalType.BUY, "Бычье пересечение EMA + сильный тренд", context, s[w + ATR], currentTrend);
         }
 
         if (bearishCrossover) {
-            return createAdaptiveSignal(TradingSignal.SignalType.SELL, "Медвежье пересечение EMA + сильный тренд", lastIndex, currentTrend, instrument);
+            return createAdaptiveSignal(TradingSignal.SignalType.SELL, "Медвежье пересечение EMA + сильный тренд", context, s[w + ATR], currentTrend);
         }
 
-        TradingSignal holdSignal = new TradingSignal(TradingSignal.SignalType.HOLD, 0, "Нет пересечения или слабый тренд");
-        holdSignal.setTrend(currentTrend);
-        return holdSignal;
+        return HOLD_NO_CROSSOVER;
     }
 
-    private TradingSignal createAdaptiveSignal(TradingSignal.SignalType type, String reason, int index, TradingSignal.Trend trend, com.tradingbot.tinkoff.model.TradableInstrument instrument) {
-        Num currentPrice = closePrice.getValue(index);
-        Num atrValue = atr.getValue(index);
-
-        BigDecimal entryPrice = ((DecimalNum) currentPrice).getDelegate();
-        BigDecimal atrDecimal = ((DecimalNum) atrValue).getDelegate();
+    private TradingSignal createAdaptiveSignal(TradingSignal.SignalType type, String reason, InstrumentContext context, double atrValue, TradingSignal.Trend trend) {
+        int index = context.getEndIndex();
+        TradableInstrument instrument = context.getInstrument();
+        BigDecimal entryPrice = BigDecimal.valueOf(context.close(index));
+        BigDecimal atrDecimal = BigDecimal.valueOf(atrValue);
 
         // Устанавливаем минимально допустимый ATR как 0.1% от цены, чтобы избежать нулевых стопов
         BigDecimal minAtr = entryPrice.multiply(new BigDecimal("0.001"));
@@ -122,7 +169,6 @@ public class AdaptiveTrendStrategy {
         signal.setEntryPrice(entryPrice);
         signal.setStopLoss(stopLoss);
         signal.setTakeProfit(takeProfit);
-        signal.setTimestamp(ZonedDateTime.now());
         signal.setSignalId(signalCounter.incrementAndGet());
         signal.setTrend(trend); // Устанавливаем тренд
 
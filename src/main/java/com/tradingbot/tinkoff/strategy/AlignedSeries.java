@@ -0,0 +1,154 @@
+package com.tradingbot.tinkoff.strategy;
+
+import com.tradingbot.tinkoff.model.TradableInstrument;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Бары нескольких инструментов на общих часах: строка на каждый шаг длиной бара.
+ *
+ * Выравнивание инкрементальное: бар ноги с новым временем шага открывает строку,
+ * в которую цены остальных ног переносятся с последнего бара (forward-fill) и помечаются
+ * устаревшими, пока их бар этого шага не придет; бар того же шага обновляет открытую строку.
+ * Серии спредов ({@link #addSpread}) получают строку сразу, без повторного соединения истории.
+ *
+ * Запоздавший бар уже закрытого шага в закрытую строку не попадает, а только обновляет
+ * переносимую цену ноги. Бары поступают из потока стрима, анализ читает под блокировкой серии.
+ */
+public final class AlignedSeries {
+    public static final int HISTORY_CAPACITY = 512;
+    private static final int HISTORY_MASK = HISTORY_CAPACITY - 1;
+
+    private final List<TradableInstrument> legs;
+    private final long barMillis;
+    private final long[] times = new long[HISTORY_CAPACITY];
+    private final double[] closes; // [строка * ноги + нога]
+    private final long[] staleMasks = new long[HISTORY_CAPACITY]; // Бит ноги: цена перенесена
+    private final double[] lastClose;
+    private final long[] lastTime;
+    private final int[] staleSteps;
+    private final List<SpreadSeries> spreads = new ArrayList<>();
+
+    private int rowCount;
+
+    /**
+     * @param barMillis шаг общих часов; время бара округляется вниз до шага
+     */
+    public AlignedSeries(List<TradableInstrument> legs, long barMillis) {
+        if (legs.size() < 2 || legs.size() > Long.SIZE) {
+            throw new IllegalArgumentException("Число ног должно быть от 2 до " + Long.SIZE);
+        }
+        this.legs = List.copyOf(legs);
+        this.barMillis = barMillis;
+        this.closes = new double[HISTORY_CAPACITY * legs.size()];
+        this.lastClose = new double[legs.size()];
+        this.lastTime = new long[legs.size()];
+        this.staleSteps = new int[legs.size()];
+        Arrays.fill(lastClose, Double.NaN);
+        Arrays.fill(lastTime, Long.MIN_VALUE);
+    }
+
+    public List<TradableInstrument> getLegs() {
+        return legs;
+    }
+
+    /**
+     * Номер ноги по идентификатору инструмента или -1.
+     */
+    public int legOf(String instrumentId) {
+        for (int leg = 0; leg < legs.size(); leg++) {
+            if (legs.get(leg).identifier().equals(instrumentId)) {
+                return leg;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Серия спреда y к x, обновляемая вместе со строками; создается до первых баров.
+     */
+    public synchronized SpreadSeries addSpread(int yLeg, int xLeg, PairConfig config) {
+        SpreadSeries spread = new SpreadSeries(this, yLeg, xLeg, config);
+        spreads.add(spread);
+        return spread;
+    }
+
+    /**
+     * Свеча ноги: новая по шагу открывает строку, того же шага обновляет открытую.
+     */
+    public synchronized void onBar(int leg, long timeMillis, double close) {
+        if (!(close > 0)) {
+            return;
+        }
+        long step = barMillis > 0 ? Math.floorDiv(timeMillis, barMillis) * barMillis : timeMillis;
+        if (timeMillis >= lastTime[leg]) {
+            lastTime[leg] = timeMillis;
+            lastClose[leg] = close;
+        }
+        int width = legs.size();
+        if (rowCount == 0 || step > times[(rowCount - 1) & HISTORY_MASK]) {
+            int p = rowCount & HISTORY_MASK;
+            times[p] = step;
+            long stale = 0;
+            for (int other = 0; other < width; other++) {
+                closes[p * width + other] = lastClose[other];
+                if (other != leg) {
+                    staleSteps[other]++;
+                    stale |= 1L << other;
+                }
+            }
+            staleSteps[leg] = 0;
+            staleMasks[p] = stale;
+            rowCount++;
+        } else {
+            int p = (rowCount - 1) & HISTORY_MASK;
+            if (step == times[p]) {
+                closes[p * width + leg] = close;
+                staleSteps[leg] = 0;
+                staleMasks[p] &= ~(1L << leg);
+            } else if ((staleMasks[p] & (1L << leg)) != 0 && timeMillis == lastTime[leg]) {
+                // Запоздавший бар закрытого шага: уточняем перенесенную цену открытой строки
+                closes[p * width + leg] = close;
+            } else {
+                return;
+            }
+        }
+        for (int i = 0; i < spreads.size(); i++) {
+            spreads.get(i).onRow(rowCount - 1);
+        }
+    }
+
+    public synchronized int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Время шага строки (строки нумеруются с 0, в памяти последние {@value #HISTORY_CAPACITY}).
+     */
+    public synchronized long time(int row) {
+        return times[row & HISTORY_MASK];
+    }
+
+    /**
+     * Цена ноги в строке; NaN, если у ноги еще не было баров.
+     */
+    public synchronized double close(int leg, int row) {
+        return closes[(row & HISTORY_MASK) * legs.size() + leg];
+    }
+
+    /**
+     * Цена ноги в строке перенесена с предыдущего шага.
+     */
+    public synchronized boolean isFilled(int leg, int row) {
+        return (staleMasks[row & HISTORY_MASK] & (1L << leg)) != 0;
+    }
+
+    /**
+     * Сколько шагов подряд цена ноги в открытой строке переносится без нового бара.
+     */
+    public synchronized int staleSteps(int leg) {
+        return staleSteps[leg];
+    }
+}
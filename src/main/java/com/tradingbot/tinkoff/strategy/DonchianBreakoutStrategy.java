@@ -0,0 +1,123 @@
+package com.tradingbot.tinkoff.strategy;
+
+import com.tradingbot.tinkoff.indicators.Incremental;
+import com.tradingbot.tinkoff.model.TradableInstrument;
+import com.tradingbot.tinkoff.model.TradingSignal;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Пробой канала Дончиана с подтверждением объемом.
+ * Канал и перцентильный ранг объема берутся из реестра оконных индикаторов инструмента.
+ */
+public final class DonchianBreakoutStrategy implements StrategyDefinition {
+    private static final Logger logger = LoggerFactory.getLogger(DonchianBreakoutStrategy.class);
+
+    // Общие результаты без сигнала: анализ без сигнала не создает объектов
+    private static final TradingSignal HOLD_WARMUP = TradingSignal.hold("Накопление данных");
+    private static final TradingSignal HOLD_LOW_VOLUME = TradingSignal.hold("Объем не подтверждает пробой");
+    private static final TradingSignal HOLD_INSIDE = TradingSignal.hold("Цена внутри канала");
+
+    public static final DonchianBreakoutStrategy INSTANCE = new DonchianBreakoutStrategy();
+
+    private static final int CHANNEL_PERIOD = 20;
+    private static final int VOLUME_RANK_PERIOD = 50;
+    private static final double MIN_VOLUME_RANK = 0.7; // Объем бара не ниже 70-го перцентиля
+    private static final int ATR_PERIOD = 14;
+    private static final double STOP_ATR = 2.0;
+    private static final double TAKE_ATR = 3.0;
+
+    // Блок состояния
+    private static final int BARS = 0;
+    private static final int PREV_CLOSE = 1;
+    private static final int ATR = 2;
+    private static final int STATE_SIZE = 3;
+
+    private final AtomicInteger signalCounter = new AtomicInteger(0);
+
+    private DonchianBreakoutStrategy() {
+        logger.info("📦 DonchianBreakoutStrategy инициализирована (канал={}, ранг объема={})", CHANNEL_PERIOD, VOLUME_RANK_PERIOD);
+    }
+
+    @Override
+    public String name() {
+        return "DONCHIAN_BREAKOUT";
+    }
+
+    @Override
+    public int stateSize() {
+        return STATE_SIZE;
+    }
+
+    @Override
+    public int getUnstablePeriod(InstrumentContext context, int slot) {
+        return Math.max(CHANNEL_PERIOD, VOLUME_RANK_PERIOD) + 1;
+    }
+
+    @Override
+    public void onBar(InstrumentContext context, int slot, double[] s, int o, int bar) {
+        boolean first = s[o + BARS] == 0;
+        s[o + ATR] = Incremental.mma(s[o + ATR], Incremental.trueRange(context.high(bar), context.low(bar), s[o + PREV_CLOSE], first), ATR_PERIOD, first);
+        s[o + PREV_CLOSE] = context.close(bar);
+        s[o + BARS] += 1;
+    }
+
+    @Override
+    public TradingSignal analyzeSignal(InstrumentContext context, int slot) {
+        int lastIndex = context.getEndIndex();
+        if (lastIndex < getUnstablePeriod(context, slot)) {
+            return HOLD_WARMUP;
+        }
+
+        IndicatorRegistry indicators = context.indicators();
+        double price = context.close(lastIndex);
+        double upper = indicators.previousHighest(IndicatorRegistry.Source.HIGH, CHANNEL_PERIOD);
+        double lower = indicators.previousLowest(IndicatorRegistry.Source.LOW, CHANNEL_PERIOD);
+        double volumeRank = indicators.percentRank(IndicatorRegistry.Source.VOLUME, VOLUME_RANK_PERIOD);
+        double atr = Math.max(context.slab()[context.working(slot) + ATR], price * 0.001);
+
+        if (logger.isDebugEnabled()) {
+            logger.debug("📦 Дончиан: Price={}, канал={}..{}, ранг объема={}", price, lower, upper, volumeRank);
+        }
+
+        if (volumeRank < MIN_VOLUME_RANK) {
+            return HOLD_LOW_VOLUME;
+        }
+        int score = (int) Math.round(70 + 30 * volumeRank);
+        if (price > upper) {
+            return createSignal(TradingSignal.SignalType.BUY, score, String.format("Пробой верхней границы канала %d баров", CHANNEL_PERIOD),
+                    price, atr, context.getInstrument());
+        }
+        if (price < lower) {
+            return createSignal(TradingSignal.SignalType.SELL, score, String.format("Пробой нижней границы канала %d баров", CHANNEL_PERIOD),
+                    price, atr, context.getInstrument());
+        }
+        return HOLD_INSIDE;
+    }
+
+    private TradingSignal createSignal(TradingSignal.SignalType type, int score, String reason,
+                                       double price, double atr, TradableInstrument instrument) {
+        BigDecimal entryPrice = BigDecimal.valueOf(price);
+        BigDecimal stopDistance = BigDecimal.valueOf(atr * STOP_ATR);
+        BigDecimal takeDistance = BigDecimal.valueOf(atr * TAKE_ATR);
+
+        TradingSignal signal = new TradingSignal(type, Math.min(score, 100), reason);
+        signal.setInstrument(instrument);
+        signal.setEntryPrice(entryPrice);
+        if (type == TradingSignal.SignalType.BUY) {
+            signal.setStopLoss(entryPrice.subtract(stopDistance).setScale(4, RoundingMode.HALF_UP));
+            signal.setTakeProfit(entryPrice.add(takeDistance).setScale(4, RoundingMode.HALF_UP));
+        } else {
+            signal.setStopLoss(entryPrice.add(stopDistance).setScale(4, RoundingMode.HALF_UP));
+            signal.setTakeProfit(entryPrice.subtract(takeDistance).setScale(4, RoundingMode.HALF_UP));
+        }
+        signal.setSignalId(signalCounter.incrementAndGet());
+
+        logger.info("📦 Пробой Дончиана: {} по {} (SL: {}, TP: {})", type, entryPrice, signal.getStopLoss(), signal.getTakeProfit());
+        return signal;
+    }
+}
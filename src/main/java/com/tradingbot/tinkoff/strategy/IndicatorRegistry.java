@@ -0,0 +1,161 @@
+package com.tradingbot.tinkoff.strategy;
+
+import com.tradingbot.tinkoff.indicators.RollingExtrema;
+import com.tradingbot.tinkoff.indicators.RollingOrderStatistics;
+import com.tradingbot.tinkoff.indicators.RollingWindow;
+
+import java.util.Arrays;
+
+/**
+ * Реестр оконных индикаторов инструмента, общий для всех стратегий: одинаковый запрос
+ * (источник и период) разных стратегий обслуживает одно окно.
+ *
+ * Окно создается при первом запросе и засевается из истории контекста, дальше
+ * синхронизируется лениво: новые бары — push, открытый бар — замена последнего
+ * значения, исправление закрытого бара — пересборка окна. Вызывается под блокировкой контекста.
+ */
+public final class IndicatorRegistry {
+
+    /**
+     * Источник значений окна.
+     */
+    public enum Source {
+        OPEN, HIGH, LOW, CLOSE, VOLUME,
+        RANGE; // high - low
+
+        double value(InstrumentContext context, int bar) {
+            switch (this) {
+                case OPEN: return context.open(bar);
+                case HIGH: return context.high(bar);
+                case LOW: return context.low(bar);
+                case CLOSE: return context.close(bar);
+                case VOLUME: return context.volume(bar);
+                default: return context.high(bar) - context.low(bar);
+            }
+        }
+    }
+
+    private static final int EXTREMA = 0;
+    private static final int ORDER_STATISTICS = 1;
+
+    private final InstrumentContext context;
+    private Entry[] entries = new Entry[8];
+    private int entryCount;
+
+    IndicatorRegistry(InstrumentContext context) {
+        this.context = context;
+    }
+
+    /**
+     * Максимум за period баров, включая текущий.
+     */
+    public double highest(Source source, int period) {
+        return extrema(source, period).max();
+    }
+
+    public double lowest(Source source, int period) {
+        return extrema(source, period).min();
+    }
+
+    /**
+     * Максимум за period баров до текущего (верхняя граница канала Дончиана для пробоя).
+     */
+    public double previousHighest(Source source, int period) {
+        return extrema(source, period + 1).previousMax();
+    }
+
+    public double previousLowest(Source source, int period) {
+        return extrema(source, period + 1).previousMin();
+    }
+
+    /**
+     * Перцентильный ранг текущего значения среди period баров (от 0 до 1).
+     */
+    public double percentRank(Source source, int period) {
+        return statistics(source, period).percentRankOfLast();
+    }
+
+    /**
+     * Квантиль q значений за period баров.
+     */
+    public double quantile(Source source, int period, double q) {
+        return statistics(source, period).quantile(q);
+    }
+
+    private RollingExtrema extrema(Source source, int window) {
+        return (RollingExtrema) find(EXTREMA, source, window).window;
+    }
+
+    private RollingOrderStatistics statistics(Source source, int window) {
+        return (RollingOrderStatistics) find(ORDER_STATISTICS, source, window).window;
+    }
+
+    private Entry find(int type, Source source, int window) {
+        for (int i = 0; i < entryCount; i++) {
+            Entry entry = entries[i];
+            if (entry.type == type && entry.source == source && entry.length == window) {
+                sync(entry);
+                return entry;
+            }
+        }
+        if (window < 1 || window > InstrumentContext.HISTORY_CAPACITY) {
+            throw new IllegalArgumentException(String.format(
+                    "Окно %d вне диапазона 1..%d баров", window, InstrumentContext.HISTORY_CAPACITY));
+        }
+        RollingWindow rolling = type == EXTREMA ? new RollingExtrema(window) : new RollingOrderStatistics(window);
+        Entry entry = new Entry(type, source, window, rolling);
+        if (entryCount == entries.length) {
+            entries = Arrays.copyOf(entries, entryCount * 2);
+        }
+        entries[entryCount++] = entry;
+        sync(entry);
+        return entry;
+    }
+
+    private void sync(Entry entry) {
+        int end = context.getEndIndex();
+        if (end < 0) {
+            return;
+        }
+        if (entry.lastBar < 0 || entry.revision != context.getRevision() || end - entry.lastBar >= entry.length) {
+            rebuild(entry, end);
+            return;
+        }
+        if (end == entry.lastBar) {
+            entry.window.replaceLast(entry.source.value(context, end));
+            return;
+        }
+        // Бывший открытый бар закрылся с окончательным значением, дальше новые бары
+        entry.window.replaceLast(entry.source.value(context, entry.lastBar));
+        for (int bar = entry.lastBar + 1; bar <= end; bar++) {
+            entry.window.push(entry.source.value(context, bar));
+        }
+        entry.lastBar = end;
+    }
+
+    private void rebuild(Entry entry, int end) {
+        entry.window.clear();
+        int first = Math.max(Math.max(0, end - entry.length + 1), context.getBarCount() - InstrumentContext.HISTORY_CAPACITY);
+        for (int bar = first; bar <= end; bar++) {
+            entry.window.push(entry.source.value(context, bar));
+        }
+        entry.lastBar = end;
+        entry.revision = context.getRevision();
+    }
+
+    private static final class Entry {
+        final int type;
+        final Source source;
+        final int length;
+        final RollingWindow window;
+        int lastBar = -1;
+        int revision;
+
+        Entry(int type, Source source, int length, RollingWindow window) {
+            this.type = type;
+            this.source = source;
+            this.length = length;
+            this.window = window;
+        }
+    }
+}
@@ -0,0 +1,520 @@
+package com.tradingbot.tinkoff.strategy;
+
+import com.tradingbot.tinkoff.indicators.OrderFlowIndicators;
+import com.tradingbot.tinkoff.indicators.VolumeProfile;
+import com.tradingbot.tinkoff.indicators.batch.BarColumns;
+import com.tradingbot.tinkoff.indicators.batch.IndicatorMemo;
+import com.tradingbot.tinkoff.model.TradableInstrument;
+import com.tradingbot.tinkoff.rules.RuleSet;
+import com.tradingbot.tinkoff.rules.RuleVariables;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Состояние всех стратегий одного инструмента в одном пуловом массиве double:
+ * кольцевая история OHLCV последних {@value #HISTORY_CAPACITY} баров и по три блока
+ * на стратегию — зафиксированный (закрытые бары), рабочий (с открытым баром) и
+ * откатный (до последней фиксации, для исправления закрытого бара).
+ *
+ * Бары поступают свечами и тиками из одного потока; анализ и обновления
+ * синхронизируются на самом контексте (см. {@link MultiStrategyManager}).
+ */
+public final class InstrumentContext {
+    public static final int HISTORY_CAPACITY = 128;
+    private static final int HISTORY_MASK = HISTORY_CAPACITY - 1;
+
+    private static final int TIME = 0;
+    private static final int OPEN = 1;
+    private static final int HIGH = 2;
+    private static final int LOW = 3;
+    private static final int CLOSE = 4;
+    private static final int VOLUME = 5;
+    private static final int HISTORY_SIZE = 6 * HISTORY_CAPACITY;
+    // Профиль объема по закрытым барам; окно меньше глубины истории, чтобы уходящий бар был доступен
+    public static final int VOLUME_PROFILE_PERIOD = 96;
+    private static final int VOLUME_PROFILE_LEVELS = 256;
+
+    private final TradableInstrument instrument;
+    private final Layout layout;
+    private final double[] slab;
+
+    private int barCount;
+    private long barMillis;
+    private boolean canUndo;
+    private boolean released; // Массив возвращен в пул и может принадлежать другому инструменту
+
+    private RuleSet rules = RuleSet.EMPTY;
+    private final StrategyConfig[] configs;
+    private final boolean[] active; // Выключенные стратегии не обновляют состояние
+    private double[] ruleValues;
+    private OrderFlowIndicators orderFlow;
+    private VolumeProfile volumeProfile;
+    private IndicatorRegistry indicators;
+    private int revision; // Счетчик исправлений закрытых баров
+    private int profileFirst; // Окно профиля [profileFirst, profileEnd)
+    private int profileEnd;
+    // Колонки оконных индикаторов бэктеста: бар контекста b — бар memoFirst + b колонки memoSeries
+    private IndicatorMemo memo;
+    private int memoSeries;
+    private int memoFirst;
+
+    InstrumentContext(TradableInstrument instrument, Layout layout) {
+        this.instrument = instrument;
+        this.layout = layout;
+        this.slab = StateSlabPool.acquire(layout.slabLength);
+        this.configs = new StrategyConfig[layout.definitions.size()];
+        this.active = new boolean[layout.definitions.size()];
+        Arrays.fill(active, true);
+        for (int slot = 0; slot < configs.length; slot++) {
+            configs[slot] = layout.definitions.get(slot).defaultConfig();
+        }
+    }
+
+    public TradableInstrument getInstrument() {
+        return instrument;
+    }
+
+    public int getBarCount() {
+        return barCount;
+    }
+
+    public int getEndIndex() {
+        return barCount - 1;
+    }
+
+    public long time(int bar) {
+        return (long) slab[TIME * HISTORY_CAPACITY + (bar & HISTORY_MASK)];
+    }
+
+    public double open(int bar) {
+        return slab[OPEN * HISTORY_CAPACITY + (bar & HISTORY_MASK)];
+    }
+
+    public double high(int bar) {
+        return slab[HIGH * HISTORY_CAPACITY + (bar & HISTORY_MASK)];
+    }
+
+    public double low(int bar) {
+        return slab[LOW * HISTORY_CAPACITY + (bar & HISTORY_MASK)];
+    }
+
+    public double close(int bar) {
+        return slab[CLOSE * HISTORY_CAPACITY + (bar & HISTORY_MASK)];
+    }
+
+    public double volume(int bar) {
+        return slab[VOLUME * HISTORY_CAPACITY + (bar & HISTORY_MASK)];
+    }
+
+    public double[] slab() {
+        checkNotReleased();
+        return slab;
+    }
+
+    public int working(int slot) {
+        return layout.working[slot];
+    }
+
+    public int committed(int slot) {
+        return layout.committed[slot];
+    }
+
+    public int scratch(int slot) {
+        return layout.scratch[slot];
+    }
+
+    public RuleSet getRules() {
+        return rules;
+    }
+
+    /**
+     * Параметры стратегии в слоте для этого инструмента.
+     */
+    public StrategyConfig getConfig(int slot) {
+        return configs[slot];
+    }
+
+    /**
+     * Массив значений для {@link com.tradingbot.tinkoff.rules.RuleProgram}, выделяется один раз.
+     */
+    double[] ruleValues() {
+        if (ruleValues == null) {
+            ruleValues = new double[RuleVariables.COUNT];
+        }
+        return ruleValues;
+    }
+
+    /**
+     * Индикаторы потока ордеров; создаются при первой сделке, до этого null.
+     */
+    public OrderFlowIndicators getOrderFlow() {
+        return orderFlow;
+    }
+
+    /**
+     * Оконные индикаторы (экстремумы, квантили), общие для стратегий инструмента.
+     */
+    public IndicatorRegistry indicators() {
+        if (indicators == null) {
+            indicators = new IndicatorRegistry(this);
+        }
+        return indicators;
+    }
+
+    int getRevision() {
+        return revision;
+    }
+
+    /**
+     * Профиль объема по последним {@value #VOLUME_PROFILE_PERIOD} закрытым барам; null, пока нет закрытых баров.
+     */
+    public VolumeProfile getVolumeProfile() {
+        return volumeProfile;
+    }
+
+    /**
+     * Время открытия бара, которому принадлежит момент timeMillis, или -1, если бар не в истории.
+     */
+    public long barTimeAt(long timeMillis) {
+        int first = Math.max(0, barCount - HISTORY_CAPACITY);
+        for (int bar = barCount - 1; bar >= first; bar--) {
+            long time = time(bar);
+            if (time <= timeMillis) {
+                return time;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * VWAP по типичной цене за окно из period баров, заканчивающееся баром index (как VWAPIndicator).
+     * Окно без объема дает типичную цену бара index, а не NaN, как в ta4j.
+     */
+    public double vwap(int index, int period) {
+        int memoIndex = memoIndex(index, period);
+        if (memoIndex >= 0) {
+            return memo.vwap(period)[memoIndex];
+        }
+        int start = windowStart(index, period);
+        double pv = 0;
+        double volume = 0;
+        for (int i = start; i <= index; i++) {
+            double v = volume(i);
+            pv += (high(i) + low(i) + close(i)) / 3.0 * v;
+            volume += v;
+        }
+        return volume == 0 ? (high(index) + low(index) + close(index)) / 3.0 : pv / volume;
+    }
+
+    /**
+     * Генеральное стандартное отклонение цен закрытия за окно (как StandardDeviationIndicator).
+     */
+    public double stdDev(int index, int period) {
+        int memoIndex = memoIndex(index, period);
+        if (memoIndex >= 0) {
+            return memo.stdDev(period)[memoIndex];
+        }
+        int start = windowStart(index, period);
+        int n = index - start + 1;
+        double sum = 0;
+        for (int i = start; i <= index; i++) {
+            sum += close(i);
+        }
+        double mean = sum / n;
+        double variance = 0;
+        for (int i = start; i <= index; i++) {
+            double d = close(i) - mean;
+            variance += d * d;
+        }
+        return Math.sqrt(variance / n);
+    }
+
+    /**
+     * Элемент колонки кэша для бара index, если окно полное и бар совпадает по времени; иначе -1.
+     */
+    private int memoIndex(int index, int period) {
+        if (memo == null || index < period - 1 || !memo.supports(period)) {
+            return -1;
+        }
+        int t = memoFirst + index;
+        BarColumns bars = memo.getBars();
+        if (t >= bars.bars) {
+            return -1;
+        }
+        int i = t * bars.width + memoSeries;
+        return bars.time[i] == time(index) ? i : -1;
+    }
+
+    private int windowStart(int index, int period) {
+        return Math.max(Math.max(0, index - period + 1), barCount - HISTORY_CAPACITY);
+    }
+
+    // ----- Обновления (вызываются под блокировкой контекста) -----
+
+    void setBarDuration(long barMillis) {
+        this.barMillis = barMillis;
+    }
+
+    void setRules(RuleSet rules) {
+        this.rules = rules;
+    }
+
+    void setIndicatorMemo(IndicatorMemo memo, int series, int firstBar) {
+        this.memo = memo;
+        this.memoSeries = series;
+        this.memoFirst = firstBar;
+    }
+
+    void setConfig(int slot, StrategyConfig config) {
+        configs[slot] = config;
+    }
+
+    boolean isActive(int slot) {
+        return active[slot];
+    }
+
+    /**
+     * Включает или выключает обновление состояния стратегии. Включенная заново
+     * стратегия пересчитывается по накопленной истории.
+     */
+    void setActive(int slot, boolean value) {
+        checkNotReleased();
+        if (value && !active[slot]) {
+            active[slot] = true;
+            reseed(slot);
+        } else {
+            active[slot] = value;
+        }
+    }
+
+    /**
+     * Свеча: новая закрывает открытый бар, того же времени — замещает его,
+     * времени последнего закрытого бара — исправляет его через откатный блок.
+     */
+    void onCandle(long timeMillis, double open, double high, double low, double close, double volume) {
+        checkNotReleased();
+        if (barCount == 0 || timeMillis > time(barCount - 1)) {
+            if (barCount > 0) {
+                commitOpenBar();
+            }
+            writeBar(barCount++, timeMillis, open, high, low, close, volume);
+        } else if (timeMillis == time(barCount - 1)) {
+            writeBar(barCount - 1, timeMillis, open, high, low, close, volume);
+        } else if (barCount > 1 && timeMillis == time(barCount - 2) && canUndo) {
+            int revised = barCount - 2;
+            volumeProfile.remove(typicalPrice(revised), volume(revised));
+            writeBar(revised, timeMillis, open, high, low, close, volume);
+            addToProfile(revised);
+            revision++;
+            for (int slot = 0; slot < layout.definitions.size(); slot++) {
+                if (!active[slot]) {
+                    continue;
+                }
+                System.arraycopy(slab, layout.undo[slot], slab, layout.committed[slot], layout.stateSize[slot]);
+                layout.definitions.get(slot).onBar(this, slot, slab, layout.committed[slot], revised);
+            }
+        } else {
+            return; // Запоздавшая свеча старого бара
+        }
+        recomputeWorking();
+    }
+
+    /**
+     * Сделка (quantity в лотах) или последняя цена (quantity = 0) для открытого бара.
+     *
+     * @return true, если рабочие блоки пересчитаны
+     */
+    boolean onTick(long timeMillis, double price, double quantity) {
+        checkNotReleased();
+        if (barCount == 0 || price <= 0) {
+            return false;
+        }
+        int last = barCount - 1;
+        long openTime = time(last);
+        if (timeMillis < openTime) {
+            return false; // Тик закрытого бара учтет исправленная свеча
+        }
+        if (barMillis > 0 && timeMillis >= openTime + barMillis) {
+            // Тик нового бара пришел раньше свечи
+            commitOpenBar();
+            long barStart = openTime + (timeMillis - openTime) / barMillis * barMillis;
+            writeBar(barCount++, barStart, price, price, price, price, quantity);
+        } else {
+            writeBar(last, openTime, open(last), Math.max(high(last), price), Math.min(low(last), price),
+                    price, volume(last) + quantity);
+        }
+        recomputeWorking();
+        return true;
+    }
+
+    /**
+     * Сделка из ленты: сначала обновляет открытый бар, затем индикаторы потока ордеров.
+     *
+     * @param side сторона агрессора ({@link OrderFlowIndicators#BUY}, {@link OrderFlowIndicators#SELL} или 0)
+     * @return true, если рабочие блоки пересчитаны
+     */
+    boolean onTrade(long timeMillis, double price, double quantity, int side) {
+        boolean updated = onTick(timeMillis, price, quantity);
+        if (orderFlow == null) {
+            orderFlow = new OrderFlowIndicators();
+        }
+        orderFlow.onTrade(timeMillis, barTimeAt(timeMillis), quantity, side);
+        return updated;
+    }
+
+    /**
+     * Пересчитывает состояние стратегии заново по доступной истории
+     * (например, после смены периодов правил).
+     */
+    void reseed(int slot) {
+        checkNotReleased();
+        StrategyDefinition definition = layout.definitions.get(slot);
+        int committed = layout.committed[slot];
+        int size = layout.stateSize[slot];
+        Arrays.fill(slab, committed, committed + size, 0);
+        int first = Math.max(0, barCount - HISTORY_CAPACITY);
+        for (int bar = first; bar < barCount - 1; bar++) {
+            if (bar == barCount - 2) {
+                System.arraycopy(slab, committed, slab, layout.undo[slot], size);
+            }
+            definition.onBar(this, slot, slab, committed, bar);
+        }
+        if (barCount > 0) {
+            System.arraycopy(slab, committed, slab, layout.working[slot], size);
+            definition.onBar(this, slot, slab, layout.working[slot], barCount - 1);
+        }
+    }
+
+    /**
+     * Возвращает массив в пул. Повторный вызов ничего не делает, любые обновления и анализ после него отвергаются.
+     */
+    void release() {
+        if (released) {
+            return;
+        }
+        released = true;
+        StateSlabPool.release(slab);
+    }
+
+    void checkNotReleased() {
+        if (released) {
+            throw new IllegalStateException("Контекст [" + instrument.name() + "] освобожден, массив состояния возвращен в пул");
+        }
+    }
+
+    private void commitOpenBar() {
+        for (int slot = 0; slot < layout.definitions.size(); slot++) {
+            if (!active[slot]) {
+                continue;
+            }
+            int size = layout.stateSize[slot];
+            System.arraycopy(slab, layout.committed[slot], slab, layout.undo[slot], size);
+            System.arraycopy(slab, layout.working[slot], slab, layout.committed[slot], size);
+        }
+        canUndo = true;
+
+        // Закрытый бар входит в профиль объема, самый старый бар окна уходит
+        int closed = barCount - 1;
+        profileEnd = closed + 1;
+        addToProfile(closed);
+        if (profileEnd - profileFirst > VOLUME_PROFILE_PERIOD) {
+            volumeProfile.remove(typicalPrice(profileFirst), volume(profileFirst));
+            profileFirst++;
+        }
+    }
+
+    private double typicalPrice(int bar) {
+        return (high(bar) + low(bar) + close(bar)) / 3.0;
+    }
+
+    private void addToProfile(int bar) {
+        if (volumeProfile == null) {
+            double tick = instrument.minPriceIncrement();
+            if (tick <= 0) {
+                // Шаг цены неизвестен: берем степень десяти порядка 0.01% цены
+                tick = Math.pow(10, Math.floor(Math.log10(Math.max(close(bar), 1e-9) * 1e-4)));
+            }
+            volumeProfile = new VolumeProfile(VOLUME_PROFILE_LEVELS, tick);
+            volumeProfile.reset(low(bar), high(bar));
+            profileFirst = bar;
+        }
+        if (!volumeProfile.add(typicalPrice(bar), volume(bar))) {
+            rebuildProfile();
+        }
+    }
+
+    /**
+     * Цена вышла за сетку профиля: пересобираем сетку по диапазону окна (редкая операция, O(окна)).
+     */
+    private void rebuildProfile() {
+        double low = Double.MAX_VALUE;
+        double high = -Double.MAX_VALUE;
+        for (int bar = profileFirst; bar < profileEnd; bar++) {
+            double price = typicalPrice(bar);
+            low = Math.min(low, price);
+            high = Math.max(high, price);
+        }
+        volumeProfile.reset(low, high);
+        for (int bar = profileFirst; bar < profileEnd; bar++) {
+            volumeProfile.add(typicalPrice(bar), volume(bar));
+        }
+    }
+
+    private void recomputeWorking() {
+        int last = barCount - 1;
+        for (int slot = 0; slot < layout.definitions.size(); slot++) {
+            if (!active[slot]) {
+                continue;
+            }
+            System.arraycopy(slab, layout.committed[slot], slab, layout.working[slot], layout.stateSize[slot]);
+            layout.definitions.get(slot).onBar(this, slot, slab, layout.working[slot], last);
+        }
+    }
+
+    private void writeBar(int bar, long timeMillis, double open, double high, double low, double close, double volume) {
+        int p = bar & HISTORY_MASK;
+        slab[TIME * HISTORY_CAPACITY + p] = timeMillis;
+        slab[OPEN * HISTORY_CAPACITY + p] = open;
+        slab[HIGH * HISTORY_CAPACITY + p] = high;
+        slab[LOW * HISTORY_CAPACITY + p] = low;
+        slab[CLOSE * HISTORY_CAPACITY + p] = close;
+        slab[VOLUME * HISTORY_CAPACITY + p] = volume;
+    }
+
+    /**
+     * Общая для всех инструментов раскладка массива состояния.
+     */
+    static final class Layout {
+        final List<StrategyDefinition> definitions;
+        final int[] stateSize;
+        final int[] committed;
+        final int[] working;
+        final int[] undo;
+        final int[] scratch;
+        final int slabLength;
+
+        Layout(List<StrategyDefinition> definitions) {
+            this.definitions = List.copyOf(definitions);
+            int count = definitions.size();
+            this.stateSize = new int[count];
+            this.committed = new int[count];
+            this.working = new int[count];
+            this.undo = new int[count];
+            this.scratch = new int[count];
+
+            int offset = HISTORY_SIZE;
+            for (int slot = 0; slot < count; slot++) {
+                StrategyDefinition definition = definitions.get(slot);
+                int size = definition.stateSize();
+                stateSize[slot] = size;
+                committed[slot] = offset;
+                working[slot] = offset + size;
+                undo[slot] = offset + 2 * size;
+                scratch[slot] = offset + 3 * size;
+                offset += 3 * size + definition.scratchSize();
+            }
+            this.slabLength = offset;
+        }
+    }
+}
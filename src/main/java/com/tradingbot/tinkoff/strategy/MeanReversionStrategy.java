@@ -1,94 +1,129 @@
 package com.tradingbot.tinkoff.strategy;
 
+import com.tradingbot.tinkoff.indicators.Incremental;
+import com.tradingbot.tinkoff.indicators.VolumeProfile;
+import com.tradingbot.tinkoff.model.TradableInstrument;
 import com.tradingbot.tinkoff.model.TradingSignal;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.ta4j.core.BarSeries;
-import org.ta4j.core.indicators.bollinger.BollingerBandsLowerIndicator;
-import org.ta4j.core.indicators.bollinger.BollingerBandsMiddleIndicator;
-import org.ta4j.core.indicators.bollinger.BollingerBandsUpperIndicator;
-import org.ta4j.core.indicators.helpers.ClosePriceIndicator;
-import org.ta4j.core.indicators.statistics.StandardDeviationIndicator;
-import org.ta4j.core.indicators.RSIIndicator;
-import org.ta4j.core.indicators.averages.EMAIndicator;
-import org.ta4j.core.num.Num;
-import org.ta4j.core.num.DecimalNum;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
-import java.time.ZonedDateTime;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Стратегия возврата к среднему с использованием Bollinger Bands
- * Торгует отскоки от границ полос
+ * Торгует отскоки от границ полос, цель - POC профиля объема или средняя линия
  */
-public class MeanReversionStrategy {
+public final class MeanReversionStrategy implements StrategyDefinition {
     private static final Logger logger = LoggerFactory.getLogger(MeanReversionStrategy.class);
 
-//    private static final int BB_PERIOD = 20;
-//    private static final double BB_MULTIPLIER = 2.0;
-//    private static final int RSI_PERIOD = 14;
-
-    private final StrategyConfig config;
-
-    private final BarSeries barSeries;
-    private final ClosePriceIndicator closePrice;
-    private final BollingerBandsMiddleIndicator bbMiddle;
-    private final BollingerBandsUpperIndicator bbUpper;
-    private final BollingerBandsLowerIndicator bbLower;
-    private final RSIIndicator rsi;
+    // Общие результаты без сигнала: анализ без сигнала не создает объектов
+    private static final TradingSignal HOLD_WARMUP = TradingSignal.hold("Накопление данных");
+    private static final TradingSignal HOLD_INSIDE_BANDS = TradingSignal.hold("Цена в пределах BB");
+
+    public static final MeanReversionStrategy CONSERVATIVE =
+            new MeanReversionStrategy("MEAN_REVERSION_CONSERVATIVE", StrategyConfig.getConservativeConfig());
+    public static final MeanReversionStrategy AGGRESSIVE =
+            new MeanReversionStrategy("MEAN_REVERSION_AGGRESSIVE", StrategyConfig.getAggressiveConfig());
+
+    // Блок состояния
+    private static final int BARS = 0;
+    private static final int PREV_CLOSE = 1;
+    static final int AVG_GAIN = 2;
+    static final int AVG_LOSS = 3;
+    static final int BB_MIDDLE = 4; // EMA(bbPeriod)
+    private static final int STATE_SIZE = 5;
+
+    private final String name;
+    private final StrategyConfig defaultConfig;
     private final AtomicInteger signalCounter = new AtomicInteger(0);
 
-    public MeanReversionStrategy(BarSeries barSeries, StrategyConfig config) {
-        this.barSeries = barSeries;
-        this.config = config; // <-- СОХРАНЯЕМ КОНФИГУРАЦИЮ
+    private MeanReversionStrategy(String name, StrategyConfig config) {
+        this.name = name;
+        this.defaultConfig = config;
+        logger.info("MeanReversionStrategy инициализирована с периодом BB={} и RSI={}", config.getBbPeriod(), config.getRsiPeriod());
+    }
 
-        this.closePrice = new ClosePriceIndicator(barSeries);
-        StandardDeviationIndicator sd = new StandardDeviationIndicator(closePrice, config.getBbPeriod());
-        EMAIndicator ema = new EMAIndicator(closePrice, config.getBbPeriod());
+    @Override
+    public String name() {
+        return name;
+    }
 
-        this.bbMiddle = new BollingerBandsMiddleIndicator(ema);
-        this.bbUpper = new BollingerBandsUpperIndicator(bbMiddle, sd, DecimalNum.valueOf(config.getBbMultiplier()));
-        this.bbLower = new BollingerBandsLowerIndicator(bbMiddle, sd, DecimalNum.valueOf(config.getBbMultiplier()));
-        this.rsi = new RSIIndicator(closePrice, config.getRsiPeriod());
+    @Override
+    public int stateSize() {
+        return STATE_SIZE;
+    }
 
-        logger.info("MeanReversionStrategy инициализирована с периодом BB={} и RSI={}", config.getBbPeriod(), config.getRsiPeriod());
+    @Override
+    public StrategyConfig defaultConfig() {
+        return defaultConfig;
     }
 
-    public int getUnstablePeriod() { return config.getBbPeriod() + 2; }
+    @Override
+    public int getUnstablePeriod(InstrumentContext context, int slot) {
+        return context.getConfig(slot).getBbPeriod() + 2;
+    }
 
-    public TradingSignal analyzeSignal(com.tradingbot.tinkoff.model.TradableInstrument instrument) {
-        int lastIndex = barSeries.getEndIndex();
-        if (lastIndex < getUnstablePeriod()) {
-            return new TradingSignal(TradingSignal.SignalType.HOLD, 0, "Накопление данных");
+    @Override
+    public void onBar(InstrumentContext context, int slot, double[] s, int o, int bar) {
+        double close = context.close(bar);
+        boolean first = s[o + BARS] == 0;
+        double change = first ? 0 : close - s[o + PREV_CLOSE];
+        StrategyConfig config = context.getConfig(slot);
+        s[o + AVG_GAIN] = Incremental.mma(s[o + AVG_GAIN], Incremental.gain(change), config.getRsiPeriod(), first);
+        s[o + AVG_LOSS] = Incremental.mma(s[o + AVG_LOSS], Incremental.loss(change), config.getRsiPeriod(), first);
+        s[o + BB_MIDDLE] = Incremental.ema(s[o + BB_MIDDLE], close, config.getBbPeriod(), first);
+        s[o + PREV_CLOSE] = close;
+        s[o + BARS] += 1;
+    }
+
+    @Override
+    public TradingSignal analyzeSignal(InstrumentContext context, int slot) {
+        int lastIndex = context.getEndIndex();
+        if (lastIndex < getUnstablePeriod(context, slot)) {
+            return HOLD_WARMUP;
         }
 
-        Num currentPrice = closePrice.getValue(lastIndex);
-        Num upperBand = bbUpper.getValue(lastIndex);
-        Num lowerBand = bbLower.getValue(lastIndex);
-        Num middleBand = bbMiddle.getValue(lastIndex);
-        Num rsiValue = rsi.getValue(lastIndex);
+        StrategyConfig config = context.getConfig(slot);
+        double[] s = context.slab();
+        int w = context.working(slot);
+        double currentPrice = context.close(lastIndex);
+        double middleBand = s[w + BB_MIDDLE];
+        double deviation = context.stdDev(lastIndex, config.getBbPeriod()) * config.getBbMultiplier();
+        double upperBand = middleBand + deviation;
+        double lowerBand = middleBand - deviation;
+        double rsiValue = Incremental.rsi(s[w + AVG_GAIN], s[w + AVG_LOSS]);
+
+        VolumeProfile profile = context.getVolumeProfile();
+        boolean hasProfile = profile != null && !profile.isEmpty();
 
         // Покупка у нижней границы (перепроданность)
-        if (currentPrice.isLessThan(lowerBand) && rsiValue.doubleValue() < 30) {
-            return createMeanReversionSignal(TradingSignal.SignalType.BUY, "Отскок от нижней BB",
-                    currentPrice, middleBand, lastIndex, instrument);
+        if (currentPrice < lowerBand && rsiValue < config.getRsiLowerThreshold()) {
+            // Цель - POC профиля объема, если он выше входа, иначе средняя линия
+            boolean toPoc = hasProfile && profile.pointOfControl() > currentPrice;
+            boolean belowValue = hasProfile && currentPrice < profile.valueAreaLow();
+            return createMeanReversionSignal(TradingSignal.SignalType.BUY,
+                    "Отскок от нижней BB" + (belowValue ? " ниже зоны стоимости" : "") + (toPoc ? ", цель POC" : ""),
+                    currentPrice, toPoc ? profile.pointOfControl() : middleBand, belowValue ? 90 : 85, context.getInstrument());
         }
 
         // Продажа у верхней границы (перекупленность)
-        if (currentPrice.isGreaterThan(upperBand) && rsiValue.doubleValue() > 70) {
-            return createMeanReversionSignal(TradingSignal.SignalType.SELL, "Отскок от верхней BB",
-                    currentPrice, middleBand, lastIndex, instrument);
+        if (currentPrice > upperBand && rsiValue > config.getRsiUpperThreshold()) {
+            boolean toPoc = hasProfile && profile.pointOfControl() < currentPrice;
+            boolean aboveValue = hasProfile && currentPrice > profile.valueAreaHigh();
+            return createMeanReversionSignal(TradingSignal.SignalType.SELL,
+                    "Отскок от верхней BB" + (aboveValue ? " выше зоны стоимости" : "") + (toPoc ? ", цель POC" : ""),
+                    currentPrice, toPoc ? profile.pointOfControl() : middleBand, aboveValue ? 90 : 85, context.getInstrument());
         }
 
-        return new TradingSignal(TradingSignal.SignalType.HOLD, 0, "Цена в пределах BB");
+        return HOLD_INSIDE_BANDS;
     }
 
     private TradingSignal createMeanReversionSignal(TradingSignal.SignalType type, String reason,
-                                                    Num currentPrice, Num targetPrice, int index, com.tradingbot.tinkoff.model.TradableInstrument instrument) {
-        BigDecimal entryPrice = ((DecimalNum) currentPrice).getDelegate();
-        BigDecimal target = ((DecimalNum) targetPrice).getDelegate();
+                                                    double currentPrice, double targetPrice, int score, TradableInstrument instrument) {
+        BigDecimal entryPrice = BigDecimal.valueOf(currentPrice);
+        BigDecimal target = BigDecimal.valueOf(targetPrice);
 
         BigDecimal stopDistance = entryPrice.subtract(target).abs().multiply(new BigDecimal("0.5"));
 
@@ -101,12 +136,11 @@ public class MeanReversionStrategy {
             takeProfit = target.setScale(4, RoundingMode.HALF_UP);
         }
 
-        TradingSignal signal = new TradingSignal(type, 85, reason);
+        TradingSignal signal = new TradingSignal(type, score, reason);
         signal.setInstrument(instrument);
         signal.setEntryPrice(entryPrice);
         signal.setStopLoss(stopLoss);
         signal.setTakeProfit(takeProfit);
-        signal.setTimestamp(ZonedDateTime.now());
         signal.setSignalId(signalCounter.incrementAndGet());
 
         logger.info("🎯 Mean Reversion: {} по {} -> TP: {}, SL: {}", type, entryPrice, takeProfit, stopLoss);
@@ -1,60 +1,102 @@
 package com.tradingbot.tinkoff.strategy;
 
+import com.tradingbot.tinkoff.indicators.batch.IndicatorMemo;
 import com.tradingbot.tinkoff.model.TradingSignal;
+import com.tradingbot.tinkoff.rules.RuleSet;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.ta4j.core.BarSeries;
 import com.tradingbot.tinkoff.model.TradableInstrument;
 
+import java.time.Clock;
+import java.time.Duration;
+import java.time.ZonedDateTime;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 /**
- * Менеджер множественных стратегий для A/B тестирования
+ * Менеджер множественных стратегий для A/B тестирования.
+ *
+ * Определения стратегий общие для всех инструментов, у менеджера есть только
+ * контекст инструмента с историей и блоками состояния в одном массиве из пула.
  */
 public class MultiStrategyManager {
     private static final Logger logger = LoggerFactory.getLogger(MultiStrategyManager.class);
 
-    private final Map<String, Object> strategies = new HashMap<>();
+    static final List<StrategyDefinition> DEFINITIONS = List.of(
+            ScalpingMomentumStrategy.INSTANCE,
+            MeanReversionStrategy.CONSERVATIVE,
+            MeanReversionStrategy.AGGRESSIVE,
+            AdaptiveTrendStrategy.INSTANCE,
+            RuleBasedStrategy.INSTANCE,
+            VWAPEMAStrategy.INSTANCE,
+            DonchianBreakoutStrategy.INSTANCE
+    );
+    private static final InstrumentContext.Layout LAYOUT = new InstrumentContext.Layout(DEFINITIONS);
+    private static final int SCALPING_SLOT = DEFINITIONS.indexOf(ScalpingMomentumStrategy.INSTANCE);
+    private static final int RULES_SLOT = DEFINITIONS.indexOf(RuleBasedStrategy.INSTANCE);
+    private static final int MR_AGGRESSIVE_SLOT = DEFINITIONS.indexOf(MeanReversionStrategy.AGGRESSIVE);
+    private static final int ADAPTIVE_TREND_SLOT = DEFINITIONS.indexOf(AdaptiveTrendStrategy.INSTANCE);
+
+    private final InstrumentContext context;
     private final Map<String, Integer> signalCounts = new ConcurrentHashMap<>();
     private final Map<String, Boolean> strategyEnabled = new ConcurrentHashMap<>();
+    // Сигналы текущего анализа по слотам; используется только под блокировкой контекста
+    private final TradingSignal[] slotSignals = new TradingSignal[DEFINITIONS.size()];
+    // Время сигналов: системное в живой торговле, время бара в бэктесте
+    private volatile Clock clock = Clock.systemDefaultZone();
 
-    public MultiStrategyManager(BarSeries barSeries) {
-        // Инициализируем все стратегии
-        strategies.put("SCALPING", new ScalpingMomentumStrategy(barSeries));
-        strategies.put("MEAN_REVERSION_CONSERVATIVE", new MeanReversionStrategy(barSeries, StrategyConfig.getConservativeConfig()));
-        strategies.put("MEAN_REVERSION_AGGRESSIVE", new MeanReversionStrategy(barSeries, StrategyConfig.getAggressiveConfig()));
-        strategies.put("ADAPTIVE_TREND", new AdaptiveTrendStrategy(barSeries));
+    public MultiStrategyManager(TradableInstrument instrument, List<String> enabledStrategies) {
+        this.context = new InstrumentContext(instrument, LAYOUT);
 
-        // Включаем все по умолчанию
-        strategies.keySet().forEach(name -> strategyEnabled.put(name, true));
+        // Включаем только те стратегии, которые есть в списке enabledStrategies
+        DEFINITIONS.forEach(definition -> strategyEnabled.put(definition.name(), enabledStrategies.contains(definition.name())));
+        for (int slot = 0; slot < DEFINITIONS.size(); slot++) {
+            context.setActive(slot, enabledStrategies.contains(DEFINITIONS.get(slot).name()));
+        }
 
-        logger.info("🎯 MultiStrategyManager инициализирован с {} стратегиями", strategies.size());
+        logger.info("🎯 MultiStrategyManager инициализирован с {} стратегиями. Включено: {}", DEFINITIONS.size(), enabledStrategies);
     }
 
-    public MultiStrategyManager(BarSeries barSeries, List<String> enabledStrategies) {
-        // Инициализируем все стратегии (как в основном конструкторе)
-        strategies.put("SCALPING", new ScalpingMomentumStrategy(barSeries));
-        strategies.put("MEAN_REVERSION_CONSERVATIVE", new MeanReversionStrategy(barSeries, StrategyConfig.getConservativeConfig()));
-        strategies.put("MEAN_REVERSION_AGGRESSIVE", new MeanReversionStrategy(barSeries, StrategyConfig.getAggressiveConfig()));
-        strategies.put("ADAPTIVE_TREND", new AdaptiveTrendStrategy(barSeries));
-
-        // Включаем только те стратегии, которые есть в списке enabledStrategies
-        strategies.keySet().forEach(name -> strategyEnabled.put(name, enabledStrategies.contains(name)));
+    /**
+     * Имена всех зарегистрированных стратегий (для выбора в интерфейсе).
+     */
+    public static List<String> getAvailableStrategyNames() {
+        return DEFINITIONS.stream().map(StrategyDefinition::name).collect(Collectors.toList());
+    }
 
-        logger.info("🎯 MultiStrategyManager инициализирован с {} стратегиями. Включено: {}", strategies.size(), enabledStrategies);
+    /**
+     * Встроенные параметры стратегии; {@code null}, если стратегия не настраивается через {@link StrategyConfig}.
+     */
+    public static StrategyConfig getDefaultConfig(String name) {
+        int slot = slotOf(name);
+        return slot >= 0 ? DEFINITIONS.get(slot).defaultConfig() : null;
     }
 
     public Set<String> getStrategyNames() {
-        return strategies.keySet();
+        return new LinkedHashSet<>(getAvailableStrategyNames());
     }
 
     public void enableStrategy(String name, boolean enabled) {
-        strategyEnabled.put(name, enabled);
+        synchronized (context) {
+            int slot = slotOf(name);
+            if (slot >= 0) {
+                context.setActive(slot, enabled);
+            }
+            strategyEnabled.put(name, enabled);
+        }
         logger.info("Стратегия {} {}", name, enabled ? "включена" : "отключена");
     }
 
+    private static int slotOf(String name) {
+        for (int slot = 0; slot < DEFINITIONS.size(); slot++) {
+            if (DEFINITIONS.get(slot).name().equals(name)) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
     public List<String> getEnabledStrategyNames() {
         return strategyEnabled.entrySet().stream()
                 .filter(Map.Entry::getValue)
@@ -62,29 +104,63 @@ public class MultiStrategyManager {
                 .collect(Collectors.toList());
     }
 
-    // Файл: com/tradingbot/tinkoff/strategy/MultiStrategyManager.java
+    public void setClock(Clock clock) {
+        this.clock = clock;
+    }
+
+    public void setBarDuration(Duration barDuration) {
+        synchronized (context) {
+            context.setBarDuration(barDuration.toMillis());
+        }
+    }
 
-    public List<TradingSignal> analyzeAll(TradableInstrument instrument) {
-        List<TradingSignal> finalSignals = new ArrayList<>();
-        Map<String, TradingSignal> signalsByName = new HashMap<>();
+    /**
+     * Бэктест: оконные индикаторы (VWAP, стандартное отклонение) читаются из общих колонок кэша.
+     *
+     * @param firstBar бар колонок, который станет первым баром менеджера
+     */
+    public void setIndicatorMemo(IndicatorMemo memo, int series, int firstBar) {
+        synchronized (context) {
+            context.setIndicatorMemo(memo, series, firstBar);
+        }
+    }
+
+    /**
+     * Свеча из истории или стрима: новая открывает бар, того же времени обновляет открытый.
+     */
+    public void onCandle(long timeMillis, double open, double high, double low, double close, double volume) {
+        synchronized (context) {
+            context.onCandle(timeMillis, open, high, low, close, volume);
+        }
+    }
 
-        // 1. Собрать сигналы от всех активных стратегий
-        strategies.forEach((name, strategy) -> {
-            if (strategyEnabled.get(name)) {
+    public int getBarCount() {
+        synchronized (context) {
+            return context.getBarCount();
+        }
+    }
+
+    /**
+     * Анализ всеми включенными стратегиями. Без сигналов не создает объектов:
+     * стратегии возвращают общие результаты HOLD, сигналы собираются в переиспользуемый буфер.
+     */
+    public List<TradingSignal> analyzeAll(TradableInstrument instrument) {
+        synchronized (context) {
+            context.checkNotReleased();
+            // 1. Собрать сигналы от всех активных стратегий
+            int found = 0;
+            for (int slot = 0; slot < DEFINITIONS.size(); slot++) {
+                slotSignals[slot] = null;
+                String name = DEFINITIONS.get(slot).name();
+                if (!strategyEnabled.get(name)) {
+                    continue;
+                }
                 try {
-                    TradingSignal signal = null;
-                    // Определяем, какой метод analyze вызывать
-                    if (strategy instanceof ScalpingMomentumStrategy) {
-                        signal = ((ScalpingMomentumStrategy) strategy).analyzeSignal(instrument);
-                    } else if (strategy instanceof MeanReversionStrategy) {
-                        signal = ((MeanReversionStrategy) strategy).analyzeSignal(instrument);
-                    } else if (strategy instanceof AdaptiveTrendStrategy) {
-                        signal = ((AdaptiveTrendStrategy) strategy).analyzeSignal(instrument);
-                    }
+                    TradingSignal signal = DEFINITIONS.get(slot).analyzeSignal(context, slot);
 
                     if (signal != null && signal.getSignalType() != TradingSignal.SignalType.HOLD) {
-                        signal.setDescription(String.format("[%s] %s", name, signal.getDescription()));
-                        signalsByName.put(name, signal);
+                        slotSignals[slot] = signal;
+                        found++;
                         // Статистику будем считать только для итоговых сигналов
                     } else {
                         logger.debug("🔹 Стратегия '{}' не нашла сигнала (HOLD) на текущем баре.", name);
@@ -93,51 +169,185 @@ public class MultiStrategyManager {
                     logger.error("Ошибка в стратегии {}: {}", name, e.getMessage(), e);
                 }
             }
-        });
+            if (found == 0) {
+                return Collections.emptyList();
+            }
+
+            // 2. Применить ансамблевую логику (фильтрация)
+            TradingSignal meanReversionSignal = slotSignals[MR_AGGRESSIVE_SLOT];
+            TradingSignal adaptiveTrendSignal = slotSignals[ADAPTIVE_TREND_SLOT];
+
+            // ПРАВИЛО: Не шортить по "Mean Reversion", если глобальный тренд бычий
+            // (Предполагается, что у сигнала от AdaptiveTrendStrategy есть метод getTrend())
+            if (meanReversionSignal != null && meanReversionSignal.getSignalType() == TradingSignal.SignalType.SELL &&
+                    adaptiveTrendSignal != null && adaptiveTrendSignal.getTrend() == TradingSignal.Trend.BULL) {
+
+                logger.warn("Фильтр ансамбля: Сигнал SELL от MEAN_REVERSION_AGGRESSIVE отклонен, т.к. ADAPTIVE_TREND показывает BULL.");
+                slotSignals[MR_AGGRESSIVE_SLOT] = null; // Удаляем противоречащий сигнал
+            }
 
-        // 2. Применить ансамблевую логику (фильтрация)
-        TradingSignal meanReversionSignal = signalsByName.get("MEAN_REVERSION_AGGRESSIVE");
-        TradingSignal adaptiveTrendSignal = signalsByName.get("ADAPTIVE_TREND");
+            // ПРАВИЛО: Не покупать по "Mean Reversion", если глобальный тренд медвежий
+            if (meanReversionSignal != null && meanReversionSignal.getSignalType() == TradingSignal.SignalType.BUY &&
+                    adaptiveTrendSignal != null && adaptiveTrendSignal.getTrend() == TradingSignal.Trend.BEAR) {
 
-        // ПРАВИЛО: Не шортить по "Mean Reversion", если глобальный тренд бычий
-        // (Предполагается, что у сигнала от AdaptiveTrendStrategy есть метод getTrend())
-        if (meanReversionSignal != null && meanReversionSignal.getSignalType() == TradingSignal.SignalType.SELL &&
-                adaptiveTrendSignal != null && adaptiveTrendSignal.getTrend() == TradingSignal.Trend.BULL) {
+                logger.warn("Фильтр ансамбля: Сигнал BUY от MEAN_REVERSION_AGGRESSIVE отклонен, т.к. ADAPTIVE_TREND показывает BEAR.");
+                slotSignals[MR_AGGRESSIVE_SLOT] = null;
+            }
 
-            logger.warn("Фильтр ансамбля: Сигнал SELL от MEAN_REVERSION_AGGRESSIVE отклонен, т.к. ADAPTIVE_TREND показывает BULL.");
-            signalsByName.remove("MEAN_REVERSION_AGGRESSIVE"); // Удаляем противоречащий сигнал
+            // Добавляем в итоговый список только те сигналы, что прошли фильтрацию
+            List<TradingSignal> finalSignals = new ArrayList<>(found);
+            for (int slot = 0; slot < DEFINITIONS.size(); slot++) {
+                TradingSignal signal = slotSignals[slot];
+                if (signal == null) {
+                    continue;
+                }
+                slotSignals[slot] = null;
+                String name = DEFINITIONS.get(slot).name();
+                signal.setDescription(String.format("[%s] %s", name, signal.getDescription()));
+                signal.setTimestamp(ZonedDateTime.now(clock));
+                finalSignals.add(signal);
+                // Обновляем статистику только для прошедших фильтр сигналов
+                signalCounts.merge(name, 1, Integer::sum);
+                logger.info("✅ Итоговый сигнал после ансамбля: {} от {}", signal.getSignalType(), signal.getDescription());
+            }
+            return finalSignals;
         }
+    }
 
-        // ПРАВИЛО: Не покупать по "Mean Reversion", если глобальный тренд медвежий
-        if (meanReversionSignal != null && meanReversionSignal.getSignalType() == TradingSignal.SignalType.BUY &&
-                adaptiveTrendSignal != null && adaptiveTrendSignal.getTrend() == TradingSignal.Trend.BEAR) {
 
-            logger.warn("Фильтр ансамбля: Сигнал BUY от MEAN_REVERSION_AGGRESSIVE отклонен, т.к. ADAPTIVE_TREND показывает BEAR.");
-            signalsByName.remove("MEAN_REVERSION_AGGRESSIVE");
+    public int getUnstablePeriod() {
+        synchronized (context) {
+            // Цикл вместо стрима: вызывается перед каждым анализом
+            int period = -1;
+            for (int slot = 0; slot < DEFINITIONS.size(); slot++) {
+                if (Boolean.TRUE.equals(strategyEnabled.get(DEFINITIONS.get(slot).name()))) {
+                    period = Math.max(period, DEFINITIONS.get(slot).getUnstablePeriod(context, slot));
+                }
+            }
+            return period < 0 ? 25 : period;
         }
+    }
+
+    /**
+     * Интрабар-режим работает, пока включена стратегия SCALPING.
+     */
+    public boolean isIntrabarEnabled() {
+        return Boolean.TRUE.equals(strategyEnabled.get("SCALPING"));
+    }
 
-        // Добавляем в итоговый список только те сигналы, что прошли фильтрацию
-        if (!signalsByName.isEmpty()) {
-            finalSignals.addAll(signalsByName.values());
-            // Обновляем статистику только для прошедших фильтр сигналов
-            signalsByName.keySet().forEach(name -> signalCounts.merge(name, 1, Integer::sum));
-            finalSignals.forEach(s -> logger.info("✅ Итоговый сигнал после ансамбля: {} от {}", s.getSignalType(), s.getDescription()));
+    /**
+     * Лента сделок нужна стратегиям, которые учитывают поток ордеров.
+     */
+    public boolean isOrderFlowEnabled() {
+        return isIntrabarEnabled() || Boolean.TRUE.equals(strategyEnabled.get("VWAP_EMA"));
+    }
+
+    /**
+     * Сделка из ленты (вызывается из потока стрима): обновляет открытый бар и поток ордеров,
+     * затем выполняет интрабар-анализ.
+     *
+     * @param side сторона агрессора (1 - покупка, -1 - продажа, 0 - неизвестна)
+     * @return сигнал SCALPING или null
+     */
+    public TradingSignal onTrade(TradableInstrument instrument, long timeMillis, double price, double quantity, int side) {
+        if (!isOrderFlowEnabled()) {
+            return null;
+        }
+        synchronized (context) {
+            if (!context.onTrade(timeMillis, price, quantity, side)) {
+                return null;
+            }
+            return analyzeIntrabar(timeMillis);
         }
+    }
 
-        return finalSignals;
+    /**
+     * Интрабар-анализ по последней цене (вызывается из потока стрима).
+     *
+     * @return сигнал SCALPING или null
+     */
+    public TradingSignal onIntrabarTick(TradableInstrument instrument, long timeMillis, double price, double quantity) {
+        if (!isIntrabarEnabled()) {
+            return null;
+        }
+        synchronized (context) {
+            if (!context.onTick(timeMillis, price, quantity)) {
+                return null;
+            }
+            return analyzeIntrabar(timeMillis);
+        }
     }
 
+    private TradingSignal analyzeIntrabar(long timeMillis) {
+        if (!isIntrabarEnabled()) {
+            return null;
+        }
+        TradingSignal signal = ScalpingMomentumStrategy.INSTANCE.onIntrabarTick(context, SCALPING_SLOT, timeMillis);
+        if (signal != null) {
+            signal.setDescription(String.format("[%s] %s", "SCALPING", signal.getDescription()));
+            signal.setTimestamp(ZonedDateTime.now(clock));
+            signalCounts.merge("SCALPING", 1, Integer::sum);
+            logger.info("⚡ Интрабар-сигнал: {} от {}", signal.getSignalType(), signal.getDescription());
+        }
+        return signal;
+    }
 
-    public int getUnstablePeriod() {
-        return strategies.values().stream()
-                .mapToInt(strategy -> {
-                    if (strategy instanceof ScalpingMomentumStrategy) return ((ScalpingMomentumStrategy) strategy).getUnstablePeriod();
-                    if (strategy instanceof MeanReversionStrategy) return ((MeanReversionStrategy) strategy).getUnstablePeriod();
-                    if (strategy instanceof AdaptiveTrendStrategy) return ((AdaptiveTrendStrategy) strategy).getUnstablePeriod();
-                    return 0;
-                })
-                .max()
-                .orElse(25);
+    /**
+     * Подменяет правила стратегии RULES без перезапуска процессора.
+     * При смене периодов индикаторов состояние пересчитывается по накопленной истории.
+     */
+    public void updateRules(RuleSet rules) {
+        RuleSet previous;
+        synchronized (context) {
+            context.checkNotReleased();
+            previous = context.getRules();
+            context.setRules(rules);
+            if (!previous.hasSameIndicators(rules)) {
+                context.reseed(RULES_SLOT);
+            }
+        }
+        logger.info("🔄 [{}] Правила стратегии RULES заменены: {} -> {}", context.getInstrument().name(), previous.getName(), rules.getName());
+    }
+
+    /**
+     * Применяет параметры стратегий (имя стратегии -> параметры). Состояние пересчитывается
+     * по накопленной истории только у стратегий, где изменились периоды индикаторов;
+     * пороги и множители вступают в силу со следующего анализа.
+     */
+    public void updateConfigs(Map<String, StrategyConfig> configs) {
+        List<String> changed = new ArrayList<>();
+        List<String> reseeded = new ArrayList<>();
+        synchronized (context) {
+            context.checkNotReleased();
+            for (int slot = 0; slot < DEFINITIONS.size(); slot++) {
+                String name = DEFINITIONS.get(slot).name();
+                StrategyConfig config = configs.get(name);
+                StrategyConfig previous = context.getConfig(slot);
+                if (config == null || config.equals(previous)) {
+                    continue;
+                }
+                context.setConfig(slot, config);
+                changed.add(name);
+                if (!config.hasSameIndicators(previous)) {
+                    context.reseed(slot);
+                    reseeded.add(name);
+                }
+            }
+        }
+        if (!changed.isEmpty()) {
+            logger.info("🔄 [{}] Обновлены параметры стратегий {}, пересчитаны индикаторы {}",
+                    context.getInstrument().name(), changed, reseeded);
+        }
+    }
+
+    /**
+     * Возвращает массив состояния в пул; после вызова обновления и анализ бросают
+     * {@link IllegalStateException}. Ждет завершения анализа или обновления, идущего в другом потоке.
+     */
+    public void release() {
+        synchronized (context) {
+            context.release();
+        }
     }
 
     public void printStatistics() {
@@ -145,4 +355,4 @@ public class MultiStrategyManager {
         signalCounts.forEach((name, count) ->
                 logger.info("{}: {} сигналов", name, count));
     }
-}
\ No newline at end of file
+}
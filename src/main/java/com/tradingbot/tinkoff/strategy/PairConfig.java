@@ -0,0 +1,42 @@
+package com.tradingbot.tinkoff.strategy;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Параметры парной стратегии: окна индикаторов спреда и пороги z-оценки.
+ */
+@Getter
+@Builder(toBuilder = true)
+public class PairConfig {
+
+    /**
+     * Что торгуется: остаток регрессии y - beta * x - alpha или отношение y / x.
+     */
+    public enum Mode {
+        SPREAD,
+        RATIO
+    }
+
+    @Builder.Default
+    private final Mode mode = Mode.SPREAD;
+    // Окно скользящей регрессии (hedge ratio)
+    @Builder.Default
+    private final int hedgePeriod = 120;
+    // Окно среднего и разброса спреда для z-оценки
+    @Builder.Default
+    private final int zScorePeriod = 60;
+    @Builder.Default
+    private final double entryZ = 2.0;
+    @Builder.Default
+    private final double exitZ = 0.5;
+    // Выход по стопу, если спред продолжил расходиться
+    @Builder.Default
+    private final double stopZ = 3.0;
+    // Вход только при устойчивой связи ног
+    @Builder.Default
+    private final double minCorrelation = 0.7;
+    // Сколько шагов подряд цена ноги может переноситься без нового бара
+    @Builder.Default
+    private final int maxStaleBars = 2;
+}
@@ -0,0 +1,110 @@
+package com.tradingbot.tinkoff.strategy;
+
+import com.tradingbot.tinkoff.model.TradableInstrument;
+import com.tradingbot.tinkoff.model.TradingSignal;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Парная стратегия возврата спреда к среднему по {@link SpreadSeries}.
+ *
+ * Спред ниже -entryZ — покупка спреда (BUY y, SELL x), выше entryZ — продажа; за stopZ вход не открывается.
+ * Выход при возврате к exitZ или по стопу на stopZ. Стоп и цель ног — цены, при которых
+ * z-оценка дойдет до stopZ и exitZ при неизменной второй ноге.
+ * Новые сигналы не выдаются, пока цена одной из ног переносится дольше maxStaleBars шагов.
+ */
+public final class PairsTradingStrategy {
+    private static final Logger logger = LoggerFactory.getLogger(PairsTradingStrategy.class);
+    public static final String NAME = "PAIRS";
+
+    private final AtomicInteger signalCounter = new AtomicInteger(0);
+
+    /**
+     * Анализ по открытой строке серии.
+     *
+     * @param position позиция по спреду: 1 — куплен (лонг y), -1 — продан, 0 — нет
+     * @return сигналы ног [y, x]: вход или закрытие обеих; пустой список без сигнала
+     */
+    public List<TradingSignal> analyze(SpreadSeries spread, int position) {
+        AlignedSeries series = spread.getSeries();
+        PairConfig config = spread.getConfig();
+        synchronized (series) {
+            int yLeg = spread.getYLeg();
+            int xLeg = spread.getXLeg();
+            if (!spread.isReady()
+                    || series.staleSteps(yLeg) > config.getMaxStaleBars()
+                    || series.staleSteps(xLeg) > config.getMaxStaleBars()) {
+                return Collections.emptyList();
+            }
+            int row = series.getRowCount() - 1;
+            double y = series.close(yLeg, row);
+            double x = series.close(xLeg, row);
+            double z = spread.zScore();
+            TradableInstrument yInstrument = series.getLegs().get(yLeg);
+            TradableInstrument xInstrument = series.getLegs().get(xLeg);
+
+            if (position != 0) {
+                boolean reverted = position > 0 ? z >= -config.getExitZ() : z <= config.getExitZ();
+                boolean stopped = position > 0 ? z <= -config.getStopZ() : z >= config.getStopZ();
+                if (!reverted && !stopped) {
+                    return Collections.emptyList();
+                }
+                String reason = String.format("Пара: %s спреда, z=%.2f", stopped ? "стоп" : "возврат", z);
+                TradingSignal.SignalType ySide = position > 0 ? TradingSignal.SignalType.SELL : TradingSignal.SignalType.BUY;
+                logger.info("🎯 Pairs: закрытие {} / {}: {}", yInstrument.name(), xInstrument.name(), reason);
+                return List.of(createExit(ySide, yInstrument, y, reason), createExit(opposite(ySide), xInstrument, x, reason));
+            }
+
+            double hedge = spread.hedgeUnits();
+            if (Math.abs(z) < config.getEntryZ() || Math.abs(z) >= config.getStopZ()
+                    || spread.correlation() < config.getMinCorrelation() || !(hedge > 0)) {
+                return Collections.emptyList();
+            }
+            // Сдвиг торгуемой величины до стопа и до цели, пересчитанный в цены ног
+            double std = spread.stdDev();
+            double toStop = (config.getStopZ() - Math.abs(z)) * std;
+            double toTarget = (Math.abs(z) - config.getExitZ()) * std;
+            double yPerUnit = config.getMode() == PairConfig.Mode.RATIO ? x : 1;
+            double xPerUnit = config.getMode() == PairConfig.Mode.RATIO ? x * x / y : 1 / hedge;
+
+            TradingSignal.SignalType ySide = z < 0 ? TradingSignal.SignalType.BUY : TradingSignal.SignalType.SELL;
+            int direction = z < 0 ? 1 : -1;
+            int score = (int) Math.min(100, 50 + Math.abs(z) * 15);
+            String reason = String.format("Пара: z=%.2f, hedge=%.4f, корреляция %.2f", z, hedge, spread.correlation());
+            logger.info("🎯 Pairs: {} {} / {} {}: {}", ySide, yInstrument.name(), opposite(ySide), xInstrument.name(), reason);
+            return List.of(
+                    createEntry(ySide, yInstrument, y, y - direction * toStop * yPerUnit, y + direction * toTarget * yPerUnit, score, reason),
+                    createEntry(opposite(ySide), xInstrument, x, x + direction * toStop * xPerUnit, x - direction * toTarget * xPerUnit, score, reason));
+        }
+    }
+
+    private static TradingSignal.SignalType opposite(TradingSignal.SignalType side) {
+        return side == TradingSignal.SignalType.BUY ? TradingSignal.SignalType.SELL : TradingSignal.SignalType.BUY;
+    }
+
+    private TradingSignal createEntry(TradingSignal.SignalType type, TradableInstrument instrument, double price,
+                                      double stopLoss, double takeProfit, int score, String reason) {
+        TradingSignal signal = new TradingSignal(type, score, reason);
+        signal.setInstrument(instrument);
+        signal.setEntryPrice(BigDecimal.valueOf(price));
+        signal.setStopLoss(BigDecimal.valueOf(stopLoss).setScale(4, RoundingMode.HALF_UP));
+        signal.setTakeProfit(BigDecimal.valueOf(takeProfit).setScale(4, RoundingMode.HALF_UP));
+        signal.setSignalId(signalCounter.incrementAndGet());
+        return signal;
+    }
+
+    private TradingSignal createExit(TradingSignal.SignalType type, TradableInstrument instrument, double price, String reason) {
+        TradingSignal signal = new TradingSignal(type, 100, reason);
+        signal.setInstrument(instrument);
+        signal.setEntryPrice(BigDecimal.valueOf(price));
+        signal.setExit(true);
+        signal.setSignalId(signalCounter.incrementAndGet());
+        return signal;
+    }
+}
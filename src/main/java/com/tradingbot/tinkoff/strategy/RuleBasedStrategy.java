@@ -0,0 +1,164 @@
+package com.tradingbot.tinkoff.strategy;
+
+import com.tradingbot.tinkoff.indicators.Incremental;
+import com.tradingbot.tinkoff.model.TradableInstrument;
+import com.tradingbot.tinkoff.model.TradingSignal;
+import com.tradingbot.tinkoff.rules.RuleProgram;
+import com.tradingbot.tinkoff.rules.RuleSet;
+import com.tradingbot.tinkoff.rules.RuleVariables;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Стратегия, условия входа/выхода и оценка которой заданы правилами из файла
+ * и скомпилированы в байткод ({@link com.tradingbot.tinkoff.rules.RuleCompiler}).
+ *
+ * Набор правил и периоды индикаторов берутся из контекста инструмента, поэтому
+ * правила подменяются на лету для каждого инструмента отдельно
+ * ({@link MultiStrategyManager#updateRules(RuleSet)}).
+ */
+public final class RuleBasedStrategy implements StrategyDefinition {
+    private static final Logger logger = LoggerFactory.getLogger(RuleBasedStrategy.class);
+
+    // Общие результаты без сигнала: анализ без сигнала не создает объектов
+    private static final TradingSignal HOLD_NO_RULES = TradingSignal.hold("Правила не загружены");
+    private static final TradingSignal HOLD_WARMUP = TradingSignal.hold("Накопление данных");
+    private static final TradingSignal HOLD_NO_MATCH = TradingSignal.hold("Условия правил не выполнены");
+
+    public static final RuleBasedStrategy INSTANCE = new RuleBasedStrategy();
+
+    // Блок состояния
+    private static final int BARS = 0;
+    private static final int PREV_CLOSE = 1;
+    private static final int AVG_GAIN = 2;
+    private static final int AVG_LOSS = 3;
+    private static final int EMA_FAST = 4;
+    private static final int EMA_SLOW = 5;
+    private static final int ATR = 6;
+    private static final int BB_MIDDLE = 7;
+    private static final int STATE_SIZE = 8;
+
+    private final AtomicInteger signalCounter = new AtomicInteger(0);
+
+    private RuleBasedStrategy() {
+    }
+
+    @Override
+    public String name() {
+        return "RULES";
+    }
+
+    @Override
+    public int stateSize() {
+        return STATE_SIZE;
+    }
+
+    @Override
+    public int getUnstablePeriod(InstrumentContext context, int slot) {
+        return context.getRules().getUnstablePeriod();
+    }
+
+    @Override
+    public void onBar(InstrumentContext context, int slot, double[] s, int o, int bar) {
+        RuleSet rules = context.getRules();
+        double high = context.high(bar);
+        double low = context.low(bar);
+        double close = context.close(bar);
+        boolean first = s[o + BARS] == 0;
+        double change = first ? 0 : close - s[o + PREV_CLOSE];
+
+        s[o + AVG_GAIN] = Incremental.mma(s[o + AVG_GAIN], Incremental.gain(change), rules.getRsiPeriod(), first);
+        s[o + AVG_LOSS] = Incremental.mma(s[o + AVG_LOSS], Incremental.loss(change), rules.getRsiPeriod(), first);
+        s[o + EMA_FAST] = Incremental.ema(s[o + EMA_FAST], close, rules.getEmaFastPeriod(), first);
+        s[o + EMA_SLOW] = Incremental.ema(s[o + EMA_SLOW], close, rules.getEmaSlowPeriod(), first);
+        s[o + ATR] = Incremental.mma(s[o + ATR], Incremental.trueRange(high, low, s[o + PREV_CLOSE], first), rules.getAtrPeriod(), first);
+        s[o + BB_MIDDLE] = Incremental.ema(s[o + BB_MIDDLE], close, rules.getBbPeriod(), first);
+        s[o + PREV_CLOSE] = close;
+        s[o + BARS] += 1;
+    }
+
+    @Override
+    public TradingSignal analyzeSignal(InstrumentContext context, int slot) {
+        RuleSet rules = context.getRules();
+        RuleProgram program = rules.getProgram();
+        int lastIndex = context.getEndIndex();
+        if (program == null) {
+            return HOLD_NO_RULES;
+        }
+        if (lastIndex < rules.getUnstablePeriod()) {
+            return HOLD_WARMUP;
+        }
+
+        double[] values = context.ruleValues();
+        fill(context, slot, rules, values);
+
+        if (program.exitLong(values)) {
+            return createSignal(rules, values, TradingSignal.SignalType.SELL, true, "Выход из лонга по правилам " + rules.getName(), context.getInstrument());
+        }
+        if (program.exitShort(values)) {
+            return createSignal(rules, values, TradingSignal.SignalType.BUY, true, "Выход из шорта по правилам " + rules.getName(), context.getInstrument());
+        }
+        if (program.entryLong(values)) {
+            return createSignal(rules, values, TradingSignal.SignalType.BUY, false, "Вход в лонг по правилам " + rules.getName(), context.getInstrument());
+        }
+        if (program.entryShort(values)) {
+            return createSignal(rules, values, TradingSignal.SignalType.SELL, false, "Вход в шорт по правилам " + rules.getName(), context.getInstrument());
+        }
+        return HOLD_NO_MATCH;
+    }
+
+    private static void fill(InstrumentContext context, int slot, RuleSet rules, double[] v) {
+        double[] s = context.slab();
+        int w = context.working(slot);
+        int c = context.committed(slot);
+        int index = context.getEndIndex();
+        double deviation = context.stdDev(index, rules.getBbPeriod()) * rules.getBbMultiplier();
+
+        v[RuleVariables.PRICE] = context.close(index);
+        v[RuleVariables.OPEN] = context.open(index);
+        v[RuleVariables.HIGH] = context.high(index);
+        v[RuleVariables.LOW] = context.low(index);
+        v[RuleVariables.VOLUME] = context.volume(index);
+        v[RuleVariables.RSI] = Incremental.rsi(s[w + AVG_GAIN], s[w + AVG_LOSS]);
+        v[RuleVariables.VWAP] = context.vwap(index, rules.getVwapPeriod());
+        v[RuleVariables.EMA_FAST] = s[w + EMA_FAST];
+        v[RuleVariables.EMA_SLOW] = s[w + EMA_SLOW];
+        v[RuleVariables.EMA_FAST_PREV] = s[c + EMA_FAST];
+        v[RuleVariables.EMA_SLOW_PREV] = s[c + EMA_SLOW];
+        v[RuleVariables.ATR] = s[w + ATR];
+        v[RuleVariables.BB_UPPER] = s[w + BB_MIDDLE] + deviation;
+        v[RuleVariables.BB_MIDDLE] = s[w + BB_MIDDLE];
+        v[RuleVariables.BB_LOWER] = s[w + BB_MIDDLE] - deviation;
+    }
+
+    private TradingSignal createSignal(RuleSet rules, double[] values, TradingSignal.SignalType type, boolean exit, String reason, TradableInstrument instrument) {
+        double rawScore = rules.getProgram().score(values);
+        int score = Double.isNaN(rawScore) ? 0 : (int) Math.max(0, Math.min(100, Math.round(rawScore)));
+
+        BigDecimal entryPrice = BigDecimal.valueOf(values[RuleVariables.PRICE]);
+        // Минимальный ATR 0.1% от цены, чтобы избежать нулевых стопов
+        BigDecimal atr = BigDecimal.valueOf(Math.max(values[RuleVariables.ATR], values[RuleVariables.PRICE] * 0.001));
+        BigDecimal stopDistance = atr.multiply(BigDecimal.valueOf(rules.getStopAtr()));
+        BigDecimal takeDistance = atr.multiply(BigDecimal.valueOf(rules.getTakeAtr()));
+
+        TradingSignal signal = new TradingSignal(type, score, reason);
+        signal.setInstrument(instrument);
+        signal.setExit(exit);
+        signal.setEntryPrice(entryPrice);
+        if (type == TradingSignal.SignalType.BUY) {
+            signal.setStopLoss(entryPrice.subtract(stopDistance).setScale(4, RoundingMode.HALF_UP));
+            signal.setTakeProfit(entryPrice.add(takeDistance).setScale(4, RoundingMode.HALF_UP));
+        } else {
+            signal.setStopLoss(entryPrice.add(stopDistance).setScale(4, RoundingMode.HALF_UP));
+            signal.setTakeProfit(entryPrice.subtract(takeDistance).setScale(4, RoundingMode.HALF_UP));
+        }
+        signal.setSignalId(signalCounter.incrementAndGet());
+
+        logger.info("🧩 Rules [{}]: {} {} по {} (score {})", rules.getName(), exit ? "выход" : "вход", type, entryPrice, score);
+        return signal;
+    }
+}
@@ -1,85 +1,198 @@
 package com.tradingbot.tinkoff.strategy;
 
+import com.tradingbot.tinkoff.indicators.Incremental;
+import com.tradingbot.tinkoff.indicators.OrderFlowIndicators;
+import com.tradingbot.tinkoff.model.TradableInstrument;
 import com.tradingbot.tinkoff.model.TradingSignal;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.ta4j.core.BarSeries;
-import org.ta4j.core.indicators.RSIIndicator;
-import org.ta4j.core.indicators.helpers.ClosePriceIndicator;
-import org.ta4j.core.indicators.volume.VWAPIndicator;
-import org.ta4j.core.num.Num;
-import org.ta4j.core.num.DecimalNum;
-import ru.tinkoff.piapi.contract.v1.OrderBook;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
-import java.time.ZonedDateTime;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Агрессивная скальпинговая стратегия на основе RSI и объема
  * Цель: множественные мелкие прибыльные сделки
  */
-public class ScalpingMomentumStrategy {
+public final class ScalpingMomentumStrategy implements StrategyDefinition {
     private static final Logger logger = LoggerFactory.getLogger(ScalpingMomentumStrategy.class);
 
-    // Параметры стратегии
-    private static final int RSI_PERIOD = 7;  // Быстрый RSI
-    private static final int VWAP_PERIOD = 14; // Короткий VWAP
-    private static final double RSI_OVERSOLD = 25;
-    private static final double RSI_OVERBOUGHT = 75;
+    // Общие результаты без сигнала: анализ без сигнала не создает объектов
+    private static final TradingSignal HOLD_WARMUP = TradingSignal.hold("Накопление данных");
+    private static final TradingSignal HOLD_WAITING = TradingSignal.hold("Ожидание скальпингового момента");
+
+    public static final ScalpingMomentumStrategy INSTANCE = new ScalpingMomentumStrategy();
+
+    // Параметры стратегии - StrategyConfig.getScalpingConfig() или strategies.json
+    // Условие интрабар-сигнала должно держаться столько миллисекунд биржевого времени
+    private static final long INTRABAR_DEBOUNCE_MILLIS = 200;
+    // Поток ордеров учитывается в балле, если в баре набралось достаточно сделок
+    private static final int BASE_SCORE = 88;
+    private static final int ORDER_FLOW_MIN_TRADES = 20;
+
+    // Блок состояния
+    private static final int BARS = 0;
+    private static final int PREV_CLOSE = 1;
+    private static final int AVG_GAIN = 2;
+    private static final int AVG_LOSS = 3;
+    private static final int STATE_SIZE = 4;
+
+    // Дебаунс интрабар-сигнала (не откатывается вместе с баром)
+    private static final int PENDING_TYPE = 0; // 0 - нет, 1 - BUY, -1 - SELL
+    private static final int PENDING_SINCE = 1;
+    private static final int PENDING_FIRED = 2;
 
-    private final BarSeries barSeries;
-    private final ClosePriceIndicator closePrice;
-    private final RSIIndicator rsi;
-    private final VWAPIndicator vwap;
     private final AtomicInteger signalCounter = new AtomicInteger(0);
 
-    public ScalpingMomentumStrategy(BarSeries barSeries) {
-        this.barSeries = barSeries;
-        this.closePrice = new ClosePriceIndicator(barSeries);
-        this.rsi = new RSIIndicator(closePrice, RSI_PERIOD);
-        this.vwap = new VWAPIndicator(barSeries, VWAP_PERIOD);
+    private ScalpingMomentumStrategy() {
+        StrategyConfig config = defaultConfig();
+        logger.info("🎯 ScalpingMomentumStrategy инициализирована (RSI={}, VWAP={})", config.getRsiPeriod(), config.getVwapPeriod());
+    }
+
+    @Override
+    public StrategyConfig defaultConfig() {
+        return StrategyConfig.getScalpingConfig();
+    }
+
+    @Override
+    public String name() {
+        return "SCALPING";
+    }
 
-        logger.info("🎯 ScalpingMomentumStrategy инициализирована (RSI={}, VWAP={})", RSI_PERIOD, VWAP_PERIOD);
+    @Override
+    public int stateSize() {
+        return STATE_SIZE;
     }
 
-    public int getUnstablePeriod() { return Math.max(RSI_PERIOD, VWAP_PERIOD) + 1; }
+    @Override
+    public int scratchSize() {
+        return 3;
+    }
 
-    public void updateOrderBook(OrderBook orderBook) { }
+    @Override
+    public int getUnstablePeriod(InstrumentContext context, int slot) {
+        StrategyConfig config = context.getConfig(slot);
+        return Math.max(config.getRsiPeriod(), config.getVwapPeriod()) + 1;
+    }
 
-    public TradingSignal analyzeSignal(com.tradingbot.tinkoff.model.TradableInstrument instrument) {
-        int lastIndex = barSeries.getEndIndex();
-        if (lastIndex < getUnstablePeriod()) {
-            return new TradingSignal(TradingSignal.SignalType.HOLD, 0, "Накопление данных");
+    @Override
+    public void onBar(InstrumentContext context, int slot, double[] s, int o, int bar) {
+        double close = context.close(bar);
+        boolean first = s[o + BARS] == 0;
+        double change = first ? 0 : close - s[o + PREV_CLOSE];
+        int rsiPeriod = context.getConfig(slot).getRsiPeriod();
+        s[o + AVG_GAIN] = Incremental.mma(s[o + AVG_GAIN], Incremental.gain(change), rsiPeriod, first);
+        s[o + AVG_LOSS] = Incremental.mma(s[o + AVG_LOSS], Incremental.loss(change), rsiPeriod, first);
+        s[o + PREV_CLOSE] = close;
+        s[o + BARS] += 1;
+    }
+
+    @Override
+    public TradingSignal analyzeSignal(InstrumentContext context, int slot) {
+        int lastIndex = context.getEndIndex();
+        if (lastIndex < getUnstablePeriod(context, slot)) {
+            return HOLD_WARMUP;
         }
 
-        Num currentPrice = closePrice.getValue(lastIndex);
-        Num vwapValue = vwap.getValue(lastIndex);
-        Num rsiValue = rsi.getValue(lastIndex);
+        StrategyConfig config = context.getConfig(slot);
+        double[] s = context.slab();
+        int w = context.working(slot);
+        double currentPrice = context.close(lastIndex);
+        double vwapValue = context.vwap(lastIndex, config.getVwapPeriod());
+        double rsiValue = Incremental.rsi(s[w + AVG_GAIN], s[w + AVG_LOSS]);
 
         // Определяем общее направление по VWAP
-        boolean bullishTrend = currentPrice.isGreaterThan(vwapValue);
+        boolean bullishTrend = currentPrice > vwapValue;
 
-        logger.debug("📊 Скальпинг анализ: Price={}, VWAP={}, RSI={}, Trend={}",
-                currentPrice, vwapValue, rsiValue, bullishTrend ? "BULL" : "BEAR");
+        if (logger.isDebugEnabled()) {
+            logger.debug("📊 Скальпинг анализ: Price={}, VWAP={}, RSI={}, Trend={}",
+                    currentPrice, vwapValue, rsiValue, bullishTrend ? "BULL" : "BEAR");
+        }
 
         // СИГНАЛ НА ПОКУПКУ: Бычий тренд + RSI в зоне перепроданности
-        if (bullishTrend && rsiValue.doubleValue() < RSI_OVERSOLD) {
-            return createScalpingSignal(TradingSignal.SignalType.BUY, "RSI перепродан в бычьем тренде", lastIndex, instrument);
+        if (bullishTrend && rsiValue < config.getRsiLowerThreshold()) {
+            return createScalpingSignal(TradingSignal.SignalType.BUY, "RSI перепродан в бычьем тренде", currentPrice, context);
         }
 
         // СИГНАЛ НА ПРОДАЖУ: Медвежий тренд + RSI в зоне перекупленности
-        if (!bullishTrend && rsiValue.doubleValue() > RSI_OVERBOUGHT) {
-            return createScalpingSignal(TradingSignal.SignalType.SELL, "RSI перекуплен в медвежьем тренде", lastIndex, instrument);
+        if (!bullishTrend && rsiValue > config.getRsiUpperThreshold()) {
+            return createScalpingSignal(TradingSignal.SignalType.SELL, "RSI перекуплен в медвежьем тренде", currentPrice, context);
         }
 
-        return new TradingSignal(TradingSignal.SignalType.HOLD, 0, "Ожидание скальпингового момента");
+        return HOLD_WAITING;
+    }
+
+    /**
+     * Интрабар-анализ после тика: рабочий блок контекста уже содержит RSI открытого бара.
+     * Сигнал выдается, если условие продержалось {@value #INTRABAR_DEBOUNCE_MILLIS} мс;
+     * повторно по тому же непрерывному условию сигнал не выдается.
+     *
+     * @return сигнал или null
+     */
+    public TradingSignal onIntrabarTick(InstrumentContext context, int slot, long timeMillis) {
+        int lastIndex = context.getEndIndex();
+        if (lastIndex < getUnstablePeriod(context, slot)) {
+            return null;
+        }
+
+        StrategyConfig config = context.getConfig(slot);
+        double[] s = context.slab();
+        int w = context.working(slot);
+        int d = context.scratch(slot);
+        double price = context.close(lastIndex);
+        double rsiValue = Incremental.rsi(s[w + AVG_GAIN], s[w + AVG_LOSS]);
+        boolean bullishTrend = price > context.vwap(lastIndex, config.getVwapPeriod());
+
+        int type = 0;
+        if (bullishTrend && rsiValue < config.getRsiLowerThreshold()) {
+            type = 1;
+        } else if (!bullishTrend && rsiValue > config.getRsiUpperThreshold()) {
+            type = -1;
+        }
+
+        if (type != (int) s[d + PENDING_TYPE]) {
+            s[d + PENDING_TYPE] = type;
+            s[d + PENDING_SINCE] = timeMillis;
+            s[d + PENDING_FIRED] = 0;
+            return null;
+        }
+        if (type == 0 || s[d + PENDING_FIRED] != 0 || timeMillis - (long) s[d + PENDING_SINCE] < INTRABAR_DEBOUNCE_MILLIS) {
+            return null;
+        }
+
+        s[d + PENDING_FIRED] = 1;
+        logger.debug("⚡ Интрабар: Price={}, RSI={}", price, rsiValue);
+        return type > 0
+                ? createScalpingSignal(TradingSignal.SignalType.BUY, "Интрабар: RSI перепродан в бычьем тренде", price, context)
+                : createScalpingSignal(TradingSignal.SignalType.SELL, "Интрабар: RSI перекуплен в медвежьем тренде", price, context);
+    }
+
+    /**
+     * Поправка балла по потоку ордеров открытого бара: дисбаланс агрессоров
+     * (от -10 до +10), крупный принт и всплеск интенсивности в сторону сигнала.
+     */
+    private static int orderFlowAdjustment(InstrumentContext context, TradingSignal.SignalType type) {
+        OrderFlowIndicators flow = context.getOrderFlow();
+        long barTime = context.time(context.getEndIndex());
+        if (flow == null || flow.tradeCount(barTime) < ORDER_FLOW_MIN_TRADES) {
+            return 0;
+        }
+        int side = type == TradingSignal.SignalType.BUY ? OrderFlowIndicators.BUY : OrderFlowIndicators.SELL;
+        double imbalance = flow.imbalance(barTime) * side;
+        int adjustment = (int) Math.round(imbalance * 10);
+        if (flow.largePrints(barTime, side) > 0) {
+            adjustment += 5;
+        }
+        if (imbalance > 0 && flow.intensity(5) > 2 * flow.intensity(60)) {
+            adjustment += 5;
+        }
+        return adjustment;
     }
 
-    private TradingSignal createScalpingSignal(TradingSignal.SignalType type, String reason, int index, com.tradingbot.tinkoff.model.TradableInstrument instrument) {
-        Num currentPrice = closePrice.getValue(index);
-        BigDecimal entryPrice = ((DecimalNum) currentPrice).getDelegate();
+    private TradingSignal createScalpingSignal(TradingSignal.SignalType type, String reason, double price, InstrumentContext context) {
+        TradableInstrument instrument = context.getInstrument();
+        BigDecimal entryPrice = BigDecimal.valueOf(price);
 
         // Скальпинговые уровни: узкий стоп, быстрый профит
         BigDecimal pricePercent = entryPrice.multiply(new BigDecimal("0.003")); // 0.3%
@@ -93,15 +206,15 @@ public class ScalpingMomentumStrategy {
             takeProfit = entryPrice.subtract(pricePercent.multiply(new BigDecimal("2"))).setScale(4, RoundingMode.HALF_UP);
         }
 
-        TradingSignal signal = new TradingSignal(type, 88, reason);
+        int score = Math.max(0, Math.min(100, BASE_SCORE + orderFlowAdjustment(context, type)));
+        TradingSignal signal = new TradingSignal(type, score, reason);
         signal.setInstrument(instrument);
         signal.setEntryPrice(entryPrice);
         signal.setStopLoss(stopLoss);
         signal.setTakeProfit(takeProfit);
-        signal.setTimestamp(ZonedDateTime.now());
         signal.setSignalId(signalCounter.incrementAndGet());
 
-        logger.info("⚡ Скальпинг сигнал: {} по {} (SL: {}, TP: {})", type, entryPrice, stopLoss, takeProfit);
+        logger.info("⚡ Скальпинг сигнал: {} по {} (SL: {}, TP: {}, балл: {})", type, entryPrice, stopLoss, takeProfit, score);
         return signal;
     }
 }
@@ -0,0 +1,130 @@
+package com.tradingbot.tinkoff.strategy;
+
+import com.tradingbot.tinkoff.indicators.RollingRegression;
+import com.tradingbot.tinkoff.indicators.RollingZScore;
+
+/**
+ * Спред двух ног выровненной серии с инкрементальными индикаторами: скользящая регрессия
+ * y на x (hedge ratio), остаток регрессии и отношение y / x с z-оценками.
+ *
+ * Последняя точка окон — открытая строка серии: ее обновления заменяют точку, новая строка
+ * добавляет следующую. Остаток каждой строки считается по регрессии на момент этой строки.
+ * Читается под блокировкой {@link AlignedSeries}.
+ */
+public final class SpreadSeries {
+    private final AlignedSeries series;
+    private final int yLeg;
+    private final int xLeg;
+    private final PairConfig config;
+    private final RollingRegression regression;
+    private final RollingZScore spreadWindow;
+    private final RollingZScore ratioWindow;
+
+    private int lastRow = -1;
+    private double spread;
+    private double ratio;
+
+    SpreadSeries(AlignedSeries series, int yLeg, int xLeg, PairConfig config) {
+        this.series = series;
+        this.yLeg = yLeg;
+        this.xLeg = xLeg;
+        this.config = config;
+        this.regression = new RollingRegression(config.getHedgePeriod());
+        this.spreadWindow = new RollingZScore(config.getZScorePeriod());
+        this.ratioWindow = new RollingZScore(config.getZScorePeriod());
+    }
+
+    /**
+     * Строка серии открыта или обновлена.
+     */
+    void onRow(int row) {
+        double y = series.close(yLeg, row);
+        double x = series.close(xLeg, row);
+        if (Double.isNaN(y) || Double.isNaN(x)) {
+            return; // У одной из ног еще нет цены
+        }
+        boolean next = row != lastRow;
+        if (next) {
+            regression.push(x, y);
+        } else {
+            regression.replaceLast(x, y);
+        }
+        spread = y - regression.beta() * x - regression.alpha();
+        ratio = y / x;
+        if (next) {
+            spreadWindow.push(spread);
+            ratioWindow.push(ratio);
+        } else {
+            spreadWindow.replaceLast(spread);
+            ratioWindow.replaceLast(ratio);
+        }
+        lastRow = row;
+    }
+
+    public AlignedSeries getSeries() {
+        return series;
+    }
+
+    public int getYLeg() {
+        return yLeg;
+    }
+
+    public int getXLeg() {
+        return xLeg;
+    }
+
+    public PairConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * Окна регрессии и z-оценки заполнены.
+     */
+    public boolean isReady() {
+        return regression.isFull() && spreadWindow.isFull();
+    }
+
+    /**
+     * Строк, в которых были цены обеих ног.
+     */
+    public int size() {
+        return regression.size();
+    }
+
+    public double hedgeRatio() {
+        return regression.beta();
+    }
+
+    public double correlation() {
+        return regression.correlation();
+    }
+
+    public double spread() {
+        return spread;
+    }
+
+    public double ratio() {
+        return ratio;
+    }
+
+    /**
+     * Z-оценка торгуемой величины (остаток или отношение по режиму конфигурации).
+     */
+    public double zScore() {
+        return config.getMode() == PairConfig.Mode.RATIO ? ratioWindow.zScore() : spreadWindow.zScore();
+    }
+
+    /**
+     * Разброс торгуемой величины за окно z-оценки.
+     */
+    public double stdDev() {
+        return config.getMode() == PairConfig.Mode.RATIO ? ratioWindow.stdDev() : spreadWindow.stdDev();
+    }
+
+    /**
+     * Единиц x на единицу y в хедже: наклон регрессии или текущее отношение цен.
+     */
+    public double hedgeUnits() {
+        return config.getMode() == PairConfig.Mode.RATIO ? ratio : regression.beta();
+    }
+}
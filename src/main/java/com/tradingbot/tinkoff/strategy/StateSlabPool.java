@@ -0,0 +1,42 @@
+package com.tradingbot.tinkoff.strategy;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Пул примитивных массивов состояния инструментов. Массивы одинаковой длины
+ * переиспользуются между остановленными и новыми процессорами, поэтому запуск
+ * сотен инструментов (в том числе сканером) не нагружает сборщик мусора.
+ */
+public final class StateSlabPool {
+    private static final Map<Integer, Queue<double[]>> FREE = new ConcurrentHashMap<>();
+
+    private StateSlabPool() {
+    }
+
+    /**
+     * @return обнуленный массив заданной длины
+     */
+    public static double[] acquire(int length) {
+        double[] slab = FREE.computeIfAbsent(length, l -> new ConcurrentLinkedQueue<>()).poll();
+        return slab != null ? slab : new double[length];
+    }
+
+    public static void release(double[] slab) {
+        Arrays.fill(slab, 0);
+        FREE.computeIfAbsent(slab.length, l -> new ConcurrentLinkedQueue<>()).offer(slab);
+    }
+
+    /**
+     * Заранее создает массивы, например перед запуском сканера.
+     */
+    public static void prewarm(int length, int count) {
+        Queue<double[]> queue = FREE.computeIfAbsent(length, l -> new ConcurrentLinkedQueue<>());
+        for (int i = 0; i < count; i++) {
+            queue.offer(new double[length]);
+        }
+    }
+}
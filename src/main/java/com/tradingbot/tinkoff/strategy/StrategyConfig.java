@@ -2,10 +2,21 @@
 package com.tradingbot.tinkoff.strategy;
 
 import lombok.Builder;
+import lombok.EqualsAndHashCode;
 import lombok.Getter;
+import lombok.ToString;
+import lombok.extern.jackson.Jacksonized;
 
+/**
+ * Параметры стратегии. Значения по умолчанию - встроенные фабрики ниже,
+ * переопределения читаются из {@code strategies.json} ({@link StrategyConfigRepository}).
+ * Неизвестные поля при чтении отвергаются: опечатка в имени параметра не должна молча оставлять значение по умолчанию.
+ */
 @Getter
-@Builder
+@Builder(toBuilder = true)
+@Jacksonized
+@EqualsAndHashCode
+@ToString
 public class StrategyConfig {
     // Параметры для MeanReversion
     private int bbPeriod;
@@ -14,7 +25,12 @@ public class StrategyConfig {
     private double rsiLowerThreshold;
     private double rsiUpperThreshold;
 
-    // Можно добавить параметры и для других стратегий...
+    // Параметры для VWAP/EMA и скальпинга
+    private int fastEmaPeriod;
+    private int slowEmaPeriod;
+    private int atrPeriod;
+    private int vwapPeriod;
+    private int minSignalScore;
 
     public static StrategyConfig getConservativeConfig() {
         return StrategyConfig.builder()
@@ -35,4 +51,37 @@ public class StrategyConfig {
                 .rsiUpperThreshold(65) // Менее строгий порог
                 .build();
     }
+
+    public static StrategyConfig getScalpingConfig() {
+        return StrategyConfig.builder()
+                .rsiPeriod(7)       // Быстрый RSI
+                .vwapPeriod(14)     // Короткий VWAP
+                .rsiLowerThreshold(25)
+                .rsiUpperThreshold(75)
+                .build();
+    }
+
+    public static StrategyConfig getVwapEmaConfig() {
+        return StrategyConfig.builder()
+                .fastEmaPeriod(9)
+                .slowEmaPeriod(21)
+                .atrPeriod(14)
+                .vwapPeriod(20)
+                .minSignalScore(70)
+                .build();
+    }
+
+    /**
+     * Совпадают ли периоды инкрементальных индикаторов. Если нет, состояние стратегии
+     * пересчитывается по истории; пороги и множители применяются без пересчета.
+     * Оконные индикаторы (VWAP, стандартное отклонение) считаются по истории при каждом анализе.
+     */
+    public boolean hasSameIndicators(StrategyConfig other) {
+        return other != null
+                && rsiPeriod == other.rsiPeriod
+                && bbPeriod == other.bbPeriod
+                && fastEmaPeriod == other.fastEmaPeriod
+                && slowEmaPeriod == other.slowEmaPeriod
+                && atrPeriod == other.atrPeriod;
+    }
 }
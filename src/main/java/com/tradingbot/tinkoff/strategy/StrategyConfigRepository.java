@@ -0,0 +1,250 @@
+package com.tradingbot.tinkoff.strategy;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.*;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Параметры стратегий из {@code strategies.json}:
+ * <pre>
+ * {
+ *   "default":     { "SCALPING": { "rsiPeriod": 7 }, ... },
+ *   "instruments": { "&lt;FIGI&gt;": { "VWAP_EMA": { "slowEmaPeriod": 34 } } }
+ * }
+ * </pre>
+ * Значения сливаются по полям: встроенные параметры стратегии, затем секция "default",
+ * затем переопределения инструмента. Если внешнего файла нет, читается встроенный
+ * {@code /strategies.json}.
+ *
+ * Файл отслеживается через WatchService; файл с ошибкой (в том числе с неизвестным именем параметра)
+ * не заменяет действующие параметры.
+ */
+public class StrategyConfigRepository {
+    private static final Logger logger = LoggerFactory.getLogger(StrategyConfigRepository.class);
+
+    private static final String CLASSPATH_CONFIG = "/strategies.json";
+    private static final String DEFAULT_SECTION = "default";
+    private static final String INSTRUMENTS_SECTION = "instruments";
+    private static final long DEBOUNCE_MILLIS = 200;
+
+    private final Path file;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private volatile Map<String, StrategyConfig> defaultConfigs = builtInConfigs();
+    private volatile Map<String, Map<String, StrategyConfig>> instrumentConfigs = Map.of();
+
+    private WatchService watchService;
+    private Thread watcherThread;
+
+    public StrategyConfigRepository(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Загружает параметры из файла (или встроенного ресурса, если файла нет).
+     */
+    public void loadAll() {
+        reload();
+    }
+
+    /**
+     * Параметры стратегий для инструмента: имя стратегии -> параметры.
+     * Стратегии без настраиваемых параметров в карту не входят.
+     */
+    public Map<String, StrategyConfig> configsFor(String figi) {
+        Map<String, StrategyConfig> specific = instrumentConfigs.get(figi);
+        return specific != null ? specific : defaultConfigs;
+    }
+
+    /**
+     * Запускает отслеживание файла параметров.
+     *
+     * @param onChange вызывается после успешного применения измененного файла
+     */
+    public void startWatching(Runnable onChange) {
+        if (watcherThread != null) {
+            return;
+        }
+        Path directory = file.toAbsolutePath().getParent();
+        try {
+            Files.createDirectories(directory);
+            watchService = FileSystems.getDefault().newWatchService();
+            directory.register(watchService,
+                    StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY,
+                    StandardWatchEventKinds.ENTRY_DELETE);
+        } catch (IOException e) {
+            logger.error("❌ Не удалось запустить отслеживание параметров стратегий {}", file, e);
+            return;
+        }
+
+        watcherThread = new Thread(() -> watchLoop(onChange), "StrategyConfig-Watcher");
+        watcherThread.setDaemon(true);
+        watcherThread.start();
+        logger.info("👀 Отслеживание параметров стратегий в {}", file.toAbsolutePath());
+    }
+
+    public void stopWatching() {
+        if (watcherThread != null) {
+            watcherThread.interrupt();
+            watcherThread = null;
+        }
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                logger.warn("Ошибка при закрытии WatchService параметров стратегий", e);
+            }
+            watchService = null;
+        }
+    }
+
+    private void watchLoop(Runnable onChange) {
+        WatchService service = watchService;
+        Path fileName = file.getFileName();
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                WatchKey key = service.take();
+                // Редакторы сохраняют файл несколькими событиями — собираем их в одно обновление
+                TimeUnit.MILLISECONDS.sleep(DEBOUNCE_MILLIS);
+
+                boolean changed = false;
+                do {
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (fileName.equals(event.context())) {
+                            changed = true;
+                        }
+                    }
+                    key.reset();
+                    key = service.poll();
+                } while (key != null);
+
+                if (changed && reload()) {
+                    onChange.run();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // Отслеживание остановлено
+        }
+    }
+
+    /**
+     * Перечитывает файл параметров.
+     *
+     * @return {@code true}, если параметры применены; {@code false} при ошибке
+     */
+    private boolean reload() {
+        try {
+            JsonNode root;
+            String source;
+            if (Files.exists(file)) {
+                root = mapper.readTree(file.toFile());
+                source = file.toString();
+            } else {
+                try (InputStream in = StrategyConfigRepository.class.getResourceAsStream(CLASSPATH_CONFIG)) {
+                    root = in == null ? mapper.createObjectNode() : mapper.readTree(in);
+                }
+                source = "встроенных параметров";
+            }
+
+            Map<String, StrategyConfig> defaults = merge(builtInConfigs(), root.path(DEFAULT_SECTION), DEFAULT_SECTION);
+            Map<String, Map<String, StrategyConfig>> instruments = new HashMap<>();
+            Iterator<Map.Entry<String, JsonNode>> it = root.path(INSTRUMENTS_SECTION).fields();
+            while (it.hasNext()) {
+                Map.Entry<String, JsonNode> entry = it.next();
+                instruments.put(entry.getKey(), merge(defaults, entry.getValue(), entry.getKey()));
+            }
+
+            defaultConfigs = defaults;
+            instrumentConfigs = Collections.unmodifiableMap(instruments);
+            logger.info("✅ Параметры стратегий загружены из {} (переопределений инструментов: {})", source, instruments.size());
+            return true;
+        } catch (IOException | IllegalArgumentException e) {
+            logger.error("❌ Параметры стратегий {} не загружены, действуют прежние: {}", file, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Накладывает поля секции на базовые параметры стратегий.
+     */
+    private Map<String, StrategyConfig> merge(Map<String, StrategyConfig> base, JsonNode section, String sectionName)
+            throws JsonProcessingException {
+        Map<String, StrategyConfig> result = new LinkedHashMap<>(base);
+        Iterator<Map.Entry<String, JsonNode>> it = section.fields();
+        while (it.hasNext()) {
+            Map.Entry<String, JsonNode> entry = it.next();
+            String strategy = entry.getKey();
+            StrategyConfig current = base.get(strategy);
+            if (current == null) {
+                throw new IllegalArgumentException("[" + sectionName + "] стратегия " + strategy + " не имеет настраиваемых параметров");
+            }
+            if (!entry.getValue().isObject()) {
+                throw new IllegalArgumentException("[" + sectionName + "." + strategy + "] ожидается объект");
+            }
+            ObjectNode merged = mapper.valueToTree(current);
+            Iterator<String> names = entry.getValue().fieldNames();
+            while (names.hasNext()) {
+                String name = names.next();
+                if (!merged.has(name)) {
+                    throw new IllegalArgumentException("[" + sectionName + "." + strategy + "] неизвестный параметр " + name);
+                }
+            }
+            merged.setAll((ObjectNode) entry.getValue());
+            StrategyConfig config = mapper.treeToValue(merged, StrategyConfig.class);
+            validate(sectionName + "." + strategy, current, config);
+            result.put(strategy, config);
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    /**
+     * Периоды, используемые стратегией (ненулевые во встроенных параметрах), должны быть положительными;
+     * оконные периоды не длиннее истории контекста.
+     *
+     * @throws IllegalArgumentException если параметры недопустимы
+     */
+    public static void validate(String key, StrategyConfig base, StrategyConfig config) {
+        checkPeriod(key, "rsiPeriod", base.getRsiPeriod(), config.getRsiPeriod(), Integer.MAX_VALUE);
+        checkPeriod(key, "bbPeriod", base.getBbPeriod(), config.getBbPeriod(), InstrumentContext.HISTORY_CAPACITY);
+        checkPeriod(key, "fastEmaPeriod", base.getFastEmaPeriod(), config.getFastEmaPeriod(), Integer.MAX_VALUE);
+        checkPeriod(key, "slowEmaPeriod", base.getSlowEmaPeriod(), config.getSlowEmaPeriod(), Integer.MAX_VALUE);
+        checkPeriod(key, "atrPeriod", base.getAtrPeriod(), config.getAtrPeriod(), Integer.MAX_VALUE);
+        checkPeriod(key, "vwapPeriod", base.getVwapPeriod(), config.getVwapPeriod(), InstrumentContext.HISTORY_CAPACITY);
+        if (config.getRsiLowerThreshold() > config.getRsiUpperThreshold()) {
+            throw new IllegalArgumentException("[" + key + "] rsiLowerThreshold больше rsiUpperThreshold");
+        }
+    }
+
+    private static void checkPeriod(String key, String field, int base, int value, int max) {
+        if (base > 0 && (value <= 0 || value > max)) {
+            throw new IllegalArgumentException("[" + key + "] " + field + "=" + value + " вне диапазона 1.." + max);
+        }
+    }
+
+    private static Map<String, StrategyConfig> builtInConfigs() {
+        Map<String, StrategyConfig> configs = new LinkedHashMap<>();
+        for (StrategyDefinition definition : MultiStrategyManager.DEFINITIONS) {
+            StrategyConfig config = definition.defaultConfig();
+            if (config != null) {
+                configs.put(definition.name(), config);
+            }
+        }
+        return Collections.unmodifiableMap(configs);
+    }
+}
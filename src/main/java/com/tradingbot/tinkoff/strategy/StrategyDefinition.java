@@ -0,0 +1,50 @@
+package com.tradingbot.tinkoff.strategy;
+
+import com.tradingbot.tinkoff.model.TradingSignal;
+
+/**
+ * Неизменяемое описание стратегии, общее для всех инструментов (flyweight).
+ *
+ * Состояние инструмента живет в примитивном блоке {@link InstrumentContext}:
+ * стратегия объявляет его размер и умеет применить к блоку один бар.
+ * Контекст держит зафиксированный блок (закрытые бары) и рабочий блок
+ * (зафиксированный + открытый бар), поэтому замена последнего бара и
+ * интрабар-обновления не требуют пересчета истории.
+ */
+public interface StrategyDefinition {
+
+    String name();
+
+    /**
+     * Число double в блоке состояния (копируется при фиксации и откате бара).
+     */
+    int stateSize();
+
+    /**
+     * Число double, которые не откатываются вместе с баром (например, дебаунс).
+     */
+    default int scratchSize() {
+        return 0;
+    }
+
+    /**
+     * Параметры по умолчанию; у контекста может быть своя версия ({@link InstrumentContext#getConfig(int)}).
+     * {@code null}, если стратегия не настраивается через {@link StrategyConfig}.
+     */
+    default StrategyConfig defaultConfig() {
+        return null;
+    }
+
+    int getUnstablePeriod(InstrumentContext context, int slot);
+
+    /**
+     * Применяет бар с абсолютным индексом {@code bar} из истории контекста к блоку состояния.
+     */
+    void onBar(InstrumentContext context, int slot, double[] state, int offset, int bar);
+
+    /**
+     * Анализ по последнему (открытому) бару: значения берутся из рабочего блока,
+     * значения предыдущего бара — из зафиксированного.
+     */
+    TradingSignal analyzeSignal(InstrumentContext context, int slot);
+}
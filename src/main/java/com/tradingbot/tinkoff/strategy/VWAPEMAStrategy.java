@@ -1,128 +1,139 @@
 package com.tradingbot.tinkoff.strategy;
 
+import com.tradingbot.tinkoff.indicators.Incremental;
+import com.tradingbot.tinkoff.indicators.OrderFlowIndicators;
 import com.tradingbot.tinkoff.model.TradingSignal;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.ta4j.core.BarSeries;
-import org.ta4j.core.indicators.ATRIndicator;
-import org.ta4j.core.indicators.averages.EMAIndicator;
-import org.ta4j.core.indicators.helpers.ClosePriceIndicator;
-import org.ta4j.core.indicators.volume.VWAPIndicator;
-import org.ta4j.core.num.Num;
-import org.ta4j.core.num.DecimalNum;
-
-// Новые импорты для SDK v1.32
-import ru.tinkoff.piapi.contract.v1.OrderBook;
-import ru.tinkoff.piapi.contract.v1.Order;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
-import java.time.ZonedDateTime;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * VWAP и EMA стратегия, адаптированная для Tinkoff SDK v1.32
- * Использует технические индикаторы TA4J и новые типы данных API
+ * VWAP и EMA стратегия: пересечение EMA в направлении тренда относительно VWAP.
+ * Подтверждение по потоку ордеров берется из ленты сделок инструмента
+ * ({@link OrderFlowIndicators}): дисбаланс агрессоров, кумулятивная дельта и крупные принты.
  */
-public class VWAPEMAStrategy {
+public final class VWAPEMAStrategy implements StrategyDefinition {
     private static final Logger logger = LoggerFactory.getLogger(VWAPEMAStrategy.class);
 
-    // Параметры индикаторов
-    private static final int FAST_EMA_PERIOD = 9;
-    private static final int SLOW_EMA_PERIOD = 21;
-    private static final int ATR_PERIOD = 14;
-    private static final int VWAP_PERIOD = 20;
-    private static final int MIN_SIGNAL_SCORE = 70;
-
-    // Индикаторы TA4J
-    private final BarSeries barSeries;
-    private final ClosePriceIndicator closePrice;
-    private final VWAPIndicator vwap;
-    private final EMAIndicator fastEMA;
-    private final EMAIndicator slowEMA;
-    private final ATRIndicator atr;
+    // Общие результаты без сигнала: анализ без сигнала не создает объектов
+    private static final TradingSignal HOLD_WARMUP = TradingSignal.hold("Накопление данных");
+    private static final TradingSignal HOLD_NO_DIRECTION = TradingSignal.hold("Высокий балл, но нет четкого сигнала");
+    private static final TradingSignal HOLD_WEAK = TradingSignal.hold("Слабый сигнал");
+
+    public static final VWAPEMAStrategy INSTANCE = new VWAPEMAStrategy();
+
+    // Параметры индикаторов - StrategyConfig.getVwapEmaConfig() или strategies.json
+    // Дисбаланс агрессоров бара, засчитываемый как поддержка тренда
+    private static final double ORDER_FLOW_IMBALANCE = 0.2;
+    private static final int ORDER_FLOW_MIN_TRADES = 20;
+    private static final int DELTA_BARS = 5;
+    private static final int VOLUME_RANK_PERIOD = 50;
+    private static final double HIGH_VOLUME_RANK = 0.8;
+
+    // Блок состояния
+    private static final int BARS = 0;
+    private static final int PREV_CLOSE = 1;
+    private static final int EMA_FAST = 2;
+    private static final int EMA_SLOW = 3;
+    private static final int ATR = 4;
+    private static final int STATE_SIZE = 5;
 
     // Состояние стратегии
     private final AtomicInteger signalCounter = new AtomicInteger(0);
-    private volatile OrderBook lastOrderBook; // Новый тип из SDK v1.32
-
-    /**
-     * Конструктор стратегии
-     */
-    public VWAPEMAStrategy(BarSeries barSeries) {
-        this.barSeries = barSeries;
-        this.closePrice = new ClosePriceIndicator(barSeries);
-        this.vwap = new VWAPIndicator(barSeries, VWAP_PERIOD);
-        this.fastEMA = new EMAIndicator(closePrice, FAST_EMA_PERIOD);
-        this.slowEMA = new EMAIndicator(closePrice, SLOW_EMA_PERIOD);
-        this.atr = new ATRIndicator(barSeries, ATR_PERIOD);
 
+    private VWAPEMAStrategy() {
+        StrategyConfig config = defaultConfig();
         logger.info("✅ VWAPEMAStrategy инициализирована с параметрами: FastEMA={}, SlowEMA={}, ATR={}, VWAP={}",
-                FAST_EMA_PERIOD, SLOW_EMA_PERIOD, ATR_PERIOD, VWAP_PERIOD);
+                config.getFastEmaPeriod(), config.getSlowEmaPeriod(), config.getAtrPeriod(), config.getVwapPeriod());
+    }
+
+    @Override
+    public StrategyConfig defaultConfig() {
+        return StrategyConfig.getVwapEmaConfig();
+    }
+
+    @Override
+    public String name() {
+        return "VWAP_EMA";
+    }
+
+    @Override
+    public int stateSize() {
+        return STATE_SIZE;
     }
 
     /**
      * Минимальное количество данных для стабильной работы индикаторов
      */
-    public int getUnstablePeriod() {
-        return Math.max(SLOW_EMA_PERIOD, VWAP_PERIOD) + 2;
+    @Override
+    public int getUnstablePeriod(InstrumentContext context, int slot) {
+        StrategyConfig config = context.getConfig(slot);
+        return Math.max(config.getSlowEmaPeriod(), config.getVwapPeriod()) + 2;
     }
 
-    /**
-     * Обновление данных стакана заявок (новый формат SDK v1.32)
-     */
-    public void updateOrderBook(OrderBook orderBook) {
-        if (orderBook != null) {
-            this.lastOrderBook = orderBook;
-            logger.debug("📊 Обновлен стакан для {}: bids={}, asks={}",
-                    orderBook.getFigi(),
-                    orderBook.getBidsCount(),
-                    orderBook.getAsksCount());
-        }
+    @Override
+    public void onBar(InstrumentContext context, int slot, double[] s, int o, int bar) {
+        double close = context.close(bar);
+        boolean first = s[o + BARS] == 0;
+        StrategyConfig config = context.getConfig(slot);
+        s[o + EMA_FAST] = Incremental.ema(s[o + EMA_FAST], close, config.getFastEmaPeriod(), first);
+        s[o + EMA_SLOW] = Incremental.ema(s[o + EMA_SLOW], close, config.getSlowEmaPeriod(), first);
+        s[o + ATR] = Incremental.mma(s[o + ATR], Incremental.trueRange(context.high(bar), context.low(bar), s[o + PREV_CLOSE], first), config.getAtrPeriod(), first);
+        s[o + PREV_CLOSE] = close;
+        s[o + BARS] += 1;
     }
 
     /**
      * Главный метод анализа сигналов
      */
-    public TradingSignal analyzeSignal(com.tradingbot.tinkoff.model.TradableInstrument instrument) {
-        int lastIndex = barSeries.getEndIndex();
+    @Override
+    public TradingSignal analyzeSignal(InstrumentContext context, int slot) {
+        int lastIndex = context.getEndIndex();
 
         // Проверяем достаточность данных
-        if (lastIndex < getUnstablePeriod()) {
-            logger.debug("⏳ Недостаточно данных для анализа. Текущий индекс: {}, требуется: {}",
-                    lastIndex, getUnstablePeriod());
-            return new TradingSignal(TradingSignal.SignalType.HOLD, 0,
-                    "Накопление данных... (" + (lastIndex + 1) + "/" + getUnstablePeriod() + ")");
+        if (lastIndex < getUnstablePeriod(context, slot)) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("⏳ Недостаточно данных для анализа. Текущий индекс: {}, требуется: {}",
+                        lastIndex, getUnstablePeriod(context, slot));
+            }
+            return HOLD_WARMUP;
         }
 
         // Получаем значения индикаторов
-        Num currentPrice = closePrice.getValue(lastIndex);
-        Num currentVWAP = vwap.getValue(lastIndex);
-        Num currentFastEMA = fastEMA.getValue(lastIndex);
-        Num currentSlowEMA = slowEMA.getValue(lastIndex);
-        Num prevFastEMA = fastEMA.getValue(lastIndex - 1);
-        Num prevSlowEMA = slowEMA.getValue(lastIndex - 1);
-        Num currentATR = atr.getValue(lastIndex);
+        StrategyConfig config = context.getConfig(slot);
+        double[] s = context.slab();
+        int w = context.working(slot);
+        int c = context.committed(slot);
+        double currentPrice = context.close(lastIndex);
+        double currentVWAP = context.vwap(lastIndex, config.getVwapPeriod());
+        double currentFastEMA = s[w + EMA_FAST];
+        double currentSlowEMA = s[w + EMA_SLOW];
+        double prevFastEMA = s[c + EMA_FAST];
+        double prevSlowEMA = s[c + EMA_SLOW];
+        double currentATR = s[w + ATR];
 
         // Определяем тренд относительно VWAP
-        TrendDirection trendDirection = currentPrice.isGreaterThan(currentVWAP) ?
+        TrendDirection trendDirection = currentPrice > currentVWAP ?
                 TrendDirection.BULLISH : TrendDirection.BEARISH;
 
         // Определяем пересечения EMA
-        boolean emaCrossoverBullish = prevFastEMA.isLessThanOrEqual(prevSlowEMA) &&
-                currentFastEMA.isGreaterThan(currentSlowEMA);
-        boolean emaCrossoverBearish = prevFastEMA.isGreaterThanOrEqual(prevSlowEMA) &&
-                currentFastEMA.isLessThan(currentSlowEMA);
+        boolean emaCrossoverBullish = prevFastEMA <= prevSlowEMA && currentFastEMA > currentSlowEMA;
+        boolean emaCrossoverBearish = prevFastEMA >= prevSlowEMA && currentFastEMA < currentSlowEMA;
 
         // Рассчитываем балл сигнала
-        int signalScore = calculateSignalScore(trendDirection, emaCrossoverBullish, emaCrossoverBearish,
+        int signalScore = calculateSignalScore(context, trendDirection, emaCrossoverBullish, emaCrossoverBearish,
                 currentPrice, currentVWAP, currentATR);
 
-        logger.debug("📈 Анализ: Price={}, VWAP={}, Trend={}, Score={}",
-                currentPrice.doubleValue(), currentVWAP.doubleValue(), trendDirection, signalScore);
+        if (logger.isDebugEnabled()) {
+            logger.debug("📈 Анализ: Price={}, VWAP={}, Trend={}, Score={}",
+                    currentPrice, currentVWAP, trendDirection, signalScore);
+        }
 
         // Генерируем сигнал если балл достаточно высок
-        if (signalScore >= MIN_SIGNAL_SCORE) {
+        if (signalScore >= config.getMinSignalScore()) {
             TradingSignal.SignalType signalType = TradingSignal.SignalType.HOLD;
 
             if (trendDirection == TrendDirection.BULLISH && emaCrossoverBullish) {
@@ -132,17 +143,15 @@ public class VWAPEMAStrategy {
             }
 
             if (signalType == TradingSignal.SignalType.HOLD) {
-                return new TradingSignal(TradingSignal.SignalType.HOLD, signalScore,
-                        "Высокий балл, но нет четкого сигнала");
+                return HOLD_NO_DIRECTION;
             }
 
             // Создаем детальный сигнал
             return createTradingSignal(signalType, signalScore, trendDirection,
-                    currentPrice, currentATR, instrument);
+                    currentPrice, currentATR, context.getInstrument());
         }
 
-        return new TradingSignal(TradingSignal.SignalType.HOLD, signalScore,
-                "Слабый сигнал (балл < " + MIN_SIGNAL_SCORE + ")");
+        return HOLD_WEAK;
     }
 
     /**
@@ -151,16 +160,16 @@ public class VWAPEMAStrategy {
     private TradingSignal createTradingSignal(TradingSignal.SignalType signalType,
                                               int signalScore,
                                               TrendDirection trendDirection,
-                                              Num currentPrice,
-                                              Num currentATR,
+                                              double currentPrice,
+                                              double currentATR,
                                               com.tradingbot.tinkoff.model.TradableInstrument instrument) {
 
         String description = String.format("%s сигнал - %s тренд по VWAP. Балл: %d",
                 signalType, trendDirection, signalScore);
 
         // Конвертируем в BigDecimal для расчетов
-        BigDecimal entryPrice = ((DecimalNum) currentPrice).getDelegate();
-        BigDecimal atrValue = ((DecimalNum) currentATR).getDelegate();
+        BigDecimal entryPrice = BigDecimal.valueOf(currentPrice);
+        BigDecimal atrValue = BigDecimal.valueOf(currentATR);
 
         // Рассчитываем уровни стоп-лосса и тейк-профита
         BigDecimal stopLoss = calculateStopLoss(entryPrice, atrValue, signalType);
@@ -173,7 +182,6 @@ public class VWAPEMAStrategy {
         signal.setEntryPrice(entryPrice);
         signal.setStopLoss(stopLoss);
         signal.setTakeProfit(takeProfit);
-        signal.setTimestamp(ZonedDateTime.now());
         signal.setSignalId(signalCounter.incrementAndGet());
 
         logger.info("🎯 Сгенерирован сигнал #{}: {} на {} по цене {}, SL: {}, TP: {}",
@@ -186,12 +194,13 @@ public class VWAPEMAStrategy {
     /**
      * Расчет балла сигнала на основе различных факторов
      */
-    private int calculateSignalScore(TrendDirection trend,
+    private int calculateSignalScore(InstrumentContext context,
+                                     TrendDirection trend,
                                      boolean emaCrossoverBullish,
                                      boolean emaCrossoverBearish,
-                                     Num currentPrice,
-                                     Num currentVWAP,
-                                     Num currentATR) {
+                                     double currentPrice,
+                                     double currentVWAP,
+                                     double currentATR) {
         int score = 0;
 
         // Балл за пересечение EMA в направлении тренда (40 баллов)
@@ -202,38 +211,29 @@ public class VWAPEMAStrategy {
         }
 
         // Балл за направление цены относительно VWAP (20 баллов)
-        if ((trend == TrendDirection.BULLISH && currentPrice.isGreaterThan(currentVWAP)) ||
-                (trend == TrendDirection.BEARISH && currentPrice.isLessThan(currentVWAP))) {
+        if ((trend == TrendDirection.BULLISH && currentPrice > currentVWAP) ||
+                (trend == TrendDirection.BEARISH && currentPrice < currentVWAP)) {
             score += 20;
             logger.debug("📊 +20 баллов за подтверждение тренда по VWAP");
         }
 
-        // Анализ стакана заявок (15 баллов) - обновлено для SDK v1.32
-        if (lastOrderBook != null && lastOrderBook.getBidsCount() > 0 && lastOrderBook.getAsksCount() > 0) {
-            long totalBidVolume = lastOrderBook.getBidsList().stream()
-                    .mapToLong(Order::getQuantity)
-                    .sum();
-            long totalAskVolume = lastOrderBook.getAsksList().stream()
-                    .mapToLong(Order::getQuantity)
-                    .sum();
-
-            if ((trend == TrendDirection.BULLISH && totalBidVolume > totalAskVolume * 1.2) ||
-                    (trend == TrendDirection.BEARISH && totalAskVolume > totalBidVolume * 1.2)) {
-                score += 15;
-                logger.debug("📊 +15 баллов за поддержку стакана (Bids: {}, Asks: {})",
-                        totalBidVolume, totalAskVolume);
+        // Анализ потока ордеров (до 25 баллов)
+        score += scoreOrderFlow(context, trend);
+
+        // Объем бара относительно недавних баров (5 баллов): перцентильный ранг вместо абсолютного порога
+        double volumeRank = context.indicators().percentRank(IndicatorRegistry.Source.VOLUME, VOLUME_RANK_PERIOD);
+        if (volumeRank >= HIGH_VOLUME_RANK) {
+            score += 5;
+            if (logger.isDebugEnabled()) {
+                logger.debug("📊 +5 баллов за объем в верхнем квинтиле (ранг {})", volumeRank);
             }
         }
 
         // Анализ волатильности через ATR (10 баллов)
-        BigDecimal atrValue = ((DecimalNum) currentATR).getDelegate();
-        BigDecimal priceValue = ((DecimalNum) currentPrice).getDelegate();
-
-        if (atrValue.compareTo(BigDecimal.ZERO) > 0) {
-            BigDecimal minVolatility = priceValue.multiply(new BigDecimal("0.001")); // 0.1%
-            if (atrValue.compareTo(minVolatility) > 0) {
-                score += 10;
-                logger.debug("📊 +10 баллов за достаточную волатильность (ATR: {})", atrValue);
+        if (currentATR > 0 && currentATR > currentPrice * 0.001) { // 0.1%
+            score += 10;
+            if (logger.isDebugEnabled()) {
+                logger.debug("📊 +10 баллов за достаточную волатильность (ATR: {})", currentATR);
             }
         }
 
@@ -243,6 +243,44 @@ public class VWAPEMAStrategy {
         return finalScore;
     }
 
+    /**
+     * Поток ордеров открытого бара: дисбаланс агрессоров в сторону тренда (15 баллов),
+     * кумулятивная дельта последних {@value #DELTA_BARS} баров (5 баллов) и крупный принт (5 баллов).
+     */
+    private int scoreOrderFlow(InstrumentContext context, TrendDirection trend) {
+        OrderFlowIndicators flow = context.getOrderFlow();
+        int lastIndex = context.getEndIndex();
+        long barTime = context.time(lastIndex);
+        if (flow == null || flow.tradeCount(barTime) < ORDER_FLOW_MIN_TRADES) {
+            return 0;
+        }
+        int side = trend == TrendDirection.BULLISH ? OrderFlowIndicators.BUY : OrderFlowIndicators.SELL;
+
+        int score = 0;
+        double imbalance = flow.imbalance(barTime);
+        if (imbalance * side > ORDER_FLOW_IMBALANCE) {
+            score += 15;
+            if (logger.isDebugEnabled()) {
+                logger.debug("📊 +15 баллов за дисбаланс агрессоров ({})", imbalance);
+            }
+        }
+        double delta = 0;
+        for (int bar = Math.max(0, lastIndex - DELTA_BARS + 1); bar <= lastIndex; bar++) {
+            delta += flow.barDelta(context.time(bar));
+        }
+        if (delta * side > 0) {
+            score += 5;
+            if (logger.isDebugEnabled()) {
+                logger.debug("📊 +5 баллов за кумулятивную дельту {} за {} баров", delta, DELTA_BARS);
+            }
+        }
+        if (flow.largePrints(barTime, side) > 0) {
+            score += 5;
+            logger.debug("📊 +5 баллов за крупный принт в сторону тренда");
+        }
+        return score;
+    }
+
     /**
      * Расчет уровня стоп-лосса на основе ATR
      */
@@ -0,0 +1,137 @@
+package com.tradingbot.tinkoff.backtest;
+
+import com.tradingbot.tinkoff.backtest.OrderBookSimulator.OrderStatus;
+import com.tradingbot.tinkoff.backtest.OrderBookSimulator.OrderType;
+import com.tradingbot.tinkoff.backtest.OrderBookSimulator.SimulatedOrder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Очередь лимитных приказов и исполнение по стакану и ленте сделок.
+ */
+class OrderBookSimulatorTest {
+
+    private final List<Double> fillPrices = new ArrayList<>();
+    private OrderBookSimulator simulator;
+
+    @BeforeEach
+    void setUp() {
+        simulator = new OrderBookSimulator((order, lots, price, time) -> fillPrices.add(price), 0, 0, 1);
+        // Покупки 100.0/99.8/99.7 (уровня 99.9 нет), продажи 100.1/100.2
+        MarketEvent book = new MarketEvent();
+        book.setOrderBook(0);
+        book.addBid(100.0, 5);
+        book.addBid(99.8, 7);
+        book.addBid(99.7, 4);
+        book.addAsk(100.1, 3);
+        book.addAsk(100.2, 6);
+        simulator.onEvent(book);
+    }
+
+    @Test
+    void limitOrderQueuesBehindItsLevel() {
+        SimulatedOrder order = submitLimit(1, 2, 99.8);
+        assertEquals(OrderStatus.ACTIVE, order.getStatus());
+        assertEquals(7, order.getQueueAhead());
+
+        trade(99.8, 4, -1);
+        assertEquals(3, order.getQueueAhead());
+        assertEquals(0, order.getFilledLots());
+
+        // Сделка покупателя по той же цене не из очереди покупок
+        trade(99.8, 10, 1);
+        assertEquals(3, order.getQueueAhead());
+
+        trade(99.8, 4, -1);
+        assertEquals(0, order.getQueueAhead());
+        assertEquals(1, order.getFilledLots());
+        assertEquals(OrderStatus.ACTIVE, order.getStatus());
+    }
+
+    @Test
+    void emptyPriceInsideDepthIsFirstInQueue() {
+        SimulatedOrder order = submitLimit(1, 2, 99.9);
+        assertEquals(0, order.getQueueAhead());
+
+        trade(99.9, 2, -1);
+        assertEquals(OrderStatus.FILLED, order.getStatus());
+        assertEquals(List.of(99.9), fillPrices);
+    }
+
+    @Test
+    void priceBeyondDepthWaitsForWorseTrade() {
+        SimulatedOrder order = submitLimit(-1, 2, 100.5);
+        assertEquals(Long.MAX_VALUE, order.getQueueAhead());
+
+        trade(100.5, 100, 1);
+        assertEquals(0, order.getFilledLots());
+
+        trade(100.6, 1, 1);
+        assertEquals(OrderStatus.FILLED, order.getStatus());
+        assertEquals(List.of(100.5), fillPrices);
+    }
+
+    @Test
+    void shrinkingLevelShortensQueue() {
+        SimulatedOrder order = submitLimit(1, 1, 99.8);
+        MarketEvent book = new MarketEvent();
+        book.setOrderBook(10);
+        book.addBid(100.0, 5);
+        book.addBid(99.8, 2);
+        book.addAsk(100.1, 3);
+        simulator.onEvent(book);
+        assertEquals(2, order.getQueueAhead());
+
+        // Уровень исчез, но цена осталась в пределах глубины: перед приказом никого
+        book.setOrderBook(20);
+        book.addBid(100.0, 5);
+        book.addBid(99.7, 2);
+        book.addAsk(100.1, 3);
+        simulator.onEvent(book);
+        assertEquals(0, order.getQueueAhead());
+    }
+
+    @Test
+    void marketOrderWalksLevelsAtAveragePrice() {
+        SimulatedOrder order = simulator.submit(OrderType.MARKET, 1, 5, Double.NaN, Double.NaN, 0);
+        simulator.processArrivals(0);
+        assertEquals(OrderStatus.FILLED, order.getStatus());
+        assertEquals((3 * 100.1 + 2 * 100.2) / 5, order.getAverageFillPrice(), 1e-9);
+
+        // Взятая ликвидность вычтена из стакана до следующего снимка
+        SimulatedOrder rest = simulator.submit(OrderType.MARKET, 1, 10, Double.NaN, Double.NaN, 0);
+        simulator.processArrivals(0);
+        assertEquals(4, rest.getFilledLots());
+        assertEquals(OrderStatus.CANCELLED, rest.getStatus());
+    }
+
+    @Test
+    void crossingBookFillsAtLimitPrice() {
+        SimulatedOrder order = submitLimit(1, 2, 99.9);
+        MarketEvent book = new MarketEvent();
+        book.setOrderBook(10);
+        book.addBid(99.8, 5);
+        book.addAsk(99.85, 1);
+        book.addAsk(99.95, 4);
+        simulator.onEvent(book);
+        assertEquals(1, order.getFilledLots());
+        assertEquals(List.of(99.9), fillPrices);
+    }
+
+    private SimulatedOrder submitLimit(int side, long lots, double price) {
+        SimulatedOrder order = simulator.submit(OrderType.LIMIT, side, lots, price, Double.NaN, 0);
+        simulator.processArrivals(0);
+        return order;
+    }
+
+    private void trade(double price, long quantity, int side) {
+        MarketEvent event = new MarketEvent();
+        event.setTrade(5, price, quantity, side);
+        simulator.onEvent(event);
+    }
+}
@@ -0,0 +1,135 @@
+package com.tradingbot.tinkoff.indicators;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * {@link RollingExtrema} и {@link RollingOrderStatistics} совпадают с полным перебором окна
+ * на случайной последовательности push/replaceLast/clear: значения с частыми повторами,
+ * окна на границах степеней двойки (емкость кольца) и длиннее числа значений.
+ */
+class RollingWindowParityTest {
+    private static final int STEPS = 2_000;
+    private static final double[] QUANTILES = {0, 0.1, 0.25, 0.5, 0.9, 1};
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 3, 4, 5, 7, 8, 9, 16, 33, 64, 128})
+    void matchesNaiveWindow(int window) {
+        SplittableRandom random = new SplittableRandom(17L * window + 3);
+        RollingExtrema extrema = new RollingExtrema(window);
+        RollingOrderStatistics statistics = new RollingOrderStatistics(window);
+        List<Double> values = new ArrayList<>();
+
+        for (int step = 0; step < STEPS; step++) {
+            int action = random.nextInt(100);
+            // Небольшой набор уровней дает повторы внутри окна и вытеснение одного из равных значений
+            double value = random.nextInt(12) * 0.5;
+            if (action < 2) {
+                extrema.clear();
+                statistics.clear();
+                values.clear();
+            } else if (action < 35) {
+                extrema.replaceLast(value);
+                statistics.replaceLast(value);
+                if (values.isEmpty()) {
+                    values.add(value);
+                } else {
+                    values.set(values.size() - 1, value);
+                }
+            } else {
+                extrema.push(value);
+                statistics.push(value);
+                values.add(value);
+            }
+            assertWindow(window, step, values, extrema, statistics);
+        }
+    }
+
+    private static void assertWindow(int window, int step, List<Double> values,
+                                     RollingExtrema extrema, RollingOrderStatistics statistics) {
+        int from = Math.max(0, values.size() - window);
+        double[] current = values.subList(from, values.size()).stream().mapToDouble(Double::doubleValue).toArray();
+        double[] previous = Arrays.copyOf(current, Math.max(0, current.length - 1));
+        String where = "окно " + window + ", шаг " + step;
+
+        assertEquals(current.length, extrema.size(), where);
+        assertEquals(current.length, statistics.size(), where);
+        assertEquals(max(current), extrema.max(), where);
+        assertEquals(min(current), extrema.min(), where);
+        assertEquals(max(previous), extrema.previousMax(), where);
+        assertEquals(min(previous), extrema.previousMin(), where);
+
+        double[] sorted = current.clone();
+        Arrays.sort(sorted);
+        for (int k = 0; k < sorted.length; k++) {
+            assertEquals(sorted[k], statistics.select(k), where + ", k=" + k);
+        }
+        for (double x : new double[]{-1, 0, 2.5, 3, 5.5, 10}) {
+            assertEquals(countLess(current, x), statistics.countLess(x), where + ", x=" + x);
+            assertEquals(countLessOrEqual(current, x), statistics.countLessOrEqual(x), where + ", x=" + x);
+            assertEquals(percentRank(current, x), statistics.percentRank(x), where + ", x=" + x);
+        }
+        double last = current.length > 0 ? current[current.length - 1] : Double.NaN;
+        assertEquals(percentRank(current, last), statistics.percentRankOfLast(), where);
+        for (double q : QUANTILES) {
+            assertEquals(quantile(sorted, q), statistics.quantile(q), where + ", q=" + q);
+        }
+    }
+
+    private static double max(double[] values) {
+        double result = Double.NEGATIVE_INFINITY;
+        for (double value : values) {
+            result = Math.max(result, value);
+        }
+        return result;
+    }
+
+    private static double min(double[] values) {
+        double result = Double.POSITIVE_INFINITY;
+        for (double value : values) {
+            result = Math.min(result, value);
+        }
+        return result;
+    }
+
+    private static int countLess(double[] values, double x) {
+        int result = 0;
+        for (double value : values) {
+            result += value < x ? 1 : 0;
+        }
+        return result;
+    }
+
+    private static int countLessOrEqual(double[] values, double x) {
+        int result = 0;
+        for (double value : values) {
+            result += value <= x ? 1 : 0;
+        }
+        return result;
+    }
+
+    private static double percentRank(double[] values, double x) {
+        if (values.length == 0) {
+            return Double.NaN;
+        }
+        int less = countLess(values, x);
+        return (less + 0.5 * (countLessOrEqual(values, x) - less)) / values.length;
+    }
+
+    private static double quantile(double[] sorted, double q) {
+        if (sorted.length == 0) {
+            return Double.NaN;
+        }
+        double position = q * (sorted.length - 1);
+        int lower = (int) Math.floor(position);
+        double fraction = position - lower;
+        return fraction == 0 ? sorted[lower] : sorted[lower] + (sorted[lower + 1] - sorted[lower]) * fraction;
+    }
+}
@@ -0,0 +1,85 @@
+package com.tradingbot.tinkoff.indicators.batch;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Векторная и скалярная реализации пакетных индикаторов совпадают побитово, в том числе
+ * на ширинах, не кратных числу линий вектора (хвост считается скалярно).
+ */
+class BatchKernelsParityTest {
+    private static final int BARS = 257;
+    private static final int[] PERIODS = {1, 2, 3, 14, 20, 64};
+
+    private final BatchKernels scalar = new ScalarBatchKernels();
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 3, 5, 7, 9, 13, 17, 31, 33, 63})
+    void vectorMatchesScalarBitwise(int width) {
+        assumeTrue(ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent(),
+                "JVM запущена без --add-modules jdk.incubator.vector");
+        BatchKernels vector = new VectorBatchKernels();
+
+        SplittableRandom random = new SplittableRandom(31L * width + 7);
+        int length = width * BARS;
+        double[] high = new double[length];
+        double[] low = new double[length];
+        double[] close = new double[length];
+        double[] volume = new double[length];
+        for (int s = 0; s < width; s++) {
+            double price = 50 + random.nextDouble() * 100;
+            for (int t = 0; t < BARS; t++) {
+                int i = t * width + s;
+                price = Math.max(1, price * (1 + (random.nextDouble() - 0.5) * 0.01));
+                close[i] = price;
+                high[i] = price * (1 + random.nextDouble() * 0.005);
+                low[i] = price * (1 - random.nextDouble() * 0.005);
+                // Нулевой объем проверяет ветку VWAP по типичной цене
+                volume[i] = random.nextInt(10) == 0 ? 0 : random.nextInt(10_000);
+            }
+        }
+
+        double[] expected = new double[length];
+        double[] actual = new double[length];
+
+        scalar.trueRange(high, low, close, width, BARS, expected);
+        vector.trueRange(high, low, close, width, BARS, actual);
+        assertBitwiseEqual("trueRange", width, 0, expected, actual);
+
+        for (int period : PERIODS) {
+            scalar.sma(close, width, BARS, period, expected);
+            vector.sma(close, width, BARS, period, actual);
+            assertBitwiseEqual("sma", width, period, expected, actual);
+
+            scalar.stdDev(close, width, BARS, period, expected);
+            vector.stdDev(close, width, BARS, period, actual);
+            assertBitwiseEqual("stdDev", width, period, expected, actual);
+
+            scalar.vwap(high, low, close, volume, width, BARS, period, expected);
+            vector.vwap(high, low, close, volume, width, BARS, period, actual);
+            assertBitwiseEqual("vwap", width, period, expected, actual);
+
+            scalar.rollingMax(high, width, BARS, period, expected);
+            vector.rollingMax(high, width, BARS, period, actual);
+            assertBitwiseEqual("rollingMax", width, period, expected, actual);
+
+            scalar.rollingMin(low, width, BARS, period, expected);
+            vector.rollingMin(low, width, BARS, period, actual);
+            assertBitwiseEqual("rollingMin", width, period, expected, actual);
+        }
+    }
+
+    private static void assertBitwiseEqual(String kernel, int width, int period, double[] expected, double[] actual) {
+        for (int i = 0; i < width * BARS; i++) {
+            int index = i;
+            assertEquals(Double.doubleToRawLongBits(expected[i]), Double.doubleToRawLongBits(actual[i]),
+                    () -> String.format("%s(width=%d, period=%d): бар %d, серия %d: %s != %s", kernel, width, period,
+                            index / width, index % width, expected[index], actual[index]));
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.tradingbot.tinkoff.monitoring;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Счетчик байт, выделенных текущим потоком (HotSpot ThreadMXBean).
+ * Для тестов и бенчмарков: проверка, что горячий путь анализа не создает мусора.
+ */
+public final class AllocationProbe {
+    private static final com.sun.management.ThreadMXBean THREADS = resolve();
+
+    private AllocationProbe() {
+    }
+
+    public static boolean isSupported() {
+        return THREADS != null;
+    }
+
+    /**
+     * Байты, выделенные текущим потоком с его старта; -1, если счетчик недоступен.
+     */
+    public static long currentThreadAllocatedBytes() {
+        return THREADS != null ? THREADS.getCurrentThreadAllocatedBytes() : -1;
+    }
+
+    private static com.sun.management.ThreadMXBean resolve() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean threads && threads.isThreadAllocatedMemorySupported()) {
+            if (!threads.isThreadAllocatedMemoryEnabled()) {
+                threads.setThreadAllocatedMemoryEnabled(true);
+            }
+            return threads;
+        }
+        return null;
+    }
+}
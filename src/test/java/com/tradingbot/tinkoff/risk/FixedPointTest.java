@@ -0,0 +1,31 @@
+package com.tradingbot.tinkoff.risk;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Переполнение при переводе в нано-единицы и ppm насыщается, как в арифметике класса.
+ */
+class FixedPointTest {
+
+    @Test
+    void conversionsRoundHalfUp() {
+        assertEquals(1_500_000_000L, FixedPoint.toNanos(new BigDecimal("1.5")));
+        assertEquals(2L, FixedPoint.toNanos(new BigDecimal("0.0000000015")));
+        assertEquals(15_000L, FixedPoint.percentToPpm(new BigDecimal("1.5")));
+    }
+
+    @Test
+    void overflowSaturates() {
+        assertEquals(Long.MAX_VALUE, FixedPoint.toNanos(new BigDecimal("1e10")));
+        assertEquals(Long.MIN_VALUE, FixedPoint.toNanos(new BigDecimal("-1e10")));
+        assertEquals(Long.MAX_VALUE, FixedPoint.toNanos(new BigDecimal("1e1000000")));
+        assertEquals(Long.MAX_VALUE, FixedPoint.percentToPpm(new BigDecimal("1e20")));
+        // Значения на границе диапазона переводятся точно
+        assertEquals(Long.MAX_VALUE, FixedPoint.toNanos(FixedPoint.toBigDecimal(Long.MAX_VALUE)));
+        assertEquals(Long.MAX_VALUE - 1, FixedPoint.toNanos(FixedPoint.toBigDecimal(Long.MAX_VALUE - 1)));
+    }
+}
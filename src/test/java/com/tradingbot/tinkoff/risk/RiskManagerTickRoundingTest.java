@@ -0,0 +1,53 @@
+package com.tradingbot.tinkoff.risk;
+
+import com.tradingbot.tinkoff.execution.AccountSnapshot;
+import com.tradingbot.tinkoff.model.TradableInstrument;
+import com.tradingbot.tinkoff.model.TradingSignal;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Уровни по шагу цены возвращаются в результате проверки, сигнал вызывающего не меняется.
+ */
+class RiskManagerTickRoundingTest {
+
+    private final TradableInstrument instrument =
+            new TradableInstrument("TEST", "TEST00000000", TradableInstrument.InstrumentType.STOCK, "rub", 0.05);
+    private final AccountSnapshot account = new AccountSnapshot(
+            new BigDecimal("1000000"), new BigDecimal("1000000"), BigDecimal.ZERO, BigDecimal.ZERO);
+
+    @Test
+    void buyLevelsRoundDownWithoutTouchingSignal() {
+        TradingSignal signal = signal(TradingSignal.SignalType.BUY, "100", "98.97", "103.03");
+        RiskManager.ValidationResult result = RiskManager.withDefaults(null).validateSignal(instrument, signal, account);
+
+        assertTrue(result.isValid(), result::getMessage);
+        assertEquals(0, new BigDecimal("98.95").compareTo(result.getStopLoss()));
+        assertEquals(0, new BigDecimal("103.00").compareTo(result.getTakeProfit()));
+        assertEquals(new BigDecimal("98.97"), signal.getStopLoss());
+        assertEquals(new BigDecimal("103.03"), signal.getTakeProfit());
+    }
+
+    @Test
+    void sellLevelsRoundUp() {
+        TradingSignal signal = signal(TradingSignal.SignalType.SELL, "100", "101.02", "96.98");
+        RiskManager.ValidationResult result = RiskManager.withDefaults(null).validateSignal(instrument, signal, account);
+
+        assertTrue(result.isValid(), result::getMessage);
+        assertEquals(0, new BigDecimal("101.05").compareTo(result.getStopLoss()));
+        assertEquals(0, new BigDecimal("97.00").compareTo(result.getTakeProfit()));
+        assertEquals(new BigDecimal("101.02"), signal.getStopLoss());
+    }
+
+    private static TradingSignal signal(TradingSignal.SignalType type, String entry, String stop, String target) {
+        TradingSignal signal = new TradingSignal(type, 80, "test");
+        signal.setEntryPrice(new BigDecimal(entry));
+        signal.setStopLoss(new BigDecimal(stop));
+        signal.setTakeProfit(new BigDecimal(target));
+        return signal;
+    }
+}
@@ -0,0 +1,43 @@
+package com.tradingbot.tinkoff.rules;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Числа в правилах: дробные и с порядком, как в default.rules.
+ */
+class RuleCompilerNumberTest {
+
+    @Test
+    void acceptsExponentNotation() {
+        Properties source = new Properties();
+        source.setProperty("param.threshold", "2.5E+3");
+        source.setProperty("entry.long", "price > threshold");
+        source.setProperty("score", "max(atr, 1e-7) + 1E2 + .5e1");
+        RuleProgram program = RuleCompiler.compile("test", source).getProgram();
+
+        double[] v = new double[RuleVariables.COUNT];
+        v[RuleVariables.PRICE] = 2_501;
+        assertTrue(program.entryLong(v));
+        assertEquals(1e-7 + 100 + 5, program.score(v));
+    }
+
+    @Test
+    void exponentNeedsDigits() {
+        // Без цифр после e буква остается началом имени и отвергается как неизвестная
+        assertThrows(IllegalArgumentException.class, () -> RuleCompiler.translate("score", "2e", Map.of()));
+        assertThrows(IllegalArgumentException.class, () -> RuleCompiler.translate("score", "2e+", Map.of()));
+        assertEquals("(1.0E-7 - 3.0 )", RuleCompiler.translate("score", "1e-7-3", Map.of()));
+    }
+
+    @Test
+    void rejectsNumbersOutsideDoubleRange() {
+        assertThrows(IllegalArgumentException.class, () -> RuleCompiler.translate("score", "1e400", Map.of()));
+    }
+}
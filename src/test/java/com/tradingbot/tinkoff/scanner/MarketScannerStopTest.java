@@ -0,0 +1,35 @@
+package com.tradingbot.tinkoff.scanner;
+
+import com.tradingbot.tinkoff.model.TradableInstrument;
+import org.junit.jupiter.api.Test;
+import ru.tinkoff.piapi.contract.v1.CandleInterval;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Остановка, пришедшая раньше фонового запуска, не оставляет работающий сканер.
+ */
+class MarketScannerStopTest {
+
+    @Test
+    void startAfterStopDoesNothing() {
+        MarketScanner scanner = new MarketScanner(null, new ScannerListener() {
+            @Override
+            public boolean onPromote(TradableInstrument instrument, double score) {
+                return false;
+            }
+
+            @Override
+            public void onDemote(TradableInstrument instrument, double score) {
+            }
+        }, 1);
+        scanner.stop();
+        scanner.start(List.of(), CandleInterval.CANDLE_INTERVAL_1_MIN);
+
+        boolean orphaned = Thread.getAllStackTraces().keySet().stream()
+                .anyMatch(thread -> thread.getName().startsWith("Market-Scanner"));
+        assertFalse(orphaned, "Потоки сканера запущены после остановки");
+    }
+}
@@ -0,0 +1,75 @@
+package com.tradingbot.tinkoff.strategy;
+
+import com.tradingbot.tinkoff.model.TradableInstrument;
+import com.tradingbot.tinkoff.monitoring.AllocationProbe;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Анализ без сигналов не создает мусора: все стратегии, прогретый код, счетчик выделений потока.
+ */
+class AnalyzeAllAllocationTest {
+    private static final long START_MILLIS = 1_709_276_400_000L; // 2024-03-01 10:00 МСК
+    private static final long BAR_MILLIS = 60_000L;
+    private static final int HISTORY = 300;
+    private static final int WARMUP_CALLS = 100_000;
+    private static final int MEASURED_CALLS = 10_000;
+    private static final int MEASURED_ROUNDS = 3;
+
+    private final TradableInstrument instrument =
+            new TradableInstrument("TEST", "TEST00000000", TradableInstrument.InstrumentType.STOCK, "rub");
+    private MultiStrategyManager strategyManager;
+
+    @BeforeEach
+    void setUp() {
+        strategyManager = new MultiStrategyManager(instrument, MultiStrategyManager.getAvailableStrategyNames());
+    }
+
+    @AfterEach
+    void tearDown() {
+        strategyManager.release();
+    }
+
+    @Test
+    void analysisWithoutSignalsAllocatesNothing() {
+        assumeTrue(AllocationProbe.isSupported(), "Счетчик выделений потока недоступен в этой JVM");
+
+        // Случайное блуждание до состояния, в котором ни одна стратегия не дает сигнала
+        SplittableRandom random = new SplittableRandom(42);
+        double close = 100;
+        int bar = 0;
+        while (bar < HISTORY || !strategyManager.analyzeAll(instrument).isEmpty()) {
+            assumeTrue(bar < HISTORY * 10, "Не найден бар без сигналов");
+            double open = close;
+            close = Math.max(1, open * (1 + (random.nextDouble() - 0.5) * 0.004));
+            double high = Math.max(open, close) * (1 + random.nextDouble() * 0.001);
+            double low = Math.min(open, close) * (1 - random.nextDouble() * 0.001);
+            strategyManager.onCandle(START_MILLIS + bar++ * BAR_MILLIS, open, high, low, close, 100 + random.nextInt(10_000));
+        }
+
+        for (int i = 0; i < WARMUP_CALLS; i++) {
+            strategyManager.analyzeAll(instrument);
+        }
+
+        // Деоптимизация посреди замера (профиль испорчен другими тестами той же JVM) один раз
+        // материализует устраненные объекты; выделения на каждом вызове повторяются в каждом раунде
+        long allocated = -1;
+        for (int round = 0; round < MEASURED_ROUNDS && allocated != 0; round++) {
+            long before = AllocationProbe.currentThreadAllocatedBytes();
+            int signals = 0;
+            for (int i = 0; i < MEASURED_CALLS; i++) {
+                signals += strategyManager.analyzeAll(instrument).size();
+            }
+            allocated = AllocationProbe.currentThreadAllocatedBytes() - before;
+            assertEquals(0, signals, "Состояние без сигналов изменилось между вызовами");
+        }
+
+        assertEquals(0, allocated, "Байт выделено за " + MEASURED_CALLS + " вызовов analyzeAll");
+    }
+}
@@ -0,0 +1,139 @@
+package com.tradingbot.tinkoff.strategy;
+
+import com.tradingbot.tinkoff.model.TradableInstrument;
+import com.tradingbot.tinkoff.strategy.IndicatorRegistry.Source;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Окна {@link IndicatorRegistry} совпадают с перебором истории контекста при ленивой синхронизации:
+ * промежуточные свечи и тики открытого бара, исправления закрытого бара, пропуск запросов дольше окна
+ * и новые периоды, запрошенные посреди потока (окно создается и засевается из истории).
+ */
+class IndicatorRegistryParityTest {
+    private static final long START_MILLIS = 1_709_276_400_000L; // 2024-03-01 10:00 МСК
+    private static final long BAR_MILLIS = 60_000L;
+    private static final int BARS = 400; // Больше глубины истории: окна проходят через перенос кольца
+    private static final int[] PERIODS = {1, 2, 5, 14, 20, 64, InstrumentContext.HISTORY_CAPACITY - 1};
+    private static final double[] QUANTILES = {0, 0.2, 0.5, 0.95, 1};
+
+    private final TradableInstrument instrument =
+            new TradableInstrument("TEST", "TEST00000000", TradableInstrument.InstrumentType.STOCK, "rub");
+    private InstrumentContext context;
+
+    @BeforeEach
+    void setUp() {
+        context = new InstrumentContext(instrument, new InstrumentContext.Layout(MultiStrategyManager.DEFINITIONS));
+    }
+
+    @AfterEach
+    void tearDown() {
+        context.release();
+    }
+
+    @Test
+    void windowsMatchNaiveScanOfHistory() {
+        SplittableRandom random = new SplittableRandom(2024);
+        double price = 100;
+        for (int bar = 0; bar < BARS; bar++) {
+            long time = START_MILLIS + bar * BAR_MILLIS;
+            // Цены по шагу 0.5 и объем из нескольких значений: в окнах много равных значений
+            price = Math.max(10, price + (random.nextInt(5) - 2) * 0.5);
+            double open = price;
+            double close = Math.max(10, price + (random.nextInt(5) - 2) * 0.5);
+            double volume = 100 * random.nextInt(1, 6);
+            context.onCandle(time, open, Math.max(open, close), Math.min(open, close), close, volume);
+            check(random, bar);
+
+            // Тики открытого бара заменяют последнее значение окон
+            for (int tick = 0; tick < 2; tick++) {
+                close = Math.max(10, close + (random.nextInt(3) - 1) * 0.5);
+                context.onTick(time + (tick + 1) * 1_000L, close, random.nextInt(3));
+                check(random, bar);
+            }
+            // Исправление предыдущего закрытого бара пересобирает окна
+            if (bar > 1 && random.nextInt(13) == 0) {
+                long previous = time - BAR_MILLIS;
+                int revised = context.getEndIndex() - 1;
+                context.onCandle(previous, context.open(revised), context.high(revised) + 0.5,
+                        context.low(revised), context.close(revised), context.volume(revised) + 100);
+                check(random, bar);
+            }
+            price = close;
+        }
+    }
+
+    /**
+     * Часть запросов пропускается, чтобы окна догоняли несколько баров сразу или пересобирались.
+     */
+    private void check(SplittableRandom random, int bar) {
+        IndicatorRegistry indicators = context.indicators();
+        for (Source source : Source.values()) {
+            for (int period : PERIODS) {
+                // Длинные окна появляются позже: засев из истории уже заполненного кольца
+                if (period > 20 && bar < 150 || random.nextInt(4) == 0) {
+                    continue;
+                }
+                String where = source + "/" + period + ", бар " + bar;
+                double[] current = window(source, period, 0);
+                double[] previous = window(source, period, 1);
+                assertEquals(max(current), indicators.highest(source, period), where);
+                assertEquals(min(current), indicators.lowest(source, period), where);
+                assertEquals(max(previous), indicators.previousHighest(source, period), where);
+                assertEquals(min(previous), indicators.previousLowest(source, period), where);
+
+                double last = source.value(context, context.getEndIndex());
+                assertEquals(percentRank(current, last), indicators.percentRank(source, period), where);
+                double[] sorted = current.clone();
+                Arrays.sort(sorted);
+                for (double q : QUANTILES) {
+                    assertEquals(quantile(sorted, q), indicators.quantile(source, period, q), where + ", q=" + q);
+                }
+            }
+        }
+    }
+
+    /**
+     * Значения period баров, заканчивающихся за skip баров до текущего, в пределах глубины истории.
+     */
+    private double[] window(Source source, int period, int skip) {
+        int end = context.getEndIndex() - skip;
+        int first = Math.max(Math.max(0, end - period + 1), context.getBarCount() - InstrumentContext.HISTORY_CAPACITY);
+        double[] values = new double[Math.max(0, end - first + 1)];
+        for (int bar = first; bar <= end; bar++) {
+            values[bar - first] = source.value(context, bar);
+        }
+        return values;
+    }
+
+    private static double max(double[] values) {
+        return Arrays.stream(values).max().orElse(Double.NEGATIVE_INFINITY);
+    }
+
+    private static double min(double[] values) {
+        return Arrays.stream(values).min().orElse(Double.POSITIVE_INFINITY);
+    }
+
+    private static double percentRank(double[] values, double x) {
+        int less = 0;
+        int equal = 0;
+        for (double value : values) {
+            less += value < x ? 1 : 0;
+            equal += value == x ? 1 : 0;
+        }
+        return (less + 0.5 * equal) / values.length;
+    }
+
+    private static double quantile(double[] sorted, double q) {
+        double position = q * (sorted.length - 1);
+        int lower = (int) Math.floor(position);
+        double fraction = position - lower;
+        return fraction == 0 ? sorted[lower] : sorted[lower] + (sorted[lower + 1] - sorted[lower]) * fraction;
+    }
+}
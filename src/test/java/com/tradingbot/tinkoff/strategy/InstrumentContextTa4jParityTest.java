@@ -0,0 +1,160 @@
+package com.tradingbot.tinkoff.strategy;
+
+import com.tradingbot.tinkoff.indicators.Incremental;
+import com.tradingbot.tinkoff.model.TradableInstrument;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.ta4j.core.BarSeries;
+import org.ta4j.core.BaseBarSeriesBuilder;
+import org.ta4j.core.Indicator;
+import org.ta4j.core.indicators.ATRIndicator;
+import org.ta4j.core.indicators.RSIIndicator;
+import org.ta4j.core.indicators.adx.ADXIndicator;
+import org.ta4j.core.indicators.averages.EMAIndicator;
+import org.ta4j.core.indicators.helpers.ClosePriceIndicator;
+import org.ta4j.core.indicators.statistics.StandardDeviationIndicator;
+import org.ta4j.core.indicators.volume.VWAPIndicator;
+import org.ta4j.core.num.DoubleNumFactory;
+import org.ta4j.core.num.Num;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Инкрементальные индикаторы {@link InstrumentContext} совпадают с ta4j на одной и той же серии:
+ * EMA, RSI, ATR и ADX из блоков состояния стратегий, VWAP и StdDev из оконного пересчета.
+ *
+ * Бары приходят как в живом стриме: сначала промежуточная свеча открытого бара, затем окончательная,
+ * а часть закрытых баров исправляется после открытия следующего (откатный блок).
+ */
+class InstrumentContextTa4jParityTest {
+    private static final long START_MILLIS = 1_709_276_400_000L; // 2024-03-01 10:00 МСК
+    private static final long BAR_MILLIS = 60_000L;
+    private static final int BARS = 400; // Больше глубины истории: окна проходят через перенос кольца
+    private static final int CORRECTION_EVERY = 17;
+    private static final int[] WINDOW_PERIODS = {1, 5, 20, 96, InstrumentContext.HISTORY_CAPACITY};
+    private static final double TOLERANCE = 1e-9;
+
+    private static final int TREND = 0;
+    private static final int REVERSION = 1;
+
+    private final TradableInstrument instrument =
+            new TradableInstrument("TEST", "TEST00000000", TradableInstrument.InstrumentType.STOCK, "rub");
+    private InstrumentContext context;
+
+    @BeforeEach
+    void setUp() {
+        context = new InstrumentContext(instrument, new InstrumentContext.Layout(
+                List.of(AdaptiveTrendStrategy.INSTANCE, MeanReversionStrategy.CONSERVATIVE)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        context.release();
+    }
+
+    @Test
+    void incrementalIndicatorsMatchTa4j() {
+        // Окончательные бары серии; для исправляемых баров отдельно значения до исправления
+        SplittableRandom random = new SplittableRandom(20240301);
+        double[][] bars = new double[BARS][];
+        double[][] uncorrected = new double[BARS][];
+        double close = 100;
+        for (int i = 0; i < BARS; i++) {
+            double open = close;
+            close = Math.max(1, open * (1 + (random.nextDouble() - 0.5) * 0.01));
+            bars[i] = bar(random, open, close, i % 23 == 0 ? 0 : 100 + random.nextInt(10_000));
+            if (i % CORRECTION_EVERY == 0 && i + 1 < BARS) {
+                uncorrected[i] = bar(random, open, open + (close - open) / 2, 50 + random.nextInt(1_000));
+            }
+        }
+
+        BarSeries series = new BaseBarSeriesBuilder().withNumFactory(DoubleNumFactory.getInstance()).build();
+        for (int i = 0; i < BARS; i++) {
+            series.barBuilder()
+                    .timePeriod(Duration.ofMillis(BAR_MILLIS))
+                    .endTime(Instant.ofEpochMilli(time(i) + BAR_MILLIS))
+                    .openPrice(bars[i][0])
+                    .highPrice(bars[i][1])
+                    .lowPrice(bars[i][2])
+                    .closePrice(bars[i][3])
+                    .volume(bars[i][4])
+                    .add();
+        }
+        StrategyConfig reversionConfig = context.getConfig(REVERSION);
+        ClosePriceIndicator closePrice = new ClosePriceIndicator(series);
+        EMAIndicator emaFast = new EMAIndicator(closePrice, AdaptiveTrendStrategy.FAST_EMA);
+        EMAIndicator emaSlow = new EMAIndicator(closePrice, AdaptiveTrendStrategy.SLOW_EMA);
+        ATRIndicator atr = new ATRIndicator(series, AdaptiveTrendStrategy.ATR_PERIOD);
+        ADXIndicator adx = new ADXIndicator(series, AdaptiveTrendStrategy.ADX_PERIOD);
+        RSIIndicator rsi = new RSIIndicator(closePrice, reversionConfig.getRsiPeriod());
+        EMAIndicator bbMiddle = new EMAIndicator(closePrice, reversionConfig.getBbPeriod());
+
+        for (int i = 0; i < BARS; i++) {
+            // Исправляемый бар сначала закрывается значениями до исправления
+            double[] b = uncorrected[i] != null ? uncorrected[i] : bars[i];
+            context.onCandle(time(i), b[0], b[1], b[2], b[0] + (b[3] - b[0]) / 3, b[4] / 3);
+            if (i > 0 && uncorrected[i - 1] != null) {
+                double[] p = bars[i - 1];
+                context.onCandle(time(i - 1), p[0], p[1], p[2], p[3], p[4]);
+            }
+            context.onCandle(time(i), b[0], b[1], b[2], b[3], b[4]);
+            if (uncorrected[i] != null) {
+                continue; // Значения бара изменятся исправлением: сверяется только итоговое состояние
+            }
+
+            double[] s = context.slab();
+            int trend = context.working(TREND);
+            int reversion = context.working(REVERSION);
+            assertClose("EMA(fast)", i, emaFast, s[trend + AdaptiveTrendStrategy.EMA_FAST]);
+            assertClose("EMA(slow)", i, emaSlow, s[trend + AdaptiveTrendStrategy.EMA_SLOW]);
+            assertClose("ATR", i, atr, s[trend + AdaptiveTrendStrategy.ATR]);
+            assertClose("ADX", i, adx, s[trend + AdaptiveTrendStrategy.ADX]);
+            assertClose("RSI", i, rsi, Incremental.rsi(s[reversion + MeanReversionStrategy.AVG_GAIN],
+                    s[reversion + MeanReversionStrategy.AVG_LOSS]));
+            assertClose("EMA(bb)", i, bbMiddle, s[reversion + MeanReversionStrategy.BB_MIDDLE]);
+            for (int period : WINDOW_PERIODS) {
+                assertVwap(period, i, new VWAPIndicator(series, period), context.vwap(i, period));
+                assertClose("StdDev(" + period + ")", i, new StandardDeviationIndicator(closePrice, period),
+                        context.stdDev(i, period));
+            }
+        }
+    }
+
+    private static double[] bar(SplittableRandom random, double open, double close, double volume) {
+        double high = Math.max(open, close) * (1 + random.nextDouble() * 0.003);
+        double low = Math.min(open, close) * (1 - random.nextDouble() * 0.003);
+        return new double[]{open, high, low, close, volume};
+    }
+
+    private static long time(int bar) {
+        return START_MILLIS + bar * BAR_MILLIS;
+    }
+
+    /**
+     * Окно без объема: ta4j дает NaN (0 / 0), контекст — типичную цену бара, чтобы правила не получали NaN.
+     */
+    private void assertVwap(int period, int bar, VWAPIndicator indicator, double actual) {
+        double volume = 0;
+        for (int i = Math.max(0, bar - period + 1); i <= bar; i++) {
+            volume += context.volume(i);
+        }
+        if (volume == 0) {
+            double typical = (context.high(bar) + context.low(bar) + context.close(bar)) / 3.0;
+            assertEquals(typical, actual, () -> String.format("VWAP(%d) без объема на баре %d", period, bar));
+            return;
+        }
+        assertClose("VWAP(" + period + ")", bar, indicator, actual);
+    }
+
+    private static void assertClose(String name, int bar, Indicator<Num> indicator, double actual) {
+        double expected = indicator.getValue(bar).doubleValue();
+        assertEquals(expected, actual, TOLERANCE * Math.max(1, Math.abs(expected)),
+                () -> String.format("%s на баре %d", name, bar));
+    }
+}
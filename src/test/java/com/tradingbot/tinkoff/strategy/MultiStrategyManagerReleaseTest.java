@@ -0,0 +1,46 @@
+package com.tradingbot.tinkoff.strategy;
+
+import com.tradingbot.tinkoff.model.TradableInstrument;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Освобожденный менеджер не пишет в массив состояния, который пул уже мог отдать другому инструменту.
+ */
+class MultiStrategyManagerReleaseTest {
+    private static final long START_MILLIS = 1_709_276_400_000L; // 2024-03-01 10:00 МСК
+
+    private final TradableInstrument instrument =
+            new TradableInstrument("TEST", "TEST00000000", TradableInstrument.InstrumentType.STOCK, "rub");
+
+    @Test
+    void releasedManagerRejectsUpdatesAndAnalysis() {
+        MultiStrategyManager manager = new MultiStrategyManager(instrument, MultiStrategyManager.getAvailableStrategyNames());
+        manager.onCandle(START_MILLIS, 100, 101, 99, 100.5, 1_000);
+        manager.release();
+
+        assertThrows(IllegalStateException.class, () -> manager.onCandle(START_MILLIS + 60_000, 100, 101, 99, 100.5, 1_000));
+        assertThrows(IllegalStateException.class, () -> manager.onIntrabarTick(instrument, START_MILLIS + 1_000, 100.7, 0));
+        assertThrows(IllegalStateException.class, () -> manager.analyzeAll(instrument));
+    }
+
+    @Test
+    void repeatedReleaseReturnsSlabOnce() {
+        InstrumentContext.Layout layout = new InstrumentContext.Layout(MultiStrategyManager.DEFINITIONS);
+        InstrumentContext released = new InstrumentContext(instrument, layout);
+        released.release();
+        released.release();
+
+        // Два новых контекста не должны получить из пула один и тот же массив
+        InstrumentContext first = new InstrumentContext(instrument, layout);
+        InstrumentContext second = new InstrumentContext(instrument, layout);
+        try {
+            assertNotSame(first.slab(), second.slab());
+        } finally {
+            first.release();
+            second.release();
+        }
+    }
+}
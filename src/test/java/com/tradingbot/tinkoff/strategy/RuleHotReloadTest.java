@@ -0,0 +1,103 @@
+package com.tradingbot.tinkoff.strategy;
+
+import com.tradingbot.tinkoff.model.TradableInstrument;
+import com.tradingbot.tinkoff.model.TradingSignal;
+import com.tradingbot.tinkoff.rules.RuleRepository;
+import com.tradingbot.tinkoff.rules.RuleSet;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Файл правил с порогами в записи с порядком проходит путь горячей замены: чтение каталога
+ * {@link RuleRepository}, компиляция, {@link MultiStrategyManager#updateRules} и анализ стратегией RULES.
+ */
+class RuleHotReloadTest {
+    private static final long START_MILLIS = 1_709_276_400_000L; // 2024-03-01 10:00 МСК
+    private static final long BAR_MILLIS = 60_000L;
+    private static final int WARMUP_BARS = 8;
+
+    private static final String RULES = String.join("\n",
+            "name=exponent-thresholds",
+            "param.minVolume=1.5e3",
+            "param.band=2.5E-1",
+            "entry.long=volume >= minVolume and price - open >= band && !(rsi < 0) || false",
+            "entry.short=volume >= minVolume and open - price >= band",
+            "exit.long=volume > 1e6",
+            "exit.short=(volume == -1 or price <= 0) and not (price != price)",
+            "score=min(100, volume / 1E2 * 2 % 7 + (price > open ? 5e1 : 0))",
+            "period.rsi=2",
+            "period.emaFast=2",
+            "period.emaSlow=3",
+            "period.atr=2",
+            "period.vwap=2",
+            "period.bb=2",
+            "");
+
+    private final TradableInstrument instrument =
+            new TradableInstrument("TEST", "TEST00000000", TradableInstrument.InstrumentType.STOCK, "rub");
+    private Path directory;
+    private MultiStrategyManager manager;
+    private int bar;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        directory = Files.createTempDirectory("rules");
+        manager = new MultiStrategyManager(instrument, List.of("RULES"));
+        for (int i = 0; i < WARMUP_BARS; i++) {
+            candle(100, 100, 1_000);
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        manager.release();
+        Files.deleteIfExists(directory.resolve("default.rules"));
+        Files.deleteIfExists(directory);
+    }
+
+    @Test
+    void exponentThresholdsDriveSignalsAfterReload() throws IOException {
+        RuleRepository repository = new RuleRepository(directory);
+        Files.writeString(directory.resolve("default.rules"), RULES);
+        repository.loadAll();
+        RuleSet rules = repository.rulesFor(instrument.identifier());
+        assertEquals("exponent-thresholds", rules.getName());
+        manager.updateRules(rules);
+
+        // Объем на единицу ниже 1.5e3
+        candle(100, 100.3, 1_499);
+        assertTrue(manager.analyzeAll(instrument).isEmpty());
+
+        // 1500 >= 1.5e3 и 0.3 >= 2.5E-1; оценка: 1500 / 1E2 * 2 % 7 + 5e1 = 2 + 50
+        candle(100, 100.3, 1_500);
+        List<TradingSignal> signals = manager.analyzeAll(instrument);
+        assertEquals(1, signals.size());
+        assertEquals(TradingSignal.SignalType.BUY, signals.get(0).getSignalType());
+        assertEquals(52, signals.get(0).getScore());
+
+        candle(100.3, 100, 1_500);
+        signals = manager.analyzeAll(instrument);
+        assertEquals(1, signals.size());
+        assertEquals(TradingSignal.SignalType.SELL, signals.get(0).getSignalType());
+        assertEquals(2, signals.get(0).getScore());
+
+        // Новый порог из измененного файла применяется к тем же данным без перезапуска
+        Files.writeString(directory.resolve("default.rules"), RULES.replace("param.minVolume=1.5e3", "param.minVolume=2E+3"));
+        repository.loadAll();
+        manager.updateRules(repository.rulesFor(instrument.identifier()));
+        assertTrue(manager.analyzeAll(instrument).isEmpty());
+    }
+
+    private void candle(double open, double close, double volume) {
+        manager.onCandle(START_MILLIS + bar++ * BAR_MILLIS, open, Math.max(open, close), Math.min(open, close), close, volume);
+    }
+}
@@ -0,0 +1,34 @@
+package com.tradingbot.tinkoff.strategy;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Файл параметров с ошибкой не заменяет действующие параметры.
+ */
+class StrategyConfigRepositoryTest {
+
+    @Test
+    void unknownParameterKeepsPreviousConfigs() throws IOException {
+        Path file = Files.createTempDirectory("strategies").resolve("strategies.json");
+        try {
+            Files.writeString(file, "{ \"default\": { \"SCALPING\": { \"rsiPeriod\": 9 } } }");
+            StrategyConfigRepository repository = new StrategyConfigRepository(file);
+            repository.loadAll();
+            assertEquals(9, repository.configsFor("ANY").get("SCALPING").getRsiPeriod());
+
+            // Опечатка в имени параметра: файл отвергается целиком, включая корректные поля
+            Files.writeString(file, "{ \"default\": { \"SCALPING\": { \"rsiPeriod\": 5, \"rsiPeriood\": 11 } } }");
+            repository.loadAll();
+            assertEquals(9, repository.configsFor("ANY").get("SCALPING").getRsiPeriod());
+        } finally {
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(file.getParent());
+        }
+    }
+}